@@ -17,6 +17,21 @@ import talk.instruction.ReturnInstruction;
 import talk.core.Tokenizer;
 import talk.instruction.WriteInstruction;
 import talk.instruction.PluginCallInstruction;
+import talk.instruction.CreateChannelInstruction;
+import talk.instruction.SendInstruction;
+import talk.instruction.ReceiveInstruction;
+import talk.instruction.CloseChannelInstruction;
+import talk.instruction.StartWorkersInstruction;
+import talk.instruction.WaitForWorkersInstruction;
+import talk.instruction.IncreaseSharedCounterInstruction;
+import talk.instruction.AddToSharedCountsInstruction;
+import talk.instruction.AddToListInstruction;
+import talk.instruction.RemoveListItemInstruction;
+import talk.instruction.SetListItemInstruction;
+import talk.instruction.MapFileInstruction;
+import talk.io.DirectoryFilter;
+import talk.instruction.CopyDirectoryInstruction;
+import talk.instruction.CopyFileInstruction;
 
 public class Parser {
     private final List<Tokenizer.Token> tokens;
@@ -252,7 +267,11 @@ public class Parser {
         if (pos < tokens.size()) {
             String filePath = tokens.get(pos).value;
             pos++; // Move past the file path
-            return new talk.instruction.ImportInstruction(filePath, line);
+            boolean again = peek("again") && tokens.get(pos).lineNumber == line;
+            if (again) {
+                pos++;
+            }
+            return new talk.instruction.ImportInstruction(filePath, again, line);
         } else {
             throw new TalkSyntaxException("Expected file path after 'import'", line);
         }
@@ -334,10 +353,111 @@ public class Parser {
         if ("import".equals(value)) {
             return parseImportStatement(line);
         }
+        if ("create".equals(value) && peekNext("channel")) {
+            return parseCreateChannel(line);
+        }
+        if ("send".equals(value)) {
+            pos++; // Skip 'send'
+            String valueExpr = expectValue();
+            expect("to");
+            return new SendInstruction(valueExpr, expectIdentifier(), line);
+        }
+        if ("receive".equals(value)) {
+            pos++; // Skip 'receive'
+            expect("from");
+            String channelName = expectIdentifier();
+            expect("into");
+            return new ReceiveInstruction(channelName, expectIdentifier(), line);
+        }
+        if ("close".equals(value)) {
+            pos++; // Skip 'close'
+            return new CloseChannelInstruction(expectIdentifier(), line);
+        }
+        if ("start".equals(value)) {
+            return parseStartWorkers(line);
+        }
+        if ("wait".equals(value) && peekNext("for")) {
+            pos += 2; // Skip 'wait for'
+            expect("workers");
+            return new WaitForWorkersInstruction(line);
+        }
+        if ("increase".equals(value) && peekNext("shared")) {
+            pos += 2; // Skip 'increase shared'
+            expect("counter");
+            String counterName = expectIdentifier();
+            expect("by");
+            return new IncreaseSharedCounterInstruction(counterName, expectValue(), line);
+        }
+        if ("add".equals(value) && pos + 3 < tokens.size() && "list".equals(tokens.get(pos + 3).value)) {
+            pos++; // Skip 'add'
+            String valueExpr = expectValue();
+            expect("to");
+            expect("list");
+            return new AddToListInstruction(valueExpr, expectIdentifier(), line);
+        }
+        if ("remove".equals(value) && peekNext("item")) {
+            pos += 2; // Skip 'remove item'
+            String indexExpr = expectValue();
+            expect("from");
+            return new RemoveListItemInstruction(indexExpr, expectIdentifier(), line);
+        }
+        if ("set".equals(value) && peekNext("item") && pos + 3 < tokens.size() && "in".equals(tokens.get(pos + 3).value)) {
+            pos += 2; // Skip 'set item'
+            String indexExpr = expectValue();
+            expect("in");
+            String listName = expectIdentifier();
+            expect("to");
+            return new SetListItemInstruction(indexExpr, listName, expectValue(), line);
+        }
+        if ("add".equals(value)) {
+            pos++; // Skip 'add'
+            String amountExpr = expectValue();
+            expect("to");
+            expect("key");
+            String keyExpr = expectValue();
+            expect("in");
+            expect("shared");
+            return new AddToSharedCountsInstruction(amountExpr, keyExpr, expectIdentifier(), line);
+        }
         // fallback to original parseInstruction for all other cases
         return parseInstruction();
     }
 
+    /**
+     * Parse a channel creation
+     * Format: create channel size <n> as <variable>
+     */
+    private Instruction parseCreateChannel(int line) {
+        pos += 2; // Skip 'create channel'
+        expect("size");
+        String sizeExpr = expectValue();
+        expect("as");
+        return new CreateChannelInstruction(sizeExpr, expectIdentifier(), line);
+    }
+
+    /**
+     * Parse a worker start instruction
+     * Format: start <n> workers running function <name> [with arg1 and arg2 and ...]
+     */
+    private Instruction parseStartWorkers(int line) {
+        pos++; // Skip 'start'
+        String countExpr = expectValue();
+        expect("workers");
+        expect("running");
+        expect("function");
+        String functionName = expectIdentifier();
+        List<String> arguments = new ArrayList<>();
+        if (peek("with")) {
+            pos++; // Skip 'with'
+            arguments.add(expectValue());
+            while (peek("and")) {
+                pos++; // Skip 'and'
+                arguments.add(expectValue());
+            }
+        }
+        return new StartWorkersInstruction(countExpr, functionName, arguments, line);
+    }
+
     /**
      * Parse a plugin call instruction
      * Format: use plugin <pluginAlias> [with arg1 and arg2 and ...] [into <variable>]
@@ -531,6 +651,19 @@ public class Parser {
             expect("each");
             String itemVar = expectIdentifier();
             expect("in");
+            if (peek("file")) {
+                pos++;
+                String fileExpr = expectValue();
+                List<Instruction> body = parseIndentedBlockWithParentIndent(getIndentLevel(pos > 0 ? pos - 1 : 0));
+                return RepeatInstruction.overFileLines(itemVar, fileExpr, body, line);
+            }
+            if (peek("directory")) {
+                pos++;
+                String directoryExpr = expectValue();
+                DirectoryFilter filter = parseDirectoryFilter(line);
+                List<Instruction> body = parseIndentedBlockWithParentIndent(getIndentLevel(pos > 0 ? pos - 1 : 0));
+                return RepeatInstruction.overDirectory(itemVar, directoryExpr, filter, body, line);
+            }
             String listVar = expectIdentifier();
             List<Instruction> body = parseIndentedBlockWithParentIndent(getIndentLevel(pos > 0 ? pos - 1 : 0));
             return new RepeatInstruction(itemVar, listVar, body, line);
@@ -548,6 +681,47 @@ public class Parser {
         return new RepeatInstruction(countExpr.toString().trim(), body, line);
     }
 
+    // [matching [regex] <pattern>] [recursively [to depth <n>]] [with attributes], all on the repeat line
+    private DirectoryFilter parseDirectoryFilter(int line) {
+        String pattern = null;
+        boolean regex = false;
+        int maxDepth = DirectoryFilter.TOP_LEVEL;
+        boolean withAttributes = false;
+        while (pos < tokens.size() && tokens.get(pos).lineNumber == line) {
+            if (peek("matching")) {
+                pos++;
+                if (peek("regex")) {
+                    pos++;
+                    regex = true;
+                }
+                pattern = expectValue().replaceAll("^[\"']|[\"']$", "");
+            } else if (peek("recursively")) {
+                pos++;
+                if (maxDepth == DirectoryFilter.TOP_LEVEL) {
+                    maxDepth = DirectoryFilter.UNLIMITED_DEPTH;
+                }
+            } else if (peek("to") && peekNext("depth")) {
+                pos += 2;
+                String depth = expectValue();
+                try {
+                    maxDepth = Integer.parseInt(depth);
+                } catch (NumberFormatException e) {
+                    throw new TalkSyntaxException("Expected a number after 'to depth', got '" + depth + "'", line);
+                }
+            } else if (peek("with") && peekNext("attributes")) {
+                pos += 2;
+                withAttributes = true;
+            } else {
+                throw new TalkSyntaxException("Unexpected '" + tokens.get(pos).value + "' in directory loop", line);
+            }
+        }
+        try {
+            return new DirectoryFilter(pattern, regex, maxDepth, withAttributes);
+        } catch (IllegalArgumentException e) {
+            throw new TalkSyntaxException("Invalid directory filter: " + e.getMessage(), line);
+        }
+    }
+
     // Handler for parsing function definition
     private Instruction parseFunctionDefinition(int line) {
         pos++;
@@ -674,6 +848,23 @@ public class Parser {
             }
             return instructionFactory.create(value, new InstructionContext(identifier, val, line));
         }
+        if ("map".equals(value) && peekNext("file")) {
+            pos += 2; // Skip 'map file'
+            String fileName = expectValue();
+            expect("into");
+            String variableName = expectIdentifier();
+            return new MapFileInstruction(fileName, variableName, line);
+        }
+        if ("copy".equals(value) && (peekNext("file") || peekNext("directory"))) {
+            boolean directory = peekNext("directory");
+            pos += 2; // Skip 'copy file' or 'copy directory'
+            String source = expectValue();
+            expect("to");
+            String destination = expectValue();
+            return directory
+                ? new CopyDirectoryInstruction(source, destination, line)
+                : new CopyFileInstruction(source, destination, line);
+        }
         if ("read".equals(value) && peekNext("file")) {
             pos++;
             pos++;
@@ -716,6 +907,8 @@ public class Parser {
     }
 
     public static class BlockInstruction implements Instruction {
+        private static final long serialVersionUID = 1L;
+
         private final List<Instruction> block;
         private final int lineNumber;
         BlockInstruction(List<Instruction> block, int lineNumber) {
@@ -727,6 +920,8 @@ public class Parser {
     }
 
     public static class OtherwiseBlockInstruction implements Instruction {
+        private static final long serialVersionUID = 1L;
+
         private final List<Instruction> block;
         private final int lineNumber;
         OtherwiseBlockInstruction(List<Instruction> block, int lineNumber) {
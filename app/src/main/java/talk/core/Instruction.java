@@ -1,5 +1,11 @@
 package talk.core;
 
-public interface Instruction {
+import java.io.Serializable;
+
+/**
+ * A parsed statement. Instructions are serializable so parsed scripts can be
+ * written to a bundle and run later without parsing them again.
+ */
+public interface Instruction extends Serializable {
     int getLineNumber();
 }
@@ -0,0 +1,82 @@
+package talk.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import talk.Parser;
+import talk.instruction.AfterEachInstruction;
+import talk.instruction.AttemptInstruction;
+import talk.instruction.BeforeEachInstruction;
+import talk.instruction.FunctionDefinitionInstruction;
+import talk.instruction.IfInstruction;
+import talk.instruction.RepeatInstruction;
+import talk.instruction.TestBlockInstruction;
+
+/**
+ * Helpers for looking at parsed instructions without running them, for
+ * passes that need every instruction of a script, including those nested
+ * in functions, conditions, loops and blocks.
+ */
+public final class InstructionTree {
+    private InstructionTree() {
+    }
+
+    /**
+     * @param instruction An instruction
+     * @return The blocks of instructions nested directly in it, or an empty list
+     */
+    public static List<List<Instruction>> blocksOf(Instruction instruction) {
+        if (instruction instanceof FunctionDefinitionInstruction) {
+            return Collections.singletonList(((FunctionDefinitionInstruction) instruction).getBody());
+        } else if (instruction instanceof IfInstruction) {
+            IfInstruction ii = (IfInstruction) instruction;
+            return nonNull(ii.getThenInstructions(), ii.getElseInstructions());
+        } else if (instruction instanceof RepeatInstruction) {
+            return Collections.singletonList(((RepeatInstruction) instruction).getBody());
+        } else if (instruction instanceof AttemptInstruction) {
+            AttemptInstruction ai = (AttemptInstruction) instruction;
+            return nonNull(ai.getTryBlock(), ai.getCatchBlock());
+        } else if (instruction instanceof TestBlockInstruction) {
+            return Collections.singletonList(((TestBlockInstruction) instruction).getInstructions());
+        } else if (instruction instanceof BeforeEachInstruction) {
+            return Collections.singletonList(((BeforeEachInstruction) instruction).getInstructions());
+        } else if (instruction instanceof AfterEachInstruction) {
+            return Collections.singletonList(((AfterEachInstruction) instruction).getInstructions());
+        } else if (instruction instanceof Parser.BlockInstruction) {
+            return Collections.singletonList(((Parser.BlockInstruction) instruction).getBlock());
+        } else if (instruction instanceof Parser.OtherwiseBlockInstruction) {
+            return Collections.singletonList(((Parser.OtherwiseBlockInstruction) instruction).getBlock());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Visit every instruction in a list and in the blocks nested in it, parents before children
+     * @param instructions The instructions
+     * @param visitor Called once per instruction
+     */
+    public static void forEach(List<Instruction> instructions, Consumer<Instruction> visitor) {
+        for (Instruction instruction : instructions) {
+            if (instruction == null) {
+                continue;
+            }
+            visitor.accept(instruction);
+            for (List<Instruction> block : blocksOf(instruction)) {
+                forEach(block, visitor);
+            }
+        }
+    }
+
+    @SafeVarargs
+    private static List<List<Instruction>> nonNull(List<Instruction>... blocks) {
+        List<List<Instruction>> result = new ArrayList<>(blocks.length);
+        for (List<Instruction> block : blocks) {
+            if (block != null) {
+                result.add(block);
+            }
+        }
+        return result;
+    }
+}
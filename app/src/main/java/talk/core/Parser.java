@@ -873,6 +873,8 @@ public class Parser {
     }
 
     static class BlockInstruction implements Instruction {
+        private static final long serialVersionUID = 1L;
+
         private final List<Instruction> block;
         private final int lineNumber;
         BlockInstruction(List<Instruction> block, int lineNumber) {
@@ -884,6 +886,8 @@ public class Parser {
     }
 
     static class OtherwiseBlockInstruction implements Instruction {
+        private static final long serialVersionUID = 1L;
+
         private final List<Instruction> block;
         private final int lineNumber;
         OtherwiseBlockInstruction(List<Instruction> block, int lineNumber) {
@@ -5,9 +5,11 @@ import java.util.Map;
 import java.util.ArrayList;
 import java.util.List;
 
+import talk.expression.ListValue;
 import talk.instruction.FunctionDefinitionInstruction;
 import talk.instruction.BeforeEachInstruction;
 import talk.instruction.AfterEachInstruction;
+import talk.runtime.WorkerPool;
 
 public class RuntimeContext {
     private final Map<String, Object> variables = new HashMap<>();
@@ -23,10 +25,41 @@ public class RuntimeContext {
     private AfterEachInstruction afterEachBlock = null;
     private String currentTestName = null;
 
+    // Workers started by this context, created on first use
+    private WorkerPool workerPool = null;
+
     public RuntimeContext() {
         variableStack.push(variables);
     }
 
+    /**
+     * Creates a context for a worker thread. The worker sees all functions and a
+     * snapshot of the currently visible variables; values such as channels are
+     * shared by reference, plain variables are not written back. Lists are
+     * copied, so a worker changing a list doesn't change the caller's.
+     */
+    public RuntimeContext forkWorker() {
+        RuntimeContext worker = new RuntimeContext();
+        worker.functions.putAll(functions);
+        java.util.Iterator<Map<String, Object>> outerFirst = variableStack.descendingIterator();
+        while (outerFirst.hasNext()) {
+            worker.variables.putAll(outerFirst.next());
+        }
+        worker.variables.replaceAll((name, value) -> value instanceof ListValue ? ((ListValue) value).copy() : value);
+        return worker;
+    }
+
+    public synchronized WorkerPool getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = new WorkerPool();
+        }
+        return workerPool;
+    }
+
+    public synchronized boolean hasWorkers() {
+        return workerPool != null && workerPool.getRunningCount() > 0;
+    }
+
     // Test framework methods
     public void addTestResult(TestResult result) {
         testResults.add(result);
@@ -98,6 +131,32 @@ public class RuntimeContext {
         if (variableStack.size() > 1) variableStack.pop();
     }
 
+    /**
+     * Set aside every scope above the global one, e.g. to run an imported module,
+     * whose variables must outlive the function or loop that imported it
+     * @return The scopes set aside, to give back to leaveGlobalScope
+     */
+    public java.util.Deque<Map<String, Object>> enterGlobalScope() {
+        java.util.Deque<Map<String, Object>> local = new java.util.ArrayDeque<>();
+        while (variableStack.size() > 1) {
+            local.push(variableStack.pop());
+        }
+        return local;
+    }
+
+    /**
+     * Put back the scopes set aside by enterGlobalScope
+     * @param local The scopes enterGlobalScope returned
+     */
+    public void leaveGlobalScope(java.util.Deque<Map<String, Object>> local) {
+        while (variableStack.size() > 1) {
+            variableStack.pop();
+        }
+        while (!local.isEmpty()) {
+            variableStack.push(local.pop());
+        }
+    }
+
     public Object getVariable(String name) {
         for (Map<String, Object> scope : variableStack) {
             if (scope.containsKey(name)) return scope.get(name);
@@ -4,17 +4,46 @@ import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Option;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import talk.Parser;
 import talk.linter.TalkLinter;
 import talk.runtime.InstructionExecutor;
+import talk.runtime.ModuleLoader;
+import talk.runtime.ModulePrecompiler;
+import talk.runtime.ScriptBundle;
+import talk.runtime.ScriptBundler;
+import talk.runtime.SharedCounters;
+import talk.io.AsyncLogger;
+import talk.io.CachingFileSystem;
+import talk.io.DefaultFileSystem;
+import talk.io.DefaultLogger;
+import talk.io.FileSystem;
+import talk.io.FileWatcher;
+import talk.io.InMemoryFileSystem;
+import talk.io.Logger;
+import talk.io.OutputChannelManager;
 import talk.util.ErrorFormatter;
+import talk.util.StartupTrace;
 import talk.plugins.BuiltInPlugins;
+import talk.plugins.PluginBulkhead;
 import talk.plugins.PluginConfigLoader;
+import talk.plugins.PluginRegistry;
+import talk.plugins.PluginResultCache;
 
 @Command(name = "talk", mixinStandardHelpOptions = true, version = "talk 0.1",
         description = "Conversational Programming Language CLI")
@@ -25,12 +54,73 @@ public class TalkRunner implements Callable<Integer> {
     @Parameters(index = "0", description = "The command to execute (e.g. run)")
     private String command;
 
-    @Parameters(index = "1", description = "The .talk script file to run", arity = "0..1")
+    @Parameters(index = "1", description = "The .talk script file to run, or a .talkb bundle", arity = "0..1")
     private String scriptFile;
     
     @Option(names = {"-p", "--plugin-config"}, description = "Custom plugin configuration file path")
     private String pluginConfigPath;
 
+    @Option(names = {"--startup-trace"}, description = "Print startup timings and the plugins loaded on first call")
+    private boolean startupTrace;
+
+    @Option(names = {"--batch-plugins"}, description = "Send plugin calls at the start of list loops to batch-capable plugins as one batch")
+    private boolean batchPlugins;
+
+    @Option(names = {"--no-plugin-cache"}, description = "Call plugins every time instead of reusing cached results")
+    private boolean noPluginCache;
+
+    @Option(names = {"--sync-writes"}, description = "Open, append to and close the file for every line written, instead of buffering")
+    private boolean syncWrites;
+
+    @Option(names = {"--write-buffer-size"}, description = "Characters buffered per written file before they are written out (default: ${DEFAULT-VALUE})")
+    private int writeBufferSize = OutputChannelManager.DEFAULT_BUFFER_SIZE;
+
+    @Option(names = {"--async-log"}, description = "Write log messages from a background thread instead of appending each one to the log file")
+    private boolean asyncLog;
+
+    @Option(names = {"--log-overflow"}, description = "With --async-log, what to do when the log buffer is full: block, drop or sample (default: ${DEFAULT-VALUE})")
+    private String logOverflow = "block";
+
+    @Option(names = {"--plugin-stats"}, description = "Print plugin cache hits and misses, and latency and queue depth of limited plugins, after the script runs")
+    private boolean pluginStats;
+
+    @Option(names = {"--import-stats"}, description = "Print how often each module was imported and how long loading it took, after the script runs")
+    private boolean importStats;
+
+    @Option(names = {"--no-precompile"}, description = "Parse imported modules when their imports run, instead of in parallel before the script starts")
+    private boolean noPrecompile;
+
+    @Option(names = {"--no-read-cache"}, description = "Read files every time instead of reusing the contents of unchanged files")
+    private boolean noReadCache;
+
+    @Option(names = {"--read-cache-size"}, description = "Megabytes of file contents kept by the read cache (default: ${DEFAULT-VALUE})")
+    private int readCacheSize = (int) (CachingFileSystem.DEFAULT_MAX_BYTES / (1024 * 1024));
+
+    @Option(names = {"--read-cache-stats"}, description = "Print read cache hits and misses and the bytes it saved, after the script runs")
+    private boolean readCacheStats;
+
+    @Option(names = {"--memfs"}, description = "Keep the script's files in memory instead of on disk; plugins still use the disk")
+    private boolean memfs;
+
+    @Option(names = {"--memfs-snapshot"}, paramLabel = "DIR", description = "Use --memfs, starting with a copy of this directory's files")
+    private String memfsSnapshot;
+
+    @Option(names = {"--memfs-limit"}, description = "With --memfs, the most megabytes the files may hold (default: no limit)")
+    private int memfsLimit;
+
+    @Option(names = {"--watch"}, description = "Keep running, and run the script again whenever it or a module it imports changes")
+    private boolean watch;
+
+    @Option(names = {"--watch-debounce"}, description = "With --watch, milliseconds to wait for more changes before running again (default: ${DEFAULT-VALUE})")
+    private long watchDebounce = 200;
+
+    @Option(names = {"-o", "--output"}, description = "With bundle, the bundle file to write (default: the script's name with .talkb)")
+    private String outputFile;
+
+    // Set by runScript for watch mode
+    private ModuleLoader lastModuleLoader;
+    private long lastPrecompileNanos;
+
     @Override
     public Integer call() throws Exception {
         // Initialize plugin system
@@ -41,8 +131,8 @@ public class TalkRunner implements Callable<Integer> {
             return 0;
         }
         if ("run".equals(command)) {
-            if (scriptFile == null || !scriptFile.endsWith(".talk")) {
-                System.err.println("Error: Please provide a .talk script file.");
+            if (scriptFile == null || !(scriptFile.endsWith(".talk") || scriptFile.endsWith(ScriptBundle.EXTENSION))) {
+                System.err.println("Error: Please provide a .talk script file or a " + ScriptBundle.EXTENSION + " bundle.");
                 return 1;
             }
             File file = new File(scriptFile);
@@ -50,30 +140,78 @@ public class TalkRunner implements Callable<Integer> {
                 System.err.println("Error: File not found: " + scriptFile);
                 return 1;
             }
+            if (watch && (memfs || memfsSnapshot != null || scriptFile.endsWith(ScriptBundle.EXTENSION))) {
+                System.err.println("Error: --watch needs a .talk script and files on disk.");
+                return 1;
+            }
+            if (watchDebounce < 0) {
+                System.err.println("Error: --watch-debounce cannot be negative.");
+                return 1;
+            }
             System.out.println("Running script...");
+            CachingFileSystem readCache = null;
+            FileSystem fileSystem = new DefaultFileSystem();
+            if (memfs || memfsSnapshot != null) {
+                try {
+                    fileSystem = createMemoryFileSystem();
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Error: " + e.getMessage());
+                    return 1;
+                }
+            } else if (!noReadCache) {
+                try {
+                    readCache = new CachingFileSystem(fileSystem, readCacheSize * 1024L * 1024L);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Error: " + e.getMessage());
+                    return 1;
+                }
+                fileSystem = readCache;
+            }
+            Logger logger;
             try {
-                List<String> lines = Files.readAllLines(Paths.get(scriptFile));
-                Tokenizer tokenizer = new Tokenizer();
-                List<Tokenizer.Token> tokens = tokenizer.tokenize(lines);
-                Parser parser = new Parser(tokens);
-                List<Instruction> instructions = parser.parse();
-                RuntimeContext ctx = new RuntimeContext();
-                InstructionExecutor exec = new InstructionExecutor(ctx);
-                for (Instruction instr : instructions) {
-                    try {
-                        exec.execute(instr);
-                    } catch (Exception e) {
-                        String msg = ErrorFormatter.format(e, instr.getLineNumber(), "Check your syntax or variable usage.");
-                        System.err.println(msg);
-                        System.out.println("Script execution failed.");
-                        return 1;
-                    }
+                logger = createLogger(fileSystem);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return 1;
+            }
+            if (watch) {
+                closeLogger(logger);
+                return watchScript(fileSystem, readCache);
+            }
+            try {
+                return runScript(fileSystem, readCache, logger, null) ? 0 : 1;
+            } finally {
+                closeLogger(logger);
+            }
+        } else if ("bundle".equals(command)) {
+            if (scriptFile == null || !scriptFile.endsWith(".talk")) {
+                System.err.println("Error: Please provide a .talk script file to bundle.");
+                return 1;
+            }
+            File file = new File(scriptFile);
+            if (!file.exists()) {
+                System.err.println("Error: File not found: " + scriptFile);
+                return 1;
+            }
+            String bundleFile = outputFile != null
+                ? outputFile
+                : scriptFile.substring(0, scriptFile.length() - ".talk".length()) + ScriptBundle.EXTENSION;
+            try {
+                ScriptBundler bundler = new ScriptBundler(new DefaultFileSystem());
+                ScriptBundle bundle = bundler.bundle(scriptFile);
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(bundleFile)))) {
+                    bundle.write(out);
                 }
-                System.out.println("Script executed successfully.");
+                for (String removed : bundler.getRemovedFunctions()) {
+                    System.out.println("  Removed uncalled function " + removed);
+                }
+                System.out.println(String.format("Bundled %s and %d modules into %s (%d bytes, %d functions kept, %d removed).",
+                    scriptFile, bundle.getModules().size(), bundleFile, Files.size(Paths.get(bundleFile)),
+                    bundler.getKeptFunctions(), bundler.getRemovedFunctions().size()));
+                return 0;
             } catch (Exception e) {
-                String msg = ErrorFormatter.format(e, -1, "Script failed to run. See above for details.");
+                String msg = ErrorFormatter.format(e, -1, "Bundling failed. See above for details.");
                 System.err.println(msg);
-                System.out.println("Script execution failed.");
                 return 1;
             }
         } else if ("test".equals(command)) {
@@ -131,22 +269,311 @@ public class TalkRunner implements Callable<Integer> {
             }
         } else {
             System.err.println("Unknown command: " + command);
-            System.err.println("Available commands: run, test, lint, repl");
+            System.err.println("Available commands: run, bundle, test, lint, repl");
             CommandLine.usage(this, System.out);
             return 1;
         }
-        return 0;
+    }
+    
+    /**
+     * Read or parse the script, or take the given instructions, and run it once, printing any error
+     * @param instructions The parsed script, or null to read it
+     * @return Whether the script ran successfully
+     */
+    private boolean runScript(FileSystem fileSystem, CachingFileSystem readCache, Logger logger, List<Instruction> instructions) {
+        lastPrecompileNanos = 0;
+        try {
+            long parseStart = System.nanoTime();
+            ScriptBundle bundle = null;
+            if (instructions != null) {
+                // Parsed by watch mode
+            } else if (scriptFile.endsWith(ScriptBundle.EXTENSION)) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(scriptFile)))) {
+                    bundle = ScriptBundle.read(in);
+                }
+                instructions = bundle.getInstructions();
+                StartupTrace.recordPhase("read bundle", System.nanoTime() - parseStart);
+            } else {
+                instructions = parseScript();
+                StartupTrace.recordPhase("read and parse script", System.nanoTime() - parseStart);
+            }
+            RuntimeContext ctx = new RuntimeContext();
+            InstructionExecutor exec = new InstructionExecutor(ctx, System.in, fileSystem, logger);
+            exec.setPluginBatching(batchPlugins);
+            exec.setWriteBuffering(syncWrites ? 0 : writeBufferSize);
+            if (bundle != null) {
+                exec.useBundle(bundle);
+            } else {
+                exec.setScriptPath(scriptFile);
+            }
+            lastModuleLoader = exec.getModuleLoader();
+            if (bundle == null && !noPrecompile) {
+                long precompileStart = System.nanoTime();
+                new ModulePrecompiler(exec.getModuleLoader()).precompile(fileSystem.canonicalPath(scriptFile), instructions);
+                lastPrecompileNanos = System.nanoTime() - precompileStart;
+                StartupTrace.recordPhase("precompile imported modules", lastPrecompileNanos);
+            }
+            for (Instruction instr : instructions) {
+                try {
+                    exec.execute(instr);
+                } catch (Exception e) {
+                    String msg = ErrorFormatter.format(e, instr.getLineNumber(), "Check your syntax or variable usage.");
+                    System.err.println(msg);
+                    exec.closeOutputChannels();
+                    System.out.println("Script execution failed.");
+                    return false;
+                }
+            }
+            exec.finish();
+            System.out.println("Script executed successfully.");
+            if (pluginStats) {
+                printPluginStats();
+            }
+            if (importStats) {
+                printImportStats(exec.getModuleLoader());
+            }
+            if (readCacheStats) {
+                printReadCacheStats(readCache);
+            }
+            if (startupTrace) {
+                StartupTrace.printReport(System.out, PluginConfigLoader.countDeferredPlugins());
+            }
+            return true;
+        } catch (Exception e) {
+            String msg = ErrorFormatter.format(e, -1, "Script failed to run. See above for details.");
+            System.err.println(msg);
+            System.out.println("Script execution failed.");
+            return false;
+        }
+    }
+
+    /**
+     * Tokenize and parse the script file
+     */
+    private List<Instruction> parseScript() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(scriptFile));
+        Tokenizer tokenizer = new Tokenizer();
+        List<Tokenizer.Token> tokens = tokenizer.tokenize(lines);
+        Parser parser = new Parser(tokens);
+        return parser.parse();
+    }
+
+    /**
+     * Run the script, then run it again each time it or a module it imported changes, until the process is stopped.
+     * Only the files that changed are parsed again; unchanged modules come from the module cache.
+     */
+    private int watchScript(FileSystem fileSystem, CachingFileSystem readCache) {
+        Path script = Paths.get(scriptFile).toAbsolutePath().normalize();
+        Path scriptDir = script.getParent();
+        List<Instruction> instructions = null;
+        Set<Path> changed = Collections.singleton(script);
+        try (FileWatcher watcher = new FileWatcher(watchDebounce)) {
+            while (true) {
+                for (Path file : changed) {
+                    ModuleLoader.invalidate(file.toString());
+                    if (readCache != null) {
+                        readCache.invalidate(file.toString());
+                    }
+                }
+                long parseNanos = 0;
+                boolean scriptParsed = false;
+                if (instructions == null || changed.contains(script)) {
+                    long parseStart = System.nanoTime();
+                    try {
+                        instructions = parseScript();
+                        scriptParsed = true;
+                    } catch (Exception e) {
+                        System.err.println(ErrorFormatter.format(e, -1, "Fix the script and save it to run it again."));
+                        instructions = null;
+                    }
+                    parseNanos = System.nanoTime() - parseStart;
+                }
+
+                Set<Path> watched = watchedFiles(script);
+                watcher.watch(watched);
+                if (instructions != null) {
+                    SharedCounters.getInstance().clear();
+                    StartupTrace.reset();
+                    Logger logger = createLogger(fileSystem);
+                    long runStart = System.nanoTime();
+                    try {
+                        runScript(fileSystem, readCache, logger, instructions);
+                    } finally {
+                        closeLogger(logger);
+                    }
+                    long runNanos = System.nanoTime() - runStart - lastPrecompileNanos;
+
+                    List<String> parsed = new ArrayList<>();
+                    if (scriptParsed) {
+                        parsed.add(script.getFileName().toString());
+                    }
+                    int unchanged = 0;
+                    for (Map.Entry<String, ModuleLoader.Stats> entry : lastModuleLoader.getStats().entrySet()) {
+                        if (entry.getValue().getParses() + entry.getValue().getPrecompileParses() > 0) {
+                            parsed.add(scriptDir.relativize(Paths.get(entry.getKey())).toString());
+                        } else {
+                            unchanged++;
+                        }
+                    }
+                    System.out.println(String.format("Rebuilt in %.1f ms (parsed: %s; %d modules unchanged), ran in %.1f ms.",
+                        (parseNanos + lastPrecompileNanos) / 1e6, parsed.isEmpty() ? "nothing" : String.join(", ", parsed),
+                        unchanged, runNanos / 1e6));
+                    // Modules the script stopped importing would otherwise stay cached for as long as we watch
+                    ModuleLoader.retainOnly(lastModuleLoader.getStats().keySet());
+                    // The run may have imported modules that were not watched yet
+                    watched = watchedFiles(script);
+                    watcher.watch(watched);
+                }
+
+                System.out.println("Watching " + watched.size() + " files for changes. Press Ctrl+C to stop.");
+                changed = watcher.awaitChanges();
+                List<String> names = new ArrayList<>();
+                for (Path file : changed) {
+                    names.add(scriptDir.relativize(file).toString());
+                }
+                System.out.println("Changed: " + String.join(", ", names) + ". Running script again...");
+            }
+        } catch (IOException e) {
+            System.err.println("Error: Cannot watch files: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    /**
+     * The script and the modules it imported on its last run
+     */
+    private Set<Path> watchedFiles(Path script) {
+        Set<Path> files = new TreeSet<>();
+        files.add(script);
+        if (lastModuleLoader != null) {
+            for (String module : lastModuleLoader.getStats().keySet()) {
+                files.add(Paths.get(module));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Create the logger chosen by --async-log and --log-overflow
+     * @throws IllegalArgumentException If the overflow policy is unknown
+     */
+    private Logger createLogger(FileSystem fileSystem) {
+        return asyncLog
+            ? new AsyncLogger(fileSystem, AsyncLogger.OverflowPolicy.parse(logOverflow))
+            : new DefaultLogger(fileSystem);
+    }
+
+    /**
+     * Create the in-memory file system for --memfs, loading the snapshot directory if one was given
+     */
+    private InMemoryFileSystem createMemoryFileSystem() throws IOException {
+        if (memfsLimit < 0) {
+            throw new IllegalArgumentException("Memory file system limit cannot be negative");
+        }
+        InMemoryFileSystem memory = new InMemoryFileSystem(
+            memfsLimit > 0 ? memfsLimit * 1024L * 1024L : InMemoryFileSystem.UNLIMITED_BYTES, InMemoryFileSystem.UNLIMITED_FILES);
+        if (memfsSnapshot != null) {
+            long start = System.nanoTime();
+            memory.loadSnapshot(Paths.get(memfsSnapshot), "/");
+            StartupTrace.recordPhase("load memory file system snapshot", System.nanoTime() - start);
+            System.out.println("Loaded " + memory.getFileCount() + " files (" + memory.getUsedBytes() + " bytes) from " + memfsSnapshot + " into memory.");
+        }
+        return memory;
+    }
+
+    /**
+     * Write out any log messages still buffered by an asynchronous logger
+     */
+    private void closeLogger(Logger logger) {
+        if (logger instanceof AsyncLogger) {
+            AsyncLogger asyncLogger = (AsyncLogger) logger;
+            try {
+                asyncLogger.close();
+            } catch (IOException e) {
+                System.err.println("Warning: Failed to write log file: " + e.getMessage());
+            }
+            if (asyncLogger.getDroppedCount() > 0) {
+                System.err.println("Warning: " + asyncLogger.getDroppedCount() + " log messages were dropped because the log buffer was full");
+            }
+        }
+    }
+    
+    /**
+     * Print per-plugin cache statistics and bulkhead metrics
+     */
+    private void printPluginStats() {
+        System.out.println("Plugin cache statistics:");
+        Map<String, PluginResultCache.Stats> stats = PluginResultCache.getInstance().getStats();
+        if (stats.isEmpty()) {
+            System.out.println("  No cached plugins were called.");
+        }
+        for (Map.Entry<String, PluginResultCache.Stats> entry : stats.entrySet()) {
+            PluginResultCache.Stats s = entry.getValue();
+            System.out.println(String.format("  %-30s hits: %d, misses: %d, evictions: %d",
+                entry.getKey(), s.getHits(), s.getMisses(), s.getEvictions()));
+        }
+        
+        Map<String, PluginBulkhead> bulkheads = PluginRegistry.getInstance().getBulkheads();
+        if (bulkheads.isEmpty()) {
+            return;
+        }
+        System.out.println("Plugin limits:");
+        for (Map.Entry<String, PluginBulkhead> entry : bulkheads.entrySet()) {
+            PluginBulkhead b = entry.getValue();
+            System.out.println(String.format("  %-30s calls: %d, avg: %.1f ms, max: %.1f ms, max queue: %d, timeouts: %d, rejected: %d",
+                entry.getKey(), b.getCalls(), b.getAverageLatencyNanos() / 1e6, b.getMaxLatencyNanos() / 1e6,
+                b.getMaxQueueDepth(), b.getTimeouts(), b.getRejections()));
+        }
+    }
+    
+    /**
+     * Print read cache hit and miss counts and the bytes it saved
+     */
+    private void printReadCacheStats(CachingFileSystem readCache) {
+        System.out.println("Read cache statistics:");
+        if (readCache == null) {
+            System.out.println("  The read cache is off.");
+            return;
+        }
+        CachingFileSystem.Stats s = readCache.getStats();
+        System.out.println(String.format("  hits: %d, misses: %d, hit rate: %.1f%%, bytes saved: %d, invalidations: %d, evictions: %d",
+            s.getHits(), s.getMisses(), s.getHitRate() * 100, s.getBytesSaved(), s.getInvalidations(), s.getEvictions()));
+    }
+
+    /**
+     * Print per-module import counts and load times
+     */
+    private void printImportStats(ModuleLoader loader) {
+        System.out.println("Import statistics:");
+        Map<String, ModuleLoader.Stats> stats = loader.getStats();
+        if (stats.isEmpty()) {
+            System.out.println("  No modules were imported.");
+        }
+        for (Map.Entry<String, ModuleLoader.Stats> entry : stats.entrySet()) {
+            ModuleLoader.Stats s = entry.getValue();
+            System.out.println(String.format("  %-50s imports: %d, skipped: %d, parsed: %d, cached: %d, load time: %.1f ms, precompiled: %d (%.1f ms)",
+                entry.getKey(), s.getImports(), s.getSkipped(), s.getParses(), s.getCacheHits(), s.getLoadNanos() / 1e6,
+                s.getPrecompileParses(), s.getPrecompileNanos() / 1e6));
+        }
     }
     
     /**
      * Initialize the plugin system
      */
     private void initializePlugins() {
+        PluginResultCache.getInstance().setEnabled(!noPluginCache);
+        
         // Register built-in plugins
+        long start = System.nanoTime();
         BuiltInPlugins.registerAll();
+        StartupTrace.recordPhase("register built-in plugins", System.nanoTime() - start);
         System.out.println("Built-in plugins registered.");
         
-        // Load plugins from configuration if specified
+        // Load plugins from configuration if specified; their classes are loaded on first call
+        start = System.nanoTime();
         if (pluginConfigPath != null) {
             boolean loaded = PluginConfigLoader.loadPlugins(pluginConfigPath);
             if (loaded) {
@@ -161,6 +588,7 @@ public class TalkRunner implements Callable<Integer> {
                 System.out.println("Default plugins loaded.");
             }
         }
+        StartupTrace.recordPhase("register configured plugins", System.nanoTime() - start);
     }
 
     public static void main(String[] args) {
@@ -123,6 +123,18 @@ public class Tokenizer {
         tokens.add(new Token(varPart, lineNumber));
     }
 
+    // Handler for file mapping: map file <path> into <variable>
+    private void handleMapFileInto(String trimmed, int lineNumber, List<Token> tokens) {
+        int intoIdx = trimmed.lastIndexOf(" into ");
+        String filePart = trimmed.substring("map file ".length(), intoIdx).trim();
+        String varPart = trimmed.substring(intoIdx + 6).trim();
+        tokens.add(new Token("map", lineNumber));
+        tokens.add(new Token("file", lineNumber));
+        tokens.add(new Token(filePart, lineNumber));
+        tokens.add(new Token("into", lineNumber));
+        tokens.add(new Token(varPart, lineNumber));
+    }
+
     // Handler for file appending
     private void handleAppendToFile(String trimmed, int lineNumber, List<Token> tokens) {
         int appendIdx = "append ".length();
@@ -149,6 +161,10 @@ public class Tokenizer {
     // Handler for import statements
     private void handleImport(String trimmed, int lineNumber, List<Token> tokens) {
         String filePath = trimmed.substring("import ".length()).trim();
+        boolean again = filePath.endsWith(" again");
+        if (again) {
+            filePath = filePath.substring(0, filePath.length() - " again".length()).trim();
+        }
         
         // Remove quotes if present
         if ((filePath.startsWith("\"") && filePath.endsWith("\"")) || 
@@ -158,6 +174,9 @@ public class Tokenizer {
         
         tokens.add(new Token("import", lineNumber));
         tokens.add(new Token(filePath, lineNumber));
+        if (again) {
+            tokens.add(new Token("again", lineNumber));
+        }
     }
 
     // Handler for file copying
@@ -173,6 +192,19 @@ public class Tokenizer {
         tokens.add(new Token(destPart, lineNumber));
     }
 
+    // Handler for directory copying
+    private void handleCopyDirectory(String trimmed, int lineNumber, List<Token> tokens) {
+        int srcIdx = "copy directory ".length();
+        int toIdx = trimmed.indexOf(" to ");
+        String srcPart = trimmed.substring(srcIdx, toIdx).trim();
+        String destPart = trimmed.substring(toIdx + 4).trim();
+        tokens.add(new Token("copy", lineNumber));
+        tokens.add(new Token("directory", lineNumber));
+        tokens.add(new Token(srcPart, lineNumber));
+        tokens.add(new Token("to", lineNumber));
+        tokens.add(new Token(destPart, lineNumber));
+    }
+
     // Handler for directory listing
     private void handleListFilesInDir(String trimmed, int lineNumber, List<Token> tokens) {
         int dirIdx = "list files in ".length();
@@ -756,6 +788,194 @@ public class Tokenizer {
         }
     }
 
+    // Handler for channel creation: create channel size <n> as <variable>
+    private void handleCreateChannel(String trimmed, int lineNumber, List<Token> tokens) {
+        int sizeIdx = "create channel size ".length();
+        int asIdx = trimmed.indexOf(" as ");
+        String sizePart = asIdx > 0 ? trimmed.substring(sizeIdx, asIdx).trim() : trimmed.substring(sizeIdx).trim();
+        tokens.add(new Token("create", lineNumber));
+        tokens.add(new Token("channel", lineNumber));
+        tokens.add(new Token("size", lineNumber));
+        tokens.add(new Token(sizePart, lineNumber));
+        if (asIdx > 0) {
+            tokens.add(new Token("as", lineNumber));
+            tokens.add(new Token(trimmed.substring(asIdx + 4).trim(), lineNumber));
+        }
+    }
+
+    // Handler for line iteration: repeat for each <variable> in file <path>
+    private void handleRepeatOverFileLines(String trimmed, int lineNumber, List<Token> tokens) {
+        int inIdx = trimmed.indexOf(" in file ");
+        String varPart = trimmed.substring("repeat for each ".length(), inIdx).trim();
+        String filePart = trimmed.substring(inIdx + " in file ".length()).trim();
+        tokens.add(new Token("repeat", lineNumber));
+        tokens.add(new Token("for", lineNumber));
+        tokens.add(new Token("each", lineNumber));
+        tokens.add(new Token(varPart, lineNumber));
+        tokens.add(new Token("in", lineNumber));
+        tokens.add(new Token("file", lineNumber));
+        tokens.add(new Token(filePart, lineNumber));
+    }
+
+    // Handler for directory iteration:
+    // repeat for each <var> in directory <dir> [matching [regex] <pattern>] [recursively [to depth <n>]] [with attributes]
+    private void handleRepeatOverDirectory(String trimmed, int lineNumber, List<Token> tokens) {
+        int inIdx = trimmed.indexOf(" in directory ");
+        String varPart = trimmed.substring("repeat for each ".length(), inIdx).trim();
+        String rest = trimmed.substring(inIdx + " in directory ".length()).trim();
+        tokens.add(new Token("repeat", lineNumber));
+        tokens.add(new Token("for", lineNumber));
+        tokens.add(new Token("each", lineNumber));
+        tokens.add(new Token(varPart, lineNumber));
+        tokens.add(new Token("in", lineNumber));
+        tokens.add(new Token("directory", lineNumber));
+        String dirPart = leadingWordOrQuoted(rest);
+        tokens.add(new Token(dirPart, lineNumber));
+        rest = rest.substring(dirPart.length()).trim();
+        while (!rest.isEmpty()) {
+            if (rest.startsWith("matching regex ")) {
+                tokens.add(new Token("matching", lineNumber));
+                tokens.add(new Token("regex", lineNumber));
+                rest = rest.substring("matching regex ".length()).trim();
+            } else if (rest.startsWith("matching ")) {
+                tokens.add(new Token("matching", lineNumber));
+                rest = rest.substring("matching ".length()).trim();
+            } else if (rest.startsWith("to depth ")) {
+                tokens.add(new Token("to", lineNumber));
+                tokens.add(new Token("depth", lineNumber));
+                rest = rest.substring("to depth ".length()).trim();
+            } else if (rest.startsWith("with attributes")) {
+                tokens.add(new Token("with", lineNumber));
+                rest = rest.substring("with ".length()).trim();
+            }
+            String word = leadingWordOrQuoted(rest);
+            tokens.add(new Token(word, lineNumber));
+            rest = rest.substring(word.length()).trim();
+        }
+    }
+
+    // The first word of text, or the whole quoted string it starts with
+    private static String leadingWordOrQuoted(String text) {
+        if (text.startsWith("\"") || text.startsWith("'")) {
+            int close = text.indexOf(text.charAt(0), 1);
+            return close == -1 ? text : text.substring(0, close + 1);
+        }
+        int space = text.indexOf(' ');
+        return space == -1 ? text : text.substring(0, space);
+    }
+
+    // Handler for channel send: send <value> to <channel>
+    private void handleSend(String trimmed, int lineNumber, List<Token> tokens) {
+        int toIdx = trimmed.lastIndexOf(" to ");
+        String valuePart = trimmed.substring("send ".length(), toIdx).trim();
+        String channelPart = trimmed.substring(toIdx + 4).trim();
+        tokens.add(new Token("send", lineNumber));
+        tokens.add(new Token(valuePart, lineNumber));
+        tokens.add(new Token("to", lineNumber));
+        tokens.add(new Token(channelPart, lineNumber));
+    }
+
+    // Handler for channel receive: receive from <channel> into <variable>
+    private void handleReceive(String trimmed, int lineNumber, List<Token> tokens) {
+        int intoIdx = trimmed.indexOf(" into ");
+        String channelPart = trimmed.substring("receive from ".length(), intoIdx).trim();
+        String varPart = trimmed.substring(intoIdx + 6).trim();
+        tokens.add(new Token("receive", lineNumber));
+        tokens.add(new Token("from", lineNumber));
+        tokens.add(new Token(channelPart, lineNumber));
+        tokens.add(new Token("into", lineNumber));
+        tokens.add(new Token(varPart, lineNumber));
+    }
+
+    // Handler for starting workers: start <n> workers running function <name> [with <arg1> and <arg2>]
+    private void handleStartWorkers(String trimmed, int lineNumber, List<Token> tokens) {
+        int workersIdx = trimmed.indexOf(" workers running function ");
+        String countPart = trimmed.substring("start ".length(), workersIdx).trim();
+        String rest = trimmed.substring(workersIdx + " workers running function ".length()).trim();
+        String functionPart = rest;
+        String argsPart = null;
+        int withIdx = rest.indexOf(" with ");
+        if (withIdx > 0) {
+            functionPart = rest.substring(0, withIdx).trim();
+            argsPart = rest.substring(withIdx + 6).trim();
+        }
+        tokens.add(new Token("start", lineNumber));
+        tokens.add(new Token(countPart, lineNumber));
+        tokens.add(new Token("workers", lineNumber));
+        tokens.add(new Token("running", lineNumber));
+        tokens.add(new Token("function", lineNumber));
+        tokens.add(new Token(functionPart, lineNumber));
+        if (argsPart != null) {
+            tokens.add(new Token("with", lineNumber));
+            String[] args = argsPart.split(" and ");
+            for (int j = 0; j < args.length; j++) {
+                if (j > 0) {
+                    tokens.add(new Token("and", lineNumber));
+                }
+                tokens.add(new Token(args[j].trim(), lineNumber));
+            }
+        }
+    }
+
+    // Handler for shared counters: increase shared counter <name> by <amount>
+    private void handleIncreaseSharedCounter(String trimmed, int lineNumber, List<Token> tokens) {
+        int byIdx = trimmed.lastIndexOf(" by ");
+        String namePart = trimmed.substring("increase shared counter ".length(), byIdx).trim();
+        tokens.add(new Token("increase", lineNumber));
+        tokens.add(new Token("shared", lineNumber));
+        tokens.add(new Token("counter", lineNumber));
+        tokens.add(new Token(namePart, lineNumber));
+        tokens.add(new Token("by", lineNumber));
+        tokens.add(new Token(trimmed.substring(byIdx + 4).trim(), lineNumber));
+    }
+
+    // Handler for keyed shared counters: add <amount> to key <key> in shared <name>
+    private void handleAddToSharedCounts(String trimmed, int lineNumber, List<Token> tokens) {
+        int keyIdx = trimmed.indexOf(" to key ");
+        int inIdx = trimmed.lastIndexOf(" in shared ");
+        tokens.add(new Token("add", lineNumber));
+        tokens.add(new Token(trimmed.substring("add ".length(), keyIdx).trim(), lineNumber));
+        tokens.add(new Token("to", lineNumber));
+        tokens.add(new Token("key", lineNumber));
+        tokens.add(new Token(trimmed.substring(keyIdx + 8, inIdx).trim(), lineNumber));
+        tokens.add(new Token("in", lineNumber));
+        tokens.add(new Token("shared", lineNumber));
+        tokens.add(new Token(trimmed.substring(inIdx + 11).trim(), lineNumber));
+    }
+
+    // Handler for adding to a list: add <value> to <list>
+    private void handleAddToList(String trimmed, int lineNumber, List<Token> tokens) {
+        int toIdx = trimmed.lastIndexOf(" to ");
+        tokens.add(new Token("add", lineNumber));
+        tokens.add(new Token(trimmed.substring("add ".length(), toIdx).trim(), lineNumber));
+        tokens.add(new Token("to", lineNumber));
+        tokens.add(new Token("list", lineNumber));
+        tokens.add(new Token(trimmed.substring(toIdx + 4).trim(), lineNumber));
+    }
+
+    // Handler for removing from a list: remove item <n> from <list>
+    private void handleRemoveListItem(String trimmed, int lineNumber, List<Token> tokens) {
+        int fromIdx = trimmed.lastIndexOf(" from ");
+        tokens.add(new Token("remove", lineNumber));
+        tokens.add(new Token("item", lineNumber));
+        tokens.add(new Token(trimmed.substring("remove item ".length(), fromIdx).trim(), lineNumber));
+        tokens.add(new Token("from", lineNumber));
+        tokens.add(new Token(trimmed.substring(fromIdx + 6).trim(), lineNumber));
+    }
+
+    // Handler for changing a list item: set item <n> in <list> to <value>
+    private void handleSetListItem(String trimmed, int lineNumber, List<Token> tokens) {
+        int inIdx = trimmed.indexOf(" in ");
+        int toIdx = trimmed.indexOf(" to ", inIdx);
+        tokens.add(new Token("set", lineNumber));
+        tokens.add(new Token("item", lineNumber));
+        tokens.add(new Token(trimmed.substring("set item ".length(), inIdx).trim(), lineNumber));
+        tokens.add(new Token("in", lineNumber));
+        tokens.add(new Token(trimmed.substring(inIdx + 4, toIdx).trim(), lineNumber));
+        tokens.add(new Token("to", lineNumber));
+        tokens.add(new Token(trimmed.substring(toIdx + 4).trim(), lineNumber));
+    }
+
     public List<Token> tokenize(List<String> lines) {
         List<Token> tokens = new ArrayList<>();
         IndentationManager indentationManager = new IndentationManager();
@@ -832,6 +1052,9 @@ public class Tokenizer {
             if (trimmed.startsWith("variable ") && trimmed.contains(" equals ")) {
                 handleListVariableAssignment(trimmed, i + 1, tokens);
                 handledList = true;
+            } else if (trimmed.matches("set item \\S+ in \\S+ to .+")) {
+                handleSetListItem(trimmed, i + 1, tokens);
+                continue;
             } else if (trimmed.startsWith("set ") && trimmed.contains(" to ")) {
                 // Check for arithmetic operations
                 if (trimmed.contains(" to ") && (
@@ -982,6 +1205,9 @@ public class Tokenizer {
             } else if (trimmed.startsWith("ask ") && trimmed.contains(" and store in ")) {
                 handleAskAndStore(trimmed, i + 1, tokens);
                 continue;
+            } else if (trimmed.startsWith("map file ") && trimmed.contains(" into ")) {
+                handleMapFileInto(trimmed, i + 1, tokens);
+                continue;
             } else if (trimmed.startsWith("read file ") && trimmed.contains(" into ")) {
                 handleReadFileInto(trimmed, i + 1, tokens);
                 continue;
@@ -994,6 +1220,9 @@ public class Tokenizer {
             } else if (trimmed.startsWith("copy file ")) {
                 handleCopyFile(trimmed, i + 1, tokens);
                 continue;
+            } else if (trimmed.startsWith("copy directory ") && trimmed.contains(" to ")) {
+                handleCopyDirectory(trimmed, i + 1, tokens);
+                continue;
             } else if (trimmed.startsWith("list directory ")) {
                 handleListDirectory(trimmed, i + 1, tokens);
                 continue;
@@ -1003,6 +1232,12 @@ public class Tokenizer {
             } else if (trimmed.equals("otherwise")) {
                 tokens.add(new Token("otherwise", i + 1));
                 continue;
+            } else if (trimmed.startsWith("repeat for each ") && trimmed.contains(" in directory ")) {
+                handleRepeatOverDirectory(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.startsWith("repeat for each ") && trimmed.contains(" in file ")) {
+                handleRepeatOverFileLines(trimmed, i + 1, tokens);
+                continue;
             } else if (trimmed.startsWith("repeat ")) {
                 handleRepeatStatement(trimmed, i + 1, tokens);
                 continue;
@@ -1012,6 +1247,39 @@ public class Tokenizer {
             } else if (trimmed.startsWith("use plugin ")) {
                 handlePluginCall(trimmed, i + 1, tokens);
                 continue;
+            } else if (trimmed.startsWith("create channel size ")) {
+                handleCreateChannel(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.startsWith("send ") && trimmed.contains(" to ")) {
+                handleSend(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.startsWith("receive from ") && trimmed.contains(" into ")) {
+                handleReceive(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.startsWith("close ")) {
+                tokens.add(new Token("close", i + 1));
+                tokens.add(new Token(trimmed.substring(6).trim(), i + 1));
+                continue;
+            } else if (trimmed.startsWith("start ") && trimmed.contains(" workers running function ")) {
+                handleStartWorkers(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.equals("wait for workers")) {
+                tokens.add(new Token("wait", i + 1));
+                tokens.add(new Token("for", i + 1));
+                tokens.add(new Token("workers", i + 1));
+                continue;
+            } else if (trimmed.startsWith("increase shared counter ") && trimmed.contains(" by ")) {
+                handleIncreaseSharedCounter(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.startsWith("add ") && trimmed.contains(" to key ") && trimmed.contains(" in shared ")) {
+                handleAddToSharedCounts(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.matches("add .+ to \\S+")) {
+                handleAddToList(trimmed, i + 1, tokens);
+                continue;
+            } else if (trimmed.matches("remove item \\S+ from \\S+")) {
+                handleRemoveListItem(trimmed, i + 1, tokens);
+                continue;
             } else if (trimmed.equals("attempt")) {
                 tokens.add(new Token("attempt", i + 1));
                 continue;
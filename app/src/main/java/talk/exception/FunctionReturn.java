@@ -5,6 +5,8 @@ package talk.exception;
  * This is not a true exception, but uses the exception mechanism for flow control.
  */
 public class FunctionReturn extends TalkException {
+    private static final long serialVersionUID = 1L;
+
     private final Object value;
     
     /**
@@ -5,6 +5,8 @@ package talk.exception;
  * This class provides common functionality for all Talk-specific exceptions.
  */
 public class TalkException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     private final int lineNumber;
     
     /**
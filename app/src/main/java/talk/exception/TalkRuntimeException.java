@@ -5,6 +5,7 @@ package talk.exception;
  * This includes errors like I/O errors, invalid inputs, execution failures, etc.
  */
 public class TalkRuntimeException extends TalkException {
+    private static final long serialVersionUID = 1L;
     
     /**
      * Creates a new runtime exception with a message and line number.
@@ -6,6 +6,7 @@ package talk.exception;
  * missing functions, argument mismatches, etc.
  */
 public class TalkSemanticException extends TalkException {
+    private static final long serialVersionUID = 1L;
     
     /**
      * Creates a new semantic exception with a message and line number.
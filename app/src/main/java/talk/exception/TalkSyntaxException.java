@@ -5,6 +5,7 @@ package talk.exception;
  * This includes errors like invalid tokens, missing keywords, unexpected end of input, etc.
  */
 public class TalkSyntaxException extends TalkException {
+    private static final long serialVersionUID = 1L;
     
     /**
      * Creates a new syntax exception with a message and line number.
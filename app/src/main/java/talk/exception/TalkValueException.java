@@ -6,6 +6,7 @@ package talk.exception;
  * invalid operations on values, etc.
  */
 public class TalkValueException extends TalkException {
+    private static final long serialVersionUID = 1L;
     
     /**
      * Creates a new value exception with a message and line number.
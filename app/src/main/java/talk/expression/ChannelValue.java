@@ -0,0 +1,117 @@
+package talk.expression;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import talk.exception.*;
+
+/**
+ * A bounded channel for passing values between concurrently running Talk functions.
+ * Producers block when the channel is full (backpressure) and consumers block
+ * while it is empty. Closing the channel wakes both: waiting producers fail, and
+ * waiting consumers receive what is left and then the end of the channel.
+ *
+ * One lock guards both ends, as in ArrayBlockingQueue, rather than a separate
+ * lock for senders and for receivers as in LinkedBlockingQueue. Closing must
+ * wake senders and receivers together and make sure no send succeeds after it,
+ * which two locks can only do with a sentinel value and a window where a send
+ * lands behind it. The lock is held only to add or take one value, so with
+ * the few workers a script starts it is rarely contended.
+ */
+public class ChannelValue {
+    private final ArrayDeque<Object> queue;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private volatile boolean closed = false;
+
+    public ChannelValue(int capacity) {
+        if (capacity < 1) {
+            throw new TalkValueException("Channel size must be at least 1, got: " + capacity);
+        }
+        this.capacity = capacity;
+        this.queue = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * Sends a value, waiting for free space if the channel is full.
+     * @param value The value to send
+     * @throws TalkRuntimeException if the channel is closed, or is closed while waiting
+     */
+    public void send(Object value) throws InterruptedException {
+        if (value == null) {
+            throw new TalkValueException("Cannot send an empty value to a channel");
+        }
+        lock.lockInterruptibly();
+        try {
+            while (!closed && queue.size() == capacity) {
+                notFull.await();
+            }
+            if (closed) {
+                throw new TalkRuntimeException("Cannot send to a closed channel");
+            }
+            queue.addLast(value);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Receives the next value, waiting until one is available.
+     * @return The next value, or null once the channel is closed and fully drained
+     */
+    public Object receive() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            Object value = queue.removeFirst();
+            notFull.signal();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the channel. Values already sent can still be received.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "channel(" + size() + "/" + capacity + (closed ? ", closed" : "") + ")";
+    }
+}
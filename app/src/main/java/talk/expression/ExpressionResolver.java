@@ -2,6 +2,7 @@ package talk.expression;
 
 import talk.core.RuntimeContext;
 import talk.exception.*;
+import talk.runtime.SharedCounters;
 
 public class ExpressionResolver {
     private final RuntimeContext context;
@@ -101,6 +102,9 @@ public class ExpressionResolver {
         if (expr.startsWith("length of ")) {
             String value = expr.substring(10).trim();
             Object resolved = resolve(value, false);
+            if (resolved instanceof MappedFileValue) {
+                return ((MappedFileValue) resolved).size();
+            }
             if (!(resolved instanceof String)) {
                 throw new TalkValueException("Expected string for 'length of' operation, got: " + resolved);
             }
@@ -376,6 +380,9 @@ public class ExpressionResolver {
             int index = Integer.parseInt(parts[1]);
             String listName = parts[3];
             Object listObj = context.getVariable(listName);
+            if (listObj instanceof MappedFileValue) {
+                return ((MappedFileValue) listObj).get(index);
+            }
             if (!(listObj instanceof ListValue)) {
                 throw new TalkValueException("Variable '" + listName + "' is not a list");
             }
@@ -383,9 +390,9 @@ public class ExpressionResolver {
             if (index < 1 || index > list.size()) {
                 throw new TalkValueException("Index " + index + " out of bounds for list '" + listName + "'");
             }
-            return list.get(index);
+            return list.getValue(index);
         }
-        // List includes: items includes apple
+        // List includes: items includes "apple", or items includes fruit for the value of a variable
         if (expr.matches("\\w+ includes .+")) {
             int idx = expr.indexOf(" includes ");
             String listName = expr.substring(0, idx).trim();
@@ -395,7 +402,22 @@ public class ExpressionResolver {
                 throw new TalkValueException("Variable '" + listName + "' is not a list");
             }
             ListValue list = (ListValue) listObj;
-            return list.includes(value.replaceAll("^\"|\"$", "")); // remove quotes if present
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                return list.includes(value.substring(1, value.length() - 1));
+            }
+            // Unquoted text that doesn't name a variable is taken as it is written
+            return list.includes(context.hasVariable(value) ? String.valueOf(context.getVariable(value)) : value);
+        }
+        // Shared counter: shared counter hits
+        if (expr.matches("shared counter \\w+")) {
+            return toCounterResult(SharedCounters.getInstance().get(expr.substring(15).trim()));
+        }
+        // Keyed shared counter: key word in shared counts
+        if (expr.startsWith("key ") && expr.matches("key .+ in shared \\w+")) {
+            int idx = expr.lastIndexOf(" in shared ");
+            Object key = resolve(expr.substring(4, idx).trim(), false);
+            String countsName = expr.substring(idx + 11).trim();
+            return toCounterResult(SharedCounters.getInstance().get(countsName, String.valueOf(key)));
         }
         // Try to resolve as integer
         if (expr.matches("-?\\d+")) {
@@ -465,6 +487,14 @@ public class ExpressionResolver {
         throw new TalkValueException("Cannot convert to int: " + o);
     }
 
+    // Counters are longs; keep them as Integer when they fit so arithmetic and comparisons work as usual
+    private Object toCounterResult(long value) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
     private double toDouble(Object o) {
         if (o instanceof Integer) return ((Integer) o).doubleValue();
         if (o instanceof Double) return (Double) o;
@@ -1,40 +1,587 @@
 package talk.expression;
 
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 import talk.exception.*;
 
-public class ListValue /* implements Value */ {
-    private final List<String> items;
+/**
+ * A list of values that scripts can add to, remove from and change in place.
+ *
+ * Items are kept in an array that grows by half when full, so adding an item
+ * is amortized O(1). Copies share the array until one of them changes it:
+ * copy() and getItems() only mark the array as shared, and the first change
+ * to a shared array copies it first. A list assigned to another variable,
+ * passed to a function or handed to a worker is copied this way, so changing
+ * one never changes the other.
+ *
+ * A list whose items are all whole numbers, or all decimal numbers, keeps
+ * them in an int[], long[] or double[] instead of as text, and item N in and
+ * repeat for each give numbers rather than text. An item only counts as a
+ * number if writing the number out gives back the same text ("12", "-3",
+ * "2.5", but not "007" or "1e3"), so every item keeps its exact text. Adding
+ * an item that doesn't fit, such as a word to a list of numbers, turns the
+ * list into a list of text.
+ *
+ * includes scans the list until it has been asked a few times about a list
+ * of at least 64 items; it then builds a hash index of the
+ * items, so membership tests in a loop cost O(1) each instead of O(N).
+ * Adding items keeps the index up to date; removing or replacing an item
+ * throws it away, and it is built again after the next few lookups.
+ */
+public class ListValue implements Serializable /* implements Value */ {
+    private static final long serialVersionUID = 2L;
+    private static final int MIN_CAPACITY = 8;
+    // Lists shorter than this are scanned; a scan of a few dozen items is as fast as a hash lookup
+    private static final int INDEX_MIN_SIZE = 64;
+    // Scans before the index is built; building it costs about as much as one scan
+    private static final int INDEX_AFTER_LOOKUPS = 4;
+    private static final int INDEX_MAX_SIZE = 1 << 29;
+
+    private Items items;
+    private int size;
+    // Whether another list or a view returned by getItems() may use the same array
+    private boolean shared;
+    private transient HashIndex index;
+    // Lookups since the index was last thrown away
+    private transient int lookups;
+
+    public ListValue() {
+        this.items = new TextItems(new String[0]);
+    }
 
     public ListValue(List<String> items) {
-        this.items = List.copyOf(items);
+        Object[] values = new Object[items.size()];
+        Class<?> kind = null;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = parse(Objects.requireNonNull(items.get(i)));
+            kind = widen(kind, values[i]);
+        }
+        this.items = Items.create(kind, values.length);
+        for (int i = 0; i < values.length; i++) {
+            this.items.put(i, values[i]);
+        }
+        this.size = values.length;
     }
 
-    public String get(int index) {
-        if (index < 1 || index > items.size()) {
-            throw new TalkValueException("List index out of bounds: " + index);
+    private ListValue(Items items, int size) {
+        this.items = items;
+        this.size = size;
+        this.shared = true;
+    }
+
+    /**
+     * @return A list with the same items, sharing them until either list changes
+     */
+    public synchronized ListValue copy() {
+        shared = true;
+        return new ListValue(items, size);
+    }
+
+    /**
+     * @return The text of an item
+     */
+    public synchronized String get(int index) {
+        checkIndex(index);
+        return items.text(index - 1); // 1-based indexing
+    }
+
+    /**
+     * @return An item as an Integer, Long or Double in a list of numbers, otherwise as text
+     */
+    public synchronized Object getValue(int index) {
+        checkIndex(index);
+        return items.value(index - 1);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return int, long or double for a list of numbers, String for a list of text
+     */
+    public synchronized Class<?> getElementType() {
+        return items.elementType();
+    }
+
+    public synchronized boolean includes(String value) {
+        Object item = parse(value);
+        if (index == null && size >= INDEX_MIN_SIZE && size <= INDEX_MAX_SIZE && ++lookups > INDEX_AFTER_LOOKUPS) {
+            index = new HashIndex(items, size);
+        }
+        if (index != null) {
+            return items.holds(item) && index.contains(items, items.key(item));
         }
-        return items.get(index - 1); // 1-based indexing
+        return items.indexOf(item, size) >= 0;
     }
 
-    public int size() {
-        return items.size();
+    /**
+     * @return Bytes used by the hash index behind includes, or 0 if it has not been built
+     */
+    public synchronized long getIndexBytes() {
+        return index == null ? 0 : index.bytes();
     }
 
-    public boolean includes(String value) {
-        return items.contains(value);
+    /**
+     * Add an item to the end of the list
+     * @param item The item: text, or a number
+     */
+    public synchronized void add(Object item) {
+        Object value = normalize(item);
+        if (size == 0) {
+            items = Items.create(widen(null, value), Math.max(items.capacity(), MIN_CAPACITY));
+            shared = false;
+        } else if (!items.holds(value)) {
+            items = items.widen(value, size, grow(size));
+            shared = false;
+            // Widened items hash differently
+            discardIndex();
+        } else if (shared || size == items.capacity()) {
+            items = items.copy(size, grow(size));
+            shared = false;
+        }
+        items.put(size++, value);
+        if (index != null && size > INDEX_MAX_SIZE) {
+            discardIndex();
+        } else if (index != null) {
+            index.add(items, size - 1);
+        }
     }
 
-    public List<String> getItems() {
-        return items;
+    /**
+     * Remove an item; the items after it move up one position
+     * @param index The 1-based position of the item
+     * @return The text of the removed item
+     */
+    public synchronized String remove(int index) {
+        checkIndex(index);
+        String removed = items.text(index - 1);
+        unshare();
+        discardIndex();
+        items.move(index, index - 1, size - index);
+        items.clear(--size);
+        return removed;
+    }
+
+    /**
+     * Replace an item
+     * @param index The 1-based position of the item
+     * @param item The new item: text, or a number
+     */
+    public synchronized void set(int index, Object item) {
+        Object value = normalize(item);
+        checkIndex(index);
+        discardIndex();
+        if (!items.holds(value)) {
+            items = items.widen(value, size, items.capacity());
+            shared = false;
+        } else {
+            unshare();
+        }
+        items.put(index - 1, value);
+    }
+
+    /**
+     * @return The text of the items as they are now; later changes to this list are not seen
+     */
+    public synchronized List<String> getItems() {
+        shared = true;
+        return new TextView(items, size);
+    }
+
+    /**
+     * @return The items as getValue() gives them, as they are now; later changes to this list are not seen
+     */
+    public synchronized List<Object> getValues() {
+        shared = true;
+        return new ValueView(items, size);
     }
 
     /**
      * Returns the underlying list of items (for test and integration use).
      */
     public List<String> asList() {
-        return items;
+        return getItems();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 1 || index > size) {
+            throw new TalkValueException("List index out of bounds: " + index);
+        }
+    }
+
+    // Copies the array before a change if another list may use it
+    private void unshare() {
+        if (shared) {
+            items = items.copy(size, items.capacity());
+            shared = false;
+        }
+    }
+
+    private void discardIndex() {
+        index = null;
+        lookups = 0;
+    }
+
+    private static int grow(int size) {
+        return Math.max(size + (size >> 1), size + MIN_CAPACITY);
+    }
+
+    // An item as it is stored: Integer, Long or Double if it is a number with the same text, otherwise String.
+    // NaN and infinities stay text, as parse leaves them, so includes finds them by the text they show as.
+    private static Object normalize(Object item) {
+        Objects.requireNonNull(item);
+        if (item instanceof Double) {
+            return Double.isFinite((Double) item) ? item : item.toString();
+        }
+        if (item instanceof Integer) {
+            return item;
+        }
+        if (item instanceof Long || item instanceof Short || item instanceof Byte) {
+            return box(((Number) item).longValue());
+        }
+        return parse(item.toString());
+    }
+
+    private static Object parse(String text) {
+        int length = text.length();
+        int start = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+        if (start >= length || text.charAt(start) < '0' || text.charAt(start) > '9' || length > 32) {
+            return text;
+        }
+        boolean whole = true;
+        for (int i = start; i < length && whole; i++) {
+            char c = text.charAt(i);
+            whole = c >= '0' && c <= '9';
+        }
+        try {
+            if (whole) {
+                long number = Long.parseLong(text);
+                if (!Long.toString(number).equals(text)) {
+                    return text;
+                }
+                return box(number);
+            }
+            double number = Double.parseDouble(text);
+            return Double.toString(number).equals(text) ? Double.valueOf(number) : text;
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+
+    private static Object box(long number) {
+        if (number == (int) number) {
+            return Integer.valueOf((int) number);
+        }
+        return Long.valueOf(number);
+    }
+
+    // The narrowest storage that holds both the values seen so far and this one
+    private static Class<?> widen(Class<?> kind, Object value) {
+        Class<?> valueKind = value instanceof Integer ? int.class
+            : value instanceof Long ? long.class
+            : value instanceof Double ? double.class
+            : String.class;
+        if (kind == null || kind == valueKind) {
+            return valueKind;
+        }
+        if ((kind == int.class && valueKind == long.class) || (kind == long.class && valueKind == int.class)) {
+            return long.class;
+        }
+        return String.class;
+    }
+
+    private static String text(Object value) {
+        return value.toString();
+    }
+
+    // The array behind a list; indexes are 0-based and values are normalized
+    private abstract static class Items implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        static Items create(Class<?> kind, int capacity) {
+            if (kind == int.class) return new IntItems(new int[capacity]);
+            if (kind == long.class) return new LongItems(new long[capacity]);
+            if (kind == double.class) return new DoubleItems(new double[capacity]);
+            return new TextItems(new String[capacity]);
+        }
+
+        abstract Class<?> elementType();
+        abstract int capacity();
+        abstract boolean holds(Object value);
+        abstract void put(int index, Object value);
+        abstract Object value(int index);
+        abstract int indexOf(Object value, int size);
+        abstract Items copy(int size, int capacity);
+        abstract void move(int from, int to, int count);
+        // Hash of an item, and of a value this storage holds as given by key(); equal items hash the same
+        abstract int hash(int index);
+        abstract int hashOf(Object key);
+        abstract boolean matches(int index, Object key);
+
+        // A value this storage holds, in the form hashOf() and matches() take
+        Object key(Object value) {
+            return value;
+        }
+
+        String text(int index) {
+            return ListValue.text(value(index));
+        }
+
+        void clear(int index) {
+        }
+
+        // The first size items in storage that also holds value
+        Items widen(Object value, int size, int capacity) {
+            Items widened = create(ListValue.widen(elementType(), value), capacity);
+            for (int i = 0; i < size; i++) {
+                widened.put(i, value(i));
+            }
+            return widened;
+        }
+    }
+
+    private static final class TextItems extends Items {
+        private static final long serialVersionUID = 1L;
+        private final String[] items;
+
+        TextItems(String[] items) { this.items = items; }
+
+        Class<?> elementType() { return String.class; }
+        int capacity() { return items.length; }
+        boolean holds(Object value) { return true; }
+        void put(int index, Object value) { items[index] = ListValue.text(value); }
+        Object value(int index) { return items[index]; }
+        String text(int index) { return items[index]; }
+        void clear(int index) { items[index] = null; }
+        Items copy(int size, int capacity) { return new TextItems(Arrays.copyOf(items, capacity)); }
+        void move(int from, int to, int count) { System.arraycopy(items, from, items, to, count); }
+        int hash(int index) { return items[index].hashCode(); }
+        int hashOf(Object key) { return key.hashCode(); }
+        boolean matches(int index, Object key) { return items[index].equals(key); }
+        Object key(Object value) { return ListValue.text(value); }
+
+        int indexOf(Object value, int size) {
+            String text = ListValue.text(value);
+            for (int i = 0; i < size; i++) {
+                if (items[i].equals(text)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class IntItems extends Items {
+        private static final long serialVersionUID = 1L;
+        private final int[] items;
+
+        IntItems(int[] items) { this.items = items; }
+
+        Class<?> elementType() { return int.class; }
+        int capacity() { return items.length; }
+        boolean holds(Object value) { return value instanceof Integer; }
+        void put(int index, Object value) { items[index] = (Integer) value; }
+        Object value(int index) { return items[index]; }
+        String text(int index) { return Integer.toString(items[index]); }
+        Items copy(int size, int capacity) { return new IntItems(Arrays.copyOf(items, capacity)); }
+        void move(int from, int to, int count) { System.arraycopy(items, from, items, to, count); }
+        int hash(int index) { return Integer.hashCode(items[index]); }
+        int hashOf(Object key) { return Integer.hashCode((Integer) key); }
+        boolean matches(int index, Object key) { return items[index] == (Integer) key; }
+
+        int indexOf(Object value, int size) {
+            if (!(value instanceof Integer)) {
+                return -1;
+            }
+            int number = (Integer) value;
+            for (int i = 0; i < size; i++) {
+                if (items[i] == number) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class LongItems extends Items {
+        private static final long serialVersionUID = 1L;
+        private final long[] items;
+
+        LongItems(long[] items) { this.items = items; }
+
+        Class<?> elementType() { return long.class; }
+        int capacity() { return items.length; }
+        boolean holds(Object value) { return value instanceof Long || value instanceof Integer; }
+        void put(int index, Object value) { items[index] = ((Number) value).longValue(); }
+        String text(int index) { return Long.toString(items[index]); }
+        Items copy(int size, int capacity) { return new LongItems(Arrays.copyOf(items, capacity)); }
+        void move(int from, int to, int count) { System.arraycopy(items, from, items, to, count); }
+        int hash(int index) { return Long.hashCode(items[index]); }
+        int hashOf(Object key) { return Long.hashCode((Long) key); }
+        boolean matches(int index, Object key) { return items[index] == (Long) key; }
+        Object key(Object value) { return ((Number) value).longValue(); }
+
+        Object value(int index) {
+            // Numbers that fit in an int are given as Integer, the same as in a list of only those
+            return box(items[index]);
+        }
+
+        int indexOf(Object value, int size) {
+            if (!holds(value)) {
+                return -1;
+            }
+            long number = ((Number) value).longValue();
+            for (int i = 0; i < size; i++) {
+                if (items[i] == number) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class DoubleItems extends Items {
+        private static final long serialVersionUID = 1L;
+        private final double[] items;
+
+        DoubleItems(double[] items) { this.items = items; }
+
+        Class<?> elementType() { return double.class; }
+        int capacity() { return items.length; }
+        boolean holds(Object value) { return value instanceof Double; }
+        void put(int index, Object value) { items[index] = (Double) value; }
+        Object value(int index) { return items[index]; }
+        String text(int index) { return Double.toString(items[index]); }
+        Items copy(int size, int capacity) { return new DoubleItems(Arrays.copyOf(items, capacity)); }
+        void move(int from, int to, int count) { System.arraycopy(items, from, items, to, count); }
+        int hash(int index) { return Long.hashCode(Double.doubleToLongBits(items[index])); }
+        int hashOf(Object key) { return Long.hashCode((Long) key); }
+        boolean matches(int index, Object key) { return Double.doubleToLongBits(items[index]) == (Long) key; }
+        Object key(Object value) { return Double.doubleToLongBits((Double) value); }
+
+        int indexOf(Object value, int size) {
+            if (!(value instanceof Double)) {
+                return -1;
+            }
+            // Compared by bits, like the text: 0.0 and -0.0 differ
+            long bits = Double.doubleToLongBits((Double) value);
+            for (int i = 0; i < size; i++) {
+                if (Double.doubleToLongBits(items[i]) == bits) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Positions of the items in an open-addressing table at most half full. A slot
+     * holds an item's position plus one, or 0 if it is empty; lookups compare the
+     * items themselves, so the index stores nothing but positions.
+     */
+    private static final class HashIndex {
+        private int[] slots;
+        private int count;
+
+        HashIndex(Items items, int size) {
+            slots = new int[tableSize(size)];
+            for (int i = 0; i < size; i++) {
+                insert(items.hash(i), i);
+            }
+        }
+
+        private static int tableSize(int size) {
+            return Integer.highestOneBit(Math.max(size, 4) * 2 - 1) << 1;
+        }
+
+        boolean contains(Items items, Object key) {
+            int mask = slots.length - 1;
+            for (int slot = mix(items.hashOf(key)) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (items.matches(slots[slot] - 1, key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(Items items, int position) {
+            if ((count + 1) * 2 > slots.length) {
+                slots = new int[slots.length * 2];
+                count = 0;
+                for (int i = 0; i < position; i++) {
+                    insert(items.hash(i), i);
+                }
+            }
+            insert(items.hash(position), position);
+        }
+
+        private void insert(int hash, int position) {
+            int mask = slots.length - 1;
+            int slot = mix(hash) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = position + 1;
+            count++;
+        }
+
+        // Spreads hashes like those of consecutive numbers over the whole table
+        private static int mix(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        long bytes() {
+            return 16L + 4L * slots.length;
+        }
+    }
+
+    // Read-only views of the first size items of an array that is no longer changed
+    private static final class TextView extends AbstractList<String> implements RandomAccess {
+        private final Items items;
+        private final int size;
+
+        TextView(Items items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, size);
+            return items.text(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final class ValueView extends AbstractList<Object> implements RandomAccess {
+        private final Items items;
+        private final int size;
+
+        ValueView(Items items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        @Override
+        public Object get(int index) {
+            Objects.checkIndex(index, size);
+            return items.value(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
 
     @Override
@@ -42,16 +589,24 @@ public class ListValue /* implements Value */ {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ListValue listValue = (ListValue) o;
-        return items.equals(listValue.items);
+        Items other;
+        int otherSize;
+        synchronized (listValue) {
+            other = listValue.items.copy(listValue.size, listValue.size);
+            otherSize = listValue.size;
+        }
+        synchronized (this) {
+            return new TextView(items, size).equals(new TextView(other, otherSize));
+        }
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(items);
+    public synchronized int hashCode() {
+        return Objects.hash(new TextView(items, size));
     }
 
     @Override
-    public String toString() {
-        return items.toString();
+    public synchronized String toString() {
+        return new TextView(items, size).toString();
     }
 }
@@ -0,0 +1,52 @@
+package talk.expression;
+
+import talk.exception.*;
+import talk.io.FileLines;
+
+/**
+ * The lines of a file mapped with "map file X into v". Supports "item N in v",
+ * "length of v" and "repeat for each line in v" like a list, but lines stay
+ * in the file until they are used, instead of being copied onto the heap.
+ */
+public class MappedFileValue {
+    private final String fileName;
+    private final FileLines lines;
+
+    public MappedFileValue(String fileName, FileLines lines) {
+        this.fileName = fileName;
+        this.lines = lines;
+    }
+
+    public String get(int index) {
+        try {
+            // Only indexes as far as the line asked for, so reading line 10 does not scan the whole file
+            return lines.line(index); // 1-based indexing
+        } catch (IndexOutOfBoundsException e) {
+            throw new TalkValueException("Line " + index + " out of bounds for file '" + fileName + "'");
+        }
+    }
+
+    /**
+     * Returns the line at the given 1-based index, or null once past the end of the file
+     */
+    public String getIfPresent(int index) {
+        try {
+            return lines.line(index);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        return lines.lineCount();
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public String toString() {
+        return "file " + fileName;
+    }
+}
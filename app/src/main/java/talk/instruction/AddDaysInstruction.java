@@ -6,6 +6,8 @@ import talk.core.Instruction;
  * Instruction to handle adding days to a date: 'add <n> days to <date>'
  */
 public class AddDaysInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String days;
     private final String dateExpression;
     private final String variableName;
@@ -0,0 +1,25 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for adding an item to the end of a list: add apple to fruits
+ */
+public class AddToListInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String valueExpression;
+    private final String listName;
+    private final int lineNumber;
+
+    public AddToListInstruction(String valueExpression, String listName, int lineNumber) {
+        this.valueExpression = valueExpression;
+        this.listName = listName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getValueExpression() { return valueExpression; }
+    public String getListName() { return listName; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
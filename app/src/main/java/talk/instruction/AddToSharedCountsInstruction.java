@@ -0,0 +1,28 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for increasing one key of a process-wide keyed counter: add 1 to key word in shared counts
+ */
+public class AddToSharedCountsInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String amountExpression;
+    private final String keyExpression;
+    private final String countsName;
+    private final int lineNumber;
+
+    public AddToSharedCountsInstruction(String amountExpression, String keyExpression, String countsName, int lineNumber) {
+        this.amountExpression = amountExpression;
+        this.keyExpression = keyExpression;
+        this.countsName = countsName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getAmountExpression() { return amountExpression; }
+    public String getKeyExpression() { return keyExpression; }
+    public String getCountsName() { return countsName; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
@@ -3,6 +3,8 @@ package talk.instruction;
 import talk.core.Instruction;
 
 public class AskInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String prompt;
     private final String variableName;
     private final int lineNumber;
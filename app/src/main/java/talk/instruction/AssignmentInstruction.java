@@ -3,6 +3,8 @@ package talk.instruction;
 import talk.core.Instruction;
 
 public class AssignmentInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String variableName;
     private final Object value;
     private final int lineNumber;
@@ -5,6 +5,8 @@ import java.util.List;
 import talk.core.Instruction;
 
 public class AttemptInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final List<Instruction> tryBlock;
     private final List<Instruction> catchBlock;
     private final int lineNumber;
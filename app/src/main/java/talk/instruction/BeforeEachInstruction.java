@@ -7,6 +7,8 @@ import java.util.List;
  * Represents a block of instructions to execute before each test in the Talk language.
  */
 public class BeforeEachInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final List<Instruction> instructions;
     private final int lineNumber;
     
@@ -0,0 +1,22 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for closing a channel: close ch
+ */
+public class CloseChannelInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String channelName;
+    private final int lineNumber;
+
+    public CloseChannelInstruction(String channelName, int lineNumber) {
+        this.channelName = channelName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getChannelName() { return channelName; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
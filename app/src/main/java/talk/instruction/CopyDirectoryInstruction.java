@@ -0,0 +1,30 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+public class CopyDirectoryInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String source;
+    private final String destination;
+    private final int lineNumber;
+
+    public CopyDirectoryInstruction(String source, String destination, int lineNumber) {
+        this.source = source;
+        this.destination = destination;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
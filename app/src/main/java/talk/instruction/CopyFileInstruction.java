@@ -3,6 +3,8 @@ package talk.instruction;
 import talk.core.Instruction;
 
 public class CopyFileInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String source;
     private final String destination;
     private final int lineNumber;
@@ -0,0 +1,25 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for creating a bounded channel: create channel size 1000 as ch
+ */
+public class CreateChannelInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String sizeExpression;
+    private final String variableName;
+    private final int lineNumber;
+
+    public CreateChannelInstruction(String sizeExpression, String variableName, int lineNumber) {
+        this.sizeExpression = sizeExpression;
+        this.variableName = variableName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getSizeExpression() { return sizeExpression; }
+    public String getVariableName() { return variableName; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
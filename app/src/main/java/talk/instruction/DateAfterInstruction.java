@@ -6,6 +6,8 @@ import talk.core.Instruction;
  * Instruction to handle date comparison: 'if <date1> is after <date2>'
  */
 public class DateAfterInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String firstDateExpression;
     private final String secondDateExpression;
     private final int lineNumber;
@@ -6,6 +6,8 @@ import talk.core.Instruction;
  * Instruction to handle date expressions like 'now' and 'today'
  */
 public class DateExpressionInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String expression;
     private final String variableName;
     private final int lineNumber;
@@ -6,6 +6,8 @@ import talk.core.Instruction;
  * Instruction to handle getting the day of week from a date: 'day of week of <date>'
  */
 public class DayOfWeekInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String dateExpression;
     private final String variableName;
     private final int lineNumber;
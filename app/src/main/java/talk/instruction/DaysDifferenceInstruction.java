@@ -7,6 +7,8 @@ import talk.core.Instruction;
  * 'difference in days between <date1> and <date2>'
  */
 public class DaysDifferenceInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String firstDateExpression;
     private final String secondDateExpression;
     private final String variableName;
@@ -7,6 +7,8 @@ import talk.core.Instruction;
  * This instruction evaluates an expression and compares it with an expected value.
  */
 public class ExpectInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String expression;
     private final String expectedValue;
     private final int lineNumber;
@@ -6,6 +6,8 @@ import talk.core.Instruction;
  * Instruction to handle date formatting: 'format date <date> as <pattern>'
  */
 public class FormatDateInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String dateExpression;
     private final String pattern;
     private final String variableName;
@@ -5,6 +5,8 @@ import java.util.List;
 import talk.core.Instruction;
 
 public class FunctionDefinitionInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String functionName;
     private final List<String> parameters;
     private final List<Instruction> body;
@@ -5,6 +5,8 @@ import java.util.List;
 import talk.core.Instruction;
 
 public class IfInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String condition;
     private final List<Instruction> thenInstructions;
     private final List<Instruction> elseInstructions;
@@ -5,13 +5,23 @@ import talk.core.Instruction;
 /**
  * Instruction for importing code from other Talk script files.
  * This allows for modularizing Talk programs by separating code into multiple files.
+ * A module runs the first time it is imported; later imports of it are skipped
+ * unless they are written "import ... again".
  */
 public class ImportInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String filePath;
+    private final boolean again;
     private final int lineNumber;
     
     public ImportInstruction(String filePath, int lineNumber) {
+        this(filePath, false, lineNumber);
+    }
+    
+    public ImportInstruction(String filePath, boolean again, int lineNumber) {
         this.filePath = filePath;
+        this.again = again;
         this.lineNumber = lineNumber;
     }
     
@@ -24,6 +34,15 @@ public class ImportInstruction implements Instruction {
         return filePath;
     }
     
+    /**
+     * Whether to run the module even if it was already imported.
+     * 
+     * @return true for "import ... again"
+     */
+    public boolean isAgain() {
+        return again;
+    }
+    
     @Override
     public int getLineNumber() {
         return lineNumber;
@@ -31,6 +50,6 @@ public class ImportInstruction implements Instruction {
     
     @Override
     public String toString() {
-        return "Import(\"" + filePath + "\")";
+        return "Import(\"" + filePath + "\"" + (again ? ", again" : "") + ")";
     }
 }
@@ -0,0 +1,25 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for increasing a process-wide counter: increase shared counter hits by 1
+ */
+public class IncreaseSharedCounterInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String counterName;
+    private final String amountExpression;
+    private final int lineNumber;
+
+    public IncreaseSharedCounterInstruction(String counterName, String amountExpression, int lineNumber) {
+        this.counterName = counterName;
+        this.amountExpression = amountExpression;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getCounterName() { return counterName; }
+    public String getAmountExpression() { return amountExpression; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
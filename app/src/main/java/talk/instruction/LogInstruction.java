@@ -3,6 +3,8 @@ package talk.instruction;
 import talk.core.Instruction;
 
 public class LogInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String message;
     private final int lineNumber;
 
@@ -0,0 +1,30 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+public class MapFileInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String fileName;
+    private final String variableName;
+    private final int lineNumber;
+
+    public MapFileInstruction(String fileName, String variableName, int lineNumber) {
+        this.fileName = fileName;
+        this.variableName = variableName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getVariableName() {
+        return variableName;
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
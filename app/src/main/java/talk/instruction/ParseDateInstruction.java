@@ -6,6 +6,8 @@ import talk.core.Instruction;
  * Instruction to handle parsing dates: 'parse date <string>'
  */
 public class ParseDateInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String dateString;
     private final String variableName;
     private final int lineNumber;
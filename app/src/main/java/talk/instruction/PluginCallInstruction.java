@@ -2,16 +2,23 @@ package talk.instruction;
 
 import java.util.List;
 import talk.core.Instruction;
+import talk.plugins.PluginCallSite;
+import talk.plugins.PluginRegistry;
 
 /**
  * Instruction for calling a plugin in the Talk language.
  * This represents a call to a plugin with a specific alias and arguments.
  */
 public class PluginCallInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String pluginAlias;
+    private final String normalizedAlias;
     private final List<String> arguments;
     private final String intoVariable;
     private final int lineNumber;
+    // Prepared arguments, built on first execution; not kept in bundles
+    private transient volatile PluginCallSite callSite;
     
     /**
      * Create a new PluginCallInstruction
@@ -22,6 +29,7 @@ public class PluginCallInstruction implements Instruction {
      */
     public PluginCallInstruction(String pluginAlias, List<String> arguments, String intoVariable, int lineNumber) {
         this.pluginAlias = pluginAlias;
+        this.normalizedAlias = PluginRegistry.normalizeAlias(pluginAlias);
         this.arguments = arguments;
         this.intoVariable = intoVariable;
         this.lineNumber = lineNumber;
@@ -35,6 +43,14 @@ public class PluginCallInstruction implements Instruction {
         return pluginAlias;
     }
     
+    /**
+     * Get the plugin alias as the registry stores it, normalized once when the instruction is parsed
+     * @return The normalized plugin alias
+     */
+    public String getNormalizedAlias() {
+        return normalizedAlias;
+    }
+    
     /**
      * Get the list of arguments
      * @return The arguments to pass to the plugin
@@ -51,6 +67,22 @@ public class PluginCallInstruction implements Instruction {
         return intoVariable;
     }
     
+    /**
+     * Get the prepared call site
+     * @return The call site, or null if the instruction has not run yet
+     */
+    public PluginCallSite getCallSite() {
+        return callSite;
+    }
+    
+    /**
+     * Set the prepared call site
+     * @param callSite The call site built for this instruction
+     */
+    public void setCallSite(PluginCallSite callSite) {
+        this.callSite = callSite;
+    }
+    
     @Override
     public int getLineNumber() {
         return lineNumber;
@@ -0,0 +1,25 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for receiving a value from a channel: receive from ch into y
+ */
+public class ReceiveInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String channelName;
+    private final String variableName;
+    private final int lineNumber;
+
+    public ReceiveInstruction(String channelName, String variableName, int lineNumber) {
+        this.channelName = channelName;
+        this.variableName = variableName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getChannelName() { return channelName; }
+    public String getVariableName() { return variableName; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
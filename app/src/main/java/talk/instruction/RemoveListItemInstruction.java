@@ -0,0 +1,25 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for removing an item from a list by position: remove item 2 from fruits
+ */
+public class RemoveListItemInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String indexExpression;
+    private final String listName;
+    private final int lineNumber;
+
+    public RemoveListItemInstruction(String indexExpression, String listName, int lineNumber) {
+        this.indexExpression = indexExpression;
+        this.listName = listName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getIndexExpression() { return indexExpression; }
+    public String getListName() { return listName; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
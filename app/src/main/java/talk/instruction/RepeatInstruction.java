@@ -3,13 +3,19 @@ package talk.instruction;
 import java.util.List;
 
 import talk.core.Instruction;
+import talk.io.DirectoryFilter;
 
 public class RepeatInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String countExpr;
     private final List<Instruction> body;
     private final int lineNumber;
     private final String itemVar;
     private final String listVar;
+    private final String fileExpr;
+    private final String directoryExpr;
+    private final DirectoryFilter directoryFilter;
 
     // Standard repeat N times
     public RepeatInstruction(String countExpr, List<Instruction> body, int lineNumber) {
@@ -18,6 +24,9 @@ public class RepeatInstruction implements Instruction {
         this.lineNumber = lineNumber;
         this.itemVar = null;
         this.listVar = null;
+        this.fileExpr = null;
+        this.directoryExpr = null;
+        this.directoryFilter = null;
     }
 
     // List iteration: repeat for each item in items
@@ -27,12 +36,41 @@ public class RepeatInstruction implements Instruction {
         this.lineNumber = lineNumber;
         this.itemVar = itemVar;
         this.listVar = listVar;
+        this.fileExpr = null;
+        this.directoryExpr = null;
+        this.directoryFilter = null;
+    }
+
+    private RepeatInstruction(String itemVar, String fileExpr, String directoryExpr, DirectoryFilter directoryFilter,
+                              List<Instruction> body, int lineNumber) {
+        this.countExpr = null;
+        this.body = body;
+        this.lineNumber = lineNumber;
+        this.itemVar = itemVar;
+        this.listVar = null;
+        this.fileExpr = fileExpr;
+        this.directoryExpr = directoryExpr;
+        this.directoryFilter = directoryFilter;
+    }
+
+    // Line iteration: repeat for each line in file "data.log"
+    public static RepeatInstruction overFileLines(String itemVar, String fileExpr, List<Instruction> body, int lineNumber) {
+        return new RepeatInstruction(itemVar, fileExpr, null, null, body, lineNumber);
+    }
+
+    // Directory iteration: repeat for each entry in directory logs matching "*.log"
+    public static RepeatInstruction overDirectory(String itemVar, String directoryExpr, DirectoryFilter filter,
+                                                  List<Instruction> body, int lineNumber) {
+        return new RepeatInstruction(itemVar, null, directoryExpr, filter, body, lineNumber);
     }
 
     public String getCountExpr() { return countExpr; }
     public List<Instruction> getBody() { return body; }
     public String getItemVar() { return itemVar; }
     public String getListVar() { return listVar; }
+    public String getFileExpr() { return fileExpr; }
+    public String getDirectoryExpr() { return directoryExpr; }
+    public DirectoryFilter getDirectoryFilter() { return directoryFilter; }
     @Override
     public int getLineNumber() { return lineNumber; }
 }
@@ -3,6 +3,8 @@ package talk.instruction;
 import talk.core.Instruction;
 
 public class ReturnInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String expression;
     private final int lineNumber;
 
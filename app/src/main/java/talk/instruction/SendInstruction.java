@@ -0,0 +1,25 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for sending a value to a channel: send x to ch
+ */
+public class SendInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String valueExpression;
+    private final String channelName;
+    private final int lineNumber;
+
+    public SendInstruction(String valueExpression, String channelName, int lineNumber) {
+        this.valueExpression = valueExpression;
+        this.channelName = channelName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getValueExpression() { return valueExpression; }
+    public String getChannelName() { return channelName; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
@@ -0,0 +1,28 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for replacing an item of a list by position: set item 2 in fruits to kiwi
+ */
+public class SetListItemInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String indexExpression;
+    private final String listName;
+    private final String valueExpression;
+    private final int lineNumber;
+
+    public SetListItemInstruction(String indexExpression, String listName, String valueExpression, int lineNumber) {
+        this.indexExpression = indexExpression;
+        this.listName = listName;
+        this.valueExpression = valueExpression;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getIndexExpression() { return indexExpression; }
+    public String getListName() { return listName; }
+    public String getValueExpression() { return valueExpression; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
@@ -0,0 +1,31 @@
+package talk.instruction;
+
+import java.util.List;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction for running a function concurrently on several workers:
+ * start 4 workers running function f [with arg1 and arg2]
+ */
+public class StartWorkersInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final String countExpression;
+    private final String functionName;
+    private final List<String> arguments;
+    private final int lineNumber;
+
+    public StartWorkersInstruction(String countExpression, String functionName, List<String> arguments, int lineNumber) {
+        this.countExpression = countExpression;
+        this.functionName = functionName;
+        this.arguments = arguments;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getCountExpression() { return countExpression; }
+    public String getFunctionName() { return functionName; }
+    public List<String> getArguments() { return arguments; }
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
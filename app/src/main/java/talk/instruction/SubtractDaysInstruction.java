@@ -6,6 +6,8 @@ import talk.core.Instruction;
  * Instruction to handle subtracting days from a date: 'subtract <n> days from <date>'
  */
 public class SubtractDaysInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String days;
     private final String dateExpression;
     private final String variableName;
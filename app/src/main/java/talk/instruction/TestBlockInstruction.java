@@ -8,6 +8,8 @@ import java.util.List;
  * A test block contains a description and a list of instructions to execute.
  */
 public class TestBlockInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String description;
     private final List<Instruction> instructions;
     private final int lineNumber;
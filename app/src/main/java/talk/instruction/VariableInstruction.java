@@ -3,6 +3,8 @@ package talk.instruction;
 import talk.core.Instruction;
 
 public class VariableInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String name;
     private final Object value; // Can be null if just declaration
     private final int lineNumber;
@@ -0,0 +1,19 @@
+package talk.instruction;
+
+import talk.core.Instruction;
+
+/**
+ * Instruction that blocks until all started workers have finished: wait for workers
+ */
+public class WaitForWorkersInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
+    private final int lineNumber;
+
+    public WaitForWorkersInstruction(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    @Override
+    public int getLineNumber() { return lineNumber; }
+}
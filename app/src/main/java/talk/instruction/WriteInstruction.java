@@ -3,6 +3,8 @@ package talk.instruction;
 import talk.core.Instruction;
 
 public class WriteInstruction implements Instruction {
+    private static final long serialVersionUID = 1L;
+
     private final String content;
     private final String fileName;
     private final int lineNumber;
@@ -0,0 +1,314 @@
+package talk.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Logger that hands messages to a background thread instead of writing them itself.
+ *
+ * Messages go into a bounded ring buffer. A flusher thread drains it in batches,
+ * formats them and writes each batch through one writer that stays open until
+ * close(). What happens when the buffer is full depends on the OverflowPolicy;
+ * error messages are never dropped. Everything still in the buffer is written
+ * by close(), and by a shutdown hook if the JVM exits before close() is called.
+ */
+public class AsyncLogger implements Logger, Closeable {
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH = 1024;
+
+    /**
+     * What to do with a message when the buffer is full
+     */
+    public enum OverflowPolicy {
+        /** Wait for room in the buffer, so no message is lost */
+        BLOCK,
+        /** Drop the message */
+        DROP,
+        /** Keep one message in every SAMPLE_RATE, waiting for room for it, and drop the rest */
+        SAMPLE;
+
+        public static final int SAMPLE_RATE = 100;
+
+        /**
+         * @param name "block", "drop" or "sample", in any case
+         * @return The policy
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static OverflowPolicy parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown log overflow policy: " + name + " (use block, drop or sample)");
+            }
+        }
+    }
+
+    private static final class Record {
+        final long timestamp;
+        final String level;
+        final String message;
+
+        Record(long timestamp, String level, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.message = message;
+        }
+    }
+
+    private final String logFile;
+    private final boolean logToConsole;
+    private final boolean debugEnabled;
+    private final FileSystem fileSystem;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<Record> buffer;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private volatile boolean closed = false;
+    private volatile IOException writeFailure;
+    // Held shared while a message goes into the buffer and exclusively to close it, so no
+    // message can enter the buffer after close() has taken what is left in it
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    // Only touched by the flusher thread, and by close() once the flusher has stopped
+    private Writer writer;
+
+    /**
+     * Constructor with all settings
+     * @param logFile The file to log to
+     * @param logToConsole Whether to log to console
+     * @param debugEnabled Whether debug messages should be logged
+     * @param fileSystem The file system to use for writing logs
+     * @param capacity The number of messages the buffer holds
+     * @param overflowPolicy What to do with a message when the buffer is full
+     */
+    public AsyncLogger(String logFile, boolean logToConsole, boolean debugEnabled, FileSystem fileSystem,
+                       int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Log buffer capacity must be at least 1");
+        }
+        this.logFile = logFile;
+        this.logToConsole = logToConsole;
+        this.debugEnabled = debugEnabled;
+        this.fileSystem = fileSystem;
+        this.overflowPolicy = overflowPolicy;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+
+        this.flusher = new Thread(this::drainLoop, "talk-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        this.shutdownHook = new Thread(this::closeQuietly, "talk-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Simplified constructor with defaults
+     * @param fileSystem The file system to use for writing logs
+     * @param overflowPolicy What to do with a message when the buffer is full
+     */
+    public AsyncLogger(FileSystem fileSystem, OverflowPolicy overflowPolicy) {
+        this("debug.log", true, false, fileSystem, DEFAULT_CAPACITY, overflowPolicy);
+    }
+
+    @Override
+    public void log(String message) throws IOException {
+        enqueue("INFO", message);
+    }
+
+    @Override
+    public void log(String message, int lineNumber) throws IOException {
+        enqueue("INFO", message + " (line " + lineNumber + ")");
+    }
+
+    @Override
+    public void error(String message) throws IOException {
+        enqueue("ERROR", message);
+    }
+
+    @Override
+    public void error(String message, int lineNumber) throws IOException {
+        enqueue("ERROR", message + " (line " + lineNumber + ")");
+    }
+
+    @Override
+    public void debug(String message) throws IOException {
+        if (debugEnabled) {
+            enqueue("DEBUG", message);
+        }
+    }
+
+    /**
+     * @return The number of messages dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void enqueue(String level, String message) throws IOException {
+        IOException failure = writeFailure;
+        if (failure != null) {
+            writeFailure = null;
+            throw failure;
+        }
+        Record record = new Record(System.currentTimeMillis(), level, message);
+        closeLock.readLock().lock();
+        try {
+            if (!closed) {
+                addToBuffer(record);
+                return;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        // Late messages, e.g. from a worker still running at shutdown, are written directly
+        String line = DefaultLogger.formatLogMessage(record.level, record.message, now(record.timestamp));
+        if (logToConsole) {
+            System.out.println(line);
+        }
+        fileSystem.appendToFile(logFile, line + System.lineSeparator());
+    }
+
+    private void addToBuffer(Record record) {
+        if (buffer.offer(record)) {
+            return;
+        }
+
+        boolean keep = overflowPolicy == OverflowPolicy.BLOCK || "ERROR".equals(record.level)
+            || (overflowPolicy == OverflowPolicy.SAMPLE && overflowed.incrementAndGet() % OverflowPolicy.SAMPLE_RATE == 1);
+        if (!keep) {
+            dropped.incrementAndGet();
+            return;
+        }
+        try {
+            while (!buffer.offer(record, 100, TimeUnit.MILLISECONDS)) {
+                if (closed || !flusher.isAlive()) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        List<Record> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            Record first;
+            try {
+                first = buffer.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+                closed = true;
+            }
+            if (first == null) {
+                if (closed && buffer.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            buffer.drainTo(batch, MAX_BATCH - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Record> batch) {
+        StringBuilder text = new StringBuilder(batch.size() * 64);
+        long lastSecond = Long.MIN_VALUE;
+        LocalDateTime time = null;
+        for (Record record : batch) {
+            // Messages in a batch mostly share a second, so format its timestamp once
+            if (record.timestamp / 1000 != lastSecond) {
+                lastSecond = record.timestamp / 1000;
+                time = now(record.timestamp);
+            }
+            text.append(DefaultLogger.formatLogMessage(record.level, record.message, time)).append(System.lineSeparator());
+        }
+        if (logToConsole) {
+            System.out.print(text);
+        }
+        try {
+            if (writer == null) {
+                writer = new BufferedWriter(fileSystem.openAppendWriter(logFile));
+            }
+            writer.append(text);
+            writer.flush();
+        } catch (IOException e) {
+            writeFailure = e;
+        }
+    }
+
+    private static LocalDateTime now(long timestamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+
+    /**
+     * Write out every buffered message and close the log file.
+     * Messages logged afterwards are written directly.
+     * @throws IOException If writing the log file failed
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Messages that arrived as the flusher stopped; none can arrive after this
+        List<Record> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        if (!rest.isEmpty()) {
+            writeBatch(rest);
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down; the hook is running or has run
+            }
+        }
+        IOException failure = writeFailure;
+        if (failure != null) {
+            writeFailure = null;
+            throw failure;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to write log file '" + logFile + "': " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package talk.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A FileSystem that keeps the contents of recently read files, so a script
+ * reading the same file in a loop or from several functions reads it once.
+ *
+ * A cached file is used only while its modification time and size are
+ * unchanged, so changes made by other programs are seen. Writing, appending
+ * to, deleting or copying over a file through this file system forgets it
+ * straight away. Files whose modification time or size is unknown are never
+ * cached.
+ *
+ * The cache holds at most a given number of bytes; when full, the least
+ * recently read files are forgotten first. Files larger than a quarter of
+ * the limit are not cached. Safe to share between workers.
+ */
+public class CachingFileSystem implements FileSystem {
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final FileSystem delegate;
+    private final long maxBytes;
+    private final Map<String, CachedFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    // Counts every change made through this file system, so a read that raced with a change is not cached
+    private long generation;
+    private final Stats stats = new Stats();
+
+    private static final class CachedFile {
+        final String content;
+        final long lastModified;
+        final long size;
+
+        CachedFile(String content, long lastModified, long size) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Hit and miss counts of the cache
+     */
+    public static final class Stats {
+        private long hits;
+        private long misses;
+        private long invalidations;
+        private long evictions;
+        private long bytesSaved;
+
+        /** @return Reads answered from the cache */
+        public synchronized long getHits() { return hits; }
+        /** @return Reads that went to the file */
+        public synchronized long getMisses() { return misses; }
+        /** @return Cached files forgotten because they were changed through this file system */
+        public synchronized long getInvalidations() { return invalidations; }
+        /** @return Cached files forgotten to make room */
+        public synchronized long getEvictions() { return evictions; }
+        /** @return File bytes not read because the cache answered */
+        public synchronized long getBytesSaved() { return bytesSaved; }
+
+        /** @return The share of reads answered from the cache, from 0 to 1 */
+        public synchronized double getHitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
+    public CachingFileSystem(FileSystem delegate) {
+        this(delegate, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param delegate The file system files are read from and written to
+     * @param maxBytes The most file bytes to keep
+     */
+    public CachingFileSystem(FileSystem delegate, long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Read cache size must be at least 1 byte");
+        }
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return The number of bytes of file content currently cached
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    @Override
+    public String readFile(String fileName) throws IOException {
+        String key = key(fileName);
+        long lastModified = delegate.lastModified(fileName);
+        long size = delegate.fileSize(fileName);
+        long readGeneration;
+        synchronized (this) {
+            CachedFile cached = files.get(key);
+            if (cached != null && lastModified != -1 && cached.lastModified == lastModified && cached.size == size) {
+                synchronized (stats) {
+                    stats.hits++;
+                    stats.bytesSaved += size;
+                }
+                return cached.content;
+            }
+            readGeneration = generation;
+        }
+        synchronized (stats) {
+            stats.misses++;
+        }
+
+        String content = delegate.readFile(fileName);
+        if (lastModified == -1 || size < 0 || size > maxBytes / 4) {
+            return content;
+        }
+        synchronized (this) {
+            if (generation == readGeneration) {
+                remove(key);
+                files.put(key, new CachedFile(content, lastModified, size));
+                cachedBytes += size;
+                evictToLimit();
+            }
+        }
+        return content;
+    }
+
+    @Override
+    public List<String> readAllLines(String fileName) throws IOException {
+        // Same line breaks as Files.readAllLines: \n, \r or \r\n, without a trailing empty line
+        return new BufferedReader(new StringReader(readFile(fileName))).lines().collect(Collectors.toList());
+    }
+
+    @Override
+    public void writeFile(String fileName, String content) throws IOException {
+        invalidate(fileName);
+        try {
+            delegate.writeFile(fileName, content);
+        } finally {
+            invalidate(fileName);
+        }
+    }
+
+    @Override
+    public void appendToFile(String fileName, String content) throws IOException {
+        invalidate(fileName);
+        try {
+            delegate.appendToFile(fileName, content);
+        } finally {
+            invalidate(fileName);
+        }
+    }
+
+    @Override
+    public void deleteFile(String fileName) throws IOException {
+        invalidate(fileName);
+        try {
+            delegate.deleteFile(fileName);
+        } finally {
+            invalidate(fileName);
+        }
+    }
+
+    @Override
+    public void copyFile(String source, String destination) throws IOException {
+        invalidate(destination);
+        try {
+            delegate.copyFile(source, destination);
+        } finally {
+            invalidate(destination);
+        }
+    }
+
+    @Override
+    public CopyEngine.CopyStats copyDirectory(String source, String destination,
+                                              CopyEngine.ProgressListener listener) throws IOException {
+        invalidateTree(destination);
+        try {
+            return delegate.copyDirectory(source, destination, listener);
+        } finally {
+            invalidateTree(destination);
+        }
+    }
+
+    @Override
+    public Writer openAppendWriter(String fileName) throws IOException {
+        invalidate(fileName);
+        Writer writer = delegate.openAppendWriter(fileName);
+        // Buffered output reaches the file when the writer flushes, which may be long after it was opened
+        return new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                writer.write(cbuf, off, len);
+                invalidate(fileName);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                try {
+                    writer.flush();
+                } finally {
+                    invalidate(fileName);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    writer.close();
+                } finally {
+                    invalidate(fileName);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean fileExists(String fileName) {
+        return delegate.fileExists(fileName);
+    }
+
+    @Override
+    public String canonicalPath(String fileName) throws IOException {
+        return delegate.canonicalPath(fileName);
+    }
+
+    @Override
+    public long lastModified(String fileName) throws IOException {
+        return delegate.lastModified(fileName);
+    }
+
+    @Override
+    public long fileSize(String fileName) throws IOException {
+        return delegate.fileSize(fileName);
+    }
+
+    @Override
+    public String[] listDirectory(String directoryPath) throws IOException {
+        return delegate.listDirectory(directoryPath);
+    }
+
+    @Override
+    public DirectoryStream<DirectoryEntry> openDirectoryStream(String directoryPath, DirectoryFilter filter) throws IOException {
+        return delegate.openDirectoryStream(directoryPath, filter);
+    }
+
+    @Override
+    public BufferedReader openLineReader(String fileName) throws IOException {
+        return delegate.openLineReader(fileName);
+    }
+
+    @Override
+    public FileLines mapLines(String fileName) throws IOException {
+        return delegate.mapLines(fileName);
+    }
+
+    /**
+     * Forget every cached file
+     */
+    public synchronized void clear() {
+        generation++;
+        files.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * Forget one file, e.g. because it is known to have changed
+     * @param fileName The file, however its path is written
+     */
+    public synchronized void invalidate(String fileName) {
+        generation++;
+        if (remove(key(fileName))) {
+            synchronized (stats) {
+                stats.invalidations++;
+            }
+        }
+    }
+
+    // Forgets a file, or every file in a directory
+    private synchronized void invalidateTree(String path) {
+        generation++;
+        String key = key(path);
+        String prefix = key.endsWith(java.io.File.separator) ? key : key + java.io.File.separator;
+        Iterator<Map.Entry<String, CachedFile>> entries = files.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, CachedFile> entry = entries.next();
+            if (entry.getKey().equals(key) || entry.getKey().startsWith(prefix)) {
+                cachedBytes -= entry.getValue().size;
+                entries.remove();
+                synchronized (stats) {
+                    stats.invalidations++;
+                }
+            }
+        }
+    }
+
+    private boolean remove(String key) {
+        CachedFile removed = files.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        cachedBytes -= removed.size;
+        return true;
+    }
+
+    private void evictToLimit() {
+        Iterator<Map.Entry<String, CachedFile>> leastRecentFirst = files.entrySet().iterator();
+        while (cachedBytes > maxBytes && leastRecentFirst.hasNext()) {
+            cachedBytes -= leastRecentFirst.next().getValue().size;
+            leastRecentFirst.remove();
+            synchronized (stats) {
+                stats.evictions++;
+            }
+        }
+    }
+
+    // One key however the path is written, without touching the file system
+    private static String key(String fileName) {
+        return Paths.get(fileName).toAbsolutePath().normalize().toString();
+    }
+}
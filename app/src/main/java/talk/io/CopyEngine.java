@@ -0,0 +1,245 @@
+package talk.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copies files and directory trees.
+ *
+ * Files of at least TRANSFER_THRESHOLD bytes are copied with
+ * FileChannel.transferTo, which lets the operating system move the data
+ * without passing it through a Java buffer. Smaller files are copied through
+ * streams, where the extra system calls would cost more than they save.
+ *
+ * A directory is copied by one thread walking the tree and creating its
+ * directories, while a pool of threads copies the files it finds. At most a
+ * few files per thread are queued at a time, so memory use does not depend on
+ * the size of the tree.
+ */
+public class CopyEngine {
+    public static final long TRANSFER_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Receives progress while a directory is copied. Called from the copying
+     * threads, at most once per reporting interval.
+     */
+    public interface ProgressListener {
+        void onProgress(CopyStats progress);
+    }
+
+    /**
+     * Totals for a copy, or for the part of it done so far
+     */
+    public static final class CopyStats {
+        private final long files;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        CopyStats(long files, long bytes, long elapsedNanos) {
+            this.files = files;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * @return Bytes copied per second
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : bytes / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %.1f MB in %d ms (%.1f MB/s)",
+                files, bytes / 1_048_576.0, getElapsedMillis(), getThroughput() / 1_048_576.0);
+        }
+    }
+
+    private final int parallelism;
+    private final ProgressListener listener;
+    private final long reportIntervalNanos;
+
+    public CopyEngine() {
+        this(Runtime.getRuntime().availableProcessors(), null, 0);
+    }
+
+    /**
+     * @param parallelism Number of threads copying files
+     * @param listener Receives progress during directory copies, or null
+     * @param reportIntervalMillis Minimum time between progress reports
+     */
+    public CopyEngine(int parallelism, ProgressListener listener, long reportIntervalMillis) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Copy parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.listener = listener;
+        this.reportIntervalNanos = TimeUnit.MILLISECONDS.toNanos(reportIntervalMillis);
+    }
+
+    /**
+     * Copy one file, replacing the destination if it exists. Copying a file onto
+     * itself leaves it as it is.
+     * @param source The file to copy
+     * @param destination The file to create
+     * @return The number of bytes copied
+     * @throws IOException If an I/O error occurs
+     */
+    public static long copyFile(Path source, Path destination) throws IOException {
+        long size = Files.size(source);
+        // Opening the destination for writing would truncate the source too
+        if (Files.exists(destination) && Files.isSameFile(source, destination)) {
+            return 0;
+        }
+        return copyFile(source, destination, size);
+    }
+
+    // The directory walk already knows the size, which saves a stat per file
+    private static long copyFile(Path source, Path destination, long size) throws IOException {
+        if (size < TRANSFER_THRESHOLD) {
+            // Truncating in place is cheaper than Files.copy, which deletes an existing destination first
+            try (InputStream in = Files.newInputStream(source); OutputStream out = Files.newOutputStream(destination)) {
+                return in.transferTo(out);
+            }
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(destination, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            // transferTo may move fewer bytes than asked, e.g. 2 GiB at most on Linux
+            while (position < size) {
+                long moved = in.transferTo(position, size - position, out);
+                if (moved <= 0) {
+                    throw new IOException("File '" + source + "' was truncated while it was copied");
+                }
+                position += moved;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copy a directory and everything in it. The destination is created if it
+     * doesn't exist, and files already in it are replaced. Symbolic links are
+     * copied as links.
+     * @param source The directory to copy
+     * @param destination The directory to copy it to
+     * @return The number of files and bytes copied
+     * @throws IOException If the source is not a directory or any file fails to copy
+     */
+    public CopyStats copyDirectory(Path source, Path destination) throws IOException {
+        if (!Files.isDirectory(source)) {
+            throw new IOException("Directory '" + source + "' does not exist or is not a directory");
+        }
+        Path sourceRoot = source.toAbsolutePath().normalize();
+        Path destinationRoot = destination.toAbsolutePath().normalize();
+        if (destinationRoot.startsWith(sourceRoot)) {
+            throw new IOException("Cannot copy directory '" + source + "' into itself");
+        }
+
+        long start = System.nanoTime();
+        AtomicLong files = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong lastReport = new AtomicLong(start);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Semaphore queued = new Semaphore(parallelism * 4);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "talk-copy");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Files.walkFileTree(sourceRoot, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(destinationRoot.resolve(sourceRoot.relativize(dir)));
+                    return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Path target = destinationRoot.resolve(sourceRoot.relativize(file));
+                    try {
+                        queued.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while copying '" + source + "'", e);
+                    }
+                    pool.execute(() -> {
+                        try {
+                            if (failure.get() == null) {
+                                long copied = attrs.isSymbolicLink() ? copyLink(file, target) : copyFile(file, target, attrs.size());
+                                bytes.addAndGet(copied);
+                                files.incrementAndGet();
+                                report(start, lastReport, files, bytes);
+                            }
+                        } catch (IOException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                    return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+            });
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new CopyStats(files.get(), bytes.get(), System.nanoTime() - start);
+    }
+
+    private static long copyLink(Path link, Path target) throws IOException {
+        Files.copy(link, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+        return 0;
+    }
+
+    private void report(long start, AtomicLong lastReport, AtomicLong files, AtomicLong bytes) {
+        if (listener == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastReport.get();
+        // Only the thread that moves lastReport on reports, so each interval is reported once
+        if (now - last >= reportIntervalNanos && lastReport.compareAndSet(last, now)) {
+            listener.onProgress(new CopyStats(files.get(), bytes.get(), now - start));
+        }
+    }
+}
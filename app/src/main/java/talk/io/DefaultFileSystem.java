@@ -8,12 +8,29 @@ import java.io.IOException;
  * the existing FileUtils static methods for file operations.
  */
 public class DefaultFileSystem implements FileSystem {
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
     
     @Override
     public boolean fileExists(String fileName) {
         return FileUtils.fileExists(fileName);
     }
     
+    @Override
+    public String canonicalPath(String fileName) throws IOException {
+        // Also resolves symbolic links, so a module reached through a link is still one module
+        return java.nio.file.Path.of(fileName).toRealPath().toString();
+    }
+    
+    @Override
+    public long lastModified(String fileName) throws IOException {
+        return java.nio.file.Files.getLastModifiedTime(java.nio.file.Path.of(fileName)).toMillis();
+    }
+    
+    @Override
+    public long fileSize(String fileName) throws IOException {
+        return java.nio.file.Files.size(java.nio.file.Path.of(fileName));
+    }
+    
     @Override
     public String readFile(String fileName) throws IOException {
         return FileUtils.readFile(fileName);
@@ -44,6 +61,28 @@ public class DefaultFileSystem implements FileSystem {
         FileUtils.copyFile(source, destination);
     }
     
+    @Override
+    public CopyEngine.CopyStats copyDirectory(String source, String destination,
+                                              CopyEngine.ProgressListener listener) throws IOException {
+        CopyEngine engine = new CopyEngine(Runtime.getRuntime().availableProcessors(), listener, PROGRESS_INTERVAL_MILLIS);
+        return engine.copyDirectory(java.nio.file.Path.of(source), java.nio.file.Path.of(destination));
+    }
+    
+    @Override
+    public java.io.BufferedReader openLineReader(String fileName) throws IOException {
+        return FileUtils.openLineReader(fileName);
+    }
+    
+    @Override
+    public FileLines mapLines(String fileName) throws IOException {
+        return new MappedFileLines(java.nio.file.Path.of(fileName));
+    }
+    
+    @Override
+    public java.io.Writer openAppendWriter(String fileName) throws IOException {
+        return FileUtils.openAppendWriter(fileName);
+    }
+    
     @Override
     public String[] listDirectory(String directoryPath) throws IOException {
         File dir = new File(directoryPath);
@@ -53,4 +92,13 @@ public class DefaultFileSystem implements FileSystem {
         String[] files = dir.list();
         return files != null ? files : new String[0];
     }
+    
+    @Override
+    public java.nio.file.DirectoryStream<DirectoryEntry> openDirectoryStream(String directoryPath, DirectoryFilter filter) throws IOException {
+        java.nio.file.Path dir = java.nio.file.Path.of(directoryPath);
+        if (!java.nio.file.Files.isDirectory(dir)) {
+            throw new IOException("Directory '" + directoryPath + "' does not exist or is not a directory");
+        }
+        return new DirectoryWalker(dir, filter);
+    }
 }
@@ -72,8 +72,11 @@ public class DefaultLogger implements Logger {
     }
     
     private String formatLogMessage(String level, String message) {
-        LocalDateTime now = LocalDateTime.now();
-        return String.format("[%s] [%s] %s", now.format(TIMESTAMP_FORMAT), level, message);
+        return formatLogMessage(level, message, LocalDateTime.now());
+    }
+    
+    static String formatLogMessage(String level, String message, LocalDateTime time) {
+        return "[" + time.format(TIMESTAMP_FORMAT) + "] [" + level + "] " + message;
     }
     
     private void logMessage(String message) throws IOException {
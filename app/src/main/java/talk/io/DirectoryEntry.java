@@ -0,0 +1,62 @@
+package talk.io;
+
+/**
+ * One entry found by a directory scan. The size and modification time are
+ * only known when the scan was asked for attributes; otherwise they are -1.
+ * Whether the entry is a directory is only known when attributes were read
+ * or the scan recursed; otherwise it is reported as false.
+ */
+public class DirectoryEntry {
+    private final String path;
+    private final String relativePath;
+    private final String name;
+    private final boolean directory;
+    private final long size;
+    private final long lastModified;
+
+    /**
+     * @param path The entry's path, starting with the scanned directory as it was given
+     * @param relativePath The entry's path relative to the scanned directory, with "/" between names
+     * @param name The entry's name
+     * @param directory Whether the entry is a directory
+     * @param size The size in bytes, or -1 if unknown
+     * @param lastModified The modification time in milliseconds since the epoch, or -1 if unknown
+     */
+    public DirectoryEntry(String path, String relativePath, String name, boolean directory, long size, long lastModified) {
+        this.path = path;
+        this.relativePath = relativePath;
+        this.name = name;
+        this.directory = directory;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getRelativePath() {
+        return relativePath;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
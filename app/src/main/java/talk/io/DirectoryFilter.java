@@ -0,0 +1,97 @@
+package talk.io;
+
+import java.io.Serializable;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.regex.Pattern;
+
+/**
+ * Which entries a directory scan returns, and how deep it goes.
+ *
+ * A pattern without a "/" is matched against the entry's name, so "*.log"
+ * matches log files at any depth; a pattern with a "/" is matched against
+ * the entry's path relative to the scanned directory, using "/" between
+ * names on every platform. Directories are descended into whether or not
+ * they match.
+ */
+public class DirectoryFilter implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Only the entries of the directory itself */
+    public static final int TOP_LEVEL = 1;
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private final String pattern;
+    private final boolean regex;
+    private final int maxDepth;
+    private final boolean withAttributes;
+    private final transient PathMatcher globMatcher;
+    private final Pattern regexPattern;
+    private final boolean matchRelativePath;
+
+    /**
+     * @param pattern A glob or regular expression, or null to return every entry
+     * @param regex Whether the pattern is a regular expression rather than a glob
+     * @param maxDepth How many directory levels to return; TOP_LEVEL for no recursion
+     * @param withAttributes Whether to read each entry's size and modification time
+     * @throws IllegalArgumentException if the pattern is invalid or the depth is below 1
+     */
+    public DirectoryFilter(String pattern, boolean regex, int maxDepth, boolean withAttributes) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Directory depth must be at least 1");
+        }
+        this.pattern = pattern;
+        this.regex = regex;
+        this.maxDepth = maxDepth;
+        this.withAttributes = withAttributes;
+        this.matchRelativePath = pattern != null && pattern.contains("/");
+        // PatternSyntaxException is an IllegalArgumentException, so both kinds of bad pattern fail the same way
+        this.globMatcher = pattern != null && !regex ? FileSystems.getDefault().getPathMatcher("glob:" + pattern) : null;
+        this.regexPattern = pattern != null && regex ? Pattern.compile(pattern) : null;
+    }
+
+    /**
+     * Every entry of the directory itself, without attributes
+     */
+    public static DirectoryFilter all() {
+        return new DirectoryFilter(null, false, TOP_LEVEL, false);
+    }
+
+    /**
+     * @param relativePath The entry's path relative to the scanned directory, with "/" between names
+     * @param name The entry's name
+     * @return Whether the entry should be returned
+     */
+    public boolean accepts(String relativePath, String name) {
+        if (pattern == null) {
+            return true;
+        }
+        String subject = matchRelativePath ? relativePath : name;
+        if (regexPattern != null) {
+            return regexPattern.matcher(subject).matches();
+        }
+        return globMatcher.matches(Path.of(subject));
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean isRegex() {
+        return regex;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isWithAttributes() {
+        return withAttributes;
+    }
+
+    // PathMatcher is not serializable, so a deserialized filter is built again from its settings
+    private Object readResolve() {
+        return new DirectoryFilter(pattern, regex, maxDepth, withAttributes);
+    }
+}
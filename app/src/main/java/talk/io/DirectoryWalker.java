@@ -0,0 +1,160 @@
+package talk.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily walks a directory tree, reading entries as they are asked for.
+ *
+ * Only the directories on the path to the current entry are open, so memory
+ * use depends on the depth of the tree, not on how many entries a directory
+ * has. Entries come in the order the operating system returns them, with a
+ * directory before its contents. Attributes are read with one call per entry,
+ * and only when they are needed: when the filter asks for them, or to tell
+ * directories apart when recursing. Symbolic links are not followed, and
+ * entries deleted while the walk runs are skipped.
+ *
+ * I/O errors while iterating are thrown as DirectoryIteratorException, like
+ * DirectoryStream does. Closing the walker closes every open directory.
+ */
+public class DirectoryWalker implements DirectoryStream<DirectoryEntry> {
+    private static final class Level {
+        final DirectoryStream<Path> stream;
+        final Iterator<Path> entries;
+        final int depth;
+
+        Level(DirectoryStream<Path> stream, int depth) {
+            this.stream = stream;
+            this.entries = stream.iterator();
+            this.depth = depth;
+        }
+    }
+
+    private final Path root;
+    private final DirectoryFilter filter;
+    private final Deque<Level> open = new ArrayDeque<>();
+    private boolean iterated = false;
+    private boolean closed = false;
+
+    /**
+     * @param root The directory to walk
+     * @param filter Which entries to return and how deep to go
+     * @throws IOException If the directory cannot be opened
+     */
+    public DirectoryWalker(Path root, DirectoryFilter filter) throws IOException {
+        this.root = root;
+        this.filter = filter;
+        open.push(new Level(Files.newDirectoryStream(root), 1));
+    }
+
+    @Override
+    public Iterator<DirectoryEntry> iterator() {
+        if (closed) {
+            throw new IllegalStateException("Directory walker is closed");
+        }
+        if (iterated) {
+            throw new IllegalStateException("Directory walker can only be iterated once");
+        }
+        iterated = true;
+        return new Iterator<DirectoryEntry>() {
+            private DirectoryEntry next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !closed) {
+                    next = advance();
+                }
+                return next != null;
+            }
+
+            @Override
+            public DirectoryEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                DirectoryEntry entry = next;
+                next = null;
+                return entry;
+            }
+        };
+    }
+
+    private DirectoryEntry advance() {
+        while (!open.isEmpty()) {
+            Level level = open.peek();
+            if (!level.entries.hasNext()) {
+                open.pop();
+                closeQuietly(level.stream);
+                continue;
+            }
+            Path path = level.entries.next();
+            boolean descend = level.depth < filter.getMaxDepth();
+            BasicFileAttributes attrs = null;
+            if (descend || filter.isWithAttributes()) {
+                try {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    continue;
+                } catch (IOException e) {
+                    throw new DirectoryIteratorException(e);
+                }
+            }
+            if (descend && attrs.isDirectory()) {
+                try {
+                    open.push(new Level(Files.newDirectoryStream(path), level.depth + 1));
+                } catch (NoSuchFileException e) {
+                    // Deleted since it was listed; still report the entry itself
+                } catch (IOException e) {
+                    throw new DirectoryIteratorException(e);
+                }
+            }
+            String relativePath = root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+            String name = path.getFileName().toString();
+            if (!filter.accepts(relativePath, name)) {
+                continue;
+            }
+            boolean withAttributes = filter.isWithAttributes();
+            return new DirectoryEntry(path.toString(), relativePath, name,
+                attrs != null && attrs.isDirectory(),
+                withAttributes ? attrs.size() : -1,
+                withAttributes ? attrs.lastModifiedTime().toMillis() : -1);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        IOException failure = null;
+        while (!open.isEmpty()) {
+            try {
+                open.pop().stream.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void closeQuietly(DirectoryStream<Path> stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // The directory was only read
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package talk.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Random access to the lines of a file by line number.
+ * Lines are numbered from 1 and returned without their line endings
+ * ("\n" or "\r\n"). A line ending at the very end of the file does not
+ * start another, empty line.
+ */
+public interface FileLines {
+    /**
+     * @return The number of lines in the file
+     */
+    int lineCount();
+
+    /**
+     * @param lineNumber The line number, from 1
+     * @return The line, without its line ending
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    String line(int lineNumber);
+
+    /**
+     * Lines of text that is already in memory
+     * @param content The file content
+     * @return The lines of the content
+     */
+    static FileLines of(String content) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < content.length()) {
+            int end = content.indexOf('\n', start);
+            if (end == -1) {
+                end = content.length();
+            }
+            int lineEnd = end > start && content.charAt(end - 1) == '\r' ? end - 1 : end;
+            lines.add(content.substring(start, lineEnd));
+            start = end + 1;
+        }
+        return new FileLines() {
+            @Override
+            public int lineCount() {
+                return lines.size();
+            }
+
+            @Override
+            public String line(int lineNumber) {
+                if (lineNumber < 1 || lineNumber > lines.size()) {
+                    throw new IndexOutOfBoundsException("Line " + lineNumber + " of " + lines.size());
+                }
+                return lines.get(lineNumber - 1);
+            }
+        };
+    }
+}
@@ -1,6 +1,13 @@
 package talk.io;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -16,6 +23,41 @@ public interface FileSystem {
      */
     boolean fileExists(String fileName);
     
+    /**
+     * Returns one name for a file however it is written, so "lib.talk" and
+     * "./lib.talk" give the same result. The default implementation removes
+     * "." and ".." parts, keeping the path relative so it can still be read.
+     * 
+     * @param fileName The name of the file
+     * @return The canonical name of the file
+     * @throws IOException If an I/O error occurs
+     */
+    default String canonicalPath(String fileName) throws IOException {
+        return Paths.get(fileName).normalize().toString();
+    }
+    
+    /**
+     * Returns when a file was last modified
+     * 
+     * @param fileName The name of the file
+     * @return Milliseconds since the epoch, or -1 if unknown; the default implementation always returns -1
+     * @throws IOException If an I/O error occurs
+     */
+    default long lastModified(String fileName) throws IOException {
+        return -1;
+    }
+    
+    /**
+     * Returns the size of a file
+     * 
+     * @param fileName The name of the file
+     * @return The size in bytes, or -1 if unknown; the default implementation always returns -1
+     * @throws IOException If an I/O error occurs
+     */
+    default long fileSize(String fileName) throws IOException {
+        return -1;
+    }
+    
     /**
      * Reads the content of a file as a string
      * @param fileName The name of the file to read
@@ -65,6 +107,22 @@ public interface FileSystem {
      */
     void copyFile(String source, String destination) throws IOException;
     
+    /**
+     * Copies a directory and everything in it, replacing files that already exist
+     * in the destination. The default implementation fails, since a file system
+     * without directories has nothing to copy.
+     * 
+     * @param source The source directory path
+     * @param destination The destination directory path
+     * @param listener Receives progress while the copy runs, or null
+     * @return The number of files and bytes copied
+     * @throws IOException If an I/O error occurs
+     */
+    default CopyEngine.CopyStats copyDirectory(String source, String destination,
+                                               CopyEngine.ProgressListener listener) throws IOException {
+        throw new IOException("Copying directories is not supported by this file system");
+    }
+    
     /**
      * Lists the contents of a directory
      * 
@@ -73,4 +131,87 @@ public interface FileSystem {
      * @throws IOException If an I/O error occurs
      */
     String[] listDirectory(String directoryPath) throws IOException;
+    
+    /**
+     * Opens a lazy scan of a directory, returning the entries the filter accepts.
+     * The default implementation filters the names from listDirectory, so it
+     * neither recurses nor reads attributes; implementations backed by real
+     * directories should read entries as they are iterated.
+     * 
+     * @param directoryPath The directory path
+     * @param filter Which entries to return and how deep to go
+     * @return The entries, which the caller must close
+     * @throws IOException If the directory cannot be opened
+     */
+    default DirectoryStream<DirectoryEntry> openDirectoryStream(String directoryPath, DirectoryFilter filter) throws IOException {
+        List<DirectoryEntry> entries = new ArrayList<>();
+        String prefix = directoryPath.endsWith("/") ? directoryPath : directoryPath + "/";
+        for (String name : listDirectory(directoryPath)) {
+            if (filter.accepts(name, name)) {
+                entries.add(new DirectoryEntry(prefix + name, name, name, false, -1, -1));
+            }
+        }
+        return new DirectoryStream<DirectoryEntry>() {
+            @Override
+            public Iterator<DirectoryEntry> iterator() {
+                return entries.iterator();
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+    }
+    
+    /**
+     * Opens a reader for reading a file line by line.
+     * The default implementation reads the whole file with readFile; implementations
+     * backed by real files should stream it, so memory use does not grow with file size.
+     * 
+     * @param fileName The name of the file to read
+     * @return A reader the caller must close
+     * @throws IOException If an I/O error occurs
+     */
+    default BufferedReader openLineReader(String fileName) throws IOException {
+        return new BufferedReader(new StringReader(readFile(fileName)));
+    }
+    
+    /**
+     * Gives random access to the lines of a file.
+     * The default implementation reads the whole file with readFile; implementations
+     * backed by real files should map it, so lines are only read when used.
+     * 
+     * @param fileName The name of the file
+     * @return The lines of the file
+     * @throws IOException If an I/O error occurs
+     */
+    default FileLines mapLines(String fileName) throws IOException {
+        return FileLines.of(readFile(fileName));
+    }
+    
+    /**
+     * Opens a writer that appends to a file, creating it if it doesn't exist.
+     * The default implementation appends each chunk it is given with appendToFile,
+     * so callers should wrap it in a BufferedWriter.
+     * 
+     * @param fileName The name of the file to append to
+     * @return A writer the caller must close
+     * @throws IOException If an I/O error occurs
+     */
+    default Writer openAppendWriter(String fileName) throws IOException {
+        return new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                appendToFile(fileName, new String(cbuf, off, len));
+            }
+            
+            @Override
+            public void flush() {
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+    }
 }
@@ -1,6 +1,11 @@
 package talk.io;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -19,6 +24,13 @@ public class FileUtils {
         return Files.readAllLines(Path.of(fileName));
     }
 
+    // Large enough that reading a big file line by line is not dominated by read calls
+    private static final int LINE_READER_BUFFER_SIZE = 256 * 1024;
+
+    public static BufferedReader openLineReader(String fileName) throws IOException {
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(Path.of(fileName)), StandardCharsets.UTF_8), LINE_READER_BUFFER_SIZE);
+    }
+
     public static void writeFile(String fileName, String content) throws IOException {
         Files.writeString(Path.of(fileName), content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     }
@@ -27,11 +39,15 @@ public class FileUtils {
         Files.writeString(Path.of(fileName), content, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
     }
 
+    public static Writer openAppendWriter(String fileName) throws IOException {
+        return new OutputStreamWriter(Files.newOutputStream(Path.of(fileName), StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8);
+    }
+
     public static void deleteFile(String fileName) throws IOException {
         Files.deleteIfExists(Path.of(fileName));
     }
 
     public static void copyFile(String source, String destination) throws IOException {
-        Files.copy(Path.of(source), Path.of(destination), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        CopyEngine.copyFile(Path.of(source), Path.of(destination));
     }
 }
@@ -0,0 +1,145 @@
+package talk.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for any of a set of files on disk to change.
+ *
+ * The directories holding the files are watched with a WatchService, and
+ * events for other files in them are ignored. Creating or deleting a file
+ * counts as a change, so editors that save by replacing the file are seen.
+ * Changes arriving in a burst, such as an editor saving several files, are
+ * gathered until no change has come for the debounce window and reported
+ * together.
+ */
+public class FileWatcher implements Closeable {
+    private final WatchService watchService;
+    private final long debounceMillis;
+    // Watched file names by directory
+    private final Map<Path, Set<Path>> files = new HashMap<>();
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+
+    /**
+     * @param debounceMillis How long to wait after a change for more changes
+     * @throws IOException If the watch service cannot be started
+     */
+    public FileWatcher(long debounceMillis) throws IOException {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce window cannot be negative");
+        }
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Watch these files instead of the ones watched before
+     * @param paths The files to watch
+     * @throws IOException If a directory cannot be watched
+     */
+    public synchronized void watch(Collection<Path> paths) throws IOException {
+        Map<Path, Set<Path>> wanted = new HashMap<>();
+        for (Path path : paths) {
+            Path file = path.toAbsolutePath().normalize();
+            wanted.computeIfAbsent(file.getParent(), dir -> new HashSet<>()).add(file.getFileName());
+        }
+        Iterator<Map.Entry<Path, WatchKey>> watched = keys.entrySet().iterator();
+        while (watched.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = watched.next();
+            if (!wanted.containsKey(entry.getKey())) {
+                entry.getValue().cancel();
+                watched.remove();
+            }
+        }
+        for (Path dir : wanted.keySet()) {
+            if (!keys.containsKey(dir)) {
+                keys.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+            }
+        }
+        files.clear();
+        files.putAll(wanted);
+    }
+
+    /**
+     * Wait until a watched file changes, then for the debounce window to pass without more changes
+     * @return The files that changed, sorted
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public Set<Path> awaitChanges() throws InterruptedException {
+        return awaitChanges(Long.MAX_VALUE);
+    }
+
+    /**
+     * Like awaitChanges(), giving up if nothing changes in time
+     * @param timeoutMillis How long to wait for the first change
+     * @return The files that changed, sorted, or an empty set if none did in time
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public Set<Path> awaitChanges(long timeoutMillis) throws InterruptedException {
+        Set<Path> changed = new TreeSet<>();
+        long deadline = timeoutMillis == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (changed.isEmpty()) {
+                WatchKey key;
+                if (deadline == Long.MAX_VALUE) {
+                    key = watchService.take();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return Collections.emptySet();
+                    }
+                    key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (key == null) {
+                        return Collections.emptySet();
+                    }
+                }
+                collect(key, changed);
+            }
+            WatchKey key;
+            while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                collect(key, changed);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting; report what was seen
+        }
+        return changed;
+    }
+
+    private synchronized void collect(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        Set<Path> names = files.getOrDefault(dir, Collections.emptySet());
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, so any watched file may have changed
+                for (Path name : names) {
+                    changed.add(dir.resolve(name));
+                }
+            } else if (names.contains((Path) event.context())) {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
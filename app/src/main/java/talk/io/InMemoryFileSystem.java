@@ -0,0 +1,633 @@
+package talk.io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * A FileSystem kept entirely in memory, for running scripts without touching
+ * the disk and for benchmarks that should not measure it.
+ *
+ * Paths use "/" between names, and relative paths are relative to the root,
+ * so "data/in.txt" and "/data/in.txt" are the same file. Files behave like
+ * DefaultFileSystem's: writing a file needs its directory to exist, deleting
+ * a missing file does nothing, and deleting a directory needs it to be empty.
+ *
+ * A file's bytes are kept as a list of chunks. Chunks never change once
+ * they are full, so appending copies only the new bytes and copying a file
+ * shares its chunks with the copy.
+ *
+ * Safe to share between workers: the directory tree is guarded by a
+ * read-write lock and each file by its own lock, so workers writing to
+ * different files don't wait for each other. The total size of the files
+ * and their number can be limited; going over a limit fails the write.
+ */
+public class InMemoryFileSystem implements FileSystem {
+    public static final long UNLIMITED_BYTES = Long.MAX_VALUE;
+    public static final int UNLIMITED_FILES = Integer.MAX_VALUE;
+
+    // Largest chunk appends are gathered into before it is sealed
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MIN_TAIL_SIZE = 256;
+    private static final byte[] EMPTY = new byte[0];
+
+    private abstract static class Node {
+        volatile long lastModified = System.currentTimeMillis();
+    }
+
+    private static final class DirectoryNode extends Node {
+        final Map<String, Node> children = new TreeMap<>();
+    }
+
+    private static final class FileNode extends Node {
+        // Full chunks, never changed once added, so they can be shared
+        private List<byte[]> sealed = new ArrayList<>();
+        // The chunk appends go into, with tailLength bytes used
+        private byte[] tail = EMPTY;
+        private int tailLength;
+        private long size;
+        // Set when the file is deleted, so writers holding it look it up again
+        private boolean detached;
+
+        synchronized void append(byte[] data, int off, int len) {
+            size += len;
+            while (len > 0) {
+                if (tailLength == tail.length) {
+                    if (tail.length == CHUNK_SIZE) {
+                        sealed.add(tail);
+                        tail = EMPTY;
+                        tailLength = 0;
+                    }
+                    int capacity = Math.min(CHUNK_SIZE, Math.max(Math.max(tail.length * 2, MIN_TAIL_SIZE), tailLength + len));
+                    tail = Arrays.copyOf(tail, capacity);
+                }
+                int n = Math.min(len, tail.length - tailLength);
+                System.arraycopy(data, off, tail, tailLength, n);
+                tailLength += n;
+                off += n;
+                len -= n;
+            }
+            lastModified = System.currentTimeMillis();
+        }
+
+        synchronized void replace(List<byte[]> chunks, long newSize) {
+            sealed = new ArrayList<>(chunks);
+            tail = EMPTY;
+            tailLength = 0;
+            size = newSize;
+            lastModified = System.currentTimeMillis();
+        }
+
+        // The file's bytes as chunks that will not change
+        synchronized List<byte[]> chunks() {
+            List<byte[]> chunks = new ArrayList<>(sealed.size() + 1);
+            chunks.addAll(sealed);
+            if (tailLength > 0) {
+                chunks.add(Arrays.copyOf(tail, tailLength));
+            }
+            return chunks;
+        }
+
+        synchronized byte[] bytes() {
+            byte[] bytes = new byte[(int) size];
+            int position = 0;
+            for (byte[] chunk : sealed) {
+                System.arraycopy(chunk, 0, bytes, position, chunk.length);
+                position += chunk.length;
+            }
+            System.arraycopy(tail, 0, bytes, position, tailLength);
+            return bytes;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+    }
+
+    private final DirectoryNode root = new DirectoryNode();
+    private final ReentrantReadWriteLock tree = new ReentrantReadWriteLock();
+    private final long maxBytes;
+    private final int maxFiles;
+    private final AtomicLong usedBytes = new AtomicLong();
+    // Guarded by the tree's write lock
+    private int fileCount;
+
+    public InMemoryFileSystem() {
+        this(UNLIMITED_BYTES, UNLIMITED_FILES);
+    }
+
+    /**
+     * @param maxBytes The most bytes all files together may hold
+     * @param maxFiles The most files there may be, not counting directories
+     */
+    public InMemoryFileSystem(long maxBytes, int maxFiles) {
+        if (maxBytes < 0 || maxFiles < 0) {
+            throw new IllegalArgumentException("File system limits cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * @return The bytes held by all files
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * @return The number of files, not counting directories
+     */
+    public int getFileCount() {
+        tree.readLock().lock();
+        try {
+            return fileCount;
+        } finally {
+            tree.readLock().unlock();
+        }
+    }
+
+    /**
+     * Create a directory and any missing parents
+     * @param directoryPath The directory path
+     * @throws IOException If a file is in the way
+     */
+    public void createDirectories(String directoryPath) throws IOException {
+        tree.writeLock().lock();
+        try {
+            DirectoryNode dir = root;
+            for (String name : names(directoryPath)) {
+                Node child = dir.children.get(name);
+                if (child == null) {
+                    child = new DirectoryNode();
+                    dir.children.put(name, child);
+                    dir.lastModified = System.currentTimeMillis();
+                } else if (!(child instanceof DirectoryNode)) {
+                    throw new FileAlreadyExistsException(directoryPath, null, "A file is in the way");
+                }
+                dir = (DirectoryNode) child;
+            }
+        } finally {
+            tree.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copy a directory from the disk into this file system, so its files can be
+     * read at the same relative paths
+     * @param source The directory on disk
+     * @param destination Where to put its contents, e.g. "/" for the root
+     * @throws IOException If the directory cannot be read or a limit is reached
+     */
+    public void loadSnapshot(Path source, String destination) throws IOException {
+        if (!Files.isDirectory(source)) {
+            throw new IOException("Directory '" + source + "' does not exist or is not a directory");
+        }
+        String prefix = path(names(destination));
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                createDirectories(prefix + "/" + relative(source, dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    byte[] content = Files.readAllBytes(file);
+                    store(prefix + "/" + relative(source, file), Collections.singletonList(content), content.length);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String relative(Path root, Path path) {
+        return root.relativize(path).toString().replace(java.io.File.separatorChar, '/');
+    }
+
+    @Override
+    public boolean fileExists(String fileName) {
+        tree.readLock().lock();
+        try {
+            return find(names(fileName)) != null;
+        } finally {
+            tree.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String canonicalPath(String fileName) {
+        return path(names(fileName));
+    }
+
+    @Override
+    public long lastModified(String fileName) throws IOException {
+        return existing(fileName).lastModified;
+    }
+
+    @Override
+    public long fileSize(String fileName) throws IOException {
+        Node node = existing(fileName);
+        return node instanceof FileNode ? ((FileNode) node).size() : 0;
+    }
+
+    @Override
+    public String readFile(String fileName) throws IOException {
+        return new String(file(fileName).bytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<String> readAllLines(String fileName) throws IOException {
+        return new BufferedReader(new StringReader(readFile(fileName))).lines().collect(Collectors.toList());
+    }
+
+    @Override
+    public BufferedReader openLineReader(String fileName) throws IOException {
+        List<InputStream> chunks = new ArrayList<>();
+        for (byte[] chunk : file(fileName).chunks()) {
+            chunks.add(new ByteArrayInputStream(chunk));
+        }
+        return new BufferedReader(new InputStreamReader(new SequenceInputStream(Collections.enumeration(chunks)), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeFile(String fileName, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        store(fileName, Collections.singletonList(bytes), bytes.length);
+    }
+
+    @Override
+    public void appendToFile(String fileName, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        append(fileName, bytes, 0, bytes.length);
+    }
+
+    @Override
+    public Writer openAppendWriter(String fileName) throws IOException {
+        append(fileName, EMPTY, 0, 0);
+        return new OutputStreamWriter(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                append(fileName, b, off, len);
+            }
+        }, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void deleteFile(String fileName) throws IOException {
+        List<String> names = names(fileName);
+        if (names.isEmpty()) {
+            throw new IOException("Cannot delete the root directory");
+        }
+        tree.writeLock().lock();
+        try {
+            DirectoryNode parent = parent(names, fileName, false);
+            if (parent == null) {
+                return;
+            }
+            String name = names.get(names.size() - 1);
+            Node node = parent.children.get(name);
+            if (node instanceof DirectoryNode && !((DirectoryNode) node).children.isEmpty()) {
+                throw new DirectoryNotEmptyException(fileName);
+            }
+            if (node != null) {
+                parent.children.remove(name);
+                parent.lastModified = System.currentTimeMillis();
+                if (node instanceof FileNode) {
+                    detach((FileNode) node);
+                }
+            }
+        } finally {
+            tree.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void copyFile(String source, String destination) throws IOException {
+        FileNode file = file(source);
+        List<byte[]> chunks;
+        long size;
+        synchronized (file) {
+            chunks = file.chunks();
+            size = file.size();
+        }
+        store(destination, chunks, size);
+    }
+
+    @Override
+    public CopyEngine.CopyStats copyDirectory(String source, String destination,
+                                              CopyEngine.ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        List<String> sourceNames = names(source);
+        List<String> destinationNames = names(destination);
+        if (destinationNames.size() >= sourceNames.size()
+                && destinationNames.subList(0, sourceNames.size()).equals(sourceNames)) {
+            throw new IOException("Cannot copy directory '" + source + "' into itself");
+        }
+
+        // Take the list of files first, so the copy sees the directory as it was when the copy started
+        List<String> directories = new ArrayList<>();
+        Map<String, FileNode> files = new TreeMap<>();
+        tree.readLock().lock();
+        try {
+            Node node = find(sourceNames);
+            if (!(node instanceof DirectoryNode)) {
+                throw new IOException("Directory '" + source + "' does not exist or is not a directory");
+            }
+            collect((DirectoryNode) node, "", directories, files);
+        } finally {
+            tree.readLock().unlock();
+        }
+
+        String target = path(destinationNames);
+        createDirectories(target);
+        for (String dir : directories) {
+            createDirectories(target + "/" + dir);
+        }
+        long bytes = 0;
+        for (Map.Entry<String, FileNode> entry : files.entrySet()) {
+            List<byte[]> chunks;
+            long size;
+            synchronized (entry.getValue()) {
+                chunks = entry.getValue().chunks();
+                size = entry.getValue().size();
+            }
+            store(target + "/" + entry.getKey(), chunks, size);
+            bytes += size;
+        }
+        CopyEngine.CopyStats stats = new CopyEngine.CopyStats(files.size(), bytes, System.nanoTime() - start);
+        if (listener != null) {
+            listener.onProgress(stats);
+        }
+        return stats;
+    }
+
+    private static void collect(DirectoryNode dir, String prefix, List<String> directories, Map<String, FileNode> files) {
+        for (Map.Entry<String, Node> child : dir.children.entrySet()) {
+            String path = prefix + child.getKey();
+            if (child.getValue() instanceof DirectoryNode) {
+                directories.add(path);
+                collect((DirectoryNode) child.getValue(), path + "/", directories, files);
+            } else {
+                files.put(path, (FileNode) child.getValue());
+            }
+        }
+    }
+
+    @Override
+    public String[] listDirectory(String directoryPath) throws IOException {
+        tree.readLock().lock();
+        try {
+            Node node = find(names(directoryPath));
+            if (!(node instanceof DirectoryNode)) {
+                throw new IOException("Directory '" + directoryPath + "' does not exist or is not a directory");
+            }
+            return ((DirectoryNode) node).children.keySet().toArray(new String[0]);
+        } finally {
+            tree.readLock().unlock();
+        }
+    }
+
+    @Override
+    public DirectoryStream<DirectoryEntry> openDirectoryStream(String directoryPath, DirectoryFilter filter) throws IOException {
+        List<DirectoryEntry> entries = new ArrayList<>();
+        String prefix = directoryPath.endsWith("/") ? directoryPath : directoryPath + "/";
+        tree.readLock().lock();
+        try {
+            Node node = find(names(directoryPath));
+            if (!(node instanceof DirectoryNode)) {
+                throw new IOException("Directory '" + directoryPath + "' does not exist or is not a directory");
+            }
+            scan((DirectoryNode) node, prefix, "", 1, filter, entries);
+        } finally {
+            tree.readLock().unlock();
+        }
+        return new DirectoryStream<DirectoryEntry>() {
+            @Override
+            public Iterator<DirectoryEntry> iterator() {
+                return entries.iterator();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    // Directories come before their contents, as with DirectoryWalker
+    private static void scan(DirectoryNode dir, String prefix, String relativePrefix, int depth,
+                             DirectoryFilter filter, List<DirectoryEntry> entries) {
+        for (Map.Entry<String, Node> child : dir.children.entrySet()) {
+            String name = child.getKey();
+            String relativePath = relativePrefix + name;
+            Node node = child.getValue();
+            boolean directory = node instanceof DirectoryNode;
+            if (filter.accepts(relativePath, name)) {
+                long size = filter.isWithAttributes() ? (directory ? 0 : ((FileNode) node).size()) : -1;
+                long lastModified = filter.isWithAttributes() ? node.lastModified : -1;
+                entries.add(new DirectoryEntry(prefix + relativePath, relativePath, name, directory, size, lastModified));
+            }
+            if (directory && depth < filter.getMaxDepth()) {
+                scan((DirectoryNode) node, prefix, relativePath + "/", depth + 1, filter, entries);
+            }
+        }
+    }
+
+    // Replace a file's content, creating the file if needed
+    private void store(String fileName, List<byte[]> chunks, long size) throws IOException {
+        while (true) {
+            FileNode file = createFile(fileName);
+            synchronized (file) {
+                // Deleted since it was looked up; the next lookup creates it again
+                if (file.detached) {
+                    continue;
+                }
+                reserve(size - file.size(), fileName);
+                file.replace(chunks, size);
+                return;
+            }
+        }
+    }
+
+    private void append(String fileName, byte[] data, int off, int len) throws IOException {
+        while (true) {
+            FileNode file = createFile(fileName);
+            synchronized (file) {
+                // Deleted since it was looked up; the next lookup creates it again
+                if (file.detached) {
+                    continue;
+                }
+                reserve(len, fileName);
+                file.append(data, off, len);
+                return;
+            }
+        }
+    }
+
+    // Finds a file, creating it if its directory exists
+    private FileNode createFile(String fileName) throws IOException {
+        List<String> names = names(fileName);
+        tree.readLock().lock();
+        try {
+            Node node = find(names);
+            if (node instanceof FileNode) {
+                return (FileNode) node;
+            }
+        } finally {
+            tree.readLock().unlock();
+        }
+
+        tree.writeLock().lock();
+        try {
+            if (names.isEmpty()) {
+                throw new IOException("'" + fileName + "' is a directory");
+            }
+            DirectoryNode parent = parent(names, fileName, true);
+            String name = names.get(names.size() - 1);
+            Node node = parent.children.get(name);
+            if (node instanceof DirectoryNode) {
+                throw new IOException("'" + fileName + "' is a directory");
+            }
+            if (node == null) {
+                if (fileCount >= maxFiles) {
+                    throw new IOException("File limit of " + maxFiles + " files reached creating '" + fileName + "'");
+                }
+                node = new FileNode();
+                parent.children.put(name, node);
+                parent.lastModified = System.currentTimeMillis();
+                fileCount++;
+            }
+            return (FileNode) node;
+        } finally {
+            tree.writeLock().unlock();
+        }
+    }
+
+    // Called with the tree's write lock held
+    private void detach(FileNode file) {
+        synchronized (file) {
+            file.detached = true;
+            usedBytes.addAndGet(-file.size());
+        }
+        fileCount--;
+    }
+
+    private void reserve(long bytes, String fileName) throws IOException {
+        while (true) {
+            long used = usedBytes.get();
+            if (bytes > 0 && used + bytes > maxBytes) {
+                throw new IOException("Size limit of " + maxBytes + " bytes reached writing '" + fileName + "'");
+            }
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return;
+            }
+        }
+    }
+
+    private FileNode file(String fileName) throws IOException {
+        Node node = existing(fileName);
+        if (!(node instanceof FileNode)) {
+            throw new IOException("'" + fileName + "' is a directory");
+        }
+        return (FileNode) node;
+    }
+
+    private Node existing(String fileName) throws IOException {
+        tree.readLock().lock();
+        try {
+            Node node = find(names(fileName));
+            if (node == null) {
+                throw new NoSuchFileException(fileName);
+            }
+            return node;
+        } finally {
+            tree.readLock().unlock();
+        }
+    }
+
+    // Called with the tree's lock held
+    private Node find(List<String> names) {
+        Node node = root;
+        for (String name : names) {
+            if (!(node instanceof DirectoryNode)) {
+                return null;
+            }
+            node = ((DirectoryNode) node).children.get(name);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    // Called with the tree's lock held; the directory a path is in, or null if it doesn't exist and required is false
+    private DirectoryNode parent(List<String> names, String fileName, boolean required) throws IOException {
+        Node parent = find(names.subList(0, names.size() - 1));
+        if (parent instanceof DirectoryNode) {
+            return (DirectoryNode) parent;
+        }
+        if (!required) {
+            return null;
+        }
+        if (parent == null) {
+            throw new NoSuchFileException(fileName, null, "Directory does not exist");
+        }
+        throw new NotDirectoryException(fileName);
+    }
+
+    // The names along a path, with "." and ".." resolved; ".." at the root stays at the root
+    private static List<String> names(String path) {
+        List<String> names = new ArrayList<>();
+        for (String name : path.replace('\\', '/').split("/")) {
+            if (name.isEmpty() || name.equals(".")) {
+                continue;
+            }
+            if (name.equals("..")) {
+                if (!names.isEmpty()) {
+                    names.remove(names.size() - 1);
+                }
+            } else {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static String path(List<String> names) {
+        return "/" + String.join("/", names);
+    }
+}
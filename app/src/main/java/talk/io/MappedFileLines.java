@@ -0,0 +1,130 @@
+package talk.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lines of a file that is memory-mapped instead of read onto the heap.
+ *
+ * The file is mapped in segments of up to 1 GiB, so files larger than 2 GiB
+ * work too. An index of where each line starts is built lazily: looking up
+ * line N scans only as far as line N, and counting lines scans the whole file
+ * once. After that, finding a line is an array lookup. A line is decoded from
+ * UTF-8 only when it is asked for.
+ *
+ * The file must not be truncated while it is mapped.
+ */
+public class MappedFileLines implements FileLines {
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    // lineStarts[i] is the offset of line i + 1; guarded by this
+    private long[] lineStarts = new long[1024];
+    private int indexedLines = 0;
+    private long scanPosition = 0;
+
+    public MappedFileLines(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.size = channel.size();
+            int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            this.segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        }
+        // The mapping stays valid after the channel is closed
+    }
+
+    @Override
+    public synchronized int lineCount() {
+        indexUpTo(Integer.MAX_VALUE);
+        return indexedLines;
+    }
+
+    @Override
+    public String line(int lineNumber) {
+        long start;
+        long end;
+        synchronized (this) {
+            if (lineNumber < 1 || !indexUpTo(lineNumber)) {
+                throw new IndexOutOfBoundsException("Line " + lineNumber + " of " + lineCount());
+            }
+            start = lineStarts[lineNumber - 1];
+            // The next line start, or the end of the file, is known once this line is indexed
+            end = lineNumber < indexedLines ? lineStarts[lineNumber] - 1 : lineEnd(start);
+        }
+        if (end > start && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        return decode(start, end);
+    }
+
+    /**
+     * Scan forward until the given line is indexed or the file ends
+     * @return true if the file has that many lines
+     */
+    private boolean indexUpTo(int lineNumber) {
+        while (indexedLines < lineNumber && scanPosition < size) {
+            addLineStart(scanPosition);
+            long newline = lineEnd(scanPosition);
+            scanPosition = newline + 1;
+        }
+        return indexedLines >= lineNumber;
+    }
+
+    private void addLineStart(long offset) {
+        if (indexedLines == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+        }
+        lineStarts[indexedLines++] = offset;
+    }
+
+    // Offset of the '\n' ending the line that starts at start, or size if it is the last line
+    private long lineEnd(long start) {
+        long position = start;
+        while (position < size) {
+            int segment = (int) (position / SEGMENT_SIZE);
+            ByteBuffer buffer = segments[segment];
+            int offset = (int) (position - segment * SEGMENT_SIZE);
+            int limit = buffer.limit();
+            for (int i = offset; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    return segment * SEGMENT_SIZE + i;
+                }
+            }
+            position = segment * SEGMENT_SIZE + limit;
+        }
+        return size;
+    }
+
+    private byte byteAt(long position) {
+        int segment = (int) (position / SEGMENT_SIZE);
+        return segments[segment].get((int) (position - segment * SEGMENT_SIZE));
+    }
+
+    private String decode(long start, long end) {
+        int length = (int) (end - start);
+        int segment = (int) (start / SEGMENT_SIZE);
+        int offset = (int) (start - segment * SEGMENT_SIZE);
+        if (offset + length <= segments[segment].limit()) {
+            ByteBuffer slice = segments[segment].duplicate();
+            slice.position(offset).limit(offset + length);
+            return StandardCharsets.UTF_8.decode(slice).toString();
+        }
+        // The line crosses into the next segment
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = byteAt(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package talk.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps one buffered writer open per file for the lifetime of a script, so
+ * writing many lines to a file does not open and close it for every line.
+ *
+ * Buffered text reaches the file when the buffer fills up, when flush or
+ * close is called for the file, or when the manager is closed at script end.
+ * Callers must flush a file before reading it, flush every file before code
+ * that may read any of them, and close a file before deleting or overwriting it. All methods are safe to call from worker threads.
+ */
+public class OutputChannelManager implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileSystem fileSystem;
+    private final int bufferSize;
+    private final Map<String, Writer> writers = new HashMap<>();
+
+    public OutputChannelManager(FileSystem fileSystem) {
+        this(fileSystem, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param fileSystem The file system writers are opened on
+     * @param bufferSize Characters buffered per file before they are written out
+     */
+    public OutputChannelManager(FileSystem fileSystem, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Write buffer size must be at least 1");
+        }
+        this.fileSystem = fileSystem;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Append text to a file, creating it if it doesn't exist
+     * @param fileName The name of the file to append to
+     * @param content The content to append
+     * @throws IOException If the file cannot be opened or written
+     */
+    public synchronized void write(String fileName, String content) throws IOException {
+        String key = key(fileName);
+        Writer writer = writers.get(key);
+        if (writer == null) {
+            writer = new BufferedWriter(fileSystem.openAppendWriter(fileName), bufferSize);
+            writers.put(key, writer);
+        }
+        writer.write(content);
+    }
+
+    /**
+     * Write out any text buffered for a file
+     * @param fileName The name of the file
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized void flush(String fileName) throws IOException {
+        Writer writer = writers.get(key(fileName));
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Write out the text buffered for every file, e.g. before code that reads
+     * files without going through the executor, like a plugin
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized void flushAll() throws IOException {
+        for (Writer writer : writers.values()) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Write out any text buffered for a file and close its writer.
+     * A later write opens the file again.
+     * @param fileName The name of the file
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized void close(String fileName) throws IOException {
+        Writer writer = writers.remove(key(fileName));
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return The number of files with an open writer
+     */
+    public synchronized int getOpenChannelCount() {
+        return writers.size();
+    }
+
+    /**
+     * Flush and close every open writer. Every writer is closed even if some fail;
+     * the first failure is thrown afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        List<Writer> open = new ArrayList<>(writers.values());
+        writers.clear();
+        for (Writer writer : open) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // "out.txt" and "./out.txt" share one writer
+    private static String key(String fileName) {
+        try {
+            return Paths.get(fileName).toAbsolutePath().normalize().toString();
+        } catch (InvalidPathException e) {
+            return fileName;
+        }
+    }
+}
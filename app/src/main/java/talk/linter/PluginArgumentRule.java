@@ -0,0 +1,92 @@
+package talk.linter;
+
+import talk.core.Tokenizer;
+import talk.plugins.PluginCallSite;
+import talk.plugins.PluginRegistry;
+import talk.plugins.PluginSignature;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rule that checks "use plugin" calls against the plugin's declared signature:
+ * the number of arguments, and whether literal arguments convert to the parameter types.
+ * Plugins registered without a signature are not checked.
+ */
+public class PluginArgumentRule implements LintRule {
+
+    @Override
+    public List<LintIssue> check(LintContext context) {
+        List<LintIssue> issues = new ArrayList<>();
+        List<Tokenizer.Token> tokens = context.getTokens();
+        
+        if (tokens == null || tokens.isEmpty()) {
+            return issues;
+        }
+        
+        PluginRegistry registry = PluginRegistry.getInstance();
+        for (int i = 0; i + 2 < tokens.size(); i++) {
+            if (!"use".equals(tokens.get(i).value) || !"plugin".equals(tokens.get(i + 1).value)) {
+                continue;
+            }
+            Tokenizer.Token aliasToken = tokens.get(i + 2);
+            PluginSignature signature = registry.getSignature(aliasToken.value);
+            if (signature == null) {
+                continue;
+            }
+            
+            List<String> arguments = collectArguments(tokens, i + 3, aliasToken.lineNumber);
+            int line = aliasToken.lineNumber;
+            if (!signature.acceptsArgumentCount(arguments.size())) {
+                issues.add(new LintIssue(
+                    LintIssue.Severity.ERROR,
+                    line,
+                    "Plugin '" + aliasToken.value + "' expects " + signature.describeArgumentCount()
+                        + ", got " + arguments.size(),
+                    context.getSourceLine(line)
+                ));
+                continue;
+            }
+            
+            for (int a = 0; a < arguments.size(); a++) {
+                String argument = arguments.get(a);
+                if (!PluginCallSite.isLiteral(argument)) {
+                    continue;
+                }
+                try {
+                    signature.getConverter(a).apply(PluginCallSite.literalValue(argument));
+                } catch (IllegalArgumentException e) {
+                    issues.add(new LintIssue(
+                        LintIssue.Severity.ERROR,
+                        line,
+                        "Argument " + (a + 1) + " of plugin '" + aliasToken.value + "' must be "
+                            + signature.getParameterType(a).getSimpleName() + ", got " + argument,
+                        context.getSourceLine(line)
+                    ));
+                }
+            }
+        }
+        
+        return issues;
+    }
+    
+    /**
+     * Collect the argument tokens of a plugin call: with <arg> and <arg> ... [into <variable>]
+     */
+    private List<String> collectArguments(List<Tokenizer.Token> tokens, int start, int line) {
+        List<String> arguments = new ArrayList<>();
+        if (start >= tokens.size() || !"with".equals(tokens.get(start).value) || tokens.get(start).lineNumber != line) {
+            return arguments;
+        }
+        for (int j = start + 1; j < tokens.size() && tokens.get(j).lineNumber == line; j++) {
+            String value = tokens.get(j).value;
+            if ("into".equals(value)) {
+                break;
+            }
+            if (!"and".equals(value)) {
+                arguments.add(value);
+            }
+        }
+        return arguments;
+    }
+}
@@ -42,6 +42,7 @@ public class TalkLinter {
         rules.add(new ReservedWordRule());
         rules.add(new UnusedVariableRule());
         rules.add(new InvalidExpressionRule());
+        rules.add(new PluginArgumentRule());
     }
     
     /**
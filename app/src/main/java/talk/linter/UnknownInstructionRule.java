@@ -17,7 +17,8 @@ public class UnknownInstructionRule implements LintRule {
         "write", "variable", "set", "ask", "if", "otherwise", "repeat", "until", 
         "attempt", "test", "before", "after", "expect", "read", "append", "delete", 
         "copy", "list", "define", "return", "import", "use", "uppercase", "lowercase",
-        "trim", "length", "substring", "replace", "split", "log", "call", "format"
+        "trim", "length", "substring", "replace", "split", "log", "call", "format",
+        "create", "send", "receive", "close", "start", "wait", "increase", "add", "remove", "map"
     ));
 
     @Override
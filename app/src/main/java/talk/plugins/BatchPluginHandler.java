@@ -0,0 +1,21 @@
+package talk.plugins;
+
+import java.util.List;
+
+/**
+ * Optional interface for plugins that can handle many calls at once.
+ * When plugin batching is enabled and a "repeat for each" loop starts with a
+ * call to such a plugin whose arguments depend only on the loop item, the
+ * runtime collects the arguments of every iteration and makes a single
+ * executeBatch call, so per-call setup (connections, lookups, buffers) is
+ * paid once per loop instead of once per item.
+ */
+public interface BatchPluginHandler extends PluginHandler {
+    /**
+     * Execute the plugin once for each set of arguments
+     * @param argumentSets The arguments of each call, in iteration order
+     * @return One result per argument set, in the same order
+     * @throws Exception if the plugin execution fails
+     */
+    List<Object> executeBatch(List<Object[]> argumentSets) throws Exception;
+}
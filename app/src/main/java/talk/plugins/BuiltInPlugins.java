@@ -48,34 +48,24 @@ public class BuiltInPlugins {
         // Date and time utilities
         registry.register("current timestamp", args -> System.currentTimeMillis());
         
-        registry.register("format timestamp", args -> {
-            if (args.length < 1) {
-                throw new IllegalArgumentException("Timestamp is required");
-            }
-            
+        registry.register("format timestamp", PluginSignature.withOptional(String.class, 1, Long.class, String.class), args -> {
             java.text.SimpleDateFormat formatter;
             if (args.length >= 2) {
-                formatter = new java.text.SimpleDateFormat(args[1].toString());
+                formatter = new java.text.SimpleDateFormat((String) args[1]);
             } else {
                 formatter = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
             }
-            
-            try {
-                long timestamp = Long.parseLong(args[0].toString());
-                return formatter.format(new java.util.Date(timestamp));
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("Invalid timestamp format");
-            }
+            return formatter.format(new java.util.Date((Long) args[0]));
         });
         
         // Math operations
-        registry.register("random number", args -> {
+        registry.register("random number", PluginSignature.withOptional(Number.class, 0, Integer.class, Integer.class), args -> {
             if (args.length >= 2) {
-                int min = Integer.parseInt(args[0].toString());
-                int max = Integer.parseInt(args[1].toString());
+                int min = (Integer) args[0];
+                int max = (Integer) args[1];
                 return min + (int)(Math.random() * ((max - min) + 1));
             } else if (args.length == 1) {
-                int max = Integer.parseInt(args[0].toString());
+                int max = (Integer) args[0];
                 return (int)(Math.random() * max);
             } else {
                 return Math.random();
@@ -110,5 +100,8 @@ public class BuiltInPlugins {
                 throw new IllegalArgumentException("Invalid JSON: " + e.getMessage());
             }
         });
+        
+        // System properties don't change during a run
+        registry.setCachePolicy("system info", CachePolicy.pure());
     }
 }
@@ -0,0 +1,132 @@
+package talk.plugins;
+
+import java.time.Duration;
+
+/**
+ * Declares whether and for how long results of a plugin may be reused.
+ * Only plugins whose result depends on nothing but their arguments
+ * (and, for the other kinds, the clock or a file) should be cached.
+ */
+public final class CachePolicy {
+    public enum Kind {
+        /** Never cached (the default) */
+        NONE,
+        /** Same arguments always give the same result for the rest of the run */
+        PURE,
+        /** Results are reused for a fixed time */
+        TTL,
+        /** Results are reused while a file argument's modification time and size are unchanged */
+        FILE_MTIME
+    }
+
+    public static final CachePolicy NONE = new CachePolicy(Kind.NONE, 0, -1);
+
+    private final Kind kind;
+    private final long ttlNanos;
+    private final int pathArgument;
+
+    private CachePolicy(Kind kind, long ttlNanos, int pathArgument) {
+        this.kind = kind;
+        this.ttlNanos = ttlNanos;
+        this.pathArgument = pathArgument;
+    }
+
+    /**
+     * @return A policy for plugins whose result depends only on their arguments
+     */
+    public static CachePolicy pure() {
+        return new CachePolicy(Kind.PURE, 0, -1);
+    }
+
+    /**
+     * @param ttl How long a result stays valid
+     * @return A policy reusing results for the given time
+     */
+    public static CachePolicy ttl(Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache TTL must be positive: " + ttl);
+        }
+        return new CachePolicy(Kind.TTL, ttl.toNanos(), -1);
+    }
+
+    /**
+     * @param pathArgument The 0-based position of the argument holding the file path
+     * @return A policy reusing results until that file changes
+     */
+    public static CachePolicy fileModified(int pathArgument) {
+        if (pathArgument < 0) {
+            throw new IllegalArgumentException("Path argument position must not be negative: " + pathArgument);
+        }
+        return new CachePolicy(Kind.FILE_MTIME, 0, pathArgument);
+    }
+
+    /**
+     * Parse a policy as written in a plugin configuration file:
+     * "none", "pure", "ttl:30s" (also ms, m, h) or "file-mtime:0"
+     * @param text The policy text
+     * @return The policy
+     * @throws IllegalArgumentException if the text is not a valid policy
+     */
+    public static CachePolicy parse(String text) {
+        String value = text.trim().toLowerCase();
+        if (value.equals("none")) {
+            return NONE;
+        }
+        if (value.equals("pure")) {
+            return pure();
+        }
+        if (value.startsWith("ttl:")) {
+            return ttl(parseDuration(value.substring(4).trim()));
+        }
+        if (value.startsWith("file-mtime:")) {
+            try {
+                return fileModified(Integer.parseInt(value.substring(11).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid path argument position in cache policy: " + text);
+            }
+        }
+        throw new IllegalArgumentException("Unknown cache policy: " + text);
+    }
+
+    static Duration parseDuration(String value) {
+        try {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            } else if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            } else if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            } else if (value.endsWith("h")) {
+                return Duration.ofHours(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid duration: " + value + " (use e.g. 500ms, 30s, 5m, 1h)");
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    public int getPathArgument() {
+        return pathArgument;
+    }
+
+    public boolean isCacheable() {
+        return kind != Kind.NONE;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case TTL: return "ttl:" + Duration.ofNanos(ttlNanos).toMillis() + "ms";
+            case FILE_MTIME: return "file-mtime:" + pathArgument;
+            default: return kind.name().toLowerCase();
+        }
+    }
+}
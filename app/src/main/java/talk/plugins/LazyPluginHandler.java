@@ -0,0 +1,50 @@
+package talk.plugins;
+
+import talk.util.StartupTrace;
+
+/**
+ * Plugin handler for a configured class#method reference that defers loading,
+ * linking and resolving the plugin class until the plugin is first called.
+ * The alias is registered immediately, so scripts and the linter can see it.
+ */
+class LazyPluginHandler implements PluginHandler {
+    private final String alias;
+    private final String classMethodRef;
+    private volatile PluginHandler delegate;
+
+    LazyPluginHandler(String alias, String classMethodRef) {
+        this.alias = alias;
+        this.classMethodRef = classMethodRef;
+    }
+
+    @Override
+    public Object execute(Object... args) throws Exception {
+        PluginHandler handler = delegate;
+        if (handler == null) {
+            handler = resolve();
+        }
+        return handler.execute(args);
+    }
+
+    /**
+     * Load the plugin class and build its handler, if not done already
+     * @return The resolved handler
+     * @throws Exception if the class or method cannot be found
+     */
+    synchronized PluginHandler resolve() throws Exception {
+        if (delegate == null) {
+            long start = System.nanoTime();
+            delegate = PluginConfigLoader.createHandler(classMethodRef);
+            StartupTrace.recordPluginLoad(alias, System.nanoTime() - start);
+        }
+        return delegate;
+    }
+
+    boolean isLoaded() {
+        return delegate != null;
+    }
+
+    String getClassMethodRef() {
+        return classMethodRef;
+    }
+}
@@ -0,0 +1,77 @@
+package talk.plugins;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/**
+ * Plugin handler that calls a configured Java method through a MethodHandle.
+ * The handle is adapted once at load time to take an Object[] and return Object,
+ * so each call skips the access checks and argument array copy of Method.invoke.
+ * Methods with typed parameters get their arguments converted with
+ * PluginTypeConverter before the call.
+ */
+class MethodHandlePluginHandler implements PluginHandler {
+    private final MethodHandle target;
+    // Null for methods taking Object..., which receive the arguments unchanged
+    private final Class<?>[] parameterTypes;
+    private final String description;
+
+    private MethodHandlePluginHandler(MethodHandle target, Class<?>[] parameterTypes, String description) {
+        this.target = target;
+        this.parameterTypes = parameterTypes;
+        this.description = description;
+    }
+
+    /**
+     * Create a handler for a method declared as method(Object... args)
+     * @param handle A handle to the method, already bound to its instance if it is not static
+     * @param description The class#method reference, used in error messages
+     */
+    static MethodHandlePluginHandler forVarargs(MethodHandle handle, String description) {
+        MethodHandle adapted = handle.asFixedArity().asType(MethodType.methodType(Object.class, Object[].class));
+        return new MethodHandlePluginHandler(adapted, null, description);
+    }
+
+    /**
+     * Create a handler for a method with typed parameters, e.g. int countLines(String path)
+     * @param handle A handle to the method, already bound to its instance if it is not static
+     * @param description The class#method reference, used in error messages
+     */
+    static MethodHandlePluginHandler forTypedParameters(MethodHandle handle, String description) {
+        Class<?>[] parameterTypes = handle.type().parameterArray();
+        MethodHandle adapted = handle
+            .asType(handle.type().generic())
+            .asSpreader(Object[].class, parameterTypes.length);
+        return new MethodHandlePluginHandler(adapted, parameterTypes, description);
+    }
+
+    @Override
+    public Object execute(Object... args) throws Exception {
+        Object[] callArgs = args == null ? new Object[0] : args;
+        if (parameterTypes != null) {
+            callArgs = convertArguments(callArgs);
+        }
+        try {
+            return target.invokeExact(callArgs);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    private Object[] convertArguments(Object[] args) {
+        if (args.length != parameterTypes.length) {
+            throw new IllegalArgumentException("Plugin " + description + " expects " + parameterTypes.length
+                + " argument(s), got " + args.length);
+        }
+        Object[] converted = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == null && parameterTypes[i].isPrimitive()) {
+                throw new IllegalArgumentException("Argument " + (i + 1) + " of plugin " + description + " cannot be empty");
+            }
+            converted[i] = PluginTypeConverter.convertToType(args[i], parameterTypes[i]);
+        }
+        return converted;
+    }
+}
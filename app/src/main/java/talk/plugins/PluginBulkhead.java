@@ -0,0 +1,234 @@
+package talk.plugins;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Isolates one plugin from the rest of a script: limits how many calls may run
+ * at once, gives up on calls that take longer than a timeout, and can run the
+ * plugin on its own thread pool so a slow plugin only ties up its own threads.
+ * Also records latency and queue depth for the plugin.
+ */
+public class PluginBulkhead {
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    // Shared by bulkheads that have a timeout but no dedicated pool
+    private static final ExecutorService sharedPool = Executors.newCachedThreadPool(daemonThreads("talk-plugin"));
+
+    // When the bulkhead gives up on the plugin call running on this thread, as a System.nanoTime() value
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    private final String alias;
+    private final int maxConcurrent;
+    private final long timeoutMillis;
+    private final int poolSize;
+    private final Semaphore permits;
+    private final ExecutorService pool;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger maxWaiting = new AtomicInteger();
+    private volatile long maxLatencyNanos = 0;
+
+    /**
+     * Create a bulkhead
+     * @param alias The plugin alias, used in messages and thread names
+     * @param maxConcurrent Maximum calls running at once, or 0 for no limit
+     * @param timeoutMillis Maximum time to wait for a permit plus the call, or 0 for no timeout
+     * @param poolSize Threads in a dedicated pool for this plugin, or 0 to share
+     */
+    public PluginBulkhead(String alias, int maxConcurrent, long timeoutMillis, int poolSize) {
+        if (maxConcurrent < 0 || timeoutMillis < 0 || poolSize < 0) {
+            throw new IllegalArgumentException("Plugin limits for '" + alias + "' must not be negative");
+        }
+        this.alias = alias;
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMillis = timeoutMillis;
+        this.poolSize = poolSize;
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        this.pool = poolSize > 0
+            ? Executors.newFixedThreadPool(poolSize, daemonThreads("talk-plugin-" + alias.replace(' ', '-')))
+            : null;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Wrap a handler so every call goes through this bulkhead
+     * @param handler The plugin handler
+     * @return The guarded handler
+     */
+    public PluginHandler guard(PluginHandler handler) {
+        return args -> execute(handler, args);
+    }
+
+    /**
+     * Call a plugin within this bulkhead's limits
+     * @param handler The plugin handler
+     * @param args The plugin arguments
+     * @return The result of the plugin execution
+     * @throws TimeoutException if no permit was free or the call did not finish in time
+     * @throws Exception if the plugin execution fails
+     */
+    public Object execute(PluginHandler handler, Object[] args) throws Exception {
+        long start = System.nanoTime();
+        acquirePermit();
+        // Counted only once it runs, so rejected calls don't lower the average latency
+        calls.increment();
+        boolean permitHandedOff = false;
+        try {
+            ExecutorService executor = pool != null ? pool : (timeoutMillis > 0 ? sharedPool : null);
+            if (executor == null) {
+                return handler.execute(args);
+            }
+
+            // The task returns the permit itself, so a call that timed out keeps counting until it really ends
+            long callDeadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            Future<Object> future = executor.submit(() -> {
+                if (timeoutMillis > 0) {
+                    deadline.set(callDeadline);
+                }
+                try {
+                    return handler.execute(args);
+                } finally {
+                    deadline.remove();
+                    releasePermit();
+                }
+            });
+            permitHandedOff = true;
+            return await(future, start);
+        } finally {
+            if (!permitHandedOff) {
+                releasePermit();
+            }
+            recordLatency(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * For plugins that take a timeout of their own, such as a network timeout, so they give
+     * up when the bulkhead would, and the configured timeout applies to them
+     * @param defaultMillis The timeout to use when the call has no bulkhead timeout
+     * @return The time left before the bulkhead gives up on the plugin call running on this
+     *         thread (at least 1 ms), or defaultMillis if it has no timeout
+     */
+    public static int remainingMillis(int defaultMillis) {
+        Long callDeadline = deadline.get();
+        if (callDeadline == null) {
+            return defaultMillis;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(callDeadline - System.nanoTime());
+        return (int) Math.max(1, Math.min(remaining, Integer.MAX_VALUE));
+    }
+
+    private Object await(Future<Object> future, long start) throws Exception {
+        try {
+            if (timeoutMillis == 0) {
+                return future.get();
+            }
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - (System.nanoTime() - start);
+            return future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeouts.increment();
+            throw new TimeoutException("Plugin '" + alias + "' timed out after " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (CancellationException e) {
+            throw new TimeoutException("Plugin '" + alias + "' was cancelled");
+        }
+    }
+
+    private void acquirePermit() throws InterruptedException, TimeoutException {
+        if (permits == null) {
+            return;
+        }
+        if (permits.tryAcquire()) {
+            return;
+        }
+        int depth = waiting.incrementAndGet();
+        maxWaiting.accumulateAndGet(depth, Math::max);
+        try {
+            if (timeoutMillis == 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejections.increment();
+                throw new TimeoutException("Plugin '" + alias + "' is busy: " + maxConcurrent
+                    + " calls already running after waiting " + timeoutMillis + " ms");
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void releasePermit() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        totalLatencyNanos.add(nanos);
+        if (nanos > maxLatencyNanos) {
+            synchronized (this) {
+                if (nanos > maxLatencyNanos) {
+                    maxLatencyNanos = nanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the dedicated pool, if any. Calls already running are interrupted.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    public String getAlias() { return alias; }
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public long getTimeoutMillis() { return timeoutMillis; }
+    public int getPoolSize() { return poolSize; }
+    public long getCalls() { return calls.sum(); }
+    public long getTimeouts() { return timeouts.sum(); }
+    public long getRejections() { return rejections.sum(); }
+    public int getQueueDepth() { return waiting.get(); }
+    public int getMaxQueueDepth() { return maxWaiting.get(); }
+    public long getMaxLatencyNanos() { return maxLatencyNanos; }
+
+    /**
+     * @return Average call latency in nanoseconds, including time spent waiting for a permit
+     */
+    public long getAverageLatencyNanos() {
+        long count = calls.sum();
+        return count == 0 ? 0 : totalLatencyNanos.sum() / count;
+    }
+}
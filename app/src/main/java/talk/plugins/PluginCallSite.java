@@ -0,0 +1,129 @@
+package talk.plugins;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The arguments of one "use plugin" line, prepared for repeated calls.
+ * Built on the first execution of the line: the plugin is looked up, the
+ * argument count is checked against its signature, a converter is picked for
+ * every argument, and literal arguments (numbers and quoted strings) are
+ * resolved and converted once instead of on every call. The call site is
+ * valid until the registry version changes.
+ */
+public class PluginCallSite {
+    private final PluginRegistry.Entry entry;
+    private final PluginSignature signature;
+    private final long registryVersion;
+    private final List<String> argumentExpressions;
+    private final Function<Object, Object>[] converters;
+    private final boolean[] constant;
+    private final Object[] constantValues;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private PluginCallSite(PluginRegistry.Entry entry, long registryVersion, List<String> argumentExpressions) {
+        this.entry = entry;
+        this.signature = entry.getSignature();
+        this.registryVersion = registryVersion;
+        this.argumentExpressions = argumentExpressions;
+        this.converters = new Function[argumentExpressions.size()];
+        this.constant = new boolean[argumentExpressions.size()];
+        this.constantValues = new Object[argumentExpressions.size()];
+    }
+
+    /**
+     * Prepare a call site
+     * @param alias The plugin alias, used in error messages
+     * @param entry The registered plugin
+     * @param registryVersion The registry version the entry was looked up at
+     * @param argumentExpressions The argument expressions as written in the script
+     * @param resolver Resolves an expression to a value; used here only for literal arguments
+     * @return The prepared call site
+     * @throws IllegalArgumentException if the argument count or a literal argument does not match the signature
+     */
+    public static PluginCallSite create(String alias, PluginRegistry.Entry entry, long registryVersion,
+                                        List<String> argumentExpressions, Function<String, Object> resolver) {
+        PluginSignature signature = entry.getSignature();
+        if (signature != null) {
+            signature.checkArgumentCount(alias, argumentExpressions.size());
+        }
+        PluginCallSite site = new PluginCallSite(entry, registryVersion, argumentExpressions);
+        for (int i = 0; i < argumentExpressions.size(); i++) {
+            site.converters[i] = signature != null ? signature.getConverter(i) : value -> value;
+            if (isLiteral(argumentExpressions.get(i))) {
+                site.constant[i] = true;
+                site.constantValues[i] = site.converters[i].apply(resolver.apply(argumentExpressions.get(i)));
+            }
+        }
+        return site;
+    }
+
+    /**
+     * Resolve and convert the arguments for one call
+     * @param resolver Resolves an expression to its current value
+     * @return The arguments to pass to the plugin handler
+     */
+    public Object[] bindArguments(Function<String, Object> resolver) {
+        Object[] args = new Object[constant.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = constant[i] ? constantValues[i] : converters[i].apply(resolver.apply(argumentExpressions.get(i)));
+        }
+        return args;
+    }
+
+    /**
+     * Call the plugin, through the result cache if its policy allows
+     * @param args The arguments, as returned by bindArguments
+     * @return The result of the plugin execution
+     * @throws Exception if the plugin execution fails
+     */
+    public Object execute(Object[] args) throws Exception {
+        return entry.execute(args);
+    }
+
+    /**
+     * @return The registry version the call site was built at
+     */
+    public long getRegistryVersion() {
+        return registryVersion;
+    }
+
+    /**
+     * @return The signature the call site was prepared for, or null for an untyped plugin
+     */
+    public PluginSignature getSignature() {
+        return signature;
+    }
+
+    /**
+     * Whether an argument expression is a literal whose value never changes:
+     * a number, or a quoted string with no operators or logical words inside.
+     * @param expression The argument expression
+     * @return true if the expression is a literal
+     */
+    public static boolean isLiteral(String expression) {
+        String expr = expression.trim();
+        if (expr.matches("-?\\d+")) {
+            return true;
+        }
+        if (expr.length() >= 2 && expr.startsWith("\"") && expr.endsWith("\"")) {
+            String inner = expr.substring(1, expr.length() - 1);
+            return !inner.contains("\"") && !inner.matches(".*[+\\-*/].*")
+                && !inner.contains(" and ") && !inner.contains(" or ") && !inner.startsWith("not ");
+        }
+        return false;
+    }
+
+    /**
+     * The value of a literal argument, as written
+     * @param expression A literal expression, see isLiteral
+     * @return An Integer for numbers, otherwise the unquoted string
+     */
+    public static Object literalValue(String expression) {
+        String expr = expression.trim();
+        if (expr.startsWith("\"")) {
+            return expr.substring(1, expr.length() - 1);
+        }
+        return Integer.parseInt(expr);
+    }
+}
@@ -1,13 +1,20 @@
 package talk.plugins;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Properties;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /**
  * Loads plugin configurations from properties files.
@@ -33,9 +40,7 @@ public class PluginConfigLoader {
         // Try to find the config file in the classpath
         try (InputStream in = PluginConfigLoader.class.getClassLoader().getResourceAsStream(DEFAULT_CONFIG_PATH)) {
             if (in != null) {
-                Properties props = new Properties();
-                props.load(in);
-                registerPluginsFromProperties(props);
+                registerPluginsFromProperties(readDefinitions(in));
                 return true;
             }
         } catch (IOException e) {
@@ -52,9 +57,7 @@ public class PluginConfigLoader {
      */
     public static boolean loadPlugins(String configFilePath) {
         try (FileInputStream fis = new FileInputStream(configFilePath)) {
-            Properties props = new Properties();
-            props.load(fis);
-            registerPluginsFromProperties(props);
+            registerPluginsFromProperties(readDefinitions(fis));
             return true;
         } catch (IOException e) {
             System.err.println("Error loading plugin configuration from " + configFilePath + ": " + e.getMessage());
@@ -63,16 +66,47 @@ public class PluginConfigLoader {
     }
     
     /**
-     * Register plugins from the loaded properties
-     * @param props The properties containing plugin definitions
+     * Read "key = value" definitions from a plugin configuration file.
+     * Unlike java.util.Properties, keys may contain spaces, so aliases such as
+     * "plugin.count lines" are read as written in the documentation.
+     * Backslash-escaped spaces ("plugin.count\ lines") are accepted as well.
+     * @param in The configuration stream
+     * @return The definitions in file order
      */
-    private static void registerPluginsFromProperties(Properties props) {
+    static Map<String, String> readDefinitions(InputStream in) throws IOException {
+        Map<String, String> definitions = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!")) {
+                continue;
+            }
+            int eqIdx = trimmed.indexOf('=');
+            if (eqIdx == -1) {
+                eqIdx = trimmed.indexOf(':');
+            }
+            if (eqIdx == -1) {
+                continue;
+            }
+            String key = trimmed.substring(0, eqIdx).replace("\\ ", " ").trim();
+            definitions.put(key, trimmed.substring(eqIdx + 1).trim());
+        }
+        return definitions;
+    }
+    
+    /**
+     * Register plugins from the loaded definitions
+     * @param props The definitions containing plugin entries
+     */
+    private static void registerPluginsFromProperties(Map<String, String> props) {
         PluginRegistry registry = PluginRegistry.getInstance();
         
-        for (String name : props.stringPropertyNames()) {
+        for (Map.Entry<String, String> entry : props.entrySet()) {
+            String name = entry.getKey();
             if (name.startsWith("plugin.")) {
                 String alias = name.substring("plugin.".length());
-                String classMethodRef = props.getProperty(name);
+                String classMethodRef = entry.getValue();
                 
                 try {
                     registerPluginFromReference(registry, alias, classMethodRef);
@@ -81,55 +115,145 @@ public class PluginConfigLoader {
                 }
             }
         }
+        
+        // Cache policies, e.g. "cache.count lines = file-mtime:0", apply to plugins registered above or in code
+        for (Map.Entry<String, String> entry : props.entrySet()) {
+            String name = entry.getKey();
+            if (name.startsWith("cache.")) {
+                String alias = name.substring("cache.".length());
+                try {
+                    registry.setCachePolicy(alias, CachePolicy.parse(entry.getValue()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Error setting cache policy for plugin '" + alias + "': " + e.getMessage());
+                }
+            }
+        }
+        
+        // Bulkheads, e.g. "concurrency.read url = 4", "timeout.read url = 10s", "pool.read url = 4"
+        Map<String, long[]> limits = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : props.entrySet()) {
+            String name = entry.getKey();
+            int setting = name.startsWith("concurrency.") ? 0 : name.startsWith("timeout.") ? 1 : name.startsWith("pool.") ? 2 : -1;
+            if (setting == -1) {
+                continue;
+            }
+            String alias = name.substring(name.indexOf('.') + 1);
+            try {
+                long value = setting == 1
+                    ? CachePolicy.parseDuration(entry.getValue()).toMillis()
+                    : Integer.parseInt(entry.getValue());
+                limits.computeIfAbsent(alias, a -> new long[3])[setting] = value;
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error reading " + name + " for plugin '" + alias + "': " + e.getMessage());
+            }
+        }
+        for (Map.Entry<String, long[]> entry : limits.entrySet()) {
+            String alias = entry.getKey();
+            long[] values = entry.getValue();
+            try {
+                registry.setBulkhead(alias, new PluginBulkhead(PluginRegistry.normalizeAlias(alias),
+                    (int) values[0], values[1], (int) values[2]));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error setting limits for plugin '" + alias + "': " + e.getMessage());
+            }
+        }
     }
     
     /**
      * Register a plugin from a class.method reference string
      * Format: "fully.qualified.ClassName#methodName"
      * 
+     * Only the reference format is checked here. The class is loaded, linked
+     * and resolved when the plugin is first called, so plugins a script never
+     * uses cost nothing at startup.
+     * 
      * @param registry The plugin registry
      * @param alias The alias for the plugin
      * @param classMethodRef The class#method reference string
-     * @throws Exception if the plugin cannot be registered
+     * @throws IllegalArgumentException if the reference is malformed
      */
-    private static void registerPluginFromReference(PluginRegistry registry, String alias, String classMethodRef) throws Exception {
+    private static void registerPluginFromReference(PluginRegistry registry, String alias, String classMethodRef) {
         int hashIdx = classMethodRef.indexOf('#');
-        if (hashIdx == -1) {
+        if (hashIdx <= 0 || hashIdx == classMethodRef.length() - 1) {
             throw new IllegalArgumentException("Invalid class#method reference: " + classMethodRef);
         }
-        
-        String className = classMethodRef.substring(0, hashIdx);
-        String methodName = classMethodRef.substring(hashIdx + 1);
+        registry.register(alias, new LazyPluginHandler(alias, classMethodRef));
+    }
+    
+    /**
+     * Create the handler for a class.method reference string
+     * Format: "fully.qualified.ClassName#methodName"
+     * 
+     * The method may take Object... (receiving the Talk arguments as-is) or
+     * typed parameters such as int countLinesInFile(String path), in which case
+     * each argument is converted with PluginTypeConverter. Static methods are
+     * preferred; for instance methods the class needs a public no-arg constructor.
+     * The call site is resolved to a MethodHandle once here, not on every call.
+     * 
+     * @param classMethodRef The class#method reference string
+     * @return A handler calling the method
+     * @throws Exception if the class or a suitable method cannot be found
+     */
+    static PluginHandler createHandler(String classMethodRef) throws Exception {
+        int hashIdx = classMethodRef.indexOf('#');
+        String className = classMethodRef.substring(0, hashIdx).trim();
+        String methodName = classMethodRef.substring(hashIdx + 1).trim();
         
         Class<?> clazz = Class.forName(className);
+        Method method = findPluginMethod(clazz, methodName);
+        if (method == null) {
+            throw new IllegalArgumentException("No suitable method found for plugin: " + classMethodRef);
+        }
         
-        // Find the right method - look for both static and instance methods with Object... params
-        Method method = null;
+        MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+        if (!Modifier.isStatic(method.getModifiers())) {
+            Object instance = clazz.getDeclaredConstructor().newInstance();
+            handle = handle.bindTo(instance);
+        }
         
-        try {
-            // Try to find a static method first
-            method = clazz.getMethod(methodName, Object[].class);
-            if (java.lang.reflect.Modifier.isStatic(method.getModifiers())) {
-                // Static method with Object... parameters
-                final Method staticMethod = method;
-                registry.register(alias, args -> staticMethod.invoke(null, new Object[] { args }));
-                return;
+        boolean varargs = method.getParameterCount() == 1 && method.getParameterTypes()[0] == Object[].class;
+        return varargs
+            ? MethodHandlePluginHandler.forVarargs(handle, classMethodRef)
+            : MethodHandlePluginHandler.forTypedParameters(handle, classMethodRef);
+    }
+    
+    /**
+     * @return The number of configured plugins whose classes have not been loaded yet
+     */
+    public static int countDeferredPlugins() {
+        int count = 0;
+        for (PluginHandler handler : PluginRegistry.getInstance().getAllPlugins().values()) {
+            if (handler instanceof LazyPluginHandler && !((LazyPluginHandler) handler).isLoaded()) {
+                count++;
             }
-        } catch (NoSuchMethodException e) {
-            // Method not found, try other signatures
         }
-        
+        return count;
+    }
+    
+    /**
+     * Find the public method to use for a plugin.
+     * An Object... method wins over typed overloads, and static methods win over instance methods.
+     * @return The method, or null if none is suitable
+     */
+    private static Method findPluginMethod(Class<?> clazz, String methodName) {
         try {
-            // Try to find an instance method with Object... parameters
-            method = clazz.getMethod(methodName, Object[].class);
-            final Method instanceMethod = method;
-            final Object instance = clazz.getDeclaredConstructor().newInstance();
-            registry.register(alias, args -> instanceMethod.invoke(instance, new Object[] { args }));
-            return;
+            return clazz.getMethod(methodName, Object[].class);
         } catch (NoSuchMethodException e) {
-            // Method not found, try other signatures
+            // No Object... method, look for a typed one
         }
         
-        throw new IllegalArgumentException("No suitable method found for plugin: " + classMethodRef);
+        Method found = null;
+        for (Method candidate : clazz.getMethods()) {
+            if (!candidate.getName().equals(methodName)) {
+                continue;
+            }
+            if (found == null || (Modifier.isStatic(candidate.getModifiers()) && !Modifier.isStatic(found.getModifiers()))) {
+                found = candidate;
+            } else if (Modifier.isStatic(candidate.getModifiers()) == Modifier.isStatic(found.getModifiers())) {
+                throw new IllegalArgumentException("Plugin method " + clazz.getName() + "#" + methodName
+                    + " is overloaded; add an Object... variant or rename one overload");
+            }
+        }
+        return found;
     }
 }
@@ -1,24 +1,137 @@
 package talk.plugins;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Registry for Talk language plugins.
  * This class maintains a mapping between Talk-friendly command aliases
  * and the Java methods they should execute.
+ *
+ * Lookups are lock-free and plugins may be registered while scripts are running.
+ * Aliases are stored normalized (see normalizeAlias); callers that look up the
+ * same alias repeatedly should normalize it once and use lookup(). Every
+ * registration bumps a version number, so callers caching an Entry can tell
+ * when to look it up again.
  */
 public class PluginRegistry {
     // Singleton instance
     private static final PluginRegistry instance = new PluginRegistry();
-    
-    // Map from Talk command aliases to plugin handlers
-    private final Map<String, PluginHandler> plugins = new HashMap<>();
-    
+
+    // Map from normalized Talk command aliases to plugin handlers and their signatures
+    private final Map<String, Entry> plugins = new ConcurrentHashMap<>();
+
+    // The handlers alone, kept in step with plugins for getAllPlugins
+    private final Map<String, PluginHandler> handlers = new ConcurrentHashMap<>();
+
+    // Incremented on every registration
+    private volatile long version = 0;
+
+    /**
+     * A registered plugin: its handler, its signature for typed plugins, its cache policy
+     * and the bulkhead limiting its concurrency and run time.
+     */
+    public static final class Entry {
+        private final String alias;
+        private final PluginHandler handler;
+        private final PluginSignature signature;
+        private final CachePolicy cachePolicy;
+        private final PluginBulkhead bulkhead;
+
+        // The handler as called through the bulkhead, built once per entry
+        private final PluginHandler guardedHandler;
+
+        private Entry(String alias, PluginHandler handler, PluginSignature signature,
+                      CachePolicy cachePolicy, PluginBulkhead bulkhead) {
+            this.alias = alias;
+            this.handler = handler;
+            this.signature = signature;
+            this.cachePolicy = cachePolicy;
+            this.bulkhead = bulkhead;
+            this.guardedHandler = bulkhead == null ? handler : bulkhead.guard(handler);
+        }
+
+        /**
+         * Get the handler. Callers of a typed plugin's handler must pass
+         * arguments already converted to its signature's parameter types.
+         * Calling the handler directly bypasses the result cache and the bulkhead.
+         * @return The plugin handler
+         */
+        public PluginHandler getHandler() {
+            return handler;
+        }
+
+        /**
+         * @return The signature, or null if the plugin is untyped
+         */
+        public PluginSignature getSignature() {
+            return signature;
+        }
+
+        /**
+         * @return The cache policy; CachePolicy.NONE unless one was declared
+         */
+        public CachePolicy getCachePolicy() {
+            return cachePolicy;
+        }
+
+        /**
+         * @return The bulkhead, or null if the plugin runs without limits
+         */
+        public PluginBulkhead getBulkhead() {
+            return bulkhead;
+        }
+
+        /**
+         * Execute the plugin, going through the result cache if its policy allows.
+         * Calls that miss the cache run within the plugin's bulkhead, if it has one.
+         * @param args The arguments, already converted for typed plugins
+         * @return The result of the plugin execution
+         * @throws Exception if the plugin execution fails or times out
+         */
+        public Object execute(Object[] args) throws Exception {
+            if (!cachePolicy.isCacheable()) {
+                return guardedHandler.execute(args);
+            }
+            return PluginResultCache.getInstance().execute(alias, cachePolicy, guardedHandler, args);
+        }
+
+        /**
+         * Execute a batch plugin once for each set of arguments, with the same caching and limits
+         * as execute(): argument sets with a cached result are not passed to the plugin, and the
+         * rest run as one call within the plugin's bulkhead, so its timeout covers the whole batch.
+         * @param argumentSets The arguments of each call, already converted for typed plugins
+         * @return One result per argument set, in the same order
+         * @throws IllegalStateException if the handler is not a BatchPluginHandler
+         * @throws Exception if the plugin execution fails or times out
+         */
+        public List<Object> executeBatch(List<Object[]> argumentSets) throws Exception {
+            if (!(handler instanceof BatchPluginHandler)) {
+                throw new IllegalStateException("Plugin '" + alias + "' does not handle batches");
+            }
+            if (!cachePolicy.isCacheable()) {
+                return runBatch(argumentSets);
+            }
+            return PluginResultCache.getInstance().executeBatch(alias, cachePolicy, this::runBatch, argumentSets);
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Object> runBatch(List<Object[]> argumentSets) throws Exception {
+            BatchPluginHandler batchHandler = (BatchPluginHandler) handler;
+            if (bulkhead == null) {
+                return batchHandler.executeBatch(argumentSets);
+            }
+            return (List<Object>) bulkhead.execute(args -> batchHandler.executeBatch(argumentSets), new Object[0]);
+        }
+    }
+
     // Private constructor for singleton pattern
     private PluginRegistry() {}
-    
+
     /**
      * Get the singleton instance of the PluginRegistry
      * @return The PluginRegistry instance
@@ -26,25 +139,166 @@ public class PluginRegistry {
     public static PluginRegistry getInstance() {
         return instance;
     }
-    
+
+    /**
+     * Normalize a plugin alias the way the registry stores it
+     * @param alias The alias as written
+     * @return The trimmed, lowercased alias
+     */
+    public static String normalizeAlias(String alias) {
+        return alias.trim().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Register a plugin that takes no arguments
      * @param alias The Talk-friendly command name
      * @param handler The function that will handle the command
      */
     public void register(String alias, PluginHandler handler) {
-        plugins.put(alias.toLowerCase(), handler);
+        put(alias, handler, null);
+    }
+
+    /**
+     * Register a plugin with declared parameter and return types.
+     * The handler always receives arguments already converted to the parameter types.
+     * @param alias The Talk-friendly command name
+     * @param signature The plugin's parameter and return types
+     * @param handler The function that will handle the command
+     */
+    public void register(String alias, PluginSignature signature, PluginHandler handler) {
+        put(alias, handler, signature);
     }
-    
+
+    private synchronized void put(String alias, PluginHandler handler, PluginSignature signature) {
+        String key = normalizeAlias(alias);
+        // A declared cache policy and bulkhead belong to the alias and survive re-registration
+        Entry previous = plugins.get(key);
+        CachePolicy cachePolicy = previous == null ? CachePolicy.NONE : previous.getCachePolicy();
+        PluginBulkhead bulkhead = previous == null ? null : previous.getBulkhead();
+        plugins.put(key, new Entry(key, handler, signature, cachePolicy, bulkhead));
+        handlers.put(key, handler);
+        PluginResultCache.getInstance().invalidate(key);
+        version++;
+    }
+
+    /**
+     * Remove a plugin, its cached results and its bulkhead
+     * @param alias The Talk-friendly command name
+     * @return true if a plugin had that alias
+     */
+    public synchronized boolean unregister(String alias) {
+        String key = normalizeAlias(alias);
+        Entry entry = plugins.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        handlers.remove(key);
+        PluginResultCache.getInstance().invalidate(key);
+        if (entry.getBulkhead() != null) {
+            entry.getBulkhead().shutdown();
+        }
+        version++;
+        return true;
+    }
+
+    /**
+     * Declare whether results of a plugin may be cached.
+     * Only declare a policy for plugins without side effects.
+     * @param alias The Talk-friendly command name
+     * @param cachePolicy The cache policy
+     * @throws IllegalArgumentException if no plugin has that alias
+     */
+    public synchronized void setCachePolicy(String alias, CachePolicy cachePolicy) {
+        String key = normalizeAlias(alias);
+        Entry entry = plugins.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("Plugin not found: " + alias);
+        }
+        plugins.put(key, new Entry(key, entry.getHandler(), entry.getSignature(), cachePolicy, entry.getBulkhead()));
+        PluginResultCache.getInstance().invalidate(key);
+        version++;
+    }
+
+    /**
+     * Run a plugin within a bulkhead, limiting its concurrent calls and how long
+     * a call may take. The previous bulkhead's dedicated pool, if any, is shut down.
+     * @param alias The Talk-friendly command name
+     * @param bulkhead The bulkhead, or null to remove the limits
+     * @throws IllegalArgumentException if no plugin has that alias
+     */
+    public synchronized void setBulkhead(String alias, PluginBulkhead bulkhead) {
+        String key = normalizeAlias(alias);
+        Entry entry = plugins.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("Plugin not found: " + alias);
+        }
+        plugins.put(key, new Entry(key, entry.getHandler(), entry.getSignature(), entry.getCachePolicy(), bulkhead));
+        if (entry.getBulkhead() != null && entry.getBulkhead() != bulkhead) {
+            entry.getBulkhead().shutdown();
+        }
+        version++;
+    }
+
+    /**
+     * Get the bulkheads of all plugins that have one
+     * @return Aliases to bulkheads, sorted by alias
+     */
+    public Map<String, PluginBulkhead> getBulkheads() {
+        Map<String, PluginBulkhead> bulkheads = new TreeMap<>();
+        for (Entry entry : plugins.values()) {
+            if (entry.getBulkhead() != null) {
+                bulkheads.put(entry.alias, entry.getBulkhead());
+            }
+        }
+        return bulkheads;
+    }
+
+    /**
+     * Look up a plugin by an alias that is already normalized
+     * @param normalizedAlias The alias, as returned by normalizeAlias
+     * @return The plugin entry, or null if no plugin has that alias
+     */
+    public Entry lookup(String normalizedAlias) {
+        return plugins.get(normalizedAlias);
+    }
+
+    /**
+     * @return A number that changes whenever a plugin is registered
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the declared types of a plugin
+     * @param alias The Talk-friendly command name
+     * @return The signature, or null if the plugin is untyped or unknown
+     */
+    public PluginSignature getSignature(String alias) {
+        Entry entry = plugins.get(normalizeAlias(alias));
+        return entry == null ? null : entry.getSignature();
+    }
+
+    /**
+     * Get the handler of a plugin. Callers of a typed plugin's handler must pass
+     * arguments already converted to its signature's parameter types.
+     * @param alias The Talk-friendly command name
+     * @return The handler, or null if no plugin has that alias
+     */
+    public PluginHandler getHandler(String alias) {
+        Entry entry = plugins.get(normalizeAlias(alias));
+        return entry == null ? null : entry.getHandler();
+    }
+
     /**
      * Check if a plugin with the given alias exists
      * @param alias The Talk-friendly command name
      * @return true if the plugin exists, false otherwise
      */
     public boolean hasPlugin(String alias) {
-        return plugins.containsKey(alias.toLowerCase());
+        return plugins.containsKey(normalizeAlias(alias));
     }
-    
+
     /**
      * Execute a plugin with the given alias and arguments
      * @param alias The Talk-friendly command name
@@ -53,19 +307,22 @@ public class PluginRegistry {
      * @throws Exception if the plugin execution fails
      */
     public Object execute(String alias, Object... args) throws Exception {
-        if (!hasPlugin(alias)) {
+        Entry entry = plugins.get(normalizeAlias(alias));
+        if (entry == null) {
             throw new IllegalArgumentException("Plugin not found: " + alias);
         }
-        
-        PluginHandler handler = plugins.get(alias.toLowerCase());
-        return handler.execute(args);
+
+        if (entry.getSignature() != null) {
+            args = entry.getSignature().convertArguments(alias, args);
+        }
+        return entry.execute(args);
     }
-    
+
     /**
      * Get all registered plugins
      * @return A map of plugin aliases to handlers
      */
     public Map<String, PluginHandler> getAllPlugins() {
-        return new HashMap<>(plugins);
+        return new HashMap<>(handlers);
     }
 }
@@ -0,0 +1,308 @@
+package talk.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of plugin results, keyed by plugin alias plus arguments.
+ * Only plugins registered with a cacheable CachePolicy go through it.
+ * When full, the least recently used result is evicted.
+ */
+public class PluginResultCache {
+    // Singleton instance
+    private static final PluginResultCache instance = new PluginResultCache();
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final Map<List<Object>, CachedResult> results = new LinkedHashMap<List<Object>, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedResult> eldest) {
+            if (size() > maxEntries) {
+                statsFor((String) eldest.getKey().get(0)).evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /**
+     * Hit, miss and eviction counts of one plugin
+     */
+    public static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() { return hits.sum(); }
+        public long getMisses() { return misses.sum(); }
+        public long getEvictions() { return evictions.sum(); }
+    }
+
+    private static final class CachedResult {
+        final Object value;
+        // Expiry time for TTL entries, file modification stamp for FILE_MTIME entries
+        final long validity;
+        final long fileSize;
+
+        CachedResult(Object value, long validity, long fileSize) {
+            this.value = value;
+            this.validity = validity;
+            this.fileSize = fileSize;
+        }
+    }
+
+    /**
+     * A call that runs a batch plugin on many sets of arguments at once
+     */
+    interface BatchCall {
+        List<Object> execute(List<Object[]> argumentSets) throws Exception;
+    }
+
+    // Private constructor for singleton pattern
+    private PluginResultCache() {}
+
+    /**
+     * Get the singleton instance of the PluginResultCache
+     * @return The PluginResultCache instance
+     */
+    public static PluginResultCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Call a plugin through the cache
+     * @param alias The normalized plugin alias
+     * @param policy The plugin's cache policy
+     * @param handler The plugin handler, called on a miss
+     * @param args The (converted) arguments
+     * @return The cached or freshly computed result
+     * @throws Exception if the plugin execution fails
+     */
+    public Object execute(String alias, CachePolicy policy, PluginHandler handler, Object[] args) throws Exception {
+        if (!enabled || !policy.isCacheable()) {
+            return handler.execute(args);
+        }
+
+        BasicFileAttributes fileAttributes = null;
+        if (policy.getKind() == CachePolicy.Kind.FILE_MTIME) {
+            fileAttributes = readAttributes(policy, args);
+            if (fileAttributes == null) {
+                // No readable file to validate against; don't cache
+                return handler.execute(args);
+            }
+        }
+
+        List<Object> key = keyFor(alias, args);
+        Stats aliasStats = statsFor(alias);
+        CachedResult cached = lookup(key, policy, fileAttributes);
+        if (cached != null) {
+            aliasStats.hits.increment();
+            return cached.value;
+        }
+
+        aliasStats.misses.increment();
+        Object value = handler.execute(args);
+        store(key, policy, value, fileAttributes);
+        return value;
+    }
+
+    /**
+     * Call a batch plugin through the cache: argument sets with a valid cached result
+     * are answered from the cache, and the rest are passed to the plugin in one batch
+     * @param alias The normalized plugin alias
+     * @param policy The plugin's cache policy
+     * @param call Runs the plugin on the argument sets that missed the cache
+     * @param argumentSets The (converted) arguments of each call
+     * @return One result per argument set, in the same order
+     * @throws Exception if the plugin execution fails
+     */
+    public List<Object> executeBatch(String alias, CachePolicy policy, BatchCall call, List<Object[]> argumentSets) throws Exception {
+        if (!enabled || !policy.isCacheable()) {
+            return call.execute(argumentSets);
+        }
+
+        Stats aliasStats = statsFor(alias);
+        Object[] batchResults = new Object[argumentSets.size()];
+        List<Integer> missed = new ArrayList<>();
+        List<BasicFileAttributes> missedAttributes = new ArrayList<>();
+        for (int i = 0; i < argumentSets.size(); i++) {
+            Object[] args = argumentSets.get(i);
+            BasicFileAttributes fileAttributes = null;
+            if (policy.getKind() == CachePolicy.Kind.FILE_MTIME) {
+                fileAttributes = readAttributes(policy, args);
+                if (fileAttributes == null) {
+                    // No readable file to validate against; call the plugin but don't cache
+                    missed.add(i);
+                    missedAttributes.add(null);
+                    continue;
+                }
+            }
+            CachedResult cached = lookup(keyFor(alias, args), policy, fileAttributes);
+            if (cached != null) {
+                aliasStats.hits.increment();
+                batchResults[i] = cached.value;
+            } else {
+                aliasStats.misses.increment();
+                missed.add(i);
+                missedAttributes.add(fileAttributes);
+            }
+        }
+        if (missed.isEmpty()) {
+            return Arrays.asList(batchResults);
+        }
+
+        List<Object[]> missedSets = new ArrayList<>(missed.size());
+        for (int index : missed) {
+            missedSets.add(argumentSets.get(index));
+        }
+        List<Object> fresh = call.execute(missedSets);
+        if (fresh == null || fresh.size() != missed.size()) {
+            throw new IllegalStateException("Plugin '" + alias + "' returned " + (fresh == null ? 0 : fresh.size())
+                + " batch results for " + missed.size() + " calls");
+        }
+        for (int j = 0; j < missed.size(); j++) {
+            int index = missed.get(j);
+            batchResults[index] = fresh.get(j);
+            boolean cacheable = policy.getKind() != CachePolicy.Kind.FILE_MTIME || missedAttributes.get(j) != null;
+            if (cacheable) {
+                store(keyFor(alias, argumentSets.get(index)), policy, fresh.get(j), missedAttributes.get(j));
+            }
+        }
+        return Arrays.asList(batchResults);
+    }
+
+    private static List<Object> keyFor(String alias, Object[] args) {
+        Object[] keyParts = new Object[args.length + 1];
+        keyParts[0] = alias;
+        System.arraycopy(args, 0, keyParts, 1, args.length);
+        return Arrays.asList(keyParts);
+    }
+
+    // The cached result for key, or null if there is none or it is no longer valid
+    private CachedResult lookup(List<Object> key, CachePolicy policy, BasicFileAttributes fileAttributes) {
+        CachedResult cached;
+        synchronized (results) {
+            cached = results.get(key);
+        }
+        return cached != null && isValid(policy, cached, fileAttributes) ? cached : null;
+    }
+
+    private void store(List<Object> key, CachePolicy policy, Object value, BasicFileAttributes fileAttributes) {
+        CachedResult fresh;
+        if (policy.getKind() == CachePolicy.Kind.TTL) {
+            fresh = new CachedResult(value, System.nanoTime() + policy.getTtlNanos(), 0);
+        } else if (fileAttributes != null) {
+            fresh = new CachedResult(value, fileAttributes.lastModifiedTime().toMillis(), fileAttributes.size());
+        } else {
+            fresh = new CachedResult(value, 0, 0);
+        }
+        synchronized (results) {
+            results.put(key, fresh);
+        }
+    }
+
+    private boolean isValid(CachePolicy policy, CachedResult cached, BasicFileAttributes fileAttributes) {
+        switch (policy.getKind()) {
+            case TTL:
+                return System.nanoTime() - cached.validity < 0;
+            case FILE_MTIME:
+                return fileAttributes.lastModifiedTime().toMillis() == cached.validity && fileAttributes.size() == cached.fileSize;
+            default:
+                return true;
+        }
+    }
+
+    private BasicFileAttributes readAttributes(CachePolicy policy, Object[] args) {
+        if (policy.getPathArgument() >= args.length || args[policy.getPathArgument()] == null) {
+            return null;
+        }
+        try {
+            Path path = Paths.get(args[policy.getPathArgument()].toString());
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Stats statsFor(String alias) {
+        return stats.computeIfAbsent(alias, k -> new Stats());
+    }
+
+    /**
+     * Turn caching on or off. When off, every call goes to the plugin.
+     * @param enabled false to bypass the cache (--no-plugin-cache)
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set the maximum number of cached results; the least recently used are evicted first
+     * @param maxEntries The new bound
+     */
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Plugin cache size must be at least 1");
+        }
+        synchronized (results) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    /**
+     * @return The number of cached results
+     */
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    /**
+     * @return Hit, miss and eviction counts by plugin alias, sorted by alias
+     */
+    public Map<String, Stats> getStats() {
+        return new TreeMap<>(stats);
+    }
+
+    /**
+     * Remove the cached results of one plugin, e.g. after it is registered again
+     * @param alias The normalized plugin alias
+     */
+    public void invalidate(String alias) {
+        synchronized (results) {
+            results.keySet().removeIf(key -> alias.equals(key.get(0)));
+        }
+    }
+
+    /**
+     * Remove all cached results and statistics
+     */
+    public void clear() {
+        synchronized (results) {
+            results.clear();
+        }
+        stats.clear();
+    }
+}
@@ -0,0 +1,133 @@
+package talk.plugins;
+
+import java.util.function.Function;
+
+/**
+ * Declares the parameter and return types of a plugin.
+ * Arguments to a typed plugin are converted to the declared parameter types
+ * before the plugin runs, so its handler can cast them directly instead of
+ * parsing strings on every call. Trailing parameters may be optional.
+ */
+public class PluginSignature {
+    private final Class<?> returnType;
+    private final Class<?>[] parameterTypes;
+    private final int requiredArguments;
+    private final Function<Object, Object>[] converters;
+
+    /**
+     * Create a signature in which every parameter is required
+     * @param returnType The type of the plugin result
+     * @param parameterTypes The parameter types, in order
+     * @return The signature
+     */
+    public static PluginSignature of(Class<?> returnType, Class<?>... parameterTypes) {
+        return new PluginSignature(returnType, parameterTypes.length, parameterTypes);
+    }
+
+    /**
+     * Create a signature whose trailing parameters are optional
+     * @param returnType The type of the plugin result
+     * @param requiredArguments How many leading parameters must be passed
+     * @param parameterTypes The parameter types, in order
+     * @return The signature
+     */
+    public static PluginSignature withOptional(Class<?> returnType, int requiredArguments, Class<?>... parameterTypes) {
+        return new PluginSignature(returnType, requiredArguments, parameterTypes);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private PluginSignature(Class<?> returnType, int requiredArguments, Class<?>... parameterTypes) {
+        if (requiredArguments < 0 || requiredArguments > parameterTypes.length) {
+            throw new IllegalArgumentException("Required argument count must be between 0 and " + parameterTypes.length);
+        }
+        this.returnType = returnType;
+        this.parameterTypes = parameterTypes.clone();
+        this.requiredArguments = requiredArguments;
+        this.converters = new Function[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            converters[i] = PluginTypeConverter.converterFor(parameterTypes[i]);
+        }
+    }
+
+    public Class<?> getReturnType() {
+        return returnType;
+    }
+
+    public int getParameterCount() {
+        return parameterTypes.length;
+    }
+
+    public int getRequiredArguments() {
+        return requiredArguments;
+    }
+
+    public Class<?> getParameterType(int index) {
+        return parameterTypes[index];
+    }
+
+    /**
+     * @param index The parameter position
+     * @return The precomputed converter for that parameter
+     */
+    public Function<Object, Object> getConverter(int index) {
+        return converters[index];
+    }
+
+    /**
+     * @param count The number of arguments passed
+     * @return true if that many arguments is allowed
+     */
+    public boolean acceptsArgumentCount(int count) {
+        return count >= requiredArguments && count <= parameterTypes.length;
+    }
+
+    /**
+     * Check the argument count and convert every argument to its parameter type
+     * @param alias The plugin alias, used in error messages
+     * @param args The arguments to convert
+     * @return The converted arguments
+     * @throws IllegalArgumentException if the count is wrong or an argument cannot be converted
+     */
+    public Object[] convertArguments(String alias, Object[] args) {
+        checkArgumentCount(alias, args.length);
+        Object[] converted = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            converted[i] = converters[i].apply(args[i]);
+        }
+        return converted;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the plugin does not accept that many arguments
+     */
+    public void checkArgumentCount(String alias, int count) {
+        if (!acceptsArgumentCount(count)) {
+            throw new IllegalArgumentException("Plugin '" + alias + "' expects " + describeArgumentCount()
+                + ", got " + count);
+        }
+    }
+
+    /**
+     * @return A description such as "1 to 2 arguments"
+     */
+    public String describeArgumentCount() {
+        int max = parameterTypes.length;
+        String range = requiredArguments == max ? String.valueOf(max) : requiredArguments + " to " + max;
+        return range + (max == 1 ? " argument" : " arguments");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(parameterTypes[i].getSimpleName());
+            if (i >= requiredArguments) {
+                sb.append("?");
+            }
+        }
+        return sb.append(") -> ").append(returnType.getSimpleName()).toString();
+    }
+}
@@ -1,5 +1,7 @@
 package talk.plugins;
 
+import java.util.function.Function;
+
 /**
  * Utility class for converting between Talk and Java types.
  * This helps in handling different type conversions when passing
@@ -76,4 +78,30 @@ public class PluginTypeConverter {
         throw new IllegalArgumentException("Cannot convert " + value.getClass().getSimpleName() + 
                                           " to " + targetType.getSimpleName());
     }
+    
+    /**
+     * Get a converter to the specified Java type that can be reused for many values.
+     * Common targets get a dedicated converter so the type checks in
+     * convertToType are not repeated on every call.
+     * @param targetType The target Java type
+     * @return A function converting a Talk value to the target type
+     */
+    public static Function<Object, Object> converterFor(Class<?> targetType) {
+        if (targetType == Object.class) {
+            return value -> value;
+        }
+        if (targetType == String.class) {
+            return value -> value == null ? null : value.toString();
+        }
+        if (targetType == Integer.class || targetType == int.class) {
+            return value -> value instanceof Integer ? value : convertToType(value, Integer.class);
+        }
+        if (targetType == Long.class || targetType == long.class) {
+            return value -> value instanceof Long ? value : convertToType(value, Long.class);
+        }
+        if (targetType == Double.class || targetType == double.class) {
+            return value -> value instanceof Double ? value : convertToType(value, Double.class);
+        }
+        return value -> convertToType(value, targetType);
+    }
 }
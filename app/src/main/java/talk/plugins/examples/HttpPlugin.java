@@ -0,0 +1,397 @@
+package talk.plugins.examples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import talk.expression.ListValue;
+
+/**
+ * Example plugin that fetches URLs over HTTP.
+ *
+ * All calls share one HttpClient, so connections are kept alive and reused,
+ * and HTTP/2 is used where the server supports it. Responses with an ETag or
+ * Last-Modified header are cached on disk; later requests for the same URL are
+ * sent as conditional requests and a 304 response is answered from the cache.
+ * Downloads are cached per URL and target file, and only while the file still
+ * has the size and modification time it had after the download.
+ * The cache lives in ~/.talk/http-cache unless the talk.http.cache system
+ * property names another directory.
+ */
+public class HttpPlugin {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static volatile Path cacheDirectory = defaultCacheDirectory();
+
+    // Created on first use, so scripts that never fetch a URL do not start its threads
+    private static class ClientHolder {
+        static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+    }
+
+    private static Path defaultCacheDirectory() {
+        String configured = System.getProperty("talk.http.cache");
+        if (configured != null && !configured.isEmpty()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".talk", "http-cache");
+    }
+
+    /**
+     * Change where responses are cached
+     * @param directory The cache directory, or null to disable caching
+     */
+    public static void setCacheDirectory(Path directory) {
+        cacheDirectory = directory;
+    }
+
+    /**
+     * Fetch the body of a URL as text, keeping its line endings
+     * @param args The URL as the first argument, optional timeout in ms as second argument
+     * @return The response body
+     * @throws IOException If the request fails or the status is not 2xx or 304
+     */
+    public static String get(Object... args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("URL is required");
+        }
+        String url = args[0].toString();
+        CompletableFuture<String> future = fetch(url, timeoutArgument(args, 1));
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Download a URL straight to a file without holding the body in memory.
+     * If the file already exists and the server reports the cached copy is
+     * unchanged, the file is left as it is.
+     * @param args The URL, the target file path, optional timeout in ms
+     * @return The size of the file in bytes
+     * @throws IOException If the request or writing the file fails
+     */
+    public static long download(Object... args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("URL and file path are required");
+        }
+        String url = args[0].toString();
+        Path target = Paths.get(args[1].toString());
+
+        String targetKey = target.toAbsolutePath().normalize().toString();
+        CacheEntry cached = CacheEntry.load(url, targetKey);
+        if (cached != null && !cached.describes(target)) {
+            // Missing, or changed since it was downloaded: the server's 304 would not be about this file
+            cached = null;
+        }
+        HttpRequest request = buildRequest(url, timeoutArgument(args, 2), cached);
+
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // Stream into a temporary file so a failed download never replaces the existing one
+        Path partial = Files.createTempFile(parent, target.getFileName().toString(), ".part");
+        try {
+            HttpResponse<Path> response = ClientHolder.CLIENT.send(request, HttpResponse.BodyHandlers.ofFile(partial));
+            if (response.statusCode() == 304 && cached != null) {
+                return Files.size(target);
+            }
+            checkStatus(url, response.statusCode());
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            CacheEntry.from(url, response.headers()).forDownload(targetKey, target).ifPresentSave(null);
+            return Files.size(target);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Fetch several URLs at the same time
+     * @param args A list of URLs, or the URLs as separate arguments
+     * @return The response bodies, in the order of the URLs
+     * @throws IOException If any request fails
+     */
+    public static ListValue fetchAll(Object... args) throws IOException, InterruptedException {
+        List<String> urls = new ArrayList<>();
+        for (Object arg : args) {
+            if (arg instanceof ListValue) {
+                urls.addAll(((ListValue) arg).getItems());
+            } else if (arg instanceof Collection) {
+                for (Object item : (Collection<?>) arg) {
+                    urls.add(String.valueOf(item));
+                }
+            } else {
+                urls.add(String.valueOf(arg));
+            }
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one URL is required");
+        }
+
+        List<CompletableFuture<String>> pending = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            pending.add(fetch(url, DEFAULT_REQUEST_TIMEOUT));
+        }
+        List<String> bodies = new ArrayList<>(urls.size());
+        try {
+            for (CompletableFuture<String> future : pending) {
+                bodies.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+        return new ListValue(bodies);
+    }
+
+    private static CompletableFuture<String> fetch(String url, Duration timeout) {
+        CacheEntry loaded = CacheEntry.load(url, null);
+        // An entry without a body cannot answer a 304
+        CacheEntry cached = loaded != null && loaded.body != null ? loaded : null;
+        HttpRequest request = buildRequest(url, timeout, cached);
+        return ClientHolder.CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> {
+                try {
+                    if (response.statusCode() == 304 && cached != null) {
+                        return decode(cached.body, cached.contentType);
+                    }
+                    checkStatus(url, response.statusCode());
+                    CacheEntry.from(url, response.headers()).ifPresentSave(response.body());
+                    return decode(response.body(), response.headers().firstValue("Content-Type").orElse(null));
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+    }
+
+    private static HttpRequest buildRequest(String url, Duration timeout, CacheEntry cached) {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(URI.create(url)).GET().timeout(timeout);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid URL: " + url);
+        }
+        if (cached != null) {
+            if (cached.etag != null) {
+                builder.header("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                builder.header("If-Modified-Since", cached.lastModified);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Duration timeoutArgument(Object[] args, int index) {
+        if (args.length > index) {
+            try {
+                return Duration.ofMillis(Long.parseLong(args[index].toString()));
+            } catch (NumberFormatException e) {
+                // Use default timeout
+            }
+        }
+        return DEFAULT_REQUEST_TIMEOUT;
+    }
+
+    private static void checkStatus(String url, int status) throws IOException {
+        if (status < 200 || status >= 300) {
+            throw new IOException("HTTP error code " + status + " from " + url);
+        }
+    }
+
+    private static String decode(byte[] body, String contentType) {
+        Charset charset = StandardCharsets.UTF_8;
+        if (contentType != null) {
+            int idx = contentType.toLowerCase().indexOf("charset=");
+            if (idx >= 0) {
+                try {
+                    charset = Charset.forName(contentType.substring(idx + 8).replace("\"", "").trim());
+                } catch (IllegalArgumentException e) {
+                    // Unknown charset, fall back to UTF-8
+                }
+            }
+        }
+        return new String(body, charset);
+    }
+
+    private static IOException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException(cause.getMessage(), cause);
+    }
+
+    /**
+     * Validators and body of a cached response. Stored as two files named after
+     * a hash of the URL: <hash>.meta with the headers and <hash>.body. A download
+     * is stored under a hash of the URL and the target file instead, with the
+     * file's size and modification time in place of the body.
+     */
+    private static final class CacheEntry {
+        final String url;
+        final String etag;
+        final String lastModified;
+        final String contentType;
+        byte[] body;
+        String target;
+        long fileSize = -1;
+        long fileModified = -1;
+
+        private CacheEntry(String url, String etag, String lastModified, String contentType) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+        }
+
+        /**
+         * @param target The absolute path a download was saved to, or null for a response body
+         */
+        static CacheEntry load(String url, String target) {
+            Path dir = cacheDirectory;
+            if (dir == null) {
+                return null;
+            }
+            String key = key(url, target);
+            Path meta = dir.resolve(key + ".meta");
+            if (!Files.exists(meta)) {
+                return null;
+            }
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(meta)) {
+                props.load(in);
+                if (!url.equals(props.getProperty("url")) || !Objects.equals(target, props.getProperty("target"))) {
+                    return null;
+                }
+                CacheEntry entry = new CacheEntry(url, props.getProperty("etag"),
+                    props.getProperty("last-modified"), props.getProperty("content-type"));
+                entry.target = target;
+                entry.fileSize = Long.parseLong(props.getProperty("file-size", "-1"));
+                entry.fileModified = Long.parseLong(props.getProperty("file-modified", "-1"));
+                Path body = dir.resolve(key + ".body");
+                entry.body = Files.exists(body) ? Files.readAllBytes(body) : null;
+                return entry;
+            } catch (IOException | NumberFormatException e) {
+                // An unreadable entry is the same as no entry
+                return null;
+            }
+        }
+
+        /**
+         * Record the file a download was saved to, as it is now
+         */
+        CacheEntry forDownload(String target, Path file) throws IOException {
+            this.target = target;
+            this.fileSize = Files.size(file);
+            this.fileModified = Files.getLastModifiedTime(file).toMillis();
+            return this;
+        }
+
+        /**
+         * @return Whether the file is still the one this download entry saved
+         */
+        boolean describes(Path file) throws IOException {
+            return target != null && Files.exists(file)
+                && Files.size(file) == fileSize
+                && Files.getLastModifiedTime(file).toMillis() == fileModified;
+        }
+
+        static CacheEntry from(String url, HttpHeaders headers) {
+            return new CacheEntry(url, headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null),
+                headers.firstValue("Content-Type").orElse(null));
+        }
+
+        /**
+         * Save this entry if the response had validators
+         * @param body The body to cache, or null when the body lives in a downloaded file
+         */
+        void ifPresentSave(byte[] body) {
+            Path dir = cacheDirectory;
+            if (dir == null || (etag == null && lastModified == null)) {
+                return;
+            }
+            Properties props = new Properties();
+            props.setProperty("url", url);
+            if (etag != null) {
+                props.setProperty("etag", etag);
+            }
+            if (lastModified != null) {
+                props.setProperty("last-modified", lastModified);
+            }
+            if (contentType != null) {
+                props.setProperty("content-type", contentType);
+            }
+            if (target != null) {
+                props.setProperty("target", target);
+                props.setProperty("file-size", Long.toString(fileSize));
+                props.setProperty("file-modified", Long.toString(fileModified));
+            }
+            String key = key(url, target);
+            try {
+                Files.createDirectories(dir);
+                Path bodyFile = dir.resolve(key + ".body");
+                if (body != null) {
+                    Files.write(bodyFile, body);
+                } else {
+                    Files.deleteIfExists(bodyFile);
+                }
+                try (OutputStream out = Files.newOutputStream(dir.resolve(key + ".meta"))) {
+                    props.store(out, null);
+                }
+            } catch (IOException e) {
+                // Caching is best effort; the response itself was fine
+            }
+        }
+
+        private static String key(String url, String target) {
+            String name = target == null ? url : url + "\n" + target;
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 16; i++) {
+                    sb.append(String.format("%02x", hash[i]));
+                }
+                return sb.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
@@ -10,6 +10,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
+import talk.plugins.PluginBulkhead;
+
 /**
  * Example plugin that provides network-related utilities.
  */
@@ -28,7 +30,8 @@ public class NetworkUtilsPlugin {
         }
         
         String urlStr = args[0].toString();
-        int timeout = DEFAULT_TIMEOUT;
+        // Within a bulkhead, the configured timeout (timeout.read url) applies
+        int timeout = PluginBulkhead.remainingMillis(DEFAULT_TIMEOUT);
         
         if (args.length > 1) {
             try {
@@ -88,7 +91,8 @@ public class NetworkUtilsPlugin {
         }
         
         String hostname = args[0].toString();
-        int timeout = 1000; // Default 1 second
+        // Default 1 second; within a bulkhead, the configured timeout (timeout.ping host) applies
+        int timeout = PluginBulkhead.remainingMillis(1000);
         
         if (args.length > 1) {
             try {
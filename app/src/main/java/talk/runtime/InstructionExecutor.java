@@ -1,22 +1,44 @@
 package talk.runtime;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.Scanner;
 import java.io.InputStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 import talk.core.Instruction;
 import talk.Parser;
 import talk.core.RuntimeContext;
 import talk.exception.*;
+import talk.expression.ChannelValue;
 import talk.expression.ExpressionResolver;
 import talk.expression.ListValue;
+import talk.expression.MappedFileValue;
 import talk.instruction.*;
+import talk.io.CopyEngine;
 import talk.io.DefaultFileSystem;
 import talk.io.DefaultLogger;
+import talk.io.DirectoryEntry;
+import talk.io.DirectoryFilter;
 import talk.io.FileSystem;
 import talk.io.Logger;
+import talk.io.OutputChannelManager;
 import talk.expression.DateUtil;
+import talk.plugins.BatchPluginHandler;
+import talk.plugins.PluginCallSite;
 import talk.plugins.PluginRegistry;
 
 public class InstructionExecutor {
@@ -25,6 +47,16 @@ public class InstructionExecutor {
     private final Scanner scanner;
     private final FileSystem fileSystem;
     private final Logger logger;
+    // Send loop-invariant plugin calls in "repeat for each" loops as one batch
+    private boolean pluginBatching = false;
+    // Buffered writers for "write ... to file"; null writes through on every line
+    private OutputChannelManager outputChannels;
+    // Parses and caches imported modules; shared with workers
+    private ModuleLoader moduleLoader;
+    // Canonical paths of modules imported into this context; workers start with their parent's
+    private final Set<String> importedModules = new HashSet<>();
+    // Modules being imported, innermost first, to detect import cycles
+    private final Deque<String> importStack = new ArrayDeque<>();
 
     // Constructor with full dependency injection
     public InstructionExecutor(RuntimeContext context, InputStream in, FileSystem fileSystem, Logger logger) {
@@ -60,7 +92,7 @@ public class InstructionExecutor {
                 throw new TalkSemanticException("Variable '" + vi.getName() + "' already declared", vi.getLineNumber());
             }
             // Variable declarations should always go in the current scope
-            context.setVariable(vi.getName(), vi.getValue());
+            context.setVariable(vi.getName(), assignedValue(vi.getValue()));
         } else if (instruction instanceof AssignmentInstruction) {
             AssignmentInstruction ai = (AssignmentInstruction) instruction;
             
@@ -70,12 +102,12 @@ public class InstructionExecutor {
             
             if (!context.hasVariable(ai.getVariableName())) {
                 // Create new variable in the current scope
-                context.setVariable(ai.getVariableName(), ai.getValue());
+                context.setVariable(ai.getVariableName(), assignedValue(ai.getValue()));
             } else {
                 // Update existing variable
                 // Set to true to allow modifying parent scope variables from child scopes
                 boolean allowOuterScopeModification = true; 
-                context.setVariableScoped(ai.getVariableName(), ai.getValue(), allowOuterScopeModification);
+                context.setVariableScoped(ai.getVariableName(), assignedValue(ai.getValue()), allowOuterScopeModification);
             }
         } else if (instruction instanceof IfInstruction) {
             IfInstruction ii = (IfInstruction) instruction;
@@ -106,7 +138,9 @@ public class InstructionExecutor {
             } else {
                 // Write to file
                 try {
-                    if (fileSystem.fileExists(fileName)) {
+                    if (outputChannels != null) {
+                        outputChannels.write(fileName, String.valueOf(content) + System.lineSeparator());
+                    } else if (fileSystem.fileExists(fileName)) {
                         fileSystem.appendToFile(fileName, String.valueOf(content) + System.lineSeparator());
                     } else {
                         fileSystem.writeFile(fileName, String.valueOf(content) + System.lineSeparator());
@@ -129,6 +163,7 @@ public class InstructionExecutor {
             System.out.println("[DEBUG] Current working directory: " + System.getProperty("user.dir"));
             
             try {
+                flushOutput(fileName);
                 if (!fileSystem.fileExists(fileName)) {
                     fileSystem.writeFile(fileName, "");
                 }
@@ -196,35 +231,34 @@ public class InstructionExecutor {
             }
         } else if (instruction instanceof RepeatInstruction) {
             RepeatInstruction ri = (RepeatInstruction) instruction;
-            if (ri.getItemVar() != null && ri.getListVar() != null) {
+            if (ri.getFileExpr() != null) {
+                // Line iteration mode: stream the file instead of loading it
+                executeFileLineIteration(ri);
+            } else if (ri.getDirectoryExpr() != null) {
+                // Directory iteration mode: read entries as the loop reaches them
+                executeDirectoryIteration(ri);
+            } else if (ri.getItemVar() != null && ri.getListVar() != null) {
                 // List iteration mode
                 Object listObj = context.getVariable(ri.getListVar());
+                if (listObj instanceof ChannelValue) {
+                    // Channel iteration mode: receive until the channel is closed and drained
+                    executeChannelIteration(ri, (ChannelValue) listObj);
+                    return;
+                }
+                if (listObj instanceof MappedFileValue) {
+                    executeMappedFileIteration(ri, (MappedFileValue) listObj);
+                    return;
+                }
                 if (!(listObj instanceof ListValue)) {
                     throw new TalkValueException("Variable '" + ri.getListVar() + "' is not a list", ri.getLineNumber());
                 }
-                ListValue list = (ListValue) listObj;
-                for (int i = 0; i < list.size(); i++) {
-                    // Create a new scope for each iteration to isolate variables
-                    context.pushScope();
-                    
-                    // Set loop-specific variables in the new scope
-                    context.setVariable(ri.getItemVar(), list.get(i + 1)); // 1-based
-                    context.setVariable("_index", i);
-                    context.setVariable("position", i + 1); // 1-based position
-                    
-                    for (Instruction instr : ri.getBody()) {
-                        // Disallow reassignment of 'position' inside loop
-                        if (instr instanceof AssignmentInstruction) {
-                            AssignmentInstruction ai = (AssignmentInstruction) instr;
-                            if ("position".equals(ai.getVariableName())) {
-                                throw new TalkSemanticException("Cannot reassign 'position' inside list iteration", ai.getLineNumber());
-                            }
-                        }
-                        execute(instr);
-                    }
-                    
-                    // Pop the scope at the end of each iteration
-                    context.popScope();
+                // The items as the loop starts; items the body adds or removes are not visited
+                List<Object> items = ((ListValue) listObj).getValues();
+                if (pluginBatching && executeBatchedIteration(ri, items)) {
+                    return;
+                }
+                for (int i = 0; i < items.size(); i++) {
+                    runIterationBody(ri, items.get(i), i + 1);
                 }
                 // No need to remove loop variables as they're isolated in their own scopes
             } else {
@@ -288,7 +322,7 @@ public class InstructionExecutor {
             context.pushScope();
             try {
                 for (int i = 0; i < params.size(); i++) {
-                    context.setVariable(params.get(i), resolver.resolve(args.get(i)));
+                    context.setVariable(params.get(i), storedValue(resolver.resolve(args.get(i))));
                 }
                 Object returnValue = null;
                 try {
@@ -301,7 +335,7 @@ public class InstructionExecutor {
                 // If 'into' is specified, assign return value to variable in caller's scope
                 if (fci.getIntoVariable() != null) {
                     context.popScope(); // pop function scope to assign in caller's scope
-                    context.setVariable(fci.getIntoVariable(), returnValue);
+                    context.setVariable(fci.getIntoVariable(), storedValue(returnValue));
                     context.pushScope(); // restore function scope for finally
                 } else if (returnValue != null) {
                     // If not captured, propagate return for executeWithReturn
@@ -319,6 +353,7 @@ public class InstructionExecutor {
             String fileName = rfi.getFileName();
             String variableName = rfi.getVariableName();
             try {
+                flushOutput(fileName);
                 String content = fileSystem.readFile(fileName);
                 context.setVariable(variableName, content);
             } catch (IOException e) {
@@ -329,12 +364,30 @@ public class InstructionExecutor {
                 }
                 throw new TalkRuntimeException("Failed to read file '" + fileName + "'", rfi.getLineNumber(), e);
             }
+        } else if (instruction instanceof MapFileInstruction) {
+            MapFileInstruction mfi = (MapFileInstruction) instruction;
+            String fileName = resolveFileName(mfi.getFileName());
+            try {
+                flushOutput(fileName);
+                context.setVariable(mfi.getVariableName(), new MappedFileValue(fileName, fileSystem.mapLines(fileName)));
+            } catch (IOException e) {
+                try {
+                    logger.error("Failed to map file '" + fileName + "'", mfi.getLineNumber());
+                } catch (IOException logEx) {
+                    // Ignore logging errors
+                }
+                throw new TalkRuntimeException("Failed to map file '" + fileName + "'", mfi.getLineNumber(), e);
+            }
         } else if (instruction instanceof AppendToFileInstruction) {
             AppendToFileInstruction afi = (AppendToFileInstruction) instruction;
             Object content = resolver.resolve(afi.getText());
             String fileName = afi.getFileName();
             try {
-                fileSystem.appendToFile(fileName, String.valueOf(content) + System.lineSeparator());
+                if (outputChannels != null) {
+                    outputChannels.write(fileName, String.valueOf(content) + System.lineSeparator());
+                } else {
+                    fileSystem.appendToFile(fileName, String.valueOf(content) + System.lineSeparator());
+                }
             } catch (IOException e) {
                 try {
                     logger.error("Failed to append to file '" + fileName + "'", afi.getLineNumber());
@@ -347,6 +400,7 @@ public class InstructionExecutor {
             DeleteFileInstruction dfi = (DeleteFileInstruction) instruction;
             String fileName = dfi.getFileName();
             try {
+                closeOutput(fileName);
                 fileSystem.deleteFile(fileName);
             } catch (IOException e) {
                 try {
@@ -361,6 +415,7 @@ public class InstructionExecutor {
             String directory = ldi.getDirectory();
             String variableName = ldi.getVariableName();
             try {
+                flushAllOutput();
                 String[] files = fileSystem.listDirectory(directory);
                 ListValue fileList = new ListValue(java.util.Arrays.asList(files));
                 context.setVariable(variableName, fileList);
@@ -385,6 +440,8 @@ public class InstructionExecutor {
             String src = cfi.getSource();
             String dest = cfi.getDestination();
             try {
+                flushOutput(src);
+                closeOutput(dest);
                 fileSystem.copyFile(src, dest);
             } catch (IOException e) {
                 try {
@@ -394,6 +451,35 @@ public class InstructionExecutor {
                 }
                 throw new TalkRuntimeException("Failed to copy file from '" + src + "' to '" + dest + "'", cfi.getLineNumber(), e);
             }
+        } else if (instruction instanceof CopyDirectoryInstruction) {
+            CopyDirectoryInstruction cdi = (CopyDirectoryInstruction) instruction;
+            String src = cdi.getSource();
+            String dest = cdi.getDestination();
+            try {
+                // Any buffered file may be inside either directory, so write them all out first
+                if (outputChannels != null) {
+                    outputChannels.close();
+                }
+                CopyEngine.CopyStats stats = fileSystem.copyDirectory(src, dest, progress -> {
+                    try {
+                        logger.debug("Copying directory '" + src + "': " + progress);
+                    } catch (IOException logEx) {
+                        // Ignore logging errors
+                    }
+                });
+                try {
+                    logger.log("Copied directory '" + src + "' to '" + dest + "': " + stats, cdi.getLineNumber());
+                } catch (IOException logEx) {
+                    // Ignore logging errors
+                }
+            } catch (IOException e) {
+                try {
+                    logger.error("Failed to copy directory from '" + src + "' to '" + dest + "'", cdi.getLineNumber());
+                } catch (IOException logEx) {
+                    // Ignore logging errors
+                }
+                throw new TalkRuntimeException("Failed to copy directory from '" + src + "' to '" + dest + "'", cdi.getLineNumber(), e);
+            }
         } else if (instruction instanceof DateExpressionInstruction) {
             DateExpressionInstruction dei = (DateExpressionInstruction) instruction;
             String result;
@@ -539,44 +625,42 @@ public class InstructionExecutor {
         } else if (instruction instanceof ImportInstruction) {
             ImportInstruction importInst = (ImportInstruction) instruction;
             String filePath = importInst.getFilePath();
-            
+            ModuleLoader loader = getModuleLoader();
+            String modulePath;
+            List<Instruction> importedInstructions;
             try {
-                // Check if file exists
-                if (!fileSystem.fileExists(filePath)) {
-                    // Try adding .talk extension if not already present
-                    if (!filePath.endsWith(".talk")) {
-                        filePath += ".talk";
-                    }
-                    
-                    if (!fileSystem.fileExists(filePath)) {
-                        throw new IOException("Import file not found: " + filePath);
-                    }
+                modulePath = loader.resolve(filePath);
+                if (importStack.contains(modulePath)) {
+                    throw new TalkRuntimeException("Import cycle: " + describeImportCycle(modulePath), importInst.getLineNumber());
                 }
-                
-                // Read the file content
-                String fileContent = fileSystem.readFile(filePath);
-                String[] lines = fileContent.split("\n");
-                
-                // Convert to List<String>
-                java.util.List<String> linesList = new java.util.ArrayList<>();
-                for (String line : lines) {
-                    linesList.add(line);
+                boolean skip = !importInst.isAgain() && importedModules.contains(modulePath);
+                loader.recordImport(modulePath, skip);
+                if (skip) {
+                    return;
                 }
-                
-                // Parse and execute
-                talk.core.Tokenizer tokenizer = new talk.core.Tokenizer();
-                List<talk.core.Tokenizer.Token> tokens = tokenizer.tokenize(linesList);
-                talk.Parser parser = new talk.Parser(tokens);
-                List<Instruction> importedInstructions = parser.parse();
-                
-                // Execute each instruction from the imported file
+                flushOutput(modulePath);
+                importedInstructions = loader.load(modulePath);
+            } catch (IOException e) {
+                throw new TalkRuntimeException("Failed to import file '" + filePath + "': " + e.getMessage(), importInst.getLineNumber(), e);
+            }
+            
+            importStack.push(modulePath);
+            // A module runs in the global scope: it runs only once, so its variables must outlive a function or loop that imports it
+            Deque<Map<String, Object>> localScopes = context.enterGlobalScope();
+            try {
                 for (Instruction instr : importedInstructions) {
                     execute(instr);
                 }
-                
-                System.out.println("[DEBUG] Successfully imported file: " + filePath);
-            } catch (IOException e) {
-                throw new TalkRuntimeException("Failed to import file '" + filePath + "': " + e.getMessage(), importInst.getLineNumber(), e);
+            } finally {
+                context.leaveGlobalScope(localScopes);
+                importStack.pop();
+            }
+            // Only a module that ran to the end counts as imported, so a failed one is run again by the next import
+            importedModules.add(modulePath);
+            try {
+                logger.debug("Imported module: " + modulePath);
+            } catch (IOException logEx) {
+                // Ignore logging errors
             }
         } else if (instruction instanceof PluginCallInstruction) {
             PluginCallInstruction pci = (PluginCallInstruction) instruction;
@@ -584,21 +668,31 @@ public class InstructionExecutor {
             List<String> arguments = pci.getArguments();
             String intoVariable = pci.getIntoVariable();
             
-            // Check if the plugin exists
+            // Reuse the call site built on an earlier run unless a plugin was registered since
             PluginRegistry registry = PluginRegistry.getInstance();
-            if (!registry.hasPlugin(pluginAlias)) {
-                throw new TalkRuntimeException("Plugin '" + pluginAlias + "' not found", pci.getLineNumber());
-            }
-            
-            // Convert arguments by resolving any variable references
-            Object[] args = new Object[arguments.size()];
-            for (int i = 0; i < arguments.size(); i++) {
-                args[i] = resolver.resolve(arguments.get(i));
+            long registryVersion = registry.getVersion();
+            PluginCallSite callSite = pci.getCallSite();
+            Object[] args;
+            try {
+                if (callSite == null || callSite.getRegistryVersion() != registryVersion) {
+                    PluginRegistry.Entry entry = registry.lookup(pci.getNormalizedAlias());
+                    if (entry == null) {
+                        throw new TalkRuntimeException("Plugin '" + pluginAlias + "' not found", pci.getLineNumber());
+                    }
+                    callSite = PluginCallSite.create(pluginAlias, entry, registryVersion, arguments, resolver::resolve);
+                    pci.setCallSite(callSite);
+                }
+                
+                // Resolve variable references; literal arguments were converted when the call site was built
+                args = callSite.bindArguments(resolver::resolve);
+            } catch (IllegalArgumentException e) {
+                throw new TalkValueException(e.getMessage(), pci.getLineNumber());
             }
             
             try {
+                flushAllOutput();
                 // Execute the plugin
-                Object result = registry.execute(pluginAlias, args);
+                Object result = callSite.execute(args);
                 
                 // Store result if there's an 'into' variable
                 if (intoVariable != null) {
@@ -608,6 +702,103 @@ public class InstructionExecutor {
                 throw new TalkRuntimeException("Error executing plugin '" + pluginAlias + "': " + e.getMessage(), pci.getLineNumber(), e);
             }
         } 
+        else if (instruction instanceof CreateChannelInstruction) {
+            CreateChannelInstruction cci = (CreateChannelInstruction) instruction;
+            Object size = resolver.resolve(cci.getSizeExpression());
+            int capacity;
+            try {
+                capacity = size instanceof Number ? ((Number) size).intValue() : Integer.parseInt(size.toString());
+            } catch (NumberFormatException e) {
+                throw new TalkValueException("Invalid channel size: " + size, cci.getLineNumber());
+            }
+            context.setVariable(cci.getVariableName(), new ChannelValue(capacity));
+        } else if (instruction instanceof SendInstruction) {
+            SendInstruction si = (SendInstruction) instruction;
+            ChannelValue channel = getChannel(si.getChannelName(), si.getLineNumber());
+            Object value = resolver.resolve(si.getValueExpression());
+            try {
+                channel.send(value);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TalkRuntimeException("Interrupted while sending to '" + si.getChannelName() + "'", si.getLineNumber(), e);
+            }
+        } else if (instruction instanceof ReceiveInstruction) {
+            ReceiveInstruction ri = (ReceiveInstruction) instruction;
+            ChannelValue channel = getChannel(ri.getChannelName(), ri.getLineNumber());
+            Object value;
+            try {
+                value = channel.receive();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TalkRuntimeException("Interrupted while receiving from '" + ri.getChannelName() + "'", ri.getLineNumber(), e);
+            }
+            if (value == null) {
+                throw new TalkRuntimeException("Channel '" + ri.getChannelName() + "' is closed", ri.getLineNumber());
+            }
+            context.setVariable(ri.getVariableName(), value);
+        } else if (instruction instanceof CloseChannelInstruction) {
+            CloseChannelInstruction cci = (CloseChannelInstruction) instruction;
+            getChannel(cci.getChannelName(), cci.getLineNumber()).close();
+        } else if (instruction instanceof StartWorkersInstruction) {
+            StartWorkersInstruction swi = (StartWorkersInstruction) instruction;
+            if (!context.hasFunction(swi.getFunctionName())) {
+                throw new TalkSemanticException("Function '" + swi.getFunctionName() + "' is not defined", swi.getLineNumber());
+            }
+            Object countObj = resolver.resolve(swi.getCountExpression());
+            int count;
+            try {
+                count = countObj instanceof Number ? ((Number) countObj).intValue() : Integer.parseInt(countObj.toString());
+            } catch (NumberFormatException e) {
+                throw new TalkValueException("Invalid worker count: " + countObj, swi.getLineNumber());
+            }
+            if (count < 1) {
+                throw new TalkValueException("Worker count must be at least 1", swi.getLineNumber());
+            }
+            FunctionCallInstruction call = new FunctionCallInstruction(swi.getFunctionName(), swi.getArguments(), swi.getLineNumber());
+            WorkerPool pool = context.getWorkerPool();
+            for (int i = 1; i <= count; i++) {
+                // Each worker gets its own context and executor; neither is thread-safe
+                RuntimeContext workerContext = context.forkWorker();
+                workerContext.setVariable("worker", i);
+                InstructionExecutor workerExecutor = new InstructionExecutor(workerContext, System.in, fileSystem, logger);
+                workerExecutor.setPluginBatching(pluginBatching);
+                workerExecutor.outputChannels = outputChannels;
+                workerExecutor.moduleLoader = getModuleLoader();
+                workerExecutor.importedModules.addAll(importedModules);
+                pool.start(() -> workerExecutor.execute(call));
+            }
+        } else if (instruction instanceof WaitForWorkersInstruction) {
+            context.getWorkerPool().awaitAll();
+        } else if (instruction instanceof IncreaseSharedCounterInstruction) {
+            IncreaseSharedCounterInstruction isci = (IncreaseSharedCounterInstruction) instruction;
+            long amount = resolveAmount(isci.getAmountExpression(), isci.getLineNumber());
+            SharedCounters.getInstance().increase(isci.getCounterName(), amount);
+        } else if (instruction instanceof AddToSharedCountsInstruction) {
+            AddToSharedCountsInstruction atsci = (AddToSharedCountsInstruction) instruction;
+            long amount = resolveAmount(atsci.getAmountExpression(), atsci.getLineNumber());
+            Object key = resolver.resolve(atsci.getKeyExpression());
+            if (key == null) {
+                throw new TalkValueException("Shared counter key cannot be empty", atsci.getLineNumber());
+            }
+            SharedCounters.getInstance().increase(atsci.getCountsName(), key.toString(), amount);
+        } else if (instruction instanceof AddToListInstruction) {
+            AddToListInstruction atli = (AddToListInstruction) instruction;
+            Object item = resolveListItem(atli.getValueExpression(), atli.getListName(), atli.getLineNumber());
+            if (!context.hasVariable(atli.getListName())) {
+                // Adding to a list that doesn't exist yet starts it
+                context.setVariable(atli.getListName(), new ListValue());
+            }
+            listVariable(atli.getListName(), atli.getLineNumber()).add(item);
+        } else if (instruction instanceof RemoveListItemInstruction) {
+            RemoveListItemInstruction rli = (RemoveListItemInstruction) instruction;
+            ListValue list = listVariable(rli.getListName(), rli.getLineNumber());
+            list.remove(resolveListIndex(rli.getIndexExpression(), list, rli.getListName(), rli.getLineNumber()));
+        } else if (instruction instanceof SetListItemInstruction) {
+            SetListItemInstruction sli = (SetListItemInstruction) instruction;
+            ListValue list = listVariable(sli.getListName(), sli.getLineNumber());
+            int index = resolveListIndex(sli.getIndexExpression(), list, sli.getListName(), sli.getLineNumber());
+            list.set(index, resolveListItem(sli.getValueExpression(), sli.getListName(), sli.getLineNumber()));
+        }
         else if (InstructionExecutorTestExtensions.isTestInstruction(instruction)) {
             // Handle test framework instructions using the extension methods
             InstructionExecutorTestExtensions.executeTestInstruction(this, context, resolver, instruction);
@@ -615,4 +806,399 @@ public class InstructionExecutor {
             throw new TalkRuntimeException("Instruction type not supported in this phase");
         }
     }
+
+    // Lists are values: a list stored in another variable is a copy that shares its items until either changes
+    private static Object storedValue(Object value) {
+        return value instanceof ListValue ? ((ListValue) value).copy() : value;
+    }
+
+    // Value of "variable x equals ..." and "set x to ...". "set b to a" parses as a list
+    // literal with the single item a; if a names a list, b becomes a copy of that list.
+    private Object assignedValue(Object value) {
+        if (value instanceof ListValue) {
+            ListValue literal = (ListValue) value;
+            if (literal.size() == 1 && context.getVariable(literal.get(1)) instanceof ListValue) {
+                return ((ListValue) context.getVariable(literal.get(1))).copy();
+            }
+            // Copied so changes never reach the parsed instruction, which may run again
+            return literal.copy();
+        }
+        return value;
+    }
+
+    private ListValue listVariable(String listName, int lineNumber) {
+        Object listObj = context.getVariable(listName);
+        if (!(listObj instanceof ListValue)) {
+            throw new TalkValueException("Variable '" + listName + "' is not a list", lineNumber);
+        }
+        return (ListValue) listObj;
+    }
+
+    private Object resolveListItem(String expression, String listName, int lineNumber) {
+        Object item = resolver.resolve(expression);
+        if (item == null) {
+            throw new TalkValueException("Cannot put an empty value in list '" + listName + "'", lineNumber);
+        }
+        if (item instanceof ListValue) {
+            throw new TalkValueException("Lists cannot contain other lists", lineNumber);
+        }
+        return item;
+    }
+
+    private int resolveListIndex(String expression, ListValue list, String listName, int lineNumber) {
+        Object resolved = resolver.resolve(expression);
+        int index;
+        try {
+            index = resolved instanceof Number ? ((Number) resolved).intValue() : Integer.parseInt(String.valueOf(resolved).trim());
+        } catch (NumberFormatException e) {
+            throw new TalkValueException("Expected a whole number for list position, got: " + resolved, lineNumber);
+        }
+        if (index < 1 || index > list.size()) {
+            throw new TalkValueException("Index " + index + " out of bounds for list '" + listName + "'", lineNumber);
+        }
+        return index;
+    }
+
+    private long resolveAmount(String expression, int lineNumber) {
+        Object amount = resolver.resolve(expression);
+        if (amount instanceof Number) {
+            return ((Number) amount).longValue();
+        }
+        try {
+            return Long.parseLong(String.valueOf(amount).trim());
+        } catch (NumberFormatException e) {
+            throw new TalkValueException("Expected a whole number for counter amount, got: " + amount, lineNumber);
+        }
+    }
+
+    /**
+     * Enable or disable plugin batching. When enabled, a "repeat for each" loop whose
+     * body starts with a call to a BatchPluginHandler plugin, with arguments that are
+     * only literals, the loop item or its position, calls the plugin once for the whole
+     * list before running the rest of the body. The plugin then runs for every item
+     * before the body runs for the first one.
+     * @param pluginBatching true to enable batching
+     */
+    public void setPluginBatching(boolean pluginBatching) {
+        this.pluginBatching = pluginBatching;
+    }
+
+    /**
+     * Tell the executor which script it is running, so the script counts as
+     * imported and a module importing it is reported as an import cycle
+     * @param scriptPath The path of the script
+     */
+    public void setScriptPath(String scriptPath) {
+        try {
+            String canonical = fileSystem.canonicalPath(scriptPath);
+            importedModules.add(canonical);
+            importStack.push(canonical);
+        } catch (IOException e) {
+            throw new TalkRuntimeException("Cannot resolve script path '" + scriptPath + "'", e);
+        }
+    }
+
+    /**
+     * Run the script of a bundle: its modules are imported from the bundle,
+     * and the script counts as imported, as with setScriptPath
+     * @param bundle The bundle
+     */
+    public void useBundle(ScriptBundle bundle) {
+        getModuleLoader().useBundle(bundle);
+        importedModules.add(bundle.getEntry());
+        importStack.push(bundle.getEntry());
+    }
+
+    /**
+     * @return The loader that parses and caches imported modules for this run
+     */
+    public ModuleLoader getModuleLoader() {
+        if (moduleLoader == null) {
+            moduleLoader = new ModuleLoader(fileSystem);
+        }
+        return moduleLoader;
+    }
+
+    /**
+     * Buffer "write ... to file" and "append ... to file" output, keeping one writer
+     * open per file until the script finishes. Buffered text is written out when
+     * the buffer fills up, before the file is read, copied or imported, and by finish().
+     * @param bufferSize Characters buffered per file, or 0 to write every line through
+     */
+    public void setWriteBuffering(int bufferSize) {
+        this.outputChannels = bufferSize > 0 ? new OutputChannelManager(fileSystem, bufferSize) : null;
+    }
+
+    /**
+     * Completes a script run: waits for any workers that are still running,
+     * then writes out and closes any buffered files.
+     */
+    public void finish() {
+        if (context.hasWorkers()) {
+            context.getWorkerPool().awaitAll();
+        }
+        closeOutputChannels();
+    }
+
+    /**
+     * Write out and close any buffered files without waiting for workers.
+     * Used when a script stops with an error, so lines written before the error are kept.
+     */
+    public void closeOutputChannels() {
+        if (outputChannels == null) {
+            return;
+        }
+        try {
+            outputChannels.close();
+        } catch (IOException e) {
+            throw new TalkRuntimeException("Failed to write buffered output to file", e);
+        }
+    }
+
+    private void flushOutput(String fileName) throws IOException {
+        if (outputChannels != null) {
+            outputChannels.flush(fileName);
+        }
+    }
+
+    // Plugins and directory listings see the disk directly, so they must see everything written so far
+    private void flushAllOutput() throws IOException {
+        if (outputChannels != null) {
+            outputChannels.flushAll();
+        }
+    }
+
+    // Oldest first, ending with the module that closes the cycle
+    private String describeImportCycle(String modulePath) {
+        StringBuilder cycle = new StringBuilder();
+        Iterator<String> oldestFirst = importStack.descendingIterator();
+        boolean inCycle = false;
+        while (oldestFirst.hasNext()) {
+            String path = oldestFirst.next();
+            inCycle = inCycle || path.equals(modulePath);
+            if (inCycle) {
+                cycle.append(path).append(" -> ");
+            }
+        }
+        return cycle.append(modulePath).toString();
+    }
+
+    // For operations that replace or remove the file, so the open writer must go
+    private void closeOutput(String fileName) throws IOException {
+        if (outputChannels != null) {
+            outputChannels.close(fileName);
+        }
+    }
+
+    /**
+     * Run a loop body once per line of a file. Only one line is held in memory at a
+     * time, and the file is closed when the loop ends, however it ends.
+     */
+    private void executeFileLineIteration(RepeatInstruction ri) {
+        String fileName = resolveFileName(ri.getFileExpr());
+        try (BufferedReader reader = openLineReader(fileName, ri.getLineNumber())) {
+            String line;
+            int position = 0;
+            while ((line = readLine(reader, fileName, ri.getLineNumber())) != null) {
+                runIterationBody(ri, line, ++position);
+            }
+        } catch (IOException e) {
+            // Failing to close a file that was only read loses nothing
+        }
+    }
+
+    /**
+     * Run a loop body once per entry of a directory scan. Entries are read as the
+     * loop reaches them, and the directories are closed when the loop ends.
+     */
+    private void executeDirectoryIteration(RepeatInstruction ri) {
+        String directory = resolveFileName(ri.getDirectoryExpr());
+        DirectoryFilter filter = ri.getDirectoryFilter();
+        try {
+            flushAllOutput();
+        } catch (IOException e) {
+            throw new TalkRuntimeException("Failed to write buffered output before listing '" + directory + "'", ri.getLineNumber(), e);
+        }
+        try (DirectoryStream<DirectoryEntry> entries = fileSystem.openDirectoryStream(directory, filter)) {
+            int position = 0;
+            for (DirectoryEntry entry : entries) {
+                Map<String, Object> attributes = Collections.emptyMap();
+                if (filter.isWithAttributes()) {
+                    attributes = Map.of(
+                        ri.getItemVar() + "_size", entry.getSize(),
+                        ri.getItemVar() + "_modified", LocalDateTime.ofInstant(
+                            Instant.ofEpochMilli(entry.getLastModified()), ZoneId.systemDefault()).toString());
+                }
+                runIterationBody(ri, entry.getPath(), ++position, attributes, ri.getBody());
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            try {
+                logger.error("Failed to list directory '" + directory + "'", ri.getLineNumber());
+            } catch (IOException logEx) {
+                // Ignore logging errors
+            }
+            throw new TalkRuntimeException("Failed to list directory '" + directory + "'", ri.getLineNumber(),
+                e instanceof DirectoryIteratorException ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Run a loop body once per line of a mapped file, decoding each line as it is reached.
+     * Stops at the first line past the end rather than asking for the size, which would
+     * index the whole file before the first line runs.
+     */
+    private void executeMappedFileIteration(RepeatInstruction ri, MappedFileValue file) {
+        String line;
+        for (int position = 1; (line = file.getIfPresent(position)) != null; position++) {
+            runIterationBody(ri, line, position);
+        }
+    }
+
+    private void runIterationBody(RepeatInstruction ri, Object item, int position) {
+        runIterationBody(ri, item, position, Collections.emptyMap(), ri.getBody());
+    }
+
+    /**
+     * Run the body of a loop over items once, in a scope of its own holding the item,
+     * its 1-based position and _index, and any extra variables for this item
+     */
+    private void runIterationBody(RepeatInstruction ri, Object item, int position,
+                                  Map<String, Object> variables, List<Instruction> body) {
+        context.pushScope();
+        try {
+            context.setVariable(ri.getItemVar(), item);
+            context.setVariable("_index", position - 1);
+            context.setVariable("position", position);
+            for (Map.Entry<String, Object> variable : variables.entrySet()) {
+                context.setVariable(variable.getKey(), variable.getValue());
+            }
+            for (Instruction instr : body) {
+                if (instr instanceof AssignmentInstruction
+                        && "position".equals(((AssignmentInstruction) instr).getVariableName())) {
+                    throw new TalkSemanticException("Cannot reassign 'position' inside list iteration", instr.getLineNumber());
+                }
+                execute(instr);
+            }
+        } finally {
+            context.popScope();
+        }
+    }
+
+    // A quoted name is used as written; otherwise a variable of that name holds the path
+    private String resolveFileName(String fileExpr) {
+        if (fileExpr.length() >= 2 && (fileExpr.startsWith("\"") && fileExpr.endsWith("\"")
+                || fileExpr.startsWith("'") && fileExpr.endsWith("'"))) {
+            return fileExpr.substring(1, fileExpr.length() - 1);
+        }
+        Object value = context.getVariable(fileExpr);
+        return value != null ? value.toString() : fileExpr;
+    }
+
+    private BufferedReader openLineReader(String fileName, int lineNumber) {
+        try {
+            flushOutput(fileName);
+            return fileSystem.openLineReader(fileName);
+        } catch (IOException e) {
+            try {
+                logger.error("Failed to read file '" + fileName + "'", lineNumber);
+            } catch (IOException logEx) {
+                // Ignore logging errors
+            }
+            throw new TalkRuntimeException("Failed to read file '" + fileName + "'", lineNumber, e);
+        }
+    }
+
+    private String readLine(BufferedReader reader, String fileName, int lineNumber) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new TalkRuntimeException("Failed to read file '" + fileName + "'", lineNumber, e);
+        }
+    }
+
+    private ChannelValue getChannel(String name, int lineNumber) {
+        Object value = context.getVariable(name);
+        if (!(value instanceof ChannelValue)) {
+            throw new TalkValueException("Variable '" + name + "' is not a channel", lineNumber);
+        }
+        return (ChannelValue) value;
+    }
+
+    /**
+     * Run a list iteration whose first body instruction is a batchable plugin call.
+     * @return false, without running anything, if the loop cannot be batched
+     */
+    private boolean executeBatchedIteration(RepeatInstruction ri, List<Object> items) {
+        List<Instruction> body = ri.getBody();
+        if (body.isEmpty() || items.size() == 0 || !(body.get(0) instanceof PluginCallInstruction)) {
+            return false;
+        }
+        PluginCallInstruction pci = (PluginCallInstruction) body.get(0);
+        PluginRegistry registry = PluginRegistry.getInstance();
+        long registryVersion = registry.getVersion();
+        PluginRegistry.Entry entry = registry.lookup(pci.getNormalizedAlias());
+        if (entry == null || !(entry.getHandler() instanceof BatchPluginHandler)) {
+            return false;
+        }
+        // Only arguments that are the same for every iteration, or the loop item itself, can be collected up front
+        for (String argument : pci.getArguments()) {
+            String arg = argument.trim();
+            if (!arg.equals(ri.getItemVar()) && !"position".equals(arg) && !PluginCallSite.isLiteral(arg)) {
+                return false;
+            }
+        }
+
+        List<Object> results;
+        try {
+            PluginCallSite callSite = PluginCallSite.create(pci.getPluginAlias(), entry, registryVersion, pci.getArguments(), resolver::resolve);
+            List<Object[]> argumentSets = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                Object item = items.get(i);
+                int position = i + 1;
+                argumentSets.add(callSite.bindArguments(expr -> {
+                    String arg = expr.trim();
+                    if (arg.equals(ri.getItemVar())) {
+                        return item;
+                    }
+                    return "position".equals(arg) ? position : resolver.resolve(arg);
+                }));
+            }
+            flushAllOutput();
+            results = entry.executeBatch(argumentSets);
+        } catch (IllegalArgumentException e) {
+            throw new TalkValueException(e.getMessage(), pci.getLineNumber());
+        } catch (Exception e) {
+            throw new TalkRuntimeException("Error executing plugin '" + pci.getPluginAlias() + "': " + e.getMessage(), pci.getLineNumber(), e);
+        }
+        if (results == null || results.size() != items.size()) {
+            throw new TalkRuntimeException("Plugin '" + pci.getPluginAlias() + "' returned " + (results == null ? 0 : results.size())
+                + " batch results for " + items.size() + " items", pci.getLineNumber());
+        }
+
+        List<Instruction> rest = body.subList(1, body.size());
+        for (int i = 0; i < items.size(); i++) {
+            // singletonMap, since a plugin may return null
+            Map<String, Object> into = pci.getIntoVariable() == null ? Collections.emptyMap()
+                : Collections.singletonMap(pci.getIntoVariable(), results.get(i));
+            runIterationBody(ri, items.get(i), i + 1, into, rest);
+        }
+        return true;
+    }
+
+    private void executeChannelIteration(RepeatInstruction ri, ChannelValue channel) {
+        int position = 0;
+        while (true) {
+            Object item;
+            try {
+                item = channel.receive();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TalkRuntimeException("Interrupted while receiving from '" + ri.getListVar() + "'", ri.getLineNumber(), e);
+            }
+            if (item == null) {
+                return;
+            }
+            runIterationBody(ri, item, ++position);
+        }
+    }
 }
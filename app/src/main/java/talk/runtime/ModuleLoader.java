@@ -0,0 +1,264 @@
+package talk.runtime;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import talk.Parser;
+import talk.core.Instruction;
+import talk.core.Tokenizer;
+import talk.io.FileSystem;
+
+/**
+ * Finds, parses and caches the modules a script imports.
+ *
+ * Parsed modules are kept for the life of the process, keyed by canonical
+ * path, so "lib.talk" and "./lib.talk" share one entry. A process that runs
+ * scripts again and again, like --watch, drops the modules its last run no
+ * longer imported with retainOnly. A cached module is
+ * reused while the file's modification time is unchanged; when the time is
+ * unknown or has changed, the file is read and hashed, and only parsed again
+ * if its content changed.
+ *
+ * One loader is shared by an executor and its workers and records, per
+ * module, how often it was imported and how long loading it took.
+ *
+ * When running a bundle, modules in the bundle are taken from it without
+ * touching the file system.
+ */
+public class ModuleLoader {
+    private static final Map<String, CachedModule> CACHE = new ConcurrentHashMap<>();
+
+    private static final class CachedModule {
+        final List<Instruction> instructions;
+        final String hash;
+        final long lastModified;
+
+        CachedModule(List<Instruction> instructions, String hash, long lastModified) {
+            this.instructions = instructions;
+            this.hash = hash;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Import counts and load times of one module
+     */
+    public static final class Stats {
+        private long imports;
+        private long skipped;
+        private long parses;
+        private long cacheHits;
+        private long loadNanos;
+        private long precompileParses;
+        private long precompileNanos;
+
+        /** @return Times an import statement named the module */
+        public synchronized long getImports() { return imports; }
+        /** @return Imports skipped because the module had already been imported */
+        public synchronized long getSkipped() { return skipped; }
+        /** @return Times the module was tokenized and parsed */
+        public synchronized long getParses() { return parses; }
+        /** @return Loads answered from the cache */
+        public synchronized long getCacheHits() { return cacheHits; }
+        /** @return Time spent finding, reading and parsing the module, not running it */
+        public synchronized long getLoadNanos() { return loadNanos; }
+        /** @return Times the module was parsed before the script started, whether or not it was imported later */
+        public synchronized long getPrecompileParses() { return precompileParses; }
+        /** @return Time spent reading and parsing the module before the script started */
+        public synchronized long getPrecompileNanos() { return precompileNanos; }
+    }
+
+    private final FileSystem fileSystem;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private volatile ScriptBundle bundle;
+
+    public ModuleLoader(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Take imported modules from a bundle before looking for files
+     * @param bundle The bundle being run
+     */
+    public void useBundle(ScriptBundle bundle) {
+        this.bundle = bundle;
+    }
+
+    /**
+     * Find the file an import statement names: the path as written, or with
+     * ".talk" added if that does not exist
+     * @param importPath The path in the import statement
+     * @return The canonical path of the module
+     * @throws IOException If neither file exists
+     */
+    public String resolve(String importPath) throws IOException {
+        ScriptBundle currentBundle = bundle;
+        String bundled = currentBundle != null ? currentBundle.resolve(importPath) : null;
+        if (bundled != null) {
+            return bundled;
+        }
+        if (fileSystem.fileExists(importPath)) {
+            return fileSystem.canonicalPath(importPath);
+        }
+        if (!importPath.endsWith(".talk") && fileSystem.fileExists(importPath + ".talk")) {
+            return fileSystem.canonicalPath(importPath + ".talk");
+        }
+        throw new IOException("Import file not found: " + importPath + (importPath.endsWith(".talk") ? "" : ".talk"));
+    }
+
+    /**
+     * Get the parsed instructions of a module, from the cache if it is unchanged.
+     * The returned list is shared and must not be modified.
+     * @param path The canonical path of the module
+     * @return The module's instructions
+     * @throws IOException If the file cannot be read
+     */
+    public List<Instruction> load(String path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * Get the parsed instructions of a module before the script starts, like load,
+     * but counted apart from the loads of imports that run
+     * @param path The canonical path of the module
+     * @return The module's instructions
+     * @throws IOException If the file cannot be read
+     */
+    public List<Instruction> precompile(String path) throws IOException {
+        return load(path, true);
+    }
+
+    private List<Instruction> load(String path, boolean precompiling) throws IOException {
+        long start = System.nanoTime();
+        Stats moduleStats = statsFor(path);
+        ScriptBundle currentBundle = bundle;
+        List<Instruction> bundled = currentBundle != null ? currentBundle.getModule(path) : null;
+        if (bundled != null) {
+            recordLoad(moduleStats, start, true, precompiling);
+            return bundled;
+        }
+        long lastModified = fileSystem.lastModified(path);
+        CachedModule cached = CACHE.get(path);
+        if (cached != null && lastModified != -1 && cached.lastModified == lastModified) {
+            recordLoad(moduleStats, start, true, precompiling);
+            return cached.instructions;
+        }
+
+        String content = fileSystem.readFile(path);
+        String hash = hash(content);
+        if (cached != null && cached.hash.equals(hash)) {
+            // Touched but not changed
+            CACHE.put(path, new CachedModule(cached.instructions, hash, lastModified));
+            recordLoad(moduleStats, start, true, precompiling);
+            return cached.instructions;
+        }
+        List<Instruction> instructions = Collections.unmodifiableList(parse(content));
+        CACHE.put(path, new CachedModule(instructions, hash, lastModified));
+        recordLoad(moduleStats, start, false, precompiling);
+        return instructions;
+    }
+
+    /**
+     * Tokenize and parse the text of a module
+     * @param content The module's text
+     * @return The module's instructions
+     */
+    public static List<Instruction> parse(String content) {
+        List<String> lines = new ArrayList<>(Arrays.asList(content.split("\n")));
+        List<Tokenizer.Token> tokens = new Tokenizer().tokenize(lines);
+        return new Parser(tokens).parse();
+    }
+
+    /**
+     * Count an import statement that named a module
+     * @param path The canonical path of the module
+     * @param skipped Whether the import was skipped because the module was already imported
+     */
+    public void recordImport(String path, boolean skipped) {
+        Stats moduleStats = statsFor(path);
+        synchronized (moduleStats) {
+            moduleStats.imports++;
+            if (skipped) {
+                moduleStats.skipped++;
+            }
+        }
+    }
+
+    /**
+     * @return Import counts and load times per canonical module path, sorted by path
+     */
+    public Map<String, Stats> getStats() {
+        return new TreeMap<>(stats);
+    }
+
+    /**
+     * Stop trusting the modification time of one cached module, e.g. because it is known to have changed.
+     * Its next load reads the file and parses it again only if its content changed.
+     * @param path The canonical path of the module
+     */
+    public static void invalidate(String path) {
+        CACHE.computeIfPresent(path, (key, cached) -> new CachedModule(cached.instructions, cached.hash, -1));
+    }
+
+    /**
+     * Forget every cached module except these, e.g. the ones a run imported, so that
+     * modules no longer imported don't stay in memory
+     * @param paths The canonical paths of the modules to keep
+     */
+    public static void retainOnly(Collection<String> paths) {
+        CACHE.keySet().retainAll(paths);
+    }
+
+    /**
+     * Forget every cached module, e.g. between tests
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private Stats statsFor(String path) {
+        return stats.computeIfAbsent(path, key -> new Stats());
+    }
+
+    private static void recordLoad(Stats moduleStats, long start, boolean cacheHit, boolean precompiling) {
+        long elapsed = System.nanoTime() - start;
+        synchronized (moduleStats) {
+            if (precompiling) {
+                moduleStats.precompileNanos += elapsed;
+                if (!cacheHit) {
+                    moduleStats.precompileParses++;
+                }
+                return;
+            }
+            moduleStats.loadNanos += elapsed;
+            if (cacheHit) {
+                moduleStats.cacheHits++;
+            } else {
+                moduleStats.parses++;
+            }
+        }
+    }
+
+    private static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
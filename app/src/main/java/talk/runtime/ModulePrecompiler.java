@@ -0,0 +1,162 @@
+package talk.runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import talk.core.Instruction;
+import talk.core.InstructionTree;
+import talk.instruction.ImportInstruction;
+
+/**
+ * Parses every module a script imports before the script starts.
+ *
+ * Starting from the script's instructions, each import statement, wherever
+ * it is nested, is resolved and its module parsed through the ModuleLoader,
+ * which caches it for the imports that run later. Modules are parsed on a
+ * fork-join pool as they are discovered, so modules that don't depend on each
+ * other are parsed at the same time.
+ *
+ * A module that cannot be found or parsed is left out, and the import reports
+ * the problem if it runs; it may be in a branch that never does. Import cycles
+ * are left for the same reason: the modules in them are parsed like any other,
+ * and the executor reports the cycle if the imports that close it run.
+ */
+public class ModulePrecompiler {
+    /**
+     * The modules a script imports, and which modules each one imports
+     */
+    public static final class ModuleGraph {
+        private final String root;
+        private final Map<String, List<String>> imports;
+        private final Map<String, String> failures;
+
+        ModuleGraph(String root, Map<String, List<String>> imports, Map<String, String> failures) {
+            this.root = root;
+            this.imports = imports;
+            this.failures = failures;
+        }
+
+        public String getRoot() {
+            return root;
+        }
+
+        /**
+         * @return The canonical path of every parsed module, not counting the root
+         */
+        public List<String> getModules() {
+            List<String> modules = new ArrayList<>(imports.keySet());
+            modules.remove(root);
+            Collections.sort(modules);
+            return modules;
+        }
+
+        /**
+         * @param module The canonical path of a module
+         * @return The modules it imports, in the order of its import statements
+         */
+        public List<String> getImports(String module) {
+            return imports.getOrDefault(module, Collections.emptyList());
+        }
+
+        /**
+         * @return Why modules were left out, by the path they were imported with
+         */
+        public Map<String, String> getFailures() {
+            return failures;
+        }
+    }
+
+    private final ModuleLoader loader;
+    private final ForkJoinPool pool;
+
+    public ModulePrecompiler(ModuleLoader loader) {
+        this(loader, ForkJoinPool.commonPool());
+    }
+
+    public ModulePrecompiler(ModuleLoader loader, ForkJoinPool pool) {
+        this.loader = loader;
+        this.pool = pool;
+    }
+
+    /**
+     * Parse every module the script imports, directly or through other modules
+     * @param rootPath The canonical path of the script
+     * @param rootInstructions The script's parsed instructions
+     * @return The import graph
+     */
+    public ModuleGraph precompile(String rootPath, List<Instruction> rootInstructions) {
+        Map<String, List<String>> imports = new ConcurrentHashMap<>();
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        Map<String, Boolean> seen = new ConcurrentHashMap<>();
+        seen.put(rootPath, Boolean.TRUE);
+        pool.invoke(new DiscoverTask(rootPath, rootInstructions, imports, failures, seen));
+
+        return new ModuleGraph(rootPath, imports, failures);
+    }
+
+    private final class DiscoverTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final List<Instruction> instructions;
+        private final Map<String, List<String>> imports;
+        private final Map<String, String> failures;
+        private final Map<String, Boolean> seen;
+
+        DiscoverTask(String path, List<Instruction> instructions, Map<String, List<String>> imports,
+                     Map<String, String> failures, Map<String, Boolean> seen) {
+            this.path = path;
+            this.instructions = instructions;
+            this.imports = imports;
+            this.failures = failures;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            List<Instruction> body = instructions;
+            if (body == null) {
+                try {
+                    body = loader.precompile(path);
+                } catch (IOException | RuntimeException e) {
+                    failures.put(path, String.valueOf(e.getMessage()));
+                    return;
+                }
+            }
+
+            List<String> importPaths = new ArrayList<>();
+            InstructionTree.forEach(body, instruction -> {
+                if (instruction instanceof ImportInstruction) {
+                    importPaths.add(((ImportInstruction) instruction).getFilePath());
+                }
+            });
+
+            List<String> modules = new ArrayList<>();
+            List<DiscoverTask> discovered = new ArrayList<>();
+            for (String importPath : importPaths) {
+                String module;
+                try {
+                    module = loader.resolve(importPath);
+                } catch (IOException e) {
+                    // The script may create the file before the import runs
+                    failures.put(importPath, String.valueOf(e.getMessage()));
+                    continue;
+                }
+                if (!modules.contains(module)) {
+                    modules.add(module);
+                }
+                if (seen.putIfAbsent(module, Boolean.TRUE) == null) {
+                    discovered.add(new DiscoverTask(module, null, imports, failures, seen));
+                }
+            }
+            imports.put(path, modules);
+            invokeAll(discovered);
+        }
+    }
+}
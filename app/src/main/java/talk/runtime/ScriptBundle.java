@@ -0,0 +1,186 @@
+package talk.runtime;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import talk.core.Instruction;
+
+/**
+ * A script and every module it imports, already parsed, in one file.
+ *
+ * Modules are stored under names relative to the script's directory, with a
+ * table from each path written in an import statement to the module it
+ * named, so running a bundle needs neither the module files nor the working
+ * directory they were imported from.
+ *
+ * The file starts with a magic number and format version, followed by the
+ * gzipped instructions in Java serialization form. Bundles are only read by
+ * the same version of talk that wrote them.
+ */
+public class ScriptBundle {
+    /** File extension of bundles */
+    public static final String EXTENSION = ".talkb";
+
+    private static final byte[] MAGIC = {'T', 'A', 'L', 'K', 'B'};
+    private static final int FORMAT_VERSION = 1;
+
+    private final String entry;
+    private final List<Instruction> instructions;
+    private final Map<String, List<Instruction>> modules;
+    private final Map<String, String> importPaths;
+
+    /**
+     * @param entry The name of the bundled script
+     * @param instructions The script's instructions
+     * @param modules The instructions of each imported module, by module name
+     * @param importPaths The module name for each path written in an import statement
+     */
+    public ScriptBundle(String entry, List<Instruction> instructions, Map<String, List<Instruction>> modules,
+                        Map<String, String> importPaths) {
+        this.entry = entry;
+        this.instructions = Collections.unmodifiableList(instructions);
+        this.modules = Collections.unmodifiableMap(new LinkedHashMap<>(modules));
+        this.importPaths = Collections.unmodifiableMap(new LinkedHashMap<>(importPaths));
+    }
+
+    public String getEntry() {
+        return entry;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return The instructions of each imported module, by module name
+     */
+    public Map<String, List<Instruction>> getModules() {
+        return modules;
+    }
+
+    /**
+     * @param importPath A path as written in an import statement
+     * @return The name of the bundled module it names, or null if it is not in the bundle
+     */
+    public String resolve(String importPath) {
+        return importPaths.get(importPath);
+    }
+
+    /**
+     * @param module A module name returned by resolve
+     * @return The module's instructions, or null if it is not in the bundle
+     */
+    public List<Instruction> getModule(String module) {
+        return modules.get(module);
+    }
+
+    /**
+     * Write the bundle; the stream is not closed
+     * @param out Where to write it
+     * @throws IOException If writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.write(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.flush();
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+        ObjectOutputStream body = new ObjectOutputStream(gzip);
+        body.writeUTF(entry);
+        body.writeObject(new ArrayList<>(instructions));
+        body.writeInt(modules.size());
+        for (Map.Entry<String, List<Instruction>> module : modules.entrySet()) {
+            body.writeUTF(module.getKey());
+            body.writeObject(new ArrayList<>(module.getValue()));
+        }
+        body.writeInt(importPaths.size());
+        for (Map.Entry<String, String> importPath : importPaths.entrySet()) {
+            body.writeUTF(importPath.getKey());
+            body.writeUTF(importPath.getValue());
+        }
+        body.flush();
+        gzip.finish();
+    }
+
+    /**
+     * Read a bundle written by write
+     * @param in Where to read it from; the stream is not closed
+     * @return The bundle
+     * @throws IOException If it cannot be read, is not a bundle, or was written by another version of talk
+     */
+    public static ScriptBundle read(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            header.readFully(magic);
+        } catch (IOException e) {
+            throw new IOException("Not a Talk bundle", e);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a Talk bundle");
+        }
+        int version = header.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Bundle format " + version + " is not supported; bundle the script again");
+        }
+
+        ObjectInputStream body = new ObjectInputStream(new GZIPInputStream(in, 64 * 1024));
+        body.setObjectInputFilter(ScriptBundle::checkClass);
+        try {
+            String entry = body.readUTF();
+            List<Instruction> instructions = readInstructions(body);
+            int moduleCount = body.readInt();
+            Map<String, List<Instruction>> modules = new LinkedHashMap<>();
+            for (int i = 0; i < moduleCount; i++) {
+                String name = body.readUTF();
+                modules.put(name, readInstructions(body));
+            }
+            int importPathCount = body.readInt();
+            Map<String, String> importPaths = new LinkedHashMap<>();
+            for (int i = 0; i < importPathCount; i++) {
+                importPaths.put(body.readUTF(), body.readUTF());
+            }
+            return new ScriptBundle(entry, instructions, modules, importPaths);
+        } catch (InvalidClassException e) {
+            throw new IOException("Bundle was made by a different version of talk or is damaged (" + e.getMessage() + "); bundle the script again", e);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Bundle is damaged: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Instruction> readInstructions(ObjectInputStream body) throws IOException, ClassNotFoundException {
+        return (List<Instruction>) body.readObject();
+    }
+
+    // Only instructions and the collections and values they hold may be deserialized
+    private static ObjectInputFilter.Status checkClass(ObjectInputFilter.FilterInfo info) {
+        Class<?> type = info.serialClass();
+        while (type != null && type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type == null || type.isPrimitive()) {
+            return ObjectInputFilter.Status.UNDECIDED;
+        }
+        String name = type.getName();
+        if (name.startsWith("talk.") || name.startsWith("java.lang.") || name.startsWith("java.util.")) {
+            return ObjectInputFilter.Status.ALLOWED;
+        }
+        return ObjectInputFilter.Status.REJECTED;
+    }
+}
@@ -0,0 +1,190 @@
+package talk.runtime;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import talk.core.Instruction;
+import talk.core.InstructionTree;
+import talk.exception.TalkRuntimeException;
+import talk.instruction.FunctionCallInstruction;
+import talk.instruction.FunctionDefinitionInstruction;
+import talk.instruction.ImportInstruction;
+import talk.instruction.StartWorkersInstruction;
+import talk.io.FileSystem;
+
+/**
+ * Builds a ScriptBundle from a script: every module it imports, directly or
+ * through other modules, is parsed and added, and functions that nothing
+ * calls are left out.
+ *
+ * A function is kept if a call to it, or a "start workers running" it, is
+ * reachable from code outside function definitions or from the body of
+ * another kept function. Only functions defined at the top level of the
+ * script or a module are left out; definitions nested in other blocks are
+ * always kept.
+ */
+public class ScriptBundler {
+    private final FileSystem fileSystem;
+    private final ModuleLoader loader;
+    private final List<String> removedFunctions = new ArrayList<>();
+    private int keptFunctions;
+
+    public ScriptBundler(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        this.loader = new ModuleLoader(fileSystem);
+    }
+
+    /**
+     * Bundle a script and its imports
+     * @param scriptPath The path of the script
+     * @return The bundle
+     * @throws IOException If the script or a module cannot be read
+     * @throws TalkRuntimeException If an import cannot be found
+     */
+    public ScriptBundle bundle(String scriptPath) throws IOException {
+        return bundle(scriptPath, loader.load(fileSystem.canonicalPath(scriptPath)));
+    }
+
+    /**
+     * Bundle a script that has already been parsed, and its imports
+     * @param scriptPath The path of the script
+     * @param rootInstructions The script's instructions
+     * @return The bundle
+     * @throws IOException If a module cannot be read
+     * @throws TalkRuntimeException If an import cannot be found
+     */
+    public ScriptBundle bundle(String scriptPath, List<Instruction> rootInstructions) throws IOException {
+        removedFunctions.clear();
+        keptFunctions = 0;
+        String root = fileSystem.canonicalPath(scriptPath);
+        ModulePrecompiler.ModuleGraph graph = new ModulePrecompiler(loader).precompile(root, rootInstructions);
+        if (!graph.getFailures().isEmpty()) {
+            Map.Entry<String, String> failure = graph.getFailures().entrySet().iterator().next();
+            throw new TalkRuntimeException("Cannot bundle '" + failure.getKey() + "': " + failure.getValue());
+        }
+
+        Path baseDir = Paths.get(root).getParent();
+        Map<String, String> names = new LinkedHashMap<>();
+        names.put(root, moduleName(baseDir, root));
+        Map<String, List<Instruction>> modules = new LinkedHashMap<>();
+        for (String module : graph.getModules()) {
+            names.put(module, moduleName(baseDir, module));
+            modules.put(module, loader.load(module));
+        }
+
+        // Import statements name modules relative to the working directory, so the same path means the same module everywhere
+        Map<String, String> importPaths = new LinkedHashMap<>();
+        List<List<Instruction>> all = new ArrayList<>(modules.values());
+        all.add(rootInstructions);
+        for (List<Instruction> instructions : all) {
+            InstructionTree.forEach(instructions, instruction -> {
+                if (instruction instanceof ImportInstruction) {
+                    String importPath = ((ImportInstruction) instruction).getFilePath();
+                    importPaths.computeIfAbsent(importPath, path -> {
+                        try {
+                            return names.get(loader.resolve(path));
+                        } catch (IOException e) {
+                            throw new TalkRuntimeException("Cannot bundle '" + path + "': " + e.getMessage(), instruction.getLineNumber(), e);
+                        }
+                    });
+                }
+            });
+        }
+
+        Set<String> called = calledFunctions(all);
+        Map<String, List<Instruction>> shakenModules = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Instruction>> module : modules.entrySet()) {
+            String name = names.get(module.getKey());
+            shakenModules.put(name, withoutUncalledFunctions(name, module.getValue(), called));
+        }
+        String entry = names.get(root);
+        return new ScriptBundle(entry, withoutUncalledFunctions(entry, rootInstructions, called), shakenModules, importPaths);
+    }
+
+    /**
+     * @return The functions left out of the last bundle, as "module: function"
+     */
+    public List<String> getRemovedFunctions() {
+        return removedFunctions;
+    }
+
+    /**
+     * @return The number of top-level functions kept in the last bundle
+     */
+    public int getKeptFunctions() {
+        return keptFunctions;
+    }
+
+    // Names of functions reachable from code that runs without being called
+    private static Set<String> calledFunctions(List<List<Instruction>> all) {
+        Map<String, List<FunctionDefinitionInstruction>> definitions = new LinkedHashMap<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (List<Instruction> instructions : all) {
+            for (Instruction instruction : instructions) {
+                if (instruction instanceof FunctionDefinitionInstruction) {
+                    FunctionDefinitionInstruction def = (FunctionDefinitionInstruction) instruction;
+                    definitions.computeIfAbsent(def.getFunctionName(), name -> new ArrayList<>()).add(def);
+                } else if (instruction != null) {
+                    collectCalls(List.of(instruction), pending);
+                }
+            }
+        }
+
+        Set<String> called = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String name = pending.pop();
+            if (!called.add(name)) {
+                continue;
+            }
+            for (FunctionDefinitionInstruction def : definitions.getOrDefault(name, List.of())) {
+                collectCalls(def.getBody(), pending);
+            }
+        }
+        return called;
+    }
+
+    private static void collectCalls(List<Instruction> instructions, Deque<String> calls) {
+        InstructionTree.forEach(instructions, instruction -> {
+            if (instruction instanceof FunctionCallInstruction) {
+                calls.push(((FunctionCallInstruction) instruction).getFunctionName());
+            } else if (instruction instanceof StartWorkersInstruction) {
+                calls.push(((StartWorkersInstruction) instruction).getFunctionName());
+            }
+        });
+    }
+
+    private List<Instruction> withoutUncalledFunctions(String module, List<Instruction> instructions, Set<String> called) {
+        List<Instruction> kept = new ArrayList<>(instructions.size());
+        for (Instruction instruction : instructions) {
+            if (instruction instanceof FunctionDefinitionInstruction) {
+                String name = ((FunctionDefinitionInstruction) instruction).getFunctionName();
+                if (!called.contains(name)) {
+                    removedFunctions.add(module + ": " + name);
+                    continue;
+                }
+                keptFunctions++;
+            }
+            kept.add(instruction);
+        }
+        return kept;
+    }
+
+    // Modules are named by their path relative to the script's directory, with "/" between names
+    private static String moduleName(Path baseDir, String module) {
+        Path path = Paths.get(module);
+        if (baseDir != null && Objects.equals(baseDir.getRoot(), path.getRoot())) {
+            path = baseDir.relativize(path);
+        }
+        return path.toString().replace('\\', '/');
+    }
+}
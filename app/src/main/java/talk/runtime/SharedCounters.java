@@ -0,0 +1,89 @@
+package talk.runtime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters shared by every script running in this JVM,
+ * whatever RuntimeContext it uses.
+ *
+ * Plain counters ("shared counter hits") and keyed counters
+ * ("key k in shared counts") are backed by LongAdder, which spreads
+ * concurrent updates over striped cells instead of retrying a single
+ * compare-and-set, so increments never lock and scale with the number of threads.
+ *
+ * Memory visibility: an increment is visible to every read that starts after
+ * the increment has returned, on any thread. A read made while other threads
+ * are still incrementing is not an atomic snapshot; it may include only some of
+ * the in-flight updates. Once all updating threads have finished (for example
+ * after "wait for workers"), reads return the exact total.
+ */
+public class SharedCounters {
+    // Singleton instance
+    private static final SharedCounters instance = new SharedCounters();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> keyedCounters = new ConcurrentHashMap<>();
+
+    // Private constructor for singleton pattern
+    private SharedCounters() {}
+
+    /**
+     * Get the singleton instance of SharedCounters
+     * @return The SharedCounters instance
+     */
+    public static SharedCounters getInstance() {
+        return instance;
+    }
+
+    /**
+     * Add to a named counter, creating it at zero if needed
+     * @param name The counter name
+     * @param amount The amount to add (may be negative)
+     */
+    public void increase(String name, long amount) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * @param name The counter name
+     * @return The current total, or 0 if the counter was never increased
+     */
+    public long get(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Add to one key of a keyed counter, creating either if needed
+     * @param name The keyed counter name
+     * @param key The key to count
+     * @param amount The amount to add (may be negative)
+     */
+    public void increase(String name, String key, long amount) {
+        keyedCounters.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(key, k -> new LongAdder())
+            .add(amount);
+    }
+
+    /**
+     * @param name The keyed counter name
+     * @param key The key
+     * @return The current total for the key, or 0 if it was never increased
+     */
+    public long get(String name, String key) {
+        Map<String, LongAdder> keyed = keyedCounters.get(name);
+        LongAdder counter = keyed == null ? null : keyed.get(key);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Remove every counter. Intended for tests and host services that
+     * reuse the JVM between unrelated runs.
+     */
+    public void clear() {
+        counters.clear();
+        keyedCounters.clear();
+    }
+}
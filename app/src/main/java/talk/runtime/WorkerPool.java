@@ -0,0 +1,75 @@
+package talk.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import talk.exception.TalkException;
+import talk.exception.TalkRuntimeException;
+
+/**
+ * Runs Talk worker functions started with "start N workers running function f".
+ * Workers run on daemon threads so a script that never waits for them
+ * cannot keep the JVM alive.
+ */
+public class WorkerPool {
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "talk-worker-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Future<?>> running = new ArrayList<>();
+
+    /**
+     * Start a worker
+     * @param worker The work to run
+     */
+    public synchronized void start(Runnable worker) {
+        running.add(executor.submit(worker));
+    }
+
+    /**
+     * Wait for every started worker to finish.
+     * @throws TalkRuntimeException with the first worker failure, after all workers are done
+     */
+    public void awaitAll() {
+        List<Future<?>> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(running);
+            running.clear();
+        }
+
+        TalkException failure = null;
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TalkRuntimeException("Interrupted while waiting for workers", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause();
+                    failure = cause instanceof TalkException
+                        ? (TalkException) cause
+                        : new TalkRuntimeException("Worker failed: " + cause.getMessage(), cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return The number of workers started since the last wait
+     */
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+}
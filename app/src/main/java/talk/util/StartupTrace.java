@@ -0,0 +1,63 @@
+package talk.util;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects timings of the startup phases and of plugins loaded on first call,
+ * printed by "talk run script.talk --startup-trace".
+ */
+public class StartupTrace {
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static final Map<String, Long> pluginLoads = new LinkedHashMap<>();
+
+    /**
+     * Record how long a startup phase took
+     * @param phase A short description of the phase
+     * @param nanos The elapsed time in nanoseconds
+     */
+    public static synchronized void recordPhase(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Record how long loading a plugin class took on its first call
+     * @param alias The plugin alias
+     * @param nanos The elapsed time in nanoseconds
+     */
+    public static synchronized void recordPluginLoad(String alias, long nanos) {
+        pluginLoads.put(alias, nanos);
+    }
+
+    /**
+     * Print the collected timings
+     * @param out Where to print the report
+     * @param deferredCount Number of configured plugins that were never called, and so never loaded
+     */
+    public static synchronized void printReport(PrintStream out, int deferredCount) {
+        out.println("Startup trace:");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            out.println(String.format("  %-36s %8.2f ms", phase.getKey(), toMillis(phase.getValue())));
+        }
+        if (!pluginLoads.isEmpty()) {
+            out.println("Plugins loaded on first call:");
+            for (Map.Entry<String, Long> load : pluginLoads.entrySet()) {
+                out.println(String.format("  %-36s %8.2f ms", load.getKey(), toMillis(load.getValue())));
+            }
+        }
+        out.println("Configured plugins never called (not loaded): " + deferredCount);
+    }
+
+    /**
+     * Clear all recorded timings
+     */
+    public static synchronized void reset() {
+        phases.clear();
+        pluginLoads.clear();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,138 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import talk.io.AsyncLogger;
+import talk.io.InMemoryFileSystem;
+import talk.io.AsyncLogger.OverflowPolicy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncLoggerTest {
+    private static final String NL = System.lineSeparator();
+
+    private static int countLines(String content) {
+        return content == null || content.isEmpty() ? 0 : content.split(NL).length;
+    }
+
+    @Test
+    void testAllMessagesAreWrittenInOrderOnClose() throws IOException {
+        MockFileSystem fileSystem = new MockFileSystem();
+        AsyncLogger logger = new AsyncLogger("test.log", false, false, fileSystem, 16, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 1000; i++) {
+            logger.log("message " + i, i);
+        }
+        logger.close();
+
+        String[] lines = fileSystem.getFiles().get("test.log").split(NL);
+        assertEquals(1000, lines.length);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(lines[i].endsWith("[INFO] message " + i + " (line " + i + ")"), lines[i]);
+        }
+        assertTrue(fileSystem.getOperations().size() < 1000, "Messages should be written in batches");
+        assertEquals(0, logger.getDroppedCount());
+    }
+
+    @Test
+    void testDropPolicyDropsWhenBufferIsFullButKeepsErrors() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockFileSystem fileSystem = new MockFileSystem() {
+            @Override
+            public void appendToFile(String fileName, String content) throws IOException {
+                writing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.appendToFile(fileName, content);
+            }
+        };
+        AsyncLogger logger = new AsyncLogger("test.log", false, false, fileSystem, 2, OverflowPolicy.DROP);
+
+        logger.log("first");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        // The flusher is stuck writing "first", so two messages fill the buffer and the rest are dropped
+        logger.log("second");
+        logger.log("third");
+        for (int i = 0; i < 10; i++) {
+            logger.log("dropped " + i);
+        }
+        assertEquals(10, logger.getDroppedCount());
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                // Release anyway
+            }
+            release.countDown();
+        });
+        releaser.start();
+        logger.error("kept");
+        logger.close();
+
+        String content = fileSystem.getFiles().get("test.log");
+        assertEquals(4, countLines(content));
+        assertFalse(content.contains("dropped"));
+        assertTrue(content.contains("[ERROR] kept"));
+    }
+
+    @Test
+    void testMessagesAfterCloseAreWrittenDirectly() throws IOException {
+        MockFileSystem fileSystem = new MockFileSystem();
+        AsyncLogger logger = new AsyncLogger("test.log", false, false, fileSystem, 16, OverflowPolicy.BLOCK);
+        logger.log("before");
+        logger.close();
+        logger.log("after");
+        assertEquals(2, countLines(fileSystem.getFiles().get("test.log")));
+    }
+
+    @Test
+    void testNoMessageIsLostWhileClosing() throws Exception {
+        InMemoryFileSystem fileSystem = new InMemoryFileSystem();
+        AsyncLogger logger = new AsyncLogger("test.log", false, false, fileSystem, 16, OverflowPolicy.BLOCK);
+        CountDownLatch started = new CountDownLatch(4);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 2000; i++) {
+                    try {
+                        logger.log("message " + i);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        started.await();
+        logger.close();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(8000, countLines(fileSystem.readFile("test.log")));
+    }
+
+    @Test
+    void testDebugMessagesNeedDebugEnabled() throws IOException {
+        MockFileSystem fileSystem = new MockFileSystem();
+        AsyncLogger logger = new AsyncLogger("test.log", false, false, fileSystem, 16, OverflowPolicy.BLOCK);
+        logger.debug("hidden");
+        logger.log("shown");
+        logger.close();
+        assertFalse(fileSystem.getFiles().get("test.log").contains("hidden"));
+    }
+
+    @Test
+    void testParseOverflowPolicy() {
+        assertEquals(OverflowPolicy.SAMPLE, OverflowPolicy.parse(" Sample "));
+        assertThrows(IllegalArgumentException.class, () -> OverflowPolicy.parse("discard"));
+    }
+}
@@ -0,0 +1,139 @@
+package talk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.expression.ListValue;
+import talk.instruction.PluginCallInstruction;
+import talk.instruction.RepeatInstruction;
+import talk.exception.TalkRuntimeException;
+import talk.plugins.BatchPluginHandler;
+import talk.plugins.CachePolicy;
+import talk.plugins.PluginBulkhead;
+import talk.plugins.PluginRegistry;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchPluginTest {
+
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private final List<Object> collected = new ArrayList<>();
+    private volatile long batchDelayMillis = 0;
+
+    @AfterEach
+    void tearDown() {
+        PluginRegistry.getInstance().unregister("batch shout");
+        PluginRegistry.getInstance().unregister("batch collect");
+    }
+
+    private void registerPlugins() {
+        PluginRegistry registry = PluginRegistry.getInstance();
+        registry.register("batch shout", new BatchPluginHandler() {
+            @Override
+            public Object execute(Object... args) {
+                singleCalls.incrementAndGet();
+                return args[0] + "!" + args[1];
+            }
+
+            @Override
+            public List<Object> executeBatch(List<Object[]> argumentSets) throws InterruptedException {
+                batchCalls.incrementAndGet();
+                Thread.sleep(batchDelayMillis);
+                List<Object> results = new ArrayList<>();
+                for (Object[] args : argumentSets) {
+                    results.add(args[0] + "!" + args[1]);
+                }
+                return results;
+            }
+        });
+        registry.register("batch collect", args -> {
+            collected.add(args[0]);
+            return null;
+        });
+    }
+
+    private List<Instruction> loopBody(String secondArgument) {
+        return Arrays.asList(
+            new PluginCallInstruction("batch shout", Arrays.asList("fruit", secondArgument), "loud", 2),
+            new PluginCallInstruction("batch collect", Arrays.asList("loud"), null, 3));
+    }
+
+    private RuntimeContext contextWithFruits() {
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("fruits", new ListValue(Arrays.asList("apple", "pear", "plum")));
+        return ctx;
+    }
+
+    @Test
+    void testLoopInvariantCallIsBatched() {
+        registerPlugins();
+        InstructionExecutor exec = new InstructionExecutor(contextWithFruits());
+        exec.setPluginBatching(true);
+        exec.execute(new RepeatInstruction("fruit", "fruits", loopBody("position"), 1));
+
+        assertEquals(1, batchCalls.get());
+        assertEquals(0, singleCalls.get());
+        assertEquals(Arrays.asList("apple!1", "pear!2", "plum!3"), collected);
+    }
+
+    @Test
+    void testBatchingIsOffByDefault() {
+        registerPlugins();
+        InstructionExecutor exec = new InstructionExecutor(contextWithFruits());
+        exec.execute(new RepeatInstruction("fruit", "fruits", loopBody("\"x\""), 1));
+
+        assertEquals(0, batchCalls.get());
+        assertEquals(3, singleCalls.get());
+        assertEquals(Arrays.asList("apple!x", "pear!x", "plum!x"), collected);
+    }
+
+    @Test
+    void testCallUsingOtherVariablesIsNotBatched() {
+        registerPlugins();
+        RuntimeContext ctx = contextWithFruits();
+        ctx.setVariable("suffix", "?");
+        InstructionExecutor exec = new InstructionExecutor(ctx);
+        exec.setPluginBatching(true);
+        exec.execute(new RepeatInstruction("fruit", "fruits", loopBody("suffix"), 1));
+
+        assertEquals(0, batchCalls.get());
+        assertEquals(3, singleCalls.get());
+        assertEquals(Arrays.asList("apple!?", "pear!?", "plum!?"), collected);
+    }
+
+    @Test
+    void testBatchedCallsUseTheResultCache() {
+        registerPlugins();
+        PluginRegistry.getInstance().setCachePolicy("batch shout", CachePolicy.pure());
+        InstructionExecutor exec = new InstructionExecutor(contextWithFruits());
+        exec.setPluginBatching(true);
+        exec.execute(new RepeatInstruction("fruit", "fruits", loopBody("position"), 1));
+        exec.execute(new RepeatInstruction("fruit", "fruits", loopBody("position"), 1));
+
+        assertEquals(1, batchCalls.get());
+        assertEquals(Arrays.asList("apple!1", "pear!2", "plum!3", "apple!1", "pear!2", "plum!3"), collected);
+    }
+
+    @Test
+    void testBatchedCallsRunWithinTheBulkhead() {
+        registerPlugins();
+        PluginRegistry.getInstance().setBulkhead("batch shout", new PluginBulkhead("batch shout", 1, 50, 0));
+        batchDelayMillis = 500;
+        InstructionExecutor exec = new InstructionExecutor(contextWithFruits());
+        exec.setPluginBatching(true);
+
+        TalkRuntimeException e = assertThrows(TalkRuntimeException.class,
+            () -> exec.execute(new RepeatInstruction("fruit", "fruits", loopBody("position"), 1)));
+        assertTrue(e.getMessage().contains("timed out"), e.getMessage());
+        assertEquals(1, PluginRegistry.getInstance().lookup("batch shout").getBulkhead().getTimeouts());
+    }
+}
@@ -0,0 +1,141 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import talk.io.CachingFileSystem;
+import talk.io.DefaultFileSystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingFileSystemTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Counts the reads that reach the disk
+    private static class CountingFileSystem extends DefaultFileSystem {
+        int reads;
+
+        @Override
+        public String readFile(String fileName) throws IOException {
+            reads++;
+            return super.readFile(fileName);
+        }
+    }
+
+    private final CountingFileSystem disk = new CountingFileSystem();
+
+    private String file(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file.toString();
+    }
+
+    @Test
+    void testRepeatedReadsAreAnsweredFromTheCache() throws IOException {
+        String config = file("config.txt", "a=1\r\nb=2\n");
+        CachingFileSystem cache = new CachingFileSystem(disk);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("a=1\r\nb=2\n", cache.readFile(config));
+        }
+        assertEquals(Arrays.asList("a=1", "b=2"), cache.readAllLines(tempDir.resolve(".").resolve("config.txt").toString()));
+
+        assertEquals(1, disk.reads);
+        assertEquals(5, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+        assertEquals(5 * 9, cache.getStats().getBytesSaved());
+        assertEquals(5 / 6.0, cache.getStats().getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testChangesThroughTheCacheAreSeen() throws IOException {
+        String data = file("data.txt", "one\n");
+        CachingFileSystem cache = new CachingFileSystem(disk);
+        cache.readFile(data);
+
+        cache.appendToFile(data, "two\n");
+        assertEquals("one\ntwo\n", cache.readFile(data));
+        cache.writeFile(data, "three\n");
+        assertEquals("three\n", cache.readFile(data));
+        cache.copyFile(file("other.txt", "four\n"), data);
+        assertEquals("four\n", cache.readFile(data));
+
+        try (Writer writer = cache.openAppendWriter(data)) {
+            cache.readFile(data);
+            writer.write("five\n");
+            writer.flush();
+            assertEquals("four\nfive\n", cache.readFile(data));
+        }
+
+        cache.deleteFile(data);
+        assertThrows(IOException.class, () -> cache.readFile(data));
+        assertEquals(0, cache.getStats().getHits());
+    }
+
+    @Test
+    void testChangesByOtherProgramsAreSeen() throws IOException {
+        String data = file("data.txt", "old!\n");
+        Files.setLastModifiedTime(Path.of(data), FileTime.fromMillis(1_000_000));
+        CachingFileSystem cache = new CachingFileSystem(disk);
+        cache.readFile(data);
+
+        // Same size, different time
+        Files.writeString(Path.of(data), "new!\n");
+        Files.setLastModifiedTime(Path.of(data), FileTime.fromMillis(2_000_000));
+        assertEquals("new!\n", cache.readFile(data));
+
+        // Same time, different size
+        Files.writeString(Path.of(data), "newer\n");
+        Files.setLastModifiedTime(Path.of(data), FileTime.fromMillis(2_000_000));
+        assertEquals("newer\n", cache.readFile(data));
+        assertEquals(3, disk.reads);
+    }
+
+    @Test
+    void testLeastRecentlyReadFilesAreEvicted() throws IOException {
+        CachingFileSystem cache = new CachingFileSystem(disk, 100);
+        String a = file("a.txt", "x".repeat(20));
+        String b = file("b.txt", "x".repeat(20));
+        String c = file("c.txt", "x".repeat(20));
+        String large = file("large.txt", "x".repeat(30));
+        cache.readFile(a);
+        cache.readFile(b);
+        cache.readFile(a);
+        cache.readFile(c);
+        cache.readFile(file("d.txt", "x".repeat(20)));
+        cache.readFile(file("e.txt", "x".repeat(20)));
+        cache.readFile(file("f.txt", "x".repeat(20)));
+        cache.readFile(large);
+
+        // b was read least recently; the large file is never cached
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(100, cache.getCachedBytes());
+        int reads = disk.reads;
+        cache.readFile(a);
+        cache.readFile(large);
+        cache.readFile(b);
+        assertEquals(reads + 2, disk.reads);
+    }
+
+    @Test
+    void testCopyingADirectoryForgetsTheFilesInIt() throws IOException {
+        String source = file("src/report.txt", "new\n");
+        String target = file("dest/report.txt", "old\n");
+        CachingFileSystem cache = new CachingFileSystem(disk);
+        cache.readFile(target);
+
+        cache.copyDirectory(Path.of(source).getParent().toString(), Path.of(target).getParent().toString(), null);
+        assertEquals("new\n", cache.readFile(target));
+        assertEquals(1, cache.getStats().getInvalidations());
+    }
+}
@@ -0,0 +1,187 @@
+package talk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.exception.TalkRuntimeException;
+import talk.exception.TalkSemanticException;
+import talk.expression.ChannelValue;
+import talk.instruction.AssignmentInstruction;
+import talk.instruction.CloseChannelInstruction;
+import talk.instruction.CreateChannelInstruction;
+import talk.instruction.FunctionDefinitionInstruction;
+import talk.instruction.PluginCallInstruction;
+import talk.instruction.ReceiveInstruction;
+import talk.instruction.RepeatInstruction;
+import talk.instruction.SendInstruction;
+import talk.instruction.StartWorkersInstruction;
+import talk.instruction.WaitForWorkersInstruction;
+import talk.plugins.PluginRegistry;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelValueTest {
+
+    @AfterEach
+    void tearDown() {
+        PluginRegistry.getInstance().unregister("collect item");
+    }
+
+    @Test
+    void testSendAndReceiveInOrder() throws Exception {
+        ChannelValue channel = new ChannelValue(10);
+        channel.send("a");
+        channel.send("b");
+        assertEquals(2, channel.size());
+        assertEquals("a", channel.receive());
+        assertEquals("b", channel.receive());
+    }
+
+    @Test
+    void testClosedChannelDrainsThenEnds() throws Exception {
+        ChannelValue channel = new ChannelValue(10);
+        channel.send("last");
+        channel.close();
+        assertEquals("last", channel.receive());
+        assertNull(channel.receive());
+        assertThrows(TalkRuntimeException.class, () -> channel.send("late"));
+    }
+
+    @Test
+    void testFullChannelBlocksProducer() throws Exception {
+        ChannelValue channel = new ChannelValue(1);
+        channel.send(1);
+        Thread producer = new Thread(() -> {
+            try {
+                channel.send(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive(), "Producer should wait while the channel is full");
+        assertEquals(1, channel.receive());
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertEquals(2, channel.receive());
+    }
+
+    @Test
+    void testCloseWakesBlockedSenderAndReceiver() throws Exception {
+        ChannelValue full = new ChannelValue(1);
+        full.send("waiting");
+        AtomicReference<Throwable> sendFailure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            try {
+                full.send("blocked");
+            } catch (Throwable t) {
+                sendFailure.set(t);
+            }
+        });
+        ChannelValue empty = new ChannelValue(1);
+        AtomicReference<Object> received = new AtomicReference<>("nothing yet");
+        Thread consumer = new Thread(() -> {
+            try {
+                received.set(empty.receive());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        consumer.start();
+        producer.join(100);
+        consumer.join(100);
+        assertTrue(producer.isAlive() && consumer.isAlive());
+
+        full.close();
+        empty.close();
+        producer.join(1000);
+        consumer.join(1000);
+        assertFalse(producer.isAlive());
+        assertFalse(consumer.isAlive());
+        assertTrue(sendFailure.get() instanceof TalkRuntimeException);
+        assertNull(received.get());
+        assertEquals("waiting", full.receive());
+    }
+
+    @Test
+    void testWorkersConsumeChannel() {
+        AtomicInteger sum = new AtomicInteger();
+        ConcurrentLinkedQueue<Object> workerIds = new ConcurrentLinkedQueue<>();
+        PluginRegistry.getInstance().register("collect item", (Object... args) -> {
+            sum.addAndGet(Integer.parseInt(args[0].toString()));
+            workerIds.add(args[1]);
+            return null;
+        });
+
+        // define consume
+        //     repeat for each item in ch
+        //         use plugin collect item with item and worker
+        List<Instruction> loopBody = Collections.singletonList(
+            new PluginCallInstruction("collect item", Arrays.asList("item", "worker"), null, 3));
+        List<Instruction> functionBody = Collections.singletonList(
+            new RepeatInstruction("item", "ch", loopBody, 2));
+
+        RuntimeContext ctx = new RuntimeContext();
+        InstructionExecutor exec = new InstructionExecutor(ctx);
+        exec.execute(new FunctionDefinitionInstruction("consume", Collections.emptyList(), functionBody, 1));
+        exec.execute(new CreateChannelInstruction("4", "ch", 4));
+        exec.execute(new StartWorkersInstruction("3", "consume", Collections.emptyList(), 5));
+        for (int i = 1; i <= 100; i++) {
+            exec.execute(new SendInstruction(String.valueOf(i), "ch", 6));
+        }
+        exec.execute(new CloseChannelInstruction("ch", 7));
+        exec.execute(new WaitForWorkersInstruction(8));
+
+        assertEquals(5050, sum.get());
+        assertEquals(100, workerIds.size());
+        assertTrue(workerIds.stream().allMatch(id -> id.equals(1) || id.equals(2) || id.equals(3)));
+    }
+
+    @Test
+    void testChannelLoopSetsIndexAndProtectsPosition() {
+        ConcurrentLinkedQueue<List<Object>> seen = new ConcurrentLinkedQueue<>();
+        PluginRegistry.getInstance().register("collect item", (Object... args) -> {
+            seen.add(Arrays.asList(args));
+            return null;
+        });
+        RuntimeContext ctx = new RuntimeContext();
+        InstructionExecutor exec = new InstructionExecutor(ctx);
+        exec.execute(new CreateChannelInstruction("4", "ch", 1));
+        exec.execute(new SendInstruction("\"a\"", "ch", 2));
+        exec.execute(new SendInstruction("\"b\"", "ch", 3));
+        exec.execute(new CloseChannelInstruction("ch", 4));
+        exec.execute(new RepeatInstruction("item", "ch", Collections.singletonList(
+            new PluginCallInstruction("collect item", Arrays.asList("item", "_index", "position"), null, 6)), 5));
+        assertEquals(Arrays.asList(Arrays.asList("a", 0, 1), Arrays.asList("b", 1, 2)), Arrays.asList(seen.toArray()));
+
+        exec.execute(new CreateChannelInstruction("1", "other", 7));
+        exec.execute(new SendInstruction("\"c\"", "other", 8));
+        RepeatInstruction reassigning = new RepeatInstruction("item", "other",
+            Collections.singletonList(new AssignmentInstruction("position", 5, 10)), 9);
+        assertThrows(TalkSemanticException.class, () -> exec.execute(reassigning));
+    }
+
+    @Test
+    void testReceiveFromClosedChannelFails() {
+        RuntimeContext ctx = new RuntimeContext();
+        InstructionExecutor exec = new InstructionExecutor(ctx);
+        exec.execute(new CreateChannelInstruction("2", "ch", 1));
+        exec.execute(new SendInstruction("\"hello\"", "ch", 2));
+        exec.execute(new CloseChannelInstruction("ch", 3));
+        exec.execute(new ReceiveInstruction("ch", "msg", 4));
+        assertEquals("hello", ctx.getVariable("msg"));
+        assertThrows(TalkRuntimeException.class, () -> exec.execute(new ReceiveInstruction("ch", "msg", 5)));
+    }
+}
@@ -0,0 +1,134 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.core.Tokenizer;
+import talk.exception.TalkRuntimeException;
+import talk.instruction.CopyDirectoryInstruction;
+import talk.instruction.CopyFileInstruction;
+import talk.io.CopyEngine;
+import talk.io.DefaultFileSystem;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CopyEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private InstructionExecutor executor(talk.io.FileSystem fileSystem) {
+        return new InstructionExecutor(new RuntimeContext(), new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void testLargeFileIsCopiedExactly() throws IOException {
+        Path source = tempDir.resolve("large.bin");
+        byte[] content = randomBytes((int) CopyEngine.TRANSFER_THRESHOLD * 3 + 17);
+        Files.write(source, content);
+        Path destination = tempDir.resolve("copy.bin");
+        Files.write(destination, randomBytes((int) CopyEngine.TRANSFER_THRESHOLD * 5));
+
+        assertEquals(content.length, CopyEngine.copyFile(source, destination));
+        assertArrayEquals(content, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void testCopyingAFileOntoItselfKeepsItsContent() throws IOException {
+        byte[] small = randomBytes(100);
+        byte[] large = randomBytes((int) CopyEngine.TRANSFER_THRESHOLD * 2);
+        Path smallFile = tempDir.resolve("small.bin");
+        Path largeFile = tempDir.resolve("large.bin");
+        Files.write(smallFile, small);
+        Files.write(largeFile, large);
+
+        assertEquals(0, CopyEngine.copyFile(smallFile, smallFile));
+        assertEquals(0, CopyEngine.copyFile(largeFile, tempDir.resolve("./large.bin")));
+        assertArrayEquals(small, Files.readAllBytes(smallFile));
+        assertArrayEquals(large, Files.readAllBytes(largeFile));
+    }
+
+    @Test
+    void testDirectoryTreeIsCopied() throws IOException {
+        Path source = tempDir.resolve("src");
+        Files.createDirectories(source.resolve("a/b"));
+        Files.createDirectories(source.resolve("empty"));
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(source.resolve("a/b/file" + i + ".txt"), "content " + i);
+        }
+        Files.write(source.resolve("big.bin"), randomBytes((int) CopyEngine.TRANSFER_THRESHOLD + 1));
+        Path destination = tempDir.resolve("dest");
+
+        List<CopyEngine.CopyStats> reports = new ArrayList<>();
+        CopyEngine engine = new CopyEngine(4, progress -> {
+            synchronized (reports) {
+                reports.add(progress);
+            }
+        }, 0);
+        CopyEngine.CopyStats stats = engine.copyDirectory(source, destination);
+
+        assertEquals(51, stats.getFiles());
+        assertEquals("content 42", Files.readString(destination.resolve("a/b/file42.txt")));
+        assertArrayEquals(Files.readAllBytes(source.resolve("big.bin")), Files.readAllBytes(destination.resolve("big.bin")));
+        assertTrue(Files.isDirectory(destination.resolve("empty")));
+        assertFalse(reports.isEmpty());
+        assertTrue(stats.toString().startsWith("51 files"), stats.toString());
+    }
+
+    @Test
+    void testCopyIntoItselfFails() throws IOException {
+        Path source = tempDir.resolve("src");
+        Files.createDirectories(source);
+        IOException e = assertThrows(IOException.class,
+            () -> new CopyEngine().copyDirectory(source, source.resolve("inner")));
+        assertTrue(e.getMessage().contains("into itself"));
+    }
+
+    @Test
+    void testParsesCopyInstructions() {
+        List<String> lines = Arrays.asList(
+            "copy file a.txt to b.txt",
+            "copy directory data to backup");
+        List<Instruction> instructions = new Parser(new Tokenizer().tokenize(lines)).parse();
+
+        assertTrue(instructions.get(0) instanceof CopyFileInstruction);
+        CopyDirectoryInstruction cdi = (CopyDirectoryInstruction) instructions.get(1);
+        assertEquals("data", cdi.getSource());
+        assertEquals("backup", cdi.getDestination());
+    }
+
+    @Test
+    void testExecutorCopiesDirectory() throws IOException {
+        Path source = tempDir.resolve("src");
+        Files.createDirectories(source.resolve("nested"));
+        Files.writeString(source.resolve("nested/x.txt"), "x");
+        Path destination = tempDir.resolve("dest");
+
+        executor(new DefaultFileSystem()).execute(new CopyDirectoryInstruction(source.toString(), destination.toString(), 1));
+        assertEquals("x", Files.readString(destination.resolve("nested/x.txt")));
+    }
+
+    @Test
+    void testFileSystemWithoutDirectoriesFails() {
+        InstructionExecutor exec = executor(new MockFileSystem());
+        assertThrows(TalkRuntimeException.class, () -> exec.execute(new CopyDirectoryInstruction("a", "b", 1)));
+    }
+}
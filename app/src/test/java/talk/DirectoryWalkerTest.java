@@ -0,0 +1,150 @@
+package talk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.core.Tokenizer;
+import talk.exception.TalkSyntaxException;
+import talk.instruction.RepeatInstruction;
+import talk.instruction.WriteInstruction;
+import talk.io.DefaultFileSystem;
+import talk.io.DirectoryEntry;
+import talk.io.DirectoryFilter;
+import talk.io.DirectoryWalker;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryWalkerTest {
+    private static final String NL = System.lineSeparator();
+
+    @TempDir
+    Path tempDir;
+
+    private Path root;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = tempDir.resolve("logs");
+        Files.createDirectories(root.resolve("2024/01"));
+        Files.writeString(root.resolve("app.log"), "12345");
+        Files.writeString(root.resolve("notes.txt"), "n");
+        Files.writeString(root.resolve("2024/jan.log"), "j");
+        Files.writeString(root.resolve("2024/01/day.log"), "d");
+    }
+
+    private List<String> walk(DirectoryFilter filter) throws IOException {
+        List<String> paths = new ArrayList<>();
+        try (DirectoryWalker walker = new DirectoryWalker(root, filter)) {
+            for (DirectoryEntry entry : walker) {
+                paths.add(entry.getRelativePath());
+            }
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    @Test
+    void testTopLevelOnlyByDefault() throws IOException {
+        assertEquals(Arrays.asList("2024", "app.log", "notes.txt"), walk(DirectoryFilter.all()));
+    }
+
+    @Test
+    void testGlobMatchesNamesAtEveryDepth() throws IOException {
+        DirectoryFilter filter = new DirectoryFilter("*.log", false, DirectoryFilter.UNLIMITED_DEPTH, false);
+        assertEquals(Arrays.asList("2024/01/day.log", "2024/jan.log", "app.log"), walk(filter));
+    }
+
+    @Test
+    void testDepthLimitsRecursion() throws IOException {
+        DirectoryFilter filter = new DirectoryFilter("*.log", false, 2, false);
+        assertEquals(Arrays.asList("2024/jan.log", "app.log"), walk(filter));
+    }
+
+    @Test
+    void testPatternWithSlashMatchesRelativePath() throws IOException {
+        DirectoryFilter glob = new DirectoryFilter("2024/*", false, DirectoryFilter.UNLIMITED_DEPTH, false);
+        assertEquals(Arrays.asList("2024/01", "2024/jan.log"), walk(glob));
+        DirectoryFilter regex = new DirectoryFilter("[a-z]+\\.(log|txt)", true, DirectoryFilter.TOP_LEVEL, false);
+        assertEquals(Arrays.asList("app.log", "notes.txt"), walk(regex));
+    }
+
+    @Test
+    void testAttributesAreReadWithEntries() throws IOException {
+        DirectoryFilter filter = new DirectoryFilter("app.log", false, DirectoryFilter.TOP_LEVEL, true);
+        try (DirectoryWalker walker = new DirectoryWalker(root, filter)) {
+            DirectoryEntry entry = walker.iterator().next();
+            assertEquals(5, entry.getSize());
+            assertEquals(Files.getLastModifiedTime(root.resolve("app.log")).toMillis(), entry.getLastModified());
+            assertFalse(entry.isDirectory());
+            assertEquals(root.resolve("app.log").toString(), entry.getPath());
+        }
+    }
+
+    @Test
+    void testInvalidRegexIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DirectoryFilter("(", true, 1, false));
+    }
+
+    @Test
+    void testParsesDirectoryLoop() {
+        List<String> lines = Arrays.asList(
+            "repeat for each f in directory \"my logs\" matching \"*.log\" recursively to depth 3 with attributes",
+            "    increase shared counter files by 1");
+        List<Instruction> instructions = new Parser(new Tokenizer().tokenize(lines)).parse();
+
+        RepeatInstruction ri = (RepeatInstruction) instructions.get(0);
+        assertEquals("\"my logs\"", ri.getDirectoryExpr());
+        assertEquals("*.log", ri.getDirectoryFilter().getPattern());
+        assertEquals(3, ri.getDirectoryFilter().getMaxDepth());
+        assertTrue(ri.getDirectoryFilter().isWithAttributes());
+        assertEquals(1, ri.getBody().size());
+
+        List<String> bad = Arrays.asList("repeat for each f in directory logs sideways", "    increase shared counter files by 1");
+        assertThrows(TalkSyntaxException.class, () -> new Parser(new Tokenizer().tokenize(bad)).parse());
+    }
+
+    @Test
+    void testLoopSeesEachEntryAndItsSize() throws IOException {
+        Path output = tempDir.resolve("out.txt");
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("dir", root.toString());
+        DirectoryFilter filter = new DirectoryFilter("*.txt", false, DirectoryFilter.UNLIMITED_DEPTH, true);
+        List<Instruction> body = Arrays.asList(
+            new WriteInstruction("f", output.toString(), 2),
+            new WriteInstruction("f_size", output.toString(), 3));
+        new InstructionExecutor(ctx, new ByteArrayInputStream(new byte[0]), new DefaultFileSystem(), new MockLogger())
+            .execute(RepeatInstruction.overDirectory("f", "dir", filter, body, 1));
+
+        assertEquals(root.resolve("notes.txt") + NL + "1" + NL, Files.readString(output));
+    }
+
+    @Test
+    void testMockFileSystemFiltersListedNames() throws IOException {
+        MockFileSystem fileSystem = new MockFileSystem() {
+            @Override
+            public String[] listDirectory(String directoryPath) {
+                return new String[] {"a.log", "b.txt"};
+            }
+        };
+        DirectoryFilter filter = new DirectoryFilter("*.log", false, DirectoryFilter.TOP_LEVEL, false);
+        try (DirectoryStream<DirectoryEntry> entries = fileSystem.openDirectoryStream("logs", filter)) {
+            List<String> paths = new ArrayList<>();
+            entries.forEach(entry -> paths.add(entry.getPath()));
+            assertEquals(Arrays.asList("logs/a.log"), paths);
+        }
+    }
+}
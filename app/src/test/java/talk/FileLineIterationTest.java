@@ -0,0 +1,108 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.core.Tokenizer;
+import talk.exception.TalkRuntimeException;
+import talk.instruction.AttemptInstruction;
+import talk.instruction.RepeatInstruction;
+import talk.instruction.WriteInstruction;
+import talk.io.DefaultFileSystem;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileLineIterationTest {
+    private static final String NL = System.lineSeparator();
+
+    @TempDir
+    Path tempDir;
+
+    private InstructionExecutor executor(RuntimeContext ctx, talk.io.FileSystem fileSystem) {
+        return new InstructionExecutor(ctx, new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+    }
+
+    @Test
+    void testParsesLineIteration() {
+        List<String> lines = Arrays.asList(
+            "repeat for each line in file \"data.log\"",
+            "    increase shared counter lines by 1");
+        List<Tokenizer.Token> tokens = new Tokenizer().tokenize(lines);
+        List<Instruction> instructions = new Parser(tokens).parse();
+
+        RepeatInstruction ri = (RepeatInstruction) instructions.get(0);
+        assertEquals("line", ri.getItemVar());
+        assertEquals("\"data.log\"", ri.getFileExpr());
+        assertNull(ri.getListVar());
+        assertEquals(1, ri.getBody().size());
+    }
+
+    @Test
+    void testEachLineAndPositionAreVisible() throws IOException {
+        Path input = tempDir.resolve("input.txt");
+        Files.writeString(input, "alpha\r\nbeta\ngamma");
+        Path output = tempDir.resolve("output.txt");
+
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("path", input.toString());
+        List<Instruction> body = Arrays.asList(
+            new WriteInstruction("position", output.toString(), 2),
+            new WriteInstruction("line", output.toString(), 3));
+        executor(ctx, new DefaultFileSystem()).execute(RepeatInstruction.overFileLines("line", "path", body, 1));
+
+        assertEquals("1" + NL + "alpha" + NL + "2" + NL + "beta" + NL + "3" + NL + "gamma" + NL, Files.readString(output));
+        assertNull(ctx.getVariable("line"));
+    }
+
+    @Test
+    void testFileIsClosedWhenBodyFailsInsideAttempt() {
+        boolean[] closed = {false};
+        MockFileSystem fileSystem = new MockFileSystem() {
+            @Override
+            public BufferedReader openLineReader(String fileName) {
+                return new BufferedReader(new StringReader("one\ntwo\n")) {
+                    @Override
+                    public void close() throws IOException {
+                        closed[0] = true;
+                        super.close();
+                    }
+                };
+            }
+        };
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("handled", "no");
+        Instruction failing = new Instruction() {
+            @Override
+            public int getLineNumber() {
+                return 2;
+            }
+        };
+        RepeatInstruction loop = RepeatInstruction.overFileLines("line", "'big.log'", Arrays.asList(failing), 1);
+        AttemptInstruction attempt = new AttemptInstruction(Arrays.asList(loop),
+            Arrays.asList(new talk.instruction.AssignmentInstruction("handled", "yes", 3)), 1);
+
+        executor(ctx, fileSystem).execute(attempt);
+
+        assertTrue(closed[0], "The file should be closed when the loop body fails");
+        assertEquals("yes", ctx.getVariable("handled"));
+    }
+
+    @Test
+    void testMissingFileFails() {
+        RuntimeContext ctx = new RuntimeContext();
+        RepeatInstruction loop = RepeatInstruction.overFileLines("line", "'missing.txt'", Arrays.asList(), 1);
+        assertThrows(TalkRuntimeException.class, () -> executor(ctx, new MockFileSystem()).execute(loop));
+    }
+}
@@ -0,0 +1,82 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import talk.io.FileWatcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    void testChangedWatchedFileIsReported() throws Exception {
+        Path main = file("main.talk", "set x to 1\n");
+        Path lib = file("lib/util.talk", "set y to 2\n");
+        try (FileWatcher watcher = new FileWatcher(100)) {
+            watcher.watch(Arrays.asList(main, lib));
+            Files.writeString(lib, "set y to 3\n");
+
+            assertEquals(Collections.singleton(lib), watcher.awaitChanges(10_000));
+        }
+    }
+
+    @Test
+    void testOtherFilesAreIgnored() throws Exception {
+        Path main = file("main.talk", "set x to 1\n");
+        try (FileWatcher watcher = new FileWatcher(50)) {
+            watcher.watch(Collections.singleton(main));
+            file("output.txt", "written by the script\n");
+
+            assertTrue(watcher.awaitChanges(500).isEmpty());
+        }
+    }
+
+    @Test
+    void testChangesInABurstAreReportedTogether() throws Exception {
+        Path main = file("main.talk", "set x to 1\n");
+        Path lib = file("lib.talk", "set y to 2\n");
+        try (FileWatcher watcher = new FileWatcher(1_000)) {
+            watcher.watch(Arrays.asList(main, lib));
+            Files.writeString(main, "set x to 2\n");
+            Files.writeString(main, "set x to 3\n");
+            Thread.sleep(100);
+            Files.delete(lib);
+            Files.writeString(lib, "set y to 4\n");
+
+            Set<Path> changed = watcher.awaitChanges(10_000);
+            assertEquals(Arrays.asList(lib, main), Arrays.asList(changed.toArray()));
+            assertTrue(watcher.awaitChanges(200).isEmpty());
+        }
+    }
+
+    @Test
+    void testFilesNoLongerWatchedAreIgnored() throws Exception {
+        Path main = file("main.talk", "set x to 1\n");
+        Path old = file("old/lib.talk", "set y to 2\n");
+        try (FileWatcher watcher = new FileWatcher(50)) {
+            watcher.watch(Arrays.asList(main, old));
+            watcher.watch(Collections.singleton(main));
+            Files.writeString(old, "set y to 3\n");
+
+            assertTrue(watcher.awaitChanges(500).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package talk;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import talk.expression.ListValue;
+import talk.plugins.examples.HttpPlugin;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpPluginTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private String baseUrl;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        HttpPlugin.setCacheDirectory(tempDir.resolve("cache"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverThreads);
+        server.createContext("/text", exchange -> respond(exchange, 200, "line one\r\nline two\n"));
+        server.createContext("/created", exchange -> respond(exchange, 201, "made"));
+        server.createContext("/missing", exchange -> respond(exchange, 404, "nope"));
+        server.createContext("/etag", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            respond(exchange, 200, "tagged body");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+        HttpPlugin.setCacheDirectory(null);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        fullResponses.incrementAndGet();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testGetKeepsLineEndings() throws Exception {
+        assertEquals("line one\r\nline two\n", HttpPlugin.get(baseUrl + "/text"));
+    }
+
+    @Test
+    void testAnySuccessStatusIsAccepted() throws Exception {
+        assertEquals("made", HttpPlugin.get(baseUrl + "/created"));
+        IOException e = assertThrows(IOException.class, () -> HttpPlugin.get(baseUrl + "/missing"));
+        assertTrue(e.getMessage().contains("404"));
+    }
+
+    @Test
+    void testConnectionIsReused() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            HttpPlugin.get(baseUrl + "/text");
+        }
+        assertEquals(1, clientPorts.size(), "Sequential requests should share one connection");
+    }
+
+    @Test
+    void testConditionalRequestIsAnsweredFromCache() throws Exception {
+        assertEquals("tagged body", HttpPlugin.get(baseUrl + "/etag"));
+        assertEquals("tagged body", HttpPlugin.get(baseUrl + "/etag"));
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModified.get());
+    }
+
+    @Test
+    void testDownloadStreamsToFileAndSkipsUnchangedFile() throws Exception {
+        Path target = tempDir.resolve("out/tagged.txt");
+        assertEquals(11, HttpPlugin.download(baseUrl + "/etag", target.toString()));
+        assertEquals("tagged body", Files.readString(target));
+
+        assertEquals(11, HttpPlugin.download(baseUrl + "/etag", target.toString()));
+        assertEquals(1, notModified.get());
+        assertEquals(1, Files.list(target.getParent()).count(), "No partial files should be left behind");
+    }
+
+    @Test
+    void testDownloadToAnotherFileIsNotAnsweredByTheFirstOnesCache() throws Exception {
+        Path first = tempDir.resolve("a.txt");
+        Path second = tempDir.resolve("b.txt");
+        Files.writeString(second, "unrelated");
+        HttpPlugin.download(baseUrl + "/etag", first.toString());
+
+        assertEquals(11, HttpPlugin.download(baseUrl + "/etag", second.toString()));
+        assertEquals("tagged body", Files.readString(second));
+        assertEquals(0, notModified.get());
+
+        // Each target now has its own entry, and a target changed since its download is fetched again
+        HttpPlugin.download(baseUrl + "/etag", first.toString());
+        assertEquals(1, notModified.get());
+        Files.writeString(second, "edited");
+        HttpPlugin.download(baseUrl + "/etag", second.toString());
+        assertEquals(1, notModified.get());
+        assertEquals("tagged body", Files.readString(second));
+    }
+
+    @Test
+    void testFailedDownloadKeepsExistingFile() throws Exception {
+        Path target = tempDir.resolve("kept.txt");
+        Files.writeString(target, "old");
+        assertThrows(IOException.class, () -> HttpPlugin.download(baseUrl + "/missing", target.toString()));
+        assertEquals("old", Files.readString(target));
+    }
+
+    @Test
+    void testFetchAllRunsConcurrentlyAndKeepsOrder() throws Exception {
+        CountDownLatch arrived = new CountDownLatch(3);
+        server.createContext("/slow", exchange -> {
+            arrived.countDown();
+            try {
+                // Only returns once all three requests are in flight at the same time
+                arrived.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, exchange.getRequestURI().getQuery());
+        });
+
+        ListValue urls = new ListValue(Arrays.asList(baseUrl + "/slow?a", baseUrl + "/slow?b", baseUrl + "/slow?c"));
+        ListValue bodies = HttpPlugin.fetchAll(urls);
+        assertEquals(Arrays.asList("a", "b", "c"), bodies.getItems());
+        assertEquals(0, arrived.getCount());
+    }
+}
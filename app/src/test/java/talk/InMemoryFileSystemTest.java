@@ -0,0 +1,178 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import talk.core.RuntimeContext;
+import talk.instruction.AppendToFileInstruction;
+import talk.instruction.ReadFileInstruction;
+import talk.io.DirectoryEntry;
+import talk.io.DirectoryFilter;
+import talk.io.InMemoryFileSystem;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryFileSystemTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryFileSystem fs = new InMemoryFileSystem();
+
+    @Test
+    void testFilesBehaveLikeFilesOnDisk() throws IOException {
+        fs.createDirectories("data/logs");
+        fs.writeFile("data/in.txt", "one\r\ntwo\n");
+        fs.appendToFile("/data/./in.txt", "three");
+
+        assertEquals("one\r\ntwo\nthree", fs.readFile("/data/logs/../in.txt"));
+        assertEquals(Arrays.asList("one", "two", "three"), fs.readAllLines("data/in.txt"));
+        assertEquals("/data/in.txt", fs.canonicalPath("./data/logs/../in.txt"));
+        assertEquals(14, fs.fileSize("data/in.txt"));
+        assertTrue(fs.fileExists("data"));
+        assertArrayEquals(new String[] {"in.txt", "logs"}, fs.listDirectory("data"));
+
+        assertThrows(IOException.class, () -> fs.writeFile("missing/out.txt", "x"));
+        assertThrows(IOException.class, () -> fs.readFile("data"));
+        assertThrows(IOException.class, () -> fs.readFile("data/none.txt"));
+        assertThrows(IOException.class, () -> fs.deleteFile("data"));
+
+        fs.deleteFile("data/none.txt");
+        fs.deleteFile("data/in.txt");
+        fs.deleteFile("data/logs");
+        assertArrayEquals(new String[0], fs.listDirectory("data"));
+        assertEquals(0, fs.getUsedBytes());
+        assertEquals(0, fs.getFileCount());
+    }
+
+    @Test
+    void testLargeAppendsAreReadBackInOrder() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        try (Writer writer = fs.openAppendWriter("big.txt")) {
+            for (int i = 0; i < 50_000; i++) {
+                String line = "line " + i + " é€\n";
+                writer.write(line);
+                expected.append(line);
+            }
+        }
+        fs.appendToFile("big.txt", "x".repeat(200_000));
+        expected.append("x".repeat(200_000));
+
+        assertEquals(expected.toString(), fs.readFile("big.txt"));
+        try (BufferedReader reader = fs.openLineReader("big.txt")) {
+            assertEquals("line 0 é€", reader.readLine());
+            for (int i = 1; i < 49_999; i++) {
+                reader.readLine();
+            }
+            assertEquals("line 49999 é€", reader.readLine());
+        }
+
+        fs.copyFile("big.txt", "copy.txt");
+        fs.appendToFile("big.txt", "more");
+        assertEquals(expected.toString(), fs.readFile("copy.txt"));
+        assertEquals(2 * expected.toString().getBytes("UTF-8").length + 4, fs.getUsedBytes());
+    }
+
+    @Test
+    void testLimitsAreEnforced() throws IOException {
+        InMemoryFileSystem limited = new InMemoryFileSystem(10, 2);
+        limited.writeFile("a.txt", "12345");
+        limited.appendToFile("a.txt", "678");
+        assertThrows(IOException.class, () -> limited.appendToFile("a.txt", "901"));
+        assertEquals("12345678", limited.readFile("a.txt"));
+
+        limited.writeFile("b.txt", "");
+        assertThrows(IOException.class, () -> limited.writeFile("c.txt", ""));
+        limited.deleteFile("a.txt");
+        limited.writeFile("c.txt", "0123456789");
+        assertEquals(10, limited.getUsedBytes());
+    }
+
+    @Test
+    void testDirectoriesCanBeCopiedAndScanned() throws IOException {
+        fs.createDirectories("src/sub");
+        fs.writeFile("src/a.log", "a");
+        fs.writeFile("src/sub/b.log", "bb");
+        fs.writeFile("src/sub/c.txt", "ccc");
+
+        assertEquals(3, fs.copyDirectory("src", "dest", null).getFiles());
+        assertEquals("bb", fs.readFile("dest/sub/b.log"));
+        assertThrows(IOException.class, () -> fs.copyDirectory("src", "src/sub/inner", null));
+
+        List<String> found = new ArrayList<>();
+        try (DirectoryStream<DirectoryEntry> entries = fs.openDirectoryStream("dest",
+                new DirectoryFilter("*.log", false, DirectoryFilter.UNLIMITED_DEPTH, true))) {
+            for (DirectoryEntry entry : entries) {
+                found.add(entry.getPath() + ":" + entry.getSize());
+            }
+        }
+        assertEquals(Arrays.asList("dest/a.log:1", "dest/sub/b.log:2"), found);
+    }
+
+    @Test
+    void testConcurrentAppendsAreNotLost() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String own = "worker" + t + ".txt";
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        fs.appendToFile("shared.txt", "x\n");
+                        fs.appendToFile(own, "y");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(4000, fs.readAllLines("shared.txt").size());
+        assertEquals(1000, fs.fileSize("worker3.txt"));
+        assertEquals(8000 + 4000, fs.getUsedBytes());
+    }
+
+    @Test
+    void testSnapshotIsLoadedFromDisk() throws IOException {
+        Files.createDirectories(tempDir.resolve("conf"));
+        Files.writeString(tempDir.resolve("conf").resolve("app.txt"), "mode=fast\n");
+        Files.writeString(tempDir.resolve("main.txt"), "hello");
+
+        fs.loadSnapshot(tempDir, "/");
+
+        assertEquals("mode=fast\n", fs.readFile("conf/app.txt"));
+        assertEquals("hello", fs.readFile("/main.txt"));
+        assertEquals(2, fs.getFileCount());
+    }
+
+    @Test
+    void testScriptRunsAgainstMemory() throws IOException {
+        RuntimeContext context = new RuntimeContext();
+        InstructionExecutor exec = new InstructionExecutor(context, new ByteArrayInputStream(new byte[0]), fs, new MockLogger());
+        exec.execute(new AppendToFileInstruction("\"first\"", "out.txt", 1));
+        exec.execute(new AppendToFileInstruction("\"second\"", "out.txt", 2));
+        exec.execute(new ReadFileInstruction("out.txt", "content", 3));
+
+        assertEquals("first" + System.lineSeparator() + "second" + System.lineSeparator(),
+            context.getVariable("content"));
+        assertFalse(Files.exists(Path.of("out.txt")));
+    }
+}
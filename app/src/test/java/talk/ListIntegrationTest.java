@@ -2,7 +2,10 @@ package talk;
 
 import org.junit.jupiter.api.*;
 
+import talk.Parser;
 import talk.core.Instruction;
+import talk.core.Tokenizer;
+import talk.exception.TalkValueException;
 import talk.core.RuntimeContext;
 import talk.expression.ExpressionResolver;
 import talk.expression.ListValue;
@@ -51,6 +54,36 @@ public class ListIntegrationTest {
         assertEquals(List.of(1,2,3), positions);
     }
 
+    @Test
+    void testIncludesChecksTheValueOfALoopVariable() {
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("words", new ListValue(List.of("apple", "pear", "apple", "7", "7")));
+        ctx.setVariable("seen", new ListValue());
+        ExpressionResolver resolver = new ExpressionResolver(ctx);
+        List<String> repeated = new ArrayList<>();
+        class DedupInstruction implements Instruction { public int getLineNumber() { return 2; } }
+        RepeatInstruction ri = new RepeatInstruction("word", "words", List.of(new DedupInstruction()), 1);
+        InstructionExecutor exec = new InstructionExecutor(ctx, dummyIn) {
+            @Override
+            public void execute(Instruction instruction) {
+                if (instruction instanceof DedupInstruction) {
+                    if ((Boolean) resolver.resolve("seen includes word")) {
+                        repeated.add((String) ctx.getVariable("word"));
+                    } else {
+                        ((ListValue) ctx.getVariable("seen")).add(ctx.getVariable("word"));
+                    }
+                } else {
+                    super.execute(instruction);
+                }
+            }
+        };
+        exec.execute(ri);
+        assertEquals(List.of("apple", "7"), repeated);
+        assertEquals(List.of("apple", "pear", "7"), ((ListValue) ctx.getVariable("seen")).getItems());
+        // Quoted text is never a variable
+        assertFalse((Boolean) resolver.resolve("seen includes \"word\""));
+    }
+
     @Test
     void testWriteIndexedOutputToFile() throws Exception {
         String fileName = "test_list_output.txt";
@@ -84,4 +117,64 @@ public class ListIntegrationTest {
         assertTrue((Boolean)resolver.resolve("colors includes green"));
         assertFalse((Boolean)resolver.resolve("colors includes yellow"));
     }
+
+    private static RuntimeContext run(String... lines) {
+        RuntimeContext ctx = new RuntimeContext();
+        InstructionExecutor exec = new InstructionExecutor(ctx, dummyIn);
+        List<Tokenizer.Token> tokens = new Tokenizer().tokenize(Arrays.asList(lines));
+        for (Instruction instr : new Parser(tokens).parse()) {
+            exec.execute(instr);
+        }
+        return ctx;
+    }
+
+    @Test
+    void testListsCanBeChangedInPlace() {
+        RuntimeContext ctx = run(
+            "variable fruits equals apple, banana and cherry",
+            "add \"green apple\" to fruits",
+            "remove item 2 from fruits",
+            "set item 1 in fruits to kiwi",
+            "add first to started");
+        assertEquals(List.of("kiwi", "cherry", "green apple"), ((ListValue) ctx.getVariable("fruits")).getItems());
+        assertEquals(List.of("first"), ((ListValue) ctx.getVariable("started")).getItems());
+    }
+
+    @Test
+    void testAssignedListIsACopy() {
+        RuntimeContext ctx = run(
+            "variable fruits equals apple and banana",
+            "set basket to fruits",
+            "add cherry to basket",
+            "set item 1 in fruits to kiwi");
+        assertEquals(List.of("kiwi", "banana"), ((ListValue) ctx.getVariable("fruits")).getItems());
+        assertEquals(List.of("apple", "banana", "cherry"), ((ListValue) ctx.getVariable("basket")).getItems());
+    }
+
+    @Test
+    void testChangingAListOutOfBoundsFails() {
+        assertThrows(TalkValueException.class, () -> run(
+            "variable fruits equals apple and banana",
+            "remove item 3 from fruits"));
+        assertThrows(TalkValueException.class, () -> run(
+            "set total to 1 plus 2",
+            "add 1 to total"));
+    }
+
+    @Test
+    void testListsOfNumbersGiveNumbers() {
+        RuntimeContext ctx = run(
+            "variable scores equals 4, 8 and 15",
+            "add 16 to scores",
+            "set doubled to 0");
+        List<Instruction> body = new Parser(new Tokenizer().tokenize(List.of("add score times 2 to doubled"))).parse();
+        new InstructionExecutor(ctx, dummyIn).execute(new RepeatInstruction("score", "scores", body, 6));
+        ListValue scores = (ListValue) ctx.getVariable("scores");
+        assertEquals(int.class, scores.getElementType());
+        assertEquals(List.of(4, 8, 15, 16), scores.getValues());
+        ExpressionResolver resolver = new ExpressionResolver(ctx);
+        assertEquals(4, resolver.resolve("item 1 in scores"));
+        assertTrue((Boolean) resolver.resolve("scores includes 15"));
+        assertEquals(List.of("0", "8", "16", "30", "32"), ((ListValue) ctx.getVariable("doubled")).getItems());
+    }
 }
@@ -69,4 +69,139 @@ public class ListValueTest {
         ListValue lv = new ListValue(List.of("x", "y"));
         assertEquals(List.of("x", "y").toString(), lv.toString());
     }
+
+    @Test
+    void testAddRemoveAndSet() {
+        ListValue lv = new ListValue();
+        for (int i = 1; i <= 100; i++) {
+            lv.add("item" + i);
+        }
+        assertEquals(100, lv.size());
+        assertEquals("item100", lv.get(100));
+
+        assertEquals("item1", lv.remove(1));
+        lv.set(1, "first");
+        assertEquals(99, lv.size());
+        assertEquals("first", lv.get(1));
+        assertEquals("item3", lv.get(2));
+        assertThrows(TalkValueException.class, () -> lv.remove(100));
+        assertThrows(TalkValueException.class, () -> lv.set(0, "x"));
+    }
+
+    @Test
+    void testCopiesDoNotSeeEachOthersChanges() {
+        ListValue original = new ListValue(List.of("a", "b"));
+        ListValue copy = original.copy();
+        List<String> snapshot = original.getItems();
+
+        original.add("c");
+        copy.set(1, "z");
+        ListValue second = copy.copy();
+        second.remove(2);
+
+        assertEquals(List.of("a", "b", "c"), original.getItems());
+        assertEquals(List.of("z", "b"), copy.getItems());
+        assertEquals(List.of("z"), second.getItems());
+        assertEquals(List.of("a", "b"), snapshot);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add("d"));
+    }
+
+    @Test
+    void testNumbersAreKeptAsNumbers() {
+        ListValue ints = new ListValue(List.of("3", "-1", "20"));
+        assertEquals(int.class, ints.getElementType());
+        assertEquals(-1, ints.getValue(2));
+        assertEquals("-1", ints.get(2));
+        assertTrue(ints.includes("20"));
+        assertFalse(ints.includes("020"));
+
+        ints.add(5_000_000_000L);
+        assertEquals(long.class, ints.getElementType());
+        assertEquals(List.of(3, -1, 20, 5_000_000_000L), ints.getValues());
+
+        ListValue doubles = new ListValue(List.of("1.5", "-0.25"));
+        assertEquals(double.class, doubles.getElementType());
+        assertEquals(1.5, doubles.getValue(1));
+        assertTrue(doubles.includes("-0.25"));
+        assertFalse(doubles.includes("1.50"));
+    }
+
+    @Test
+    void testItemsThatAreNotNumbersKeepTheirText() {
+        ListValue lv = new ListValue(List.of("007", "1e3", "-0", "12"));
+        assertEquals(String.class, lv.getElementType());
+        assertEquals(List.of("007", "1e3", "-0", "12"), lv.getValues());
+
+        ListValue ints = new ListValue();
+        ints.add(1);
+        ints.add("2");
+        ListValue copy = ints.copy();
+        ints.add(2.5);
+        assertEquals(String.class, ints.getElementType());
+        assertEquals(List.of("1", "2", "2.5"), ints.getValues());
+        assertEquals(int.class, copy.getElementType());
+
+        copy.set(2, "two");
+        assertEquals(List.of("1", "two"), copy.getItems());
+        assertEquals(new ListValue(List.of("1", "2", "2.5")), ints);
+    }
+
+    @Test
+    void testNotANumberAndInfinityAreFoundByTheirText() {
+        ListValue lv = new ListValue();
+        lv.add(Double.NaN);
+        lv.add(Double.POSITIVE_INFINITY);
+        assertEquals(String.class, lv.getElementType());
+        assertEquals("NaN", lv.get(1));
+        assertTrue(lv.includes("NaN"));
+        assertTrue(lv.includes("Infinity"));
+
+        ListValue doubles = new ListValue(List.of("1.5"));
+        doubles.add(Double.NEGATIVE_INFINITY);
+        assertEquals(List.of("1.5", "-Infinity"), doubles.getValues());
+        assertTrue(doubles.includes("-Infinity"));
+    }
+
+    @Test
+    void testIncludesBuildsAnIndexForLargeLists() {
+        ListValue words = new ListValue();
+        ListValue numbers = new ListValue();
+        for (int i = 0; i < 1000; i++) {
+            words.add("word" + i);
+            numbers.add(i * 3);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(words.includes("word" + (i * 99)));
+            assertFalse(numbers.includes(String.valueOf(i * 3 + 1)));
+        }
+        assertTrue(words.getIndexBytes() > 0);
+        assertTrue(numbers.getIndexBytes() > 0);
+        assertTrue(numbers.includes("2997"));
+        assertFalse(numbers.includes("2997.0"));
+        assertFalse(numbers.includes("word1"));
+
+        // Adding keeps the index, even when it has to grow
+        for (int i = 0; i < 2000; i++) {
+            words.add("more" + i);
+        }
+        assertTrue(words.includes("more1999"));
+        assertTrue(words.includes("word0"));
+        numbers.add(5_000_000_000L);
+        assertTrue(numbers.includes("5000000000"));
+        assertTrue(numbers.includes("3"));
+
+        words.set(1, "replaced");
+        assertEquals(0, words.getIndexBytes());
+        assertFalse(words.includes("word0"));
+        assertTrue(words.includes("replaced"));
+        numbers.remove(2);
+        assertEquals(0, numbers.getIndexBytes());
+        assertFalse(numbers.includes("3"));
+
+        ListValue small = new ListValue(List.of("a", "b"));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(small.includes("b"));
+        }
+        assertEquals(0, small.getIndexBytes());
+    }
 }
@@ -0,0 +1,139 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import talk.core.RuntimeContext;
+import talk.exception.TalkValueException;
+import talk.expression.ExpressionResolver;
+import talk.expression.MappedFileValue;
+import talk.instruction.MapFileInstruction;
+import talk.instruction.RepeatInstruction;
+import talk.instruction.WriteInstruction;
+import talk.io.DefaultFileSystem;
+import talk.io.FileLines;
+import talk.io.MappedFileLines;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileLinesTest {
+    private static final String NL = System.lineSeparator();
+
+    @TempDir
+    Path tempDir;
+
+    private InstructionExecutor executor(RuntimeContext ctx, talk.io.FileSystem fileSystem) {
+        return new InstructionExecutor(ctx, new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+    }
+
+    @Test
+    void testMappedLinesMatchFileContent() throws Exception {
+        Path file = tempDir.resolve("data.txt");
+        Files.write(file, "first\r\nsecond\n\nfourth ✓\n".getBytes(StandardCharsets.UTF_8));
+
+        MappedFileLines lines = new MappedFileLines(file);
+        assertEquals("fourth ✓", lines.line(4));
+        assertEquals("first", lines.line(1));
+        assertEquals("", lines.line(3));
+        assertEquals(4, lines.lineCount());
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.line(5));
+    }
+
+    @Test
+    void testLastLineWithoutLineEnding() throws Exception {
+        Path file = tempDir.resolve("data.txt");
+        Files.writeString(file, "a\nb");
+        assertEquals(2, new MappedFileLines(file).lineCount());
+        assertEquals("b", new MappedFileLines(file).line(2));
+
+        Path empty = tempDir.resolve("empty.txt");
+        Files.writeString(empty, "");
+        assertEquals(0, new MappedFileLines(empty).lineCount());
+    }
+
+    @Test
+    void testInMemoryLinesFollowTheSameRules() {
+        FileLines lines = FileLines.of("first\r\nsecond\n\nfourth\n");
+        assertEquals(4, lines.lineCount());
+        assertEquals("second", lines.line(2));
+        assertEquals("", lines.line(3));
+    }
+
+    @Test
+    void testItemAndLengthOfMappedFile() throws Exception {
+        Path file = tempDir.resolve("data.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 5000; i++) {
+            content.append("row ").append(i).append('\n');
+        }
+        Files.writeString(file, content);
+
+        RuntimeContext ctx = new RuntimeContext();
+        executor(ctx, new DefaultFileSystem()).execute(new MapFileInstruction(file.toString(), "rows", 1));
+        assertTrue(ctx.getVariable("rows") instanceof MappedFileValue);
+
+        ExpressionResolver resolver = new ExpressionResolver(ctx);
+        assertEquals("row 4321", resolver.resolve("item 4321 in rows"));
+        assertEquals(5000, resolver.resolve("length of rows"));
+        assertThrows(TalkValueException.class, () -> resolver.resolve("item 5001 in rows"));
+    }
+
+    @Test
+    void testMockFileSystemFallsBackToReadFile() {
+        MockFileSystem fileSystem = new MockFileSystem();
+        fileSystem.getFiles().put("in.txt", "one\ntwo\n");
+        RuntimeContext ctx = new RuntimeContext();
+        InstructionExecutor exec = executor(ctx, fileSystem);
+        exec.execute(new MapFileInstruction("in.txt", "lines", 1));
+        exec.execute(new RepeatInstruction("line", "lines",
+            Arrays.asList(new WriteInstruction("line", "out.txt", 3)), 2));
+
+        assertEquals("one" + NL + "two" + NL, fileSystem.getFiles().get("out.txt"));
+    }
+
+    @Test
+    void testQuotedFileNameIsResolvedLikeOtherFileInstructions() {
+        MockFileSystem fileSystem = new MockFileSystem();
+        fileSystem.getFiles().put("in.txt", "one\ntwo\n");
+        RuntimeContext ctx = new RuntimeContext();
+        executor(ctx, fileSystem).execute(new MapFileInstruction("\"in.txt\"", "lines", 1));
+
+        assertEquals("in.txt", ((MappedFileValue) ctx.getVariable("lines")).getFileName());
+        assertEquals("two", new ExpressionResolver(ctx).resolve("item 2 in lines"));
+    }
+
+    @Test
+    void testLoopDoesNotCountLinesBeforeStarting() {
+        MockFileSystem fileSystem = new MockFileSystem() {
+            @Override
+            public FileLines mapLines(String fileName) {
+                FileLines lines = FileLines.of("one\ntwo\nthree\n");
+                return new FileLines() {
+                    @Override
+                    public int lineCount() {
+                        throw new AssertionError("The loop should not index the whole file");
+                    }
+
+                    @Override
+                    public String line(int lineNumber) {
+                        return lines.line(lineNumber);
+                    }
+                };
+            }
+        };
+        RuntimeContext ctx = new RuntimeContext();
+        InstructionExecutor exec = executor(ctx, fileSystem);
+        exec.execute(new MapFileInstruction("in.txt", "lines", 1));
+        exec.execute(new RepeatInstruction("line", "lines",
+            Arrays.asList(new WriteInstruction("line", "out.txt", 3)), 2));
+
+        assertEquals("one" + NL + "two" + NL + "three" + NL, fileSystem.getFiles().get("out.txt"));
+    }
+}
@@ -0,0 +1,198 @@
+package talk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import talk.core.RuntimeContext;
+import talk.exception.TalkRuntimeException;
+import talk.instruction.FunctionCallInstruction;
+import talk.instruction.FunctionDefinitionInstruction;
+import talk.instruction.ImportInstruction;
+import talk.instruction.WriteInstruction;
+import talk.io.DefaultFileSystem;
+import talk.runtime.InstructionExecutor;
+import talk.runtime.ModuleLoader;
+import talk.runtime.SharedCounters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MockFileSystem mockFileSystem;
+
+    @BeforeEach
+    void setUp() {
+        ModuleLoader.clearCache();
+        SharedCounters.getInstance().clear();
+        mockFileSystem = new MockFileSystem();
+    }
+
+    private InstructionExecutor executor(talk.io.FileSystem fileSystem) {
+        return new InstructionExecutor(new RuntimeContext(), new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+    }
+
+    private static long runs() {
+        return SharedCounters.getInstance().get("module_runs");
+    }
+
+    private ModuleLoader.Stats statsFor(InstructionExecutor exec, String fileName) throws Exception {
+        return exec.getModuleLoader().getStats().get(mockFileSystem.canonicalPath(fileName));
+    }
+
+    @Test
+    void testModuleRunsOnceAndIsParsedOnce() throws Exception {
+        mockFileSystem.getFiles().put("lib.talk", "increase shared counter module_runs by 1\n");
+        InstructionExecutor exec = executor(mockFileSystem);
+        exec.execute(new ImportInstruction("lib", 1));
+        exec.execute(new ImportInstruction("lib.talk", 2));
+        assertEquals(1, runs());
+
+        exec.execute(new ImportInstruction("lib", true, 3));
+        assertEquals(2, runs());
+
+        ModuleLoader.Stats stats = statsFor(exec, "lib.talk");
+        assertEquals(3, stats.getImports());
+        assertEquals(1, stats.getSkipped());
+        assertEquals(1, stats.getParses());
+        assertEquals(1, stats.getCacheHits());
+    }
+
+    @Test
+    void testCacheIsSharedAcrossRuns() throws Exception {
+        mockFileSystem.getFiles().put("lib.talk", "increase shared counter module_runs by 1\n");
+        executor(mockFileSystem).execute(new ImportInstruction("lib", 1));
+        InstructionExecutor second = executor(mockFileSystem);
+        second.execute(new ImportInstruction("lib", 1));
+
+        assertEquals(2, runs());
+        assertEquals(0, statsFor(second, "lib.talk").getParses());
+    }
+
+    @Test
+    void testChangedModuleIsParsedAgain() throws Exception {
+        Path lib = tempDir.resolve("lib.talk");
+        Files.writeString(lib, "increase shared counter module_runs by 1\n");
+        Files.setLastModifiedTime(lib, FileTime.fromMillis(1_000_000));
+        InstructionExecutor first = executor(new DefaultFileSystem());
+        first.execute(new ImportInstruction(lib.toString(), 1));
+        first.execute(new ImportInstruction(tempDir.resolve(".").resolve("lib").toString(), 2));
+        assertEquals(1, runs());
+
+        Files.writeString(lib, "increase shared counter module_runs by 10\n");
+        Files.setLastModifiedTime(lib, FileTime.fromMillis(2_000_000));
+        InstructionExecutor second = executor(new DefaultFileSystem());
+        second.execute(new ImportInstruction(lib.toString(), 1));
+
+        assertEquals(11, runs());
+        assertEquals(1, second.getModuleLoader().getStats().get(lib.toRealPath().toString()).getParses());
+    }
+
+    @Test
+    void testInvalidatedModuleIsCheckedAgainEvenIfItsTimeIsUnchanged() throws Exception {
+        Path lib = tempDir.resolve("lib.talk");
+        Files.writeString(lib, "increase shared counter module_runs by 1\n");
+        Files.setLastModifiedTime(lib, FileTime.fromMillis(1_000_000));
+        executor(new DefaultFileSystem()).execute(new ImportInstruction(lib.toString(), 1));
+
+        // Saved twice within the file system's time resolution
+        Files.writeString(lib, "increase shared counter module_runs by 10\n");
+        Files.setLastModifiedTime(lib, FileTime.fromMillis(1_000_000));
+        ModuleLoader.invalidate(lib.toRealPath().toString());
+        InstructionExecutor second = executor(new DefaultFileSystem());
+        second.execute(new ImportInstruction(lib.toString(), 1));
+        assertEquals(11, runs());
+
+        ModuleLoader.invalidate(lib.toRealPath().toString());
+        InstructionExecutor third = executor(new DefaultFileSystem());
+        third.execute(new ImportInstruction(lib.toString(), 1));
+        assertEquals(21, runs());
+        assertEquals(0, third.getModuleLoader().getStats().get(lib.toRealPath().toString()).getParses());
+    }
+
+    @Test
+    void testImportCycleIsReportedWithItsPath() {
+        mockFileSystem.getFiles().put("a.talk", "import b\n");
+        mockFileSystem.getFiles().put("b.talk", "import c\n");
+        mockFileSystem.getFiles().put("c.talk", "import a\n");
+        InstructionExecutor exec = executor(mockFileSystem);
+
+        TalkRuntimeException e = assertThrows(TalkRuntimeException.class, () -> exec.execute(new ImportInstruction("a", 1)));
+        String message = e.getMessage();
+        assertTrue(message.contains("Import cycle"), message);
+        assertTrue(message.indexOf("a.talk") < message.indexOf("b.talk"), message);
+        assertTrue(message.indexOf("b.talk") < message.indexOf("c.talk"), message);
+        assertTrue(message.lastIndexOf("a.talk") > message.indexOf("c.talk"), message);
+    }
+
+    @Test
+    void testImportingTheRunningScriptIsACycle() {
+        mockFileSystem.getFiles().put("lib.talk", "import main.talk\n");
+        InstructionExecutor exec = executor(mockFileSystem);
+        exec.setScriptPath("main.talk");
+        mockFileSystem.getFiles().put("main.talk", "");
+
+        assertThrows(TalkRuntimeException.class, () -> exec.execute(new ImportInstruction("lib", 1)));
+    }
+
+    @Test
+    void testMissingModuleFails() {
+        TalkRuntimeException e = assertThrows(TalkRuntimeException.class,
+            () -> executor(mockFileSystem).execute(new ImportInstruction("missing", 1)));
+        assertTrue(e.getMessage().contains("missing.talk"), e.getMessage());
+    }
+
+    @Test
+    void testModuleThatFailedIsRunAgainByTheNextImport() {
+        mockFileSystem.getFiles().put("lib.talk", "increase shared counter module_runs by 1\nimport missing\n");
+        InstructionExecutor exec = executor(mockFileSystem);
+        assertThrows(TalkRuntimeException.class, () -> exec.execute(new ImportInstruction("lib", 1)));
+
+        mockFileSystem.getFiles().put("missing.talk", "");
+        exec.execute(new ImportInstruction("lib", 2));
+        exec.execute(new ImportInstruction("lib", 3));
+        assertEquals(2, runs());
+    }
+
+    @Test
+    void testRetainOnlyForgetsOtherModules() throws Exception {
+        mockFileSystem.getFiles().put("a.talk", "");
+        mockFileSystem.getFiles().put("b.talk", "");
+        InstructionExecutor first = executor(mockFileSystem);
+        first.execute(new ImportInstruction("a", 1));
+        first.execute(new ImportInstruction("b", 2));
+
+        ModuleLoader.retainOnly(Set.of(mockFileSystem.canonicalPath("a.talk")));
+        InstructionExecutor second = executor(mockFileSystem);
+        second.execute(new ImportInstruction("a", 1));
+        second.execute(new ImportInstruction("b", 2));
+        assertEquals(0, statsFor(second, "a.talk").getParses());
+        assertEquals(1, statsFor(second, "b.talk").getParses());
+    }
+
+    @Test
+    void testModuleImportedFromAFunctionKeepsItsVariablesForLaterCalls() {
+        mockFileSystem.getFiles().put("lib.talk", "increase shared counter module_runs by 1\nvariable greeting equals hello\n");
+        InstructionExecutor exec = executor(mockFileSystem);
+        exec.execute(new FunctionDefinitionInstruction("greet", Collections.emptyList(), Arrays.asList(
+            new ImportInstruction("lib", 2),
+            new WriteInstruction("greeting", "out.txt", 3)), 1));
+        exec.execute(new FunctionCallInstruction("greet", Collections.emptyList(), 4));
+        exec.execute(new FunctionCallInstruction("greet", Collections.emptyList(), 5));
+
+        assertEquals(1, runs());
+        // Both calls see the variable, though the module ran only during the first
+        assertEquals("[hello]" + System.lineSeparator() + "[hello]" + System.lineSeparator(), mockFileSystem.getFiles().get("out.txt"));
+    }
+}
@@ -0,0 +1,126 @@
+package talk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.exception.TalkRuntimeException;
+import talk.instruction.FunctionDefinitionInstruction;
+import talk.instruction.ImportInstruction;
+import talk.io.DefaultFileSystem;
+import talk.runtime.InstructionExecutor;
+import talk.runtime.ModuleLoader;
+import talk.runtime.ModulePrecompiler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModulePrecompilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DefaultFileSystem fileSystem = new DefaultFileSystem();
+
+    @BeforeEach
+    void setUp() {
+        ModuleLoader.clearCache();
+    }
+
+    private String module(String name, String... imports) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String imported : imports) {
+            content.append("import \"").append(tempDir.resolve(imported + ".talk")).append("\"\n");
+        }
+        content.append("set loaded_").append(name).append(" to \"yes\"\n");
+        Path file = tempDir.resolve(name + ".talk");
+        Files.writeString(file, content);
+        return file.toRealPath().toString();
+    }
+
+    @Test
+    void testAllModulesAreParsedBeforeTheyRun() throws IOException {
+        String a = module("a", "b", "c");
+        String b = module("b");
+        String c = module("c", "b");
+        InstructionExecutor exec = new InstructionExecutor(new RuntimeContext(),
+            new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+        // Found even when the import is inside a function
+        List<Instruction> root = Collections.singletonList(new FunctionDefinitionInstruction("setup",
+            Collections.emptyList(), Collections.singletonList(new ImportInstruction(tempDir.resolve("a").toString(), 2)), 1));
+
+        ModulePrecompiler.ModuleGraph graph = new ModulePrecompiler(exec.getModuleLoader()).precompile("main.talk", root);
+
+        assertEquals(Arrays.asList(a, b, c), graph.getModules());
+        assertEquals(Arrays.asList(b, c), graph.getImports(a));
+        assertEquals(Collections.singletonList(b), graph.getImports(c));
+
+        exec.execute(new ImportInstruction(a, 1));
+        for (String module : Arrays.asList(a, b, c)) {
+            ModuleLoader.Stats stats = exec.getModuleLoader().getStats().get(module);
+            assertEquals(1, stats.getPrecompileParses(), module);
+            assertEquals(0, stats.getParses(), module);
+        }
+        assertEquals(1, exec.getModuleLoader().getStats().get(b).getCacheHits());
+    }
+
+    @Test
+    void testPrecompiledModulesThatNeverRunAreNotCountedAsImports() throws IOException {
+        String a = module("a");
+        InstructionExecutor exec = new InstructionExecutor(new RuntimeContext(),
+            new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+        // The function is never called, so the import never runs
+        List<Instruction> root = Collections.singletonList(new FunctionDefinitionInstruction("setup",
+            Collections.emptyList(), Collections.singletonList(new ImportInstruction(a, 2)), 1));
+        new ModulePrecompiler(exec.getModuleLoader()).precompile("main.talk", root);
+
+        ModuleLoader.Stats stats = exec.getModuleLoader().getStats().get(a);
+        assertEquals(1, stats.getPrecompileParses());
+        assertEquals(0, stats.getImports());
+        assertEquals(0, stats.getParses());
+        assertEquals(0, stats.getCacheHits());
+        assertEquals(0, stats.getLoadNanos());
+    }
+
+    @Test
+    void testCycleIsLeftForTheImportThatClosesIt() throws IOException {
+        String a = module("a", "b");
+        String b = module("b", "c");
+        String c = module("c", "a");
+        InstructionExecutor exec = new InstructionExecutor(new RuntimeContext(),
+            new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+        List<Instruction> root = Collections.singletonList(new ImportInstruction(a, 1));
+
+        ModulePrecompiler.ModuleGraph graph = new ModulePrecompiler(exec.getModuleLoader()).precompile("main.talk", root);
+        assertEquals(Arrays.asList(a, b, c), graph.getModules());
+
+        TalkRuntimeException e = assertThrows(TalkRuntimeException.class, () -> exec.execute(new ImportInstruction(a, 1)));
+        assertTrue(e.getMessage().contains(a + " -> " + b + " -> " + c + " -> " + a), e.getMessage());
+        for (String module : Arrays.asList(a, b, c)) {
+            // Parsed by the precompiler, then taken from the cache
+            ModuleLoader.Stats stats = exec.getModuleLoader().getStats().get(module);
+            assertEquals(1, stats.getPrecompileParses(), module);
+            assertEquals(0, stats.getParses(), module);
+            assertEquals(1, stats.getCacheHits(), module);
+        }
+    }
+
+    @Test
+    void testMissingOrBrokenModulesAreLeftForRuntime() throws IOException {
+        String a = module("a", "missing");
+        List<Instruction> root = Collections.singletonList(new ImportInstruction(a, 1));
+
+        ModulePrecompiler.ModuleGraph graph = new ModulePrecompiler(new ModuleLoader(fileSystem)).precompile("main.talk", root);
+        assertEquals(Collections.singletonList(a), graph.getModules());
+        assertEquals(1, graph.getFailures().size());
+    }
+}
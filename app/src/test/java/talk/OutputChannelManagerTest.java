@@ -0,0 +1,134 @@
+package talk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import talk.core.RuntimeContext;
+import talk.expression.ListValue;
+import talk.instruction.DeleteFileInstruction;
+import talk.instruction.ListDirectoryInstruction;
+import talk.instruction.PluginCallInstruction;
+import talk.instruction.ReadFileInstruction;
+import talk.instruction.WriteInstruction;
+import talk.io.DefaultFileSystem;
+import talk.io.OutputChannelManager;
+import talk.plugins.PluginRegistry;
+import talk.plugins.examples.FileUtilsPlugin;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutputChannelManagerTest {
+    private static final String NL = System.lineSeparator();
+
+    @TempDir
+    Path tempDir;
+
+    private final InputStream dummyIn = new ByteArrayInputStream(new byte[0]);
+    private MockFileSystem mockFileSystem;
+
+    @BeforeEach
+    void setUp() {
+        mockFileSystem = new MockFileSystem();
+    }
+
+    private InstructionExecutor bufferedExecutor(RuntimeContext ctx) {
+        InstructionExecutor exec = new InstructionExecutor(ctx, dummyIn, mockFileSystem, new MockLogger());
+        exec.setWriteBuffering(OutputChannelManager.DEFAULT_BUFFER_SIZE);
+        return exec;
+    }
+
+    @Test
+    void testBufferedWritesReachFileAtFinish() {
+        InstructionExecutor exec = bufferedExecutor(new RuntimeContext());
+        for (int i = 0; i < 100; i++) {
+            exec.execute(new WriteInstruction("line", "out.txt", 1));
+        }
+        assertFalse(mockFileSystem.getFiles().containsKey("out.txt"));
+
+        exec.finish();
+        assertEquals(("line" + NL).repeat(100), mockFileSystem.getFiles().get("out.txt"));
+        assertEquals(1, mockFileSystem.getOperations().size(), "100 lines should be written in one append");
+    }
+
+    @Test
+    void testReadFlushesPendingWrites() {
+        RuntimeContext ctx = new RuntimeContext();
+        InstructionExecutor exec = bufferedExecutor(ctx);
+        exec.execute(new WriteInstruction("first", "out.txt", 1));
+        exec.execute(new ReadFileInstruction("out.txt", "content", 2));
+        assertEquals("first" + NL, ctx.getVariable("content"));
+    }
+
+    @Test
+    void testDeleteDropsOpenWriter() {
+        InstructionExecutor exec = bufferedExecutor(new RuntimeContext());
+        exec.execute(new WriteInstruction("old", "out.txt", 1));
+        exec.execute(new DeleteFileInstruction("out.txt", 2));
+        exec.execute(new WriteInstruction("new", "out.txt", 3));
+        exec.finish();
+        assertEquals("new" + NL, mockFileSystem.getFiles().get("out.txt"));
+    }
+
+    @Test
+    void testSmallBufferWritesOutWhenFull() throws Exception {
+        OutputChannelManager channels = new OutputChannelManager(mockFileSystem, 8);
+        channels.write("out.txt", "12345");
+        assertFalse(mockFileSystem.getFiles().containsKey("out.txt"));
+        channels.write("out.txt", "67890");
+        assertTrue(mockFileSystem.getFiles().get("out.txt").startsWith("12345"));
+        channels.close();
+        assertEquals("1234567890", mockFileSystem.getFiles().get("out.txt"));
+        assertEquals(0, channels.getOpenChannelCount());
+    }
+
+    @Test
+    void testDefaultFileSystemKeepsOneWriterPerPath() throws Exception {
+        Path file = tempDir.resolve("log.txt");
+        Files.writeString(file, "existing" + NL);
+        OutputChannelManager channels = new OutputChannelManager(new DefaultFileSystem());
+        channels.write(file.toString(), "a" + NL);
+        channels.write(tempDir.resolve(".").resolve("log.txt").toString(), "b" + NL);
+        assertEquals(1, channels.getOpenChannelCount());
+
+        channels.flush(file.toString());
+        assertEquals("existing" + NL + "a" + NL + "b" + NL, Files.readString(file));
+        channels.close();
+    }
+
+    @Test
+    void testUnbufferedExecutorWritesEveryLine() {
+        InstructionExecutor exec = new InstructionExecutor(new RuntimeContext(), dummyIn, mockFileSystem, new MockLogger());
+        exec.execute(new WriteInstruction("line", "out.txt", 1));
+        assertEquals("line" + NL, mockFileSystem.getFiles().get("out.txt"));
+    }
+
+    @Test
+    void testPluginSeesLinesWrittenBeforeTheCall() {
+        PluginRegistry.getInstance().register("count buffered lines", FileUtilsPlugin::countLinesInFile);
+        try {
+            RuntimeContext ctx = new RuntimeContext();
+            InstructionExecutor exec = new InstructionExecutor(ctx, dummyIn, new DefaultFileSystem(), new MockLogger());
+            exec.setWriteBuffering(OutputChannelManager.DEFAULT_BUFFER_SIZE);
+            Path file = tempDir.resolve("out.txt");
+            ctx.setVariable("path", file.toString());
+
+            exec.execute(new WriteInstruction("first", file.toString(), 1));
+            exec.execute(new PluginCallInstruction("count buffered lines", Arrays.asList("path"), "lines", 2));
+            assertEquals(1, ctx.getVariable("lines"));
+
+            exec.execute(new ListDirectoryInstruction(tempDir.toString(), "files", 3));
+            assertTrue(((ListValue) ctx.getVariable("files")).getItems().contains("out.txt"), ctx.getVariable("files").toString());
+            exec.finish();
+        } finally {
+            PluginRegistry.getInstance().unregister("count buffered lines");
+        }
+    }
+}
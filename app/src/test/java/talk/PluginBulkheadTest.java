@@ -0,0 +1,144 @@
+package talk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import talk.plugins.PluginBulkhead;
+import talk.plugins.PluginRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PluginBulkheadTest {
+
+    private final PluginRegistry registry = PluginRegistry.getInstance();
+
+    @AfterEach
+    void tearDown() {
+        if (registry.hasPlugin("slow echo")) {
+            registry.setBulkhead("slow echo", null);
+        }
+    }
+
+    @Test
+    void testConcurrentCallsAreLimited() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        registry.register("slow echo", args -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return args[0];
+        });
+        registry.setBulkhead("slow echo", new PluginBulkhead("slow echo", 2, 0, 0));
+
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                int n = i;
+                results.add(callers.submit(() -> registry.execute("slow echo", n)));
+            }
+            for (int i = 0; i < 6; i++) {
+                assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertTrue(maxRunning.get() <= 2, "At most 2 calls should run at once, saw " + maxRunning.get());
+        PluginBulkhead bulkhead = registry.getBulkheads().get("slow echo");
+        assertEquals(6, bulkhead.getCalls());
+        assertTrue(bulkhead.getMaxQueueDepth() > 0);
+        assertEquals(0, bulkhead.getQueueDepth());
+    }
+
+    @Test
+    void testSlowCallTimesOut() {
+        CountDownLatch release = new CountDownLatch(1);
+        registry.register("slow echo", args -> {
+            release.await();
+            return args[0];
+        });
+        registry.setBulkhead("slow echo", new PluginBulkhead("slow echo", 0, 50, 1));
+
+        try {
+            Exception e = assertThrows(TimeoutException.class, () -> registry.execute("slow echo", "x"));
+            assertTrue(e.getMessage().contains("timed out after 50 ms"));
+            assertEquals(1, registry.getBulkheads().get("slow echo").getTimeouts());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testTimedOutCallKeepsItsPermitUntilItEnds() {
+        CountDownLatch release = new CountDownLatch(1);
+        // Like blocking socket I/O, this plugin does not stop when interrupted
+        registry.register("slow echo", args -> {
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // Keep waiting
+                }
+            }
+            return args[0];
+        });
+        registry.setBulkhead("slow echo", new PluginBulkhead("slow echo", 1, 50, 0));
+
+        try {
+            assertThrows(TimeoutException.class, () -> registry.execute("slow echo", "first"));
+            // The first call is still running, so the second cannot start
+            Exception e = assertThrows(TimeoutException.class, () -> registry.execute("slow echo", "second"));
+            assertTrue(e.getMessage().contains("busy"));
+            PluginBulkhead bulkhead = registry.getBulkheads().get("slow echo");
+            assertEquals(1, bulkhead.getTimeouts());
+            assertEquals(1, bulkhead.getRejections());
+            // The rejected call never ran, so it doesn't count towards the average latency
+            assertEquals(1, bulkhead.getCalls());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testErrorsFromPluginArePassedThrough() {
+        registry.register("slow echo", args -> {
+            throw new IllegalArgumentException("bad input");
+        });
+        registry.setBulkhead("slow echo", new PluginBulkhead("slow echo", 1, 1000, 2));
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> registry.execute("slow echo", "x"));
+        assertEquals("bad input", e.getMessage());
+    }
+
+    @Test
+    void testBulkheadSurvivesReRegistration() {
+        registry.register("slow echo", args -> args[0]);
+        PluginBulkhead bulkhead = new PluginBulkhead("slow echo", 3, 0, 0);
+        registry.setBulkhead("slow echo", bulkhead);
+        registry.register("slow echo", args -> "replaced");
+        assertSame(bulkhead, registry.lookup("slow echo").getBulkhead());
+    }
+
+    @Test
+    void testPluginSeesTheTimeLeftBeforeTheBulkheadGivesUp() throws Exception {
+        registry.register("slow echo", args -> PluginBulkhead.remainingMillis(-1));
+        assertEquals(-1, registry.execute("slow echo"));
+
+        registry.setBulkhead("slow echo", new PluginBulkhead("slow echo", 1, 15_000, 0));
+        int remaining = (Integer) registry.execute("slow echo");
+        assertTrue(remaining > 14_000 && remaining <= 15_000, "remaining " + remaining);
+        assertEquals(-1, PluginBulkhead.remainingMillis(-1));
+    }
+}
@@ -116,4 +116,42 @@ public class PluginCallInstructionTest {
         assertTrue(ctx.hasVariable("result"));
         assertNull(ctx.getVariable("result"));
     }
+    
+    @Test
+    void testAliasIsNormalizedOnce() {
+        PluginCallInstruction call = new PluginCallInstruction("  Join Words ", Arrays.asList("\"a\"", "\"b\""), "result", 1);
+        assertEquals("join words", call.getNormalizedAlias());
+        exec.execute(call);
+        assertEquals("a b", ctx.getVariable("result"));
+    }
+    
+    @Test
+    void testCallSiteIsRefreshedAfterReRegistration() {
+        registry.register("versioned", (Object... args) -> "v1");
+        PluginCallInstruction call = new PluginCallInstruction("versioned", Collections.emptyList(), "result", 1);
+        exec.execute(call);
+        assertEquals("v1", ctx.getVariable("result"));
+        
+        registry.register("versioned", (Object... args) -> "v2");
+        exec.execute(call);
+        assertEquals("v2", ctx.getVariable("result"));
+    }
+    
+    @Test
+    void testRegistrationWhileScriptsRun() throws Exception {
+        registry.register("counting", (Object... args) -> 1);
+        PluginCallInstruction call = new PluginCallInstruction("counting", Collections.emptyList(), "result", 1);
+        Thread registrar = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                registry.register("extra plugin " + i, (Object... args) -> null);
+            }
+        });
+        registrar.start();
+        for (int i = 0; i < 2000; i++) {
+            exec.execute(call);
+        }
+        registrar.join();
+        assertEquals(1, ctx.getVariable("result"));
+        assertTrue(registry.hasPlugin("extra plugin 499"));
+    }
 }
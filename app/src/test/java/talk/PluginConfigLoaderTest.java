@@ -0,0 +1,104 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import talk.plugins.PluginConfigLoader;
+import talk.plugins.PluginRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PluginConfigLoaderTest {
+
+    public static class SamplePlugins {
+        public static Object joinAll(Object... args) {
+            StringBuilder sb = new StringBuilder();
+            for (Object arg : args) {
+                sb.append(arg);
+            }
+            return sb.toString();
+        }
+
+        public static int addNumbers(int a, int b) {
+            return a + b;
+        }
+
+        public static String repeatText(String text, long times) {
+            return text.repeat((int) times);
+        }
+
+        public String greet(String name) {
+            return "Hello, " + name;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private void load(String... lines) throws Exception {
+        Path config = tempDir.resolve("talk-plugins.properties");
+        Files.write(config, String.join("\n", lines).getBytes());
+        assertTrue(PluginConfigLoader.loadPlugins(config.toString()));
+    }
+
+    @Test
+    void testVarargsPlugin() throws Exception {
+        load("plugin.test join all = talk.PluginConfigLoaderTest$SamplePlugins#joinAll");
+        assertEquals("ab1", PluginRegistry.getInstance().execute("test join all", "a", "b", 1));
+    }
+
+    @Test
+    void testTypedStaticPluginConvertsArguments() throws Exception {
+        load(
+            "plugin.test add numbers = talk.PluginConfigLoaderTest$SamplePlugins#addNumbers",
+            "plugin.test repeat text = talk.PluginConfigLoaderTest$SamplePlugins#repeatText");
+        PluginRegistry registry = PluginRegistry.getInstance();
+        assertEquals(5, registry.execute("test add numbers", 2, "3"));
+        assertEquals("abab", registry.execute("test repeat text", "ab", 2));
+        assertThrows(IllegalArgumentException.class, () -> registry.execute("test add numbers", 1));
+    }
+
+    @Test
+    void testTypedInstancePlugin() throws Exception {
+        load("plugin.test greet = talk.PluginConfigLoaderTest$SamplePlugins#greet");
+        assertEquals("Hello, Talk", PluginRegistry.getInstance().execute("test greet", "Talk"));
+    }
+
+    @Test
+    void testMissingMethodFailsOnFirstCall() throws Exception {
+        load("plugin.test missing = talk.PluginConfigLoaderTest$SamplePlugins#noSuchMethod");
+        PluginRegistry registry = PluginRegistry.getInstance();
+        assertTrue(registry.hasPlugin("test missing"));
+        assertThrows(IllegalArgumentException.class, () -> registry.execute("test missing"));
+    }
+
+    @Test
+    void testMalformedReferenceIsNotRegistered() throws Exception {
+        load("plugin.test malformed = talk.PluginConfigLoaderTest$SamplePlugins");
+        assertFalse(PluginRegistry.getInstance().hasPlugin("test malformed"));
+    }
+
+    static volatile boolean lazyPluginsInitialized = false;
+
+    public static class LazyPlugins {
+        static {
+            lazyPluginsInitialized = true;
+        }
+
+        public static String ping() {
+            return "pong";
+        }
+    }
+
+    @Test
+    void testPluginClassIsLoadedOnFirstCall() throws Exception {
+        load("plugin.test ping = talk.PluginConfigLoaderTest$LazyPlugins#ping");
+        assertTrue(PluginRegistry.getInstance().hasPlugin("test ping"));
+        assertFalse(lazyPluginsInitialized);
+        assertEquals("pong", PluginRegistry.getInstance().execute("test ping"));
+        assertTrue(lazyPluginsInitialized);
+    }
+}
@@ -0,0 +1,117 @@
+package talk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import talk.plugins.CachePolicy;
+import talk.plugins.PluginRegistry;
+import talk.plugins.PluginResultCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PluginResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final PluginRegistry registry = PluginRegistry.getInstance();
+    private final PluginResultCache cache = PluginResultCache.getInstance();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+        cache.setEnabled(true);
+        registry.register("cached echo", args -> {
+            calls.incrementAndGet();
+            return args.length == 0 ? null : args[0] + "#" + calls.get();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.setMaxEntries(PluginResultCache.DEFAULT_MAX_ENTRIES);
+        cache.setEnabled(true);
+    }
+
+    @Test
+    void testPureResultsAreReused() throws Exception {
+        registry.setCachePolicy("cached echo", CachePolicy.pure());
+        assertEquals("a#1", registry.execute("cached echo", "a"));
+        assertEquals("a#1", registry.execute("cached echo", "a"));
+        assertEquals("b#2", registry.execute("cached echo", "b"));
+        assertEquals(2, calls.get());
+
+        PluginResultCache.Stats stats = cache.getStats().get("cached echo");
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    void testTtlResultsExpire() throws Exception {
+        registry.setCachePolicy("cached echo", CachePolicy.ttl(Duration.ofMillis(50)));
+        registry.execute("cached echo", "a");
+        registry.execute("cached echo", "a");
+        assertEquals(1, calls.get());
+        Thread.sleep(80);
+        registry.execute("cached echo", "a");
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testFileResultsAreReusedUntilFileChanges() throws Exception {
+        Path file = tempDir.resolve("data.txt");
+        Files.write(file, "one".getBytes());
+        registry.setCachePolicy("cached echo", CachePolicy.fileModified(0));
+        registry.execute("cached echo", file.toString());
+        registry.execute("cached echo", file.toString());
+        assertEquals(1, calls.get());
+
+        Files.write(file, "one two".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        registry.execute("cached echo", file.toString());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedResultIsEvicted() throws Exception {
+        cache.setMaxEntries(2);
+        registry.setCachePolicy("cached echo", CachePolicy.pure());
+        registry.execute("cached echo", "a");
+        registry.execute("cached echo", "b");
+        registry.execute("cached echo", "a");
+        registry.execute("cached echo", "c"); // evicts b
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getStats().get("cached echo").getEvictions());
+
+        registry.execute("cached echo", "a");
+        assertEquals(3, calls.get());
+        registry.execute("cached echo", "b");
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void testDisabledCacheCallsPluginEveryTime() throws Exception {
+        registry.setCachePolicy("cached echo", CachePolicy.pure());
+        cache.setEnabled(false);
+        registry.execute("cached echo", "a");
+        registry.execute("cached echo", "a");
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testParsePolicies() {
+        assertEquals(CachePolicy.Kind.PURE, CachePolicy.parse("pure").getKind());
+        assertEquals(30_000_000_000L, CachePolicy.parse("ttl:30s").getTtlNanos());
+        assertEquals(1, CachePolicy.parse("file-mtime:1").getPathArgument());
+        assertThrows(IllegalArgumentException.class, () -> CachePolicy.parse("forever"));
+    }
+}
@@ -0,0 +1,82 @@
+package talk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import talk.core.RuntimeContext;
+import talk.exception.TalkValueException;
+import talk.instruction.PluginCallInstruction;
+import talk.linter.LintIssue;
+import talk.linter.TalkLinter;
+import talk.plugins.BuiltInPlugins;
+import talk.plugins.PluginRegistry;
+import talk.plugins.PluginSignature;
+import talk.runtime.InstructionExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PluginSignatureTest {
+
+    @TempDir
+    Path tempDir;
+
+    private void registerTypedPlugin() {
+        PluginRegistry.getInstance().register("typed sum", PluginSignature.of(Integer.class, Integer.class, Integer.class),
+            args -> (Integer) args[0] + (Integer) args[1]);
+    }
+
+    @Test
+    void testTypedPluginReceivesConvertedArguments() {
+        registerTypedPlugin();
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("x", "40");
+        InstructionExecutor exec = new InstructionExecutor(ctx);
+        PluginCallInstruction call = new PluginCallInstruction("typed sum", Arrays.asList("x", "2"), "result", 1);
+        exec.execute(call);
+        assertEquals(42, ctx.getVariable("result"));
+        assertNotNull(call.getCallSite());
+
+        // The call site is reused, with the variable resolved again on each call
+        ctx.setVariable("x", 1);
+        exec.execute(call);
+        assertEquals(3, ctx.getVariable("result"));
+    }
+
+    @Test
+    void testWrongArgumentCountFailsBeforeCall() {
+        registerTypedPlugin();
+        InstructionExecutor exec = new InstructionExecutor(new RuntimeContext());
+        assertThrows(TalkValueException.class,
+            () -> exec.execute(new PluginCallInstruction("typed sum", Collections.singletonList("1"), "result", 1)));
+    }
+
+    @Test
+    void testBuiltInTypedPlugins() throws Exception {
+        BuiltInPlugins.registerAll();
+        PluginRegistry registry = PluginRegistry.getInstance();
+        assertEquals("2023", registry.execute("format timestamp", "1700000000000", "yyyy"));
+        Object value = registry.execute("random number", "5", "5");
+        assertEquals(5, value);
+        assertThrows(IllegalArgumentException.class, () -> registry.execute("random number", "five"));
+    }
+
+    @Test
+    void testLintReportsArgumentMismatches() throws Exception {
+        registerTypedPlugin();
+        Path script = tempDir.resolve("plugins.talk");
+        Files.write(script, String.join("\n",
+            "use plugin typed sum with 1 into a",
+            "use plugin typed sum with 1 and \"two\" into b",
+            "use plugin typed sum with 1 and 2 into c").getBytes());
+        List<LintIssue> issues = new TalkLinter().lint(script.toString());
+        assertTrue(issues.stream().anyMatch(issue -> issue.getLine() == 1 && issue.getMessage().contains("expects 2 arguments")));
+        assertTrue(issues.stream().anyMatch(issue -> issue.getLine() == 2 && issue.getMessage().contains("must be Integer")));
+        assertTrue(issues.stream().noneMatch(issue -> issue.getLine() == 3 && issue.getMessage().contains("typed sum")));
+    }
+}
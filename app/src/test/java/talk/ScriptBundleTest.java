@@ -0,0 +1,137 @@
+package talk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.exception.TalkRuntimeException;
+import talk.instruction.FunctionCallInstruction;
+import talk.instruction.FunctionDefinitionInstruction;
+import talk.instruction.ImportInstruction;
+import talk.instruction.IncreaseSharedCounterInstruction;
+import talk.io.DefaultFileSystem;
+import talk.runtime.InstructionExecutor;
+import talk.runtime.ModuleLoader;
+import talk.runtime.ScriptBundle;
+import talk.runtime.ScriptBundler;
+import talk.runtime.SharedCounters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScriptBundleTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DefaultFileSystem fileSystem = new DefaultFileSystem();
+
+    @BeforeEach
+    void setUp() {
+        ModuleLoader.clearCache();
+        SharedCounters.getInstance().clear();
+    }
+
+    private static long counter(String name) {
+        return SharedCounters.getInstance().get(name);
+    }
+
+    private static FunctionDefinitionInstruction function(String name, Instruction... body) {
+        return new FunctionDefinitionInstruction(name, Collections.emptyList(), Arrays.asList(body), 1);
+    }
+
+    private static FunctionCallInstruction call(String name) {
+        return new FunctionCallInstruction(name, Collections.emptyList(), 1);
+    }
+
+    private static IncreaseSharedCounterInstruction increase(String counter) {
+        return new IncreaseSharedCounterInstruction(counter, "1", 1);
+    }
+
+    private String script() throws IOException {
+        return Files.writeString(tempDir.resolve("main.talk"), "").toString();
+    }
+
+    private static ScriptBundle roundTrip(ScriptBundle bundle) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bundle.write(out);
+        return ScriptBundle.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    void testBundleRunsWithoutModuleFiles() throws IOException {
+        Path util = tempDir.resolve("lib").resolve("util.talk");
+        Files.createDirectories(util.getParent());
+        Files.writeString(util, "increase shared counter util_runs by 1\n");
+        Path lib = tempDir.resolve("lib.talk");
+        Files.writeString(lib, "import \"" + util + "\"\nincrease shared counter lib_runs by 1\n");
+        List<Instruction> root = Arrays.asList(
+            new ImportInstruction(lib.toString(), 1),
+            new ImportInstruction(util.toString(), 2),
+            function("used", increase("used_calls")),
+            call("used"));
+
+        ScriptBundle bundle = roundTrip(new ScriptBundler(fileSystem).bundle(script(), root));
+        Files.delete(util);
+        Files.delete(lib);
+
+        assertEquals("main.talk", bundle.getEntry());
+        assertEquals(Arrays.asList("lib.talk", "lib/util.talk"), List.copyOf(bundle.getModules().keySet()));
+        InstructionExecutor exec = new InstructionExecutor(new RuntimeContext(),
+            new ByteArrayInputStream(new byte[0]), fileSystem, new MockLogger());
+        exec.useBundle(bundle);
+        for (Instruction instruction : bundle.getInstructions()) {
+            exec.execute(instruction);
+        }
+        assertEquals(1, counter("util_runs"));
+        assertEquals(1, counter("lib_runs"));
+        assertEquals(1, counter("used_calls"));
+        assertEquals(0, exec.getModuleLoader().getStats().get("lib.talk").getParses());
+    }
+
+    @Test
+    void testUncalledFunctionsAreRemoved() throws IOException {
+        List<Instruction> root = Arrays.asList(
+            function("main", call("helper")),
+            function("helper", increase("helper_calls")),
+            function("unused", call("alsoUnused")),
+            function("alsoUnused", increase("never")),
+            function("recursive", call("recursive")),
+            call("main"));
+
+        ScriptBundler bundler = new ScriptBundler(fileSystem);
+        ScriptBundle bundle = bundler.bundle(script(), root);
+
+        assertEquals(Arrays.asList("main.talk: unused", "main.talk: alsoUnused", "main.talk: recursive"),
+            bundler.getRemovedFunctions());
+        assertEquals(2, bundler.getKeptFunctions());
+        assertEquals(3, bundle.getInstructions().size());
+    }
+
+    @Test
+    void testMissingImportFailsTheBundle() throws IOException {
+        List<Instruction> root = Collections.singletonList(new ImportInstruction(tempDir.resolve("missing").toString(), 1));
+        String script = script();
+
+        TalkRuntimeException e = assertThrows(TalkRuntimeException.class,
+            () -> new ScriptBundler(fileSystem).bundle(script, root));
+        assertTrue(e.getMessage().contains("missing"), e.getMessage());
+    }
+
+    @Test
+    void testOtherFilesAreNotReadAsBundles() {
+        IOException e = assertThrows(IOException.class,
+            () -> ScriptBundle.read(new ByteArrayInputStream("set x to 1\n".getBytes())));
+        assertEquals("Not a Talk bundle", e.getMessage());
+    }
+}
@@ -0,0 +1,75 @@
+package talk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import talk.core.RuntimeContext;
+import talk.expression.ExpressionResolver;
+import talk.instruction.AddToSharedCountsInstruction;
+import talk.instruction.IncreaseSharedCounterInstruction;
+import talk.runtime.InstructionExecutor;
+import talk.runtime.SharedCounters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedCountersTest {
+
+    @AfterEach
+    void clearCounters() {
+        SharedCounters.getInstance().clear();
+    }
+
+    @Test
+    void testCountersAreSharedBetweenContexts() {
+        RuntimeContext first = new RuntimeContext();
+        RuntimeContext second = new RuntimeContext();
+        new InstructionExecutor(first).execute(new IncreaseSharedCounterInstruction("hits", "2", 1));
+        new InstructionExecutor(second).execute(new IncreaseSharedCounterInstruction("hits", "3", 1));
+
+        assertEquals(5, new ExpressionResolver(first).resolve("shared counter hits"));
+        assertEquals(5, new ExpressionResolver(second).resolve("shared counter hits"));
+        assertEquals(0, new ExpressionResolver(first).resolve("shared counter misses"));
+    }
+
+    @Test
+    void testKeyedCounts() {
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("word", "apple");
+        InstructionExecutor exec = new InstructionExecutor(ctx);
+        exec.execute(new AddToSharedCountsInstruction("1", "word", "counts", 1));
+        exec.execute(new AddToSharedCountsInstruction("4", "\"apple\"", "counts", 2));
+        exec.execute(new AddToSharedCountsInstruction("1", "\"pear\"", "counts", 3));
+
+        ExpressionResolver resolver = new ExpressionResolver(ctx);
+        assertEquals(5, resolver.resolve("key word in shared counts"));
+        assertEquals(1, resolver.resolve("key \"pear\" in shared counts"));
+        assertEquals(0, resolver.resolve("key \"plum\" in shared counts"));
+    }
+
+    @Test
+    void testConcurrentScriptsDoNotLoseUpdates() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                // Each thread has its own context, like separate script runs in a host service
+                InstructionExecutor exec = new InstructionExecutor(new RuntimeContext());
+                for (int i = 0; i < 1000; i++) {
+                    exec.execute(new IncreaseSharedCounterInstruction("hits", "1", 1));
+                    exec.execute(new AddToSharedCountsInstruction("1", "\"k" + (i % 4) + "\"", "counts", 2));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8000L, SharedCounters.getInstance().get("hits"));
+        assertEquals(2000L, SharedCounters.getInstance().get("counts", "k0"));
+        assertEquals(2000L, SharedCounters.getInstance().get("counts", "k3"));
+    }
+}
@@ -0,0 +1,61 @@
+package talk.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import talk.expression.ChannelValue;
+
+/**
+ * Measures channel throughput with one producer and 1, 2, 4 and 8 consumers.
+ * Run with: java -cp <test classpath> talk.benchmark.ChannelThroughputBenchmark [items] [channelSize]
+ */
+public class ChannelThroughputBenchmark {
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int channelSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        // Warm-up round so the JIT has compiled the send/receive paths
+        run(items / 10, channelSize, 2);
+
+        System.out.println("Channel throughput (" + items + " items, size " + channelSize + ")");
+        for (int consumers : new int[] {1, 2, 4, 8}) {
+            double perSecond = run(items, channelSize, consumers);
+            System.out.printf("  %d consumer(s): %,.0f items/sec%n", consumers, perSecond);
+        }
+    }
+
+    private static double run(int items, int channelSize, int consumers) throws Exception {
+        ChannelValue channel = new ChannelValue(channelSize);
+        LongAdder received = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            Thread consumer = new Thread(() -> {
+                try {
+                    while (channel.receive() != null) {
+                        received.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(consumer);
+            consumer.start();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < items; i++) {
+            channel.send(i);
+        }
+        channel.close();
+        for (Thread consumer : threads) {
+            consumer.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (received.sum() != items) {
+            throw new IllegalStateException("Lost items: expected " + items + ", received " + received.sum());
+        }
+        return items / (elapsed / 1_000_000_000.0);
+    }
+}
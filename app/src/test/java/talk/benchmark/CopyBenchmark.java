@@ -0,0 +1,106 @@
+package talk.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import talk.io.CopyEngine;
+
+/**
+ * Compares "copy directory" with copying one file at a time through streams,
+ * which is what scripts did before by looping over "list files in".
+ * Run with: java -cp <test classpath> talk.benchmark.CopyBenchmark [small files] [large files] [large file MB]
+ */
+public class CopyBenchmark {
+    public static void main(String[] args) throws Exception {
+        int smallFiles = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int largeFiles = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long largeSize = (args.length > 2 ? Long.parseLong(args[2]) : 2048) * 1024 * 1024;
+        Path dir = Files.createTempDirectory("talk-copy-bench");
+        try {
+            Path small = dir.resolve("small");
+            Path large = dir.resolve("large");
+            createSmallTree(small, smallFiles);
+            createLargeFiles(large, largeFiles, largeSize);
+
+            // Warm-up round, which also brings the small tree into the page cache
+            new CopyEngine().copyDirectory(small, dir.resolve("warmup-engine"));
+            copyOneByOne(small, dir.resolve("warmup-stream"));
+
+            System.out.println("copy directory (" + smallFiles + " small files)");
+            report(small, dir.resolve("small-engine"), dir.resolve("small-stream"));
+            System.out.println("copy directory (" + largeFiles + " files of " + largeSize / (1024 * 1024) + " MB)");
+            report(large, dir.resolve("large-engine"), dir.resolve("large-stream"));
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    private static void report(Path source, Path engineTarget, Path streamTarget) throws IOException {
+        long start = System.nanoTime();
+        CopyEngine.CopyStats stats = new CopyEngine().copyDirectory(source, engineTarget);
+        double engine = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.println("  CopyEngine:        " + stats);
+
+        start = System.nanoTime();
+        long bytes = copyOneByOne(source, streamTarget);
+        double stream = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("  one file at a time: %.1f MB in %.0f ms (%.1f MB/s); CopyEngine is %.1fx faster%n",
+            bytes / 1_048_576.0, stream, bytes / 1_048_576.0 / (stream / 1000), stream / engine);
+    }
+
+    private static long copyOneByOne(Path source, Path target) throws IOException {
+        long bytes = 0;
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                Path to = target.resolve(source.relativize(path));
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(to);
+                    continue;
+                }
+                try (InputStream in = Files.newInputStream(path); OutputStream out = Files.newOutputStream(to)) {
+                    bytes += in.transferTo(out);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static void createSmallTree(Path root, int files) throws IOException {
+        byte[] content = new byte[2048];
+        new Random(1).nextBytes(content);
+        for (int i = 0; i < files; i++) {
+            // 100 files per directory, like a typical source or log tree
+            Path file = root.resolve("d" + (i / 1000)).resolve("e" + (i / 100 % 10)).resolve("f" + i + ".dat");
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+        }
+    }
+
+    private static void createLargeFiles(Path root, int files, long size) throws IOException {
+        Files.createDirectories(root);
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(2).nextBytes(chunk);
+        for (int i = 0; i < files; i++) {
+            try (OutputStream out = Files.newOutputStream(root.resolve("large" + i + ".bin"))) {
+                for (long written = 0; written < size; written += chunk.length) {
+                    out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+                }
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package talk.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import talk.core.RuntimeContext;
+import talk.instruction.WriteInstruction;
+import talk.io.DefaultFileSystem;
+import talk.io.DefaultLogger;
+import talk.io.OutputChannelManager;
+import talk.runtime.InstructionExecutor;
+
+/**
+ * Measures "write ... to file" lines/sec with buffered output channels and
+ * with --sync-writes behaviour (open, append and close per line).
+ * Run with: java -cp <test classpath> talk.benchmark.FileWriteBenchmark [lines]
+ */
+public class FileWriteBenchmark {
+    public static void main(String[] args) throws Exception {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        // Unbuffered writes are far slower, so they get a smaller share to keep the run short
+        int syncLines = Math.max(1, lines / 20);
+        Path dir = Files.createTempDirectory("talk-write-bench");
+        try {
+            // Warm-up round
+            run(dir.resolve("warmup.txt"), lines / 10, OutputChannelManager.DEFAULT_BUFFER_SIZE);
+            run(dir.resolve("warmup-sync.txt"), syncLines / 10, 0);
+
+            System.out.println("write ... to file (" + lines + " lines buffered, " + syncLines + " lines synchronous)");
+            double buffered = run(dir.resolve("buffered.txt"), lines, OutputChannelManager.DEFAULT_BUFFER_SIZE);
+            double small = run(dir.resolve("small.txt"), lines, 1024);
+            double sync = run(dir.resolve("sync.txt"), syncLines, 0);
+            System.out.printf("  buffered (64K chars): %,.0f lines/sec%n", buffered);
+            System.out.printf("  buffered (1K chars):  %,.0f lines/sec%n", small);
+            System.out.printf("  --sync-writes:        %,.0f lines/sec (%.0fx slower)%n", sync, buffered / sync);
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static double run(Path file, int lines, int bufferSize) throws Exception {
+        RuntimeContext ctx = new RuntimeContext();
+        ctx.setVariable("text", "the quick brown fox jumps over the lazy dog");
+        DefaultFileSystem fileSystem = new DefaultFileSystem();
+        InstructionExecutor exec = new InstructionExecutor(ctx, new ByteArrayInputStream(new byte[0]),
+            fileSystem, new DefaultLogger(fileSystem));
+        exec.setWriteBuffering(bufferSize);
+        WriteInstruction write = new WriteInstruction("text", file.toString(), 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < lines; i++) {
+            exec.execute(write);
+        }
+        exec.finish();
+        long elapsed = System.nanoTime() - start;
+
+        long written;
+        try (Stream<String> writtenLines = Files.lines(file)) {
+            written = writtenLines.count();
+        }
+        if (written != lines) {
+            throw new IllegalStateException("Expected " + lines + " lines in " + file + ", found " + written);
+        }
+        return lines / (elapsed / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,107 @@
+package talk.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import talk.core.Instruction;
+import talk.core.RuntimeContext;
+import talk.instruction.ImportInstruction;
+import talk.io.DefaultFileSystem;
+import talk.io.DefaultLogger;
+import talk.io.FileSystem;
+import talk.runtime.InstructionExecutor;
+import talk.runtime.ModuleLoader;
+import talk.runtime.ModulePrecompiler;
+
+/**
+ * Cold-start time of a script importing a synthetic project of many modules,
+ * with modules parsed as their imports run and with them precompiled in
+ * parallel first. The module cache is cleared before every run.
+ * Run with: java -cp <test classpath> talk.benchmark.ImportPrecompileBenchmark [modules] [lines per module]
+ */
+public class ImportPrecompileBenchmark {
+    private static final int MODULES_PER_LAYER = 20;
+    private static final int IMPORTS_PER_MODULE = 3;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int modules = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        Path dir = Files.createTempDirectory("talk-import-bench");
+        try {
+            List<Instruction> root = createProject(dir, modules, lines);
+            FileSystem fileSystem = new DefaultFileSystem();
+
+            // Warm-up round
+            run(fileSystem, root, false);
+            run(fileSystem, root, true);
+
+            long[] lazy = new long[ROUNDS];
+            long[] precompiled = new long[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                lazy[i] = run(fileSystem, root, false);
+                precompiled[i] = run(fileSystem, root, true);
+            }
+            System.out.println("Cold start, " + modules + " modules of " + lines + " lines, "
+                + Runtime.getRuntime().availableProcessors() + " processors (median of " + ROUNDS + ")");
+            System.out.printf("  parsed on import:         %.1f ms%n", median(lazy) / 1e6);
+            System.out.printf("  precompiled in parallel: %.1f ms (%.1fx faster)%n",
+                median(precompiled) / 1e6, (double) median(lazy) / median(precompiled));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static long run(FileSystem fileSystem, List<Instruction> root, boolean precompile) throws IOException {
+        ModuleLoader.clearCache();
+        long start = System.nanoTime();
+        InstructionExecutor exec = new InstructionExecutor(new RuntimeContext(), new ByteArrayInputStream(new byte[0]),
+            fileSystem, new DefaultLogger(fileSystem));
+        if (precompile) {
+            new ModulePrecompiler(exec.getModuleLoader()).precompile("main.talk", root);
+        }
+        for (Instruction instruction : root) {
+            exec.execute(instruction);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // Layers of modules, each importing a few modules of the next layer; the root imports the first layer
+    private static List<Instruction> createProject(Path dir, int modules, int lines) throws IOException {
+        for (int i = 0; i < modules; i++) {
+            StringBuilder content = new StringBuilder();
+            int nextLayer = (i / MODULES_PER_LAYER + 1) * MODULES_PER_LAYER;
+            for (int j = 0; j < IMPORTS_PER_MODULE && nextLayer < modules; j++) {
+                int imported = nextLayer + (i * 7 + j * 3) % Math.min(MODULES_PER_LAYER, modules - nextLayer);
+                content.append("import \"").append(dir.resolve("m" + imported + ".talk")).append("\"\n");
+            }
+            for (int line = 0; line < lines; line++) {
+                content.append("set m").append(i).append("_v").append(line).append(" to \"value ").append(line).append("\"\n");
+            }
+            Files.writeString(dir.resolve("m" + i + ".talk"), content);
+        }
+        Instruction[] root = new Instruction[Math.min(MODULES_PER_LAYER, modules)];
+        for (int i = 0; i < root.length; i++) {
+            root[i] = new ImportInstruction(dir.resolve("m" + i + ".talk").toString(), i + 1);
+        }
+        return Collections.unmodifiableList(Arrays.asList(root));
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,111 @@
+package talk.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import talk.core.RuntimeContext;
+import talk.expression.ListValue;
+import talk.instruction.AddToListInstruction;
+import talk.instruction.AssignmentInstruction;
+import talk.runtime.InstructionExecutor;
+import talk.io.DefaultFileSystem;
+import talk.io.DefaultLogger;
+
+/**
+ * Measures appending to a list with "add x to items", compared with building a new
+ * list for every item, the only way to grow a list before lists could be changed.
+ * Appending through the executor includes resolving the item; the list's own cost is
+ * measured separately. Also measures copying a large list with "set b to a" and then
+ * changing the copy.
+ * Run with: java -cp <test classpath> talk.benchmark.ListAppendBenchmark [items] [rebuiltItems]
+ */
+public class ListAppendBenchmark {
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rebuiltItems = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        // Warm-up round so the JIT has compiled the append paths
+        appendInPlace(items / 10);
+        rebuild(rebuiltItems / 10);
+
+        System.out.println("List append (" + items + " items appended, " + rebuiltItems + " rebuilt)");
+        long start = System.nanoTime();
+        appendInPlace(items);
+        long inPlace = System.nanoTime() - start;
+        System.out.printf("  add x to items:      %8.1f ms, %6.1f ns/item%n", inPlace / 1e6, (double) inPlace / items);
+
+        start = System.nanoTime();
+        ListValue direct = new ListValue();
+        for (int i = 0; i < items; i++) {
+            direct.add("item");
+        }
+        long listOnly = System.nanoTime() - start;
+        System.out.printf("  ListValue.add alone: %8.1f ms, %6.1f ns/item%n", listOnly / 1e6, (double) listOnly / items);
+
+        start = System.nanoTime();
+        rebuild(rebuiltItems);
+        long rebuilt = System.nanoTime() - start;
+        System.out.printf("  rebuild every item:  %8.1f ms, %6.1f ns/item%n", rebuilt / 1e6, (double) rebuilt / rebuiltItems);
+
+        copyThenChange(items);
+    }
+
+    // Runs "add <n> to items" through the executor, as a script would
+    private static void appendInPlace(int items) {
+        RuntimeContext context = new RuntimeContext();
+        InstructionExecutor exec = executor(context);
+        AddToListInstruction add = new AddToListInstruction("_index", "items", 1);
+        for (int i = 0; i < items; i++) {
+            context.setVariable("_index", i);
+            exec.execute(add);
+        }
+        if (((ListValue) context.getVariable("items")).size() != items) {
+            throw new IllegalStateException("Lost items");
+        }
+    }
+
+    private static void rebuild(int items) {
+        ListValue list = new ListValue(List.of());
+        for (int i = 0; i < items; i++) {
+            List<String> grown = new ArrayList<>(list.getItems());
+            grown.add(String.valueOf(i));
+            list = new ListValue(grown);
+        }
+        if (list.size() != items) {
+            throw new IllegalStateException("Lost items");
+        }
+    }
+
+    private static void copyThenChange(int items) {
+        RuntimeContext context = new RuntimeContext();
+        InstructionExecutor exec = executor(context);
+        ListValue original = new ListValue();
+        for (int i = 0; i < items; i++) {
+            original.add(String.valueOf(i));
+        }
+        context.setVariable("a", original);
+
+        long start = System.nanoTime();
+        exec.execute(new AssignmentInstruction("b", new ListValue(List.of("a")), 1));
+        long copied = System.nanoTime() - start;
+        start = System.nanoTime();
+        exec.execute(new AddToListInstruction("\"one more\"", "b", 2));
+        long firstChange = System.nanoTime() - start;
+        start = System.nanoTime();
+        exec.execute(new AddToListInstruction("\"and another\"", "b", 3));
+        long secondChange = System.nanoTime() - start;
+
+        System.out.printf("  set b to a:          %8.3f ms%n", copied / 1e6);
+        System.out.printf("  first change to b:   %8.3f ms (copies the shared items)%n", firstChange / 1e6);
+        System.out.printf("  second change to b:  %8.3f ms%n", secondChange / 1e6);
+        if (original.size() != items || ((ListValue) context.getVariable("b")).size() != items + 2) {
+            throw new IllegalStateException("Copy and original are mixed up");
+        }
+    }
+
+    private static InstructionExecutor executor(RuntimeContext context) {
+        return new InstructionExecutor(context, new ByteArrayInputStream(new byte[0]), new DefaultFileSystem(),
+            new DefaultLogger(new DefaultFileSystem()));
+    }
+}
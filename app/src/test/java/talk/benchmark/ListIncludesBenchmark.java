@@ -0,0 +1,83 @@
+package talk.benchmark;
+
+import talk.expression.ListValue;
+
+/**
+ * Measures "items includes x" against list size, scanning the list and with the hash
+ * index it builds after a few lookups, for a list of words and a list of whole numbers.
+ * Half of the lookups miss, which is the worst case for a scan. Scans are measured by
+ * replacing the first item before every lookup, which throws the index away. Also
+ * reports how long building the index took and how much memory it uses.
+ * Run with: java -cp <test classpath> talk.benchmark.ListIncludesBenchmark [lookups]
+ */
+public class ListIncludesBenchmark {
+    private static final int[] SIZES = {16, 64, 256, 1_000, 10_000, 100_000, 1_000_000};
+
+    public static void main(String[] args) {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        // Warm-up rounds so the JIT has compiled the scan and lookup paths
+        for (int round = 0; round < 3; round++) {
+            for (int size : SIZES) {
+                run(size, lookups / 4, false, false);
+                run(size, lookups / 4, true, false);
+            }
+        }
+
+        System.out.println("List includes (" + lookups + " lookups, half of them misses)");
+        System.out.println("  items      kind    scan ns/lookup  indexed ns/lookup  index build ms  index bytes/item");
+        for (int size : SIZES) {
+            run(size, lookups, false, true);
+            run(size, lookups, true, true);
+        }
+    }
+
+    private static void run(int size, int lookups, boolean numbers, boolean print) {
+        ListValue list = new ListValue();
+        String[] keys = new String[lookups];
+        for (int i = 0; i < size; i++) {
+            list.add(numbers ? String.valueOf(i * 2) : "word" + (i * 2));
+        }
+        for (int i = 0; i < lookups; i++) {
+            // Even numbers are in the list, odd ones are not
+            long key = (i * 7919L) % (size * 2L);
+            keys[i] = numbers ? String.valueOf(key) : "word" + key;
+        }
+        String first = list.get(1);
+
+        // Bounded so the largest lists don't take minutes to scan
+        int scans = Math.min(lookups, Math.max(100, 20_000_000 / size));
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            list.set(1, first);
+            found += list.includes(keys[i]) ? 1 : 0;
+        }
+        long scanned = System.nanoTime() - start;
+
+        // The fifth lookup after a change builds the index
+        list.set(1, first);
+        for (int i = 0; i < 4; i++) {
+            list.includes(keys[i]);
+        }
+        start = System.nanoTime();
+        list.includes(keys[4]);
+        long built = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            found += list.includes(keys[i]) ? 1 : 0;
+        }
+        long indexed = System.nanoTime() - start;
+
+        if (found == 0) {
+            throw new IllegalStateException("Nothing found");
+        }
+        if (print) {
+            long indexBytes = list.getIndexBytes();
+            System.out.printf("  %9d  %-6s  %14.1f  %17.1f  %14.3f  %16.1f%n", size, numbers ? "int" : "text",
+                (double) scanned / scans, (double) indexed / lookups, indexBytes == 0 ? 0 : built / 1e6,
+                (double) indexBytes / size);
+        }
+    }
+}
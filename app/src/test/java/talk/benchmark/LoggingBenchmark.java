@@ -0,0 +1,79 @@
+package talk.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import talk.io.AsyncLogger;
+import talk.io.AsyncLogger.OverflowPolicy;
+import talk.io.DefaultFileSystem;
+import talk.io.DefaultLogger;
+import talk.io.Logger;
+
+/**
+ * Measures logged lines/sec for DefaultLogger, which appends every message to
+ * the log file, and for AsyncLogger with each overflow policy. Console output
+ * is off so only the file writing is measured. Times for AsyncLogger include
+ * close(), so every kept message has reached the file.
+ * Run with: java -cp <test classpath> talk.benchmark.LoggingBenchmark [messages]
+ */
+public class LoggingBenchmark {
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        // Per-message appends are far slower, so DefaultLogger gets a smaller share to keep the run short
+        int syncMessages = Math.max(1, messages / 20);
+        Path dir = Files.createTempDirectory("talk-log-bench");
+        try {
+            // Warm-up round
+            runDefault(dir.resolve("warmup.log"), syncMessages / 10);
+            runAsync(dir.resolve("warmup-async.log"), messages / 10, OverflowPolicy.BLOCK);
+
+            System.out.println("log instruction (" + messages + " messages async, " + syncMessages + " with DefaultLogger)");
+            double sync = runDefault(dir.resolve("default.log"), syncMessages);
+            System.out.printf("  DefaultLogger:        %,.0f lines/sec%n", sync);
+            for (OverflowPolicy policy : OverflowPolicy.values()) {
+                Path file = dir.resolve(policy.name().toLowerCase() + ".log");
+                double async = runAsync(file, messages, policy);
+                System.out.printf("  AsyncLogger (%-6s): %,.0f lines/sec (%.0fx), %d of %d written%n",
+                    policy.name().toLowerCase(), async, async / sync, countLines(file), messages);
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static double runDefault(Path file, int messages) throws IOException {
+        return run(new DefaultLogger(file.toString(), false, false, new DefaultFileSystem()), messages);
+    }
+
+    private static double runAsync(Path file, int messages, OverflowPolicy policy) throws IOException {
+        AsyncLogger logger = new AsyncLogger(file.toString(), false, false, new DefaultFileSystem(),
+            AsyncLogger.DEFAULT_CAPACITY, policy);
+        return run(logger, messages);
+    }
+
+    private static double run(Logger logger, int messages) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            logger.log("processing item " + i, 12);
+        }
+        if (logger instanceof AsyncLogger) {
+            ((AsyncLogger) logger).close();
+        }
+        long elapsed = System.nanoTime() - start;
+        return messages / (elapsed / 1_000_000_000.0);
+    }
+
+    private static long countLines(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            return lines.count();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package talk.benchmark;
+
+import talk.expression.ListValue;
+
+/**
+ * Compares a list of numbers kept in an int[] with the same numbers kept as text,
+ * the way every list was stored before: heap used by the list, the time to add
+ * the numbers, and the time to sum them as "repeat for each" visits them.
+ * Run with: java -Xmx2g -cp <test classpath> talk.benchmark.NumericListBenchmark [items]
+ */
+public class NumericListBenchmark {
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        // Warm-up round so the JIT has compiled the add and loop paths
+        sum(build(items / 10, false));
+        sum(build(items / 10, true));
+
+        System.out.println("Numeric list (" + items + " whole numbers)");
+        measure("int[]", items, false);
+        measure("text", items, true);
+    }
+
+    private static void measure(String name, int items, boolean asText) {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        ListValue list = build(items, asText);
+        long built = System.nanoTime() - start;
+        long heap = usedHeap() - before;
+
+        start = System.nanoTime();
+        long total = sum(list);
+        long summed = System.nanoTime() - start;
+        System.out.printf("  %-6s %7.1f MB (%5.1f bytes/item), add %6.1f ns/item, sum %5.1f ns/item (total %d)%n",
+            name, heap / 1e6, (double) heap / items, (double) built / items, (double) summed / items, total);
+        if (list.getElementType() != (asText ? String.class : int.class)) {
+            throw new IllegalStateException("Unexpected element type " + list.getElementType());
+        }
+    }
+
+    private static ListValue build(int items, boolean asText) {
+        ListValue list = new ListValue();
+        if (asText) {
+            // A word first keeps every later item as text
+            list.add("start");
+        }
+        for (int i = 0; i < items; i++) {
+            list.add(i);
+        }
+        if (asText) {
+            list.remove(1);
+        }
+        return list;
+    }
+
+    // What a loop adding up its items does: take each item and read it as a number
+    private static long sum(ListValue list) {
+        long total = 0;
+        for (Object item : list.getValues()) {
+            total += item instanceof Number ? ((Number) item).longValue() : Long.parseLong((String) item);
+        }
+        return total;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,72 @@
+package talk.benchmark;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import talk.plugins.PluginConfigLoader;
+import talk.plugins.PluginHandler;
+import talk.plugins.PluginRegistry;
+
+/**
+ * Compares calls/sec of config-loaded plugins with built-in lambda plugins,
+ * and with the Method.invoke wrapper the loader used to install.
+ * Run with: java -cp <test classpath> talk.benchmark.PluginInvocationBenchmark [calls]
+ */
+public class PluginInvocationBenchmark {
+
+    public static Object concat(Object... args) {
+        return String.valueOf(args[0]) + args[1];
+    }
+
+    public static int add(int a, int b) {
+        return a + b;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        Path config = Files.createTempFile("talk-plugins", ".properties");
+        Files.write(config, String.join("\n",
+            "plugin.bench concat = talk.benchmark.PluginInvocationBenchmark#concat",
+            "plugin.bench add = talk.benchmark.PluginInvocationBenchmark#add").getBytes());
+        PluginConfigLoader.loadPlugins(config.toString());
+        Files.delete(config);
+
+        PluginRegistry registry = PluginRegistry.getInstance();
+        registry.register("bench lambda", a -> String.valueOf(a[0]) + a[1]);
+        Method method = PluginInvocationBenchmark.class.getMethod("concat", Object[].class);
+        PluginHandler reflective = a -> method.invoke(null, new Object[] { a });
+
+        PluginHandler lambda = registry.getAllPlugins().get("bench lambda");
+        PluginHandler varargs = registry.getAllPlugins().get("bench concat");
+        PluginHandler typed = registry.getAllPlugins().get("bench add");
+
+        // Warm-up round
+        for (int i = 0; i < 3; i++) {
+            run(lambda, calls / 10, "a", "b");
+            run(reflective, calls / 10, "a", "b");
+            run(varargs, calls / 10, "a", "b");
+            run(typed, calls / 10, 1, 2);
+        }
+
+        System.out.println("Plugin invocation (" + calls + " calls)");
+        System.out.printf("  built-in lambda:          %,.0f calls/sec%n", run(lambda, calls, "a", "b"));
+        System.out.printf("  Method.invoke (old):      %,.0f calls/sec%n", run(reflective, calls, "a", "b"));
+        System.out.printf("  config-loaded Object...:  %,.0f calls/sec%n", run(varargs, calls, "a", "b"));
+        System.out.printf("  config-loaded (int,int):  %,.0f calls/sec%n", run(typed, calls, 1, 2));
+    }
+
+    private static double run(PluginHandler handler, int calls, Object first, Object second) throws Exception {
+        Object sink = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink = handler.execute(first, second);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == null) {
+            throw new IllegalStateException("Plugin returned nothing");
+        }
+        return calls / (elapsed / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,58 @@
+package talk.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import talk.runtime.SharedCounters;
+
+/**
+ * Measures shared counter increments/sec under contention, with a single
+ * AtomicLong as the baseline.
+ * Run with: java -cp <test classpath> talk.benchmark.SharedCounterContentionBenchmark [incrementsPerThread]
+ */
+public class SharedCounterContentionBenchmark {
+    public static void main(String[] args) throws Exception {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        SharedCounters counters = SharedCounters.getInstance();
+        AtomicLong atomic = new AtomicLong();
+
+        // Warm-up round
+        run(perThread / 10, 2, () -> counters.increase("warmup", 1));
+        run(perThread / 10, 2, atomic::incrementAndGet);
+
+        System.out.println("Shared counter contention (" + perThread + " increments per thread)");
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            String name = "hits" + threads;
+            double shared = run(perThread, threads, () -> counters.increase(name, 1));
+            double keyed = run(perThread, threads, () -> counters.increase("counts" + threads, "key", 1));
+            double baseline = run(perThread, threads, atomic::incrementAndGet);
+            System.out.printf("  %d thread(s): counter %,.0f/sec, keyed %,.0f/sec, AtomicLong %,.0f/sec%n",
+                threads, shared, keyed, baseline);
+            if (counters.get(name) != (long) perThread * threads) {
+                throw new IllegalStateException("Lost updates on " + name);
+            }
+        }
+        counters.clear();
+    }
+
+    private static double run(int perThread, int threadCount, Runnable increment) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    increment.run();
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        return (double) perThread * threadCount / (elapsed / 1_000_000_000.0);
+    }
+}